@@ -1,6 +1,8 @@
 from flask import Flask, request, render_template,jsonify
 from flask_cors import CORS,cross_origin
 from src.pipeline.predict_pipeline import CustomData, PredictPipeline
+import pandas as pd
+import math
 import warnings
 
 warnings.filterwarnings("ignore", category=UserWarning, module=".*sklearn.*")
@@ -65,5 +67,67 @@ def predict_api():
         dct = {'price':round(pred[0],2)}
         return jsonify(dct)
 
+# Categories the preprocessor's ordinal encoder was fitted on (see data_transformation.py)
+CATEGORIES = {
+    'cut': ['Fair', 'Good', 'Very Good', 'Premium', 'Ideal'],
+    'color': ['D', 'E', 'F', 'G', 'H', 'I', 'J'],
+    'clarity': ['I1', 'SI2', 'SI1', 'VS2', 'VS1', 'VVS2', 'VVS1', 'IF'],
+}
+NUMERIC_FIELDS = ['carat', 'depth', 'table', 'x', 'y', 'z']
+
+def parse_row(row):
+    """Model input for one batch row, or an error message saying why it can't be scored"""
+    if not isinstance(row, dict):
+        return None, 'row is not an object'
+    parsed = {}
+    for field in NUMERIC_FIELDS:
+        try:
+            value = float(row[field])
+        except (KeyError, TypeError, ValueError):
+            return None, f'{field} missing or not a number'
+        if not math.isfinite(value):
+            return None, f'{field} is not finite'
+        parsed[field] = value
+    for field, categories in CATEGORIES.items():
+        if row.get(field) not in categories:
+            return None, f'{field} {row.get(field)!r} is not one of {categories}'
+        parsed[field] = row[field]
+    return parsed, None
+
+@app.route('/predictBatchAPI',methods=['POST'])
+@cross_origin()
+def predict_batch_api():
+    """Score rows in one call. prices and errors line up with rows; a row that can't be
+    scored gets a null price and its error, the other rows are still scored."""
+    rows = (request.json or {}).get('rows', [])
+    if not rows:
+        return jsonify({'prices': [], 'errors': []})
+
+    prices = [None] * len(rows)
+    errors = [None] * len(rows)
+    valid = []
+    for i, row in enumerate(rows):
+        parsed, error = parse_row(row)
+        if error:
+            errors[i] = error
+        else:
+            valid.append((i, parsed))
+
+    if valid:
+        predict_pipeline = PredictPipeline()
+        try:
+            pred = predict_pipeline.predict(pd.DataFrame([parsed for _, parsed in valid]))
+            for (i, _), p in zip(valid, pred):
+                prices[i] = round(float(p), 2)
+        except Exception:
+            # Score one by one so a row the model rejects doesn't fail the rest
+            for i, parsed in valid:
+                try:
+                    prices[i] = round(float(predict_pipeline.predict(pd.DataFrame([parsed]))[0]), 2)
+                except Exception as e:
+                    errors[i] = f'prediction failed: {e}'
+
+    return jsonify({'prices': prices, 'errors': errors})
+
 if __name__ == '__main__':
     app.run(host='0.0.0.0', port=8000)
\ No newline at end of file
@@ -41,7 +41,13 @@ public class GemNetApplication {
         System.out.println("🌐 Language: " + tesseractConfig.getLanguage());
         System.out.println("⚙️ OCR Engine Mode: " + tesseractConfig.getOcrEngineMode());
         System.out.println("📄 Page Segmentation Mode: " + tesseractConfig.getPageSegMode());
-        
+    }
+    
+    /**
+     * Seed missing collections and report network and MongoDB status; run by the
+     * StartupOrchestrator alongside the other startup initializers
+     */
+    public void initializeDatabase() {
         // Ensure database exists with required collections
         try {
             System.out.println("🗄️ Checking database initialization status...");
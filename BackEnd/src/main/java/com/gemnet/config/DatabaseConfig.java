@@ -1,8 +1,6 @@
 package com.gemnet.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.index.IndexOperations;
@@ -14,7 +12,7 @@ import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 import com.gemnet.model.User;
 
 @Configuration
-public class DatabaseConfig implements ApplicationListener<ApplicationReadyEvent> {
+public class DatabaseConfig {
 
     @Autowired
     private MongoTemplate mongoTemplate;
@@ -22,8 +20,10 @@ public class DatabaseConfig implements ApplicationListener<ApplicationReadyEvent
     @Autowired
     private MongoMappingContext mongoMappingContext;
 
-    @Override
-    public void onApplicationEvent(ApplicationReadyEvent event) {
+    /**
+     * Create the indexes declared on every document class; run by the StartupOrchestrator
+     */
+    public void ensureIndexes() {
         try {
             System.out.println("🔌 Checking MongoDB connection...");
             // Ping MongoDB to check connection
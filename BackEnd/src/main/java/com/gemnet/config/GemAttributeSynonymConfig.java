@@ -0,0 +1,55 @@
+package com.gemnet.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Extra attribute synonyms on top of the built-in enum synonyms.
+ * Each entry maps a free-text term to an enum constant name, e.g.
+ * gemnet.attributes.synonyms.color[cornflower\ blue]=BLUE
+ */
+@Configuration
+@ConfigurationProperties(prefix = "gemnet.attributes.synonyms")
+public class GemAttributeSynonymConfig {
+    
+    private Map<String, String> species = new HashMap<>();
+    private Map<String, String> color = new HashMap<>();
+    private Map<String, String> clarity = new HashMap<>();
+    private Map<String, String> cut = new HashMap<>();
+    
+    // Getters and Setters
+    public Map<String, String> getSpecies() {
+        return species;
+    }
+    
+    public void setSpecies(Map<String, String> species) {
+        this.species = species;
+    }
+    
+    public Map<String, String> getColor() {
+        return color;
+    }
+    
+    public void setColor(Map<String, String> color) {
+        this.color = color;
+    }
+    
+    public Map<String, String> getClarity() {
+        return clarity;
+    }
+    
+    public void setClarity(Map<String, String> clarity) {
+        this.clarity = clarity;
+    }
+    
+    public Map<String, String> getCut() {
+        return cut;
+    }
+    
+    public void setCut(Map<String, String> cut) {
+        this.cut = cut;
+    }
+}
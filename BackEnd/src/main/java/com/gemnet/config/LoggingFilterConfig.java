@@ -20,6 +20,12 @@ public class LoggingFilterConfig {
     @Order(Ordered.HIGHEST_PRECEDENCE)
     public Filter requestResponseLoggingFilter() {
         return new OncePerRequestFilter() {
+            @Override
+            protected boolean shouldNotFilter(HttpServletRequest request) {
+                // Media requests are too frequent to log in full
+                return request.getRequestURI().startsWith("/uploads/");
+            }
+            
             @Override
             protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                            FilterChain filterChain) throws IOException, ServletException {
@@ -55,7 +55,7 @@ public class SecurityConfig {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
                 .requestMatchers("/", "/health", "/status").permitAll() // Allow basic health endpoints
-                .requestMatchers("/api/health", "/api/status").permitAll() // Allow API health endpoints
+                .requestMatchers("/api/health", "/api/status", "/api/ready").permitAll() // Allow API health endpoints
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/admin/dashboard-stats").permitAll() // Allow dashboard stats for quick loading
                 .requestMatchers("/api/admin/users").permitAll() // Allow user management data
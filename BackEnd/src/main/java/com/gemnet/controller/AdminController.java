@@ -4,7 +4,18 @@ import com.gemnet.dto.ApiResponse;
 import com.gemnet.model.GemListing;
 import com.gemnet.model.User;
 import com.gemnet.service.AdminService;
+import com.gemnet.service.FaceDuplicateService;
+import com.gemnet.service.FaceRecognitionService;
+import com.gemnet.service.ImageDerivativeService;
+import com.gemnet.service.ListingImageDuplicateService;
+import com.gemnet.service.OcrEnginePool;
+import com.gemnet.service.OcrResultCache;
+import com.gemnet.service.UploadGarbageCollectorService;
+import com.gemnet.service.UploadMigrationService;
 import com.gemnet.service.UserService;
+import com.gemnet.service.VerificationJobService;
+import com.gemnet.service.VideoPosterService;
+import com.gemnet.util.MatScope;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,6 +45,36 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private VideoPosterService videoPosterService;
+    
+    @Autowired
+    private OcrEnginePool ocrEnginePool;
+
+    @Autowired
+    private OcrResultCache ocrResultCache;
+
+    @Autowired
+    private ListingImageDuplicateService listingImageDuplicateService;
+
+    @Autowired
+    private UploadMigrationService uploadMigrationService;
+
+    @Autowired
+    private FaceDuplicateService faceDuplicateService;
+
+    @Autowired
+    private VerificationJobService verificationJobService;
+
+    @Autowired
+    private FaceRecognitionService faceRecognitionService;
+
+    @Autowired
+    private UploadGarbageCollectorService uploadGarbageCollectorService;
+
     /**
      * Get all users for admin management
      */
@@ -130,6 +171,42 @@ public class AdminController {
         }
     }
 
+    /**
+     * Template score of a user's face against their NIC photo, from the stored templates
+     */
+    @GetMapping("/users/{userId}/face-match")
+    @Operation(summary = "Face template score", 
+               description = "Score the stored face and NIC photo templates of a user without reprocessing images (advisory, not the verification decision)")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getFaceMatch(@PathVariable String userId) {
+        return ResponseEntity.ok(userService.compareStoredFaces(userId));
+    }
+
+    /**
+     * Users whose face was close to another user's at enrolment
+     */
+    @GetMapping("/users/face-duplicates")
+    @Operation(summary = "Possible duplicate identities", 
+               description = "List users flagged by the 1:N face check with their closest matches, plus index status")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getFaceDuplicates(
+            @RequestParam(defaultValue = "50") int limit) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("flagged", faceDuplicateService.getFlagged(Math.max(1, Math.min(limit, 500))));
+        data.put("index", faceDuplicateService.getStatus());
+        return ResponseEntity.ok(ApiResponse.success("Face duplicate candidates retrieved", data));
+    }
+
+    /**
+     * Face thresholds measured on the stored templates
+     */
+    @GetMapping("/users/face-calibration")
+    @Operation(summary = "Face threshold calibration", 
+               description = "Similarity of each user's selfie and NIC photo (genuine) and of random pairs of users (impostor), the share of each the match and duplicate thresholds accept, and the LSH recall on genuine pairs")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getFaceCalibration(
+            @RequestParam(defaultValue = "20000") int impostorPairs) {
+        Map<String, Object> report = faceDuplicateService.calibrate(Math.max(0, Math.min(impostorPairs, 1_000_000)));
+        return ResponseEntity.ok(ApiResponse.success("Face threshold calibration computed", report));
+    }
+
     /**
      * Update user status (activate/deactivate)
      */
@@ -538,6 +615,175 @@ public class AdminController {
         }
     }
 
+    /**
+     * Generate resized variants for images uploaded before the variant pipeline existed
+     */
+    @PostMapping("/images/variants/backfill")
+    @Operation(summary = "Backfill image variants", 
+               description = "Start a background job that creates resized variants for existing listing and advertisement images")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> backfillImageVariants() {
+        boolean started = imageDerivativeService.startBackfill();
+        Map<String, Object> status = imageDerivativeService.getStatus();
+        
+        if (!started) {
+            return ResponseEntity.ok(ApiResponse.success("Image variant backfill already running", status));
+        }
+        System.out.println("🖼️ Admin - Image variant backfill started");
+        return ResponseEntity.accepted().body(ApiResponse.success("Image variant backfill started", status));
+    }
+
+    /**
+     * Image variant pipeline and backfill progress
+     */
+    @GetMapping("/images/variants/status")
+    @Operation(summary = "Image variant status", 
+               description = "Get image variant pipeline and backfill progress")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getImageVariantStatus() {
+        return ResponseEntity.ok(ApiResponse.success("Image variant status retrieved", imageDerivativeService.getStatus()));
+    }
+
+    /**
+     * Extract posters and metadata for listing videos that have none yet
+     */
+    @PostMapping("/videos/posters/backfill")
+    @Operation(summary = "Backfill video posters", 
+               description = "Start a background job that extracts poster frames, duration and format for existing listing videos")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> backfillVideoPosters() {
+        boolean started = videoPosterService.startBackfill();
+        Map<String, Object> status = videoPosterService.getStatus();
+        
+        if (!started) {
+            return ResponseEntity.ok(ApiResponse.success("Video poster backfill already running", status));
+        }
+        System.out.println("🎬 Admin - Video poster backfill started");
+        return ResponseEntity.accepted().body(ApiResponse.success("Video poster backfill started", status));
+    }
+
+    /**
+     * Video poster worker and backfill progress
+     */
+    @GetMapping("/videos/posters/status")
+    @Operation(summary = "Video poster status", 
+               description = "Get video poster worker and backfill progress")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getVideoPosterStatus() {
+        return ResponseEntity.ok(ApiResponse.success("Video poster status retrieved", videoPosterService.getStatus()));
+    }
+
+    /**
+     * OCR engine pool sizes, utilisation and wait times
+     */
+    @GetMapping("/ocr/engines")
+    @Operation(summary = "OCR engine pool status", 
+               description = "Get Tesseract engine pool utilization per OCR profile")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getOcrEngineStatus() {
+        return ResponseEntity.ok(ApiResponse.success("OCR engine pool status retrieved", ocrEnginePool.getStats()));
+    }
+
+    /**
+     * Size and hit rate of the OCR result cache
+     */
+    @GetMapping("/ocr/cache")
+    @Operation(summary = "OCR result cache status", 
+               description = "Get cached OCR result count, hits, misses and evictions")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getOcrCacheStatus() {
+        return ResponseEntity.ok(ApiResponse.success("OCR result cache status retrieved", ocrResultCache.getStats()));
+    }
+
+    /**
+     * Size and check counts of the duplicate listing photo index
+     */
+    @GetMapping("/listings/image-duplicates")
+    @Operation(summary = "Duplicate listing photo index status", 
+               description = "Get indexed photo count, checks, flagged listings and average check time")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getImageDuplicateStatus() {
+        return ResponseEntity.ok(ApiResponse.success("Duplicate photo index status retrieved", listingImageDuplicateService.getStats()));
+    }
+
+    /**
+     * Identity verification job queue depth, throughput and latency
+     */
+    @GetMapping("/verification-jobs/stats")
+    @Operation(summary = "Verification job stats", 
+               description = "Get face/NIC verification executor load, rejections and average queue/run times")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getVerificationJobStats() {
+        return ResponseEntity.ok(ApiResponse.success("Verification job stats retrieved", verificationJobService.getStats()));
+    }
+
+    /**
+     * Face detector settings, per-thread cascade count and detection times
+     */
+    @GetMapping("/face-detection")
+    @Operation(summary = "Face detection status", 
+               description = "Get the working resolution, cascade instances and average detection time")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getFaceDetectionStatus() {
+        return ResponseEntity.ok(ApiResponse.success("Face detection status retrieved", faceRecognitionService.getDetectionStats()));
+    }
+
+    /**
+     * Native memory gauges for OpenCV image processing
+     */
+    @GetMapping("/native-memory")
+    @Operation(summary = "Native memory status", 
+               description = "Get OpenCV Mat scope counters, heap usage and process resident memory")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getNativeMemoryStatus() {
+        return ResponseEntity.ok(ApiResponse.success("Native memory status retrieved", MatScope.getStats()));
+    }
+
+    /**
+     * Move legacy per-upload files into the deduplicating content-addressed store
+     */
+    @PostMapping("/uploads/migrate")
+    @Operation(summary = "Migrate uploads to content-addressed storage", 
+               description = "Start a background job that stores existing uploads once per content and rewrites references")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> migrateUploads() {
+        boolean started = uploadMigrationService.start();
+        Map<String, Object> status = uploadMigrationService.getStatus();
+        
+        if (!started) {
+            return ResponseEntity.ok(ApiResponse.success("Upload migration already running", status));
+        }
+        System.out.println("📦 Admin - Upload migration started");
+        return ResponseEntity.accepted().body(ApiResponse.success("Upload migration started", status));
+    }
+
+    /**
+     * Upload migration progress
+     */
+    @GetMapping("/uploads/migrate/status")
+    @Operation(summary = "Upload migration status", 
+               description = "Get content-addressed upload migration progress")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getUploadMigrationStatus() {
+        return ResponseEntity.ok(ApiResponse.success("Upload migration status retrieved", uploadMigrationService.getStatus()));
+    }
+
+    /**
+     * Quarantine upload files no listing, advertisement or user references
+     */
+    @PostMapping("/uploads/gc")
+    @Operation(summary = "Collect orphaned uploads", 
+               description = "Start a mark-and-sweep pass that quarantines unreferenced upload files (dryRun only reports)")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> collectOrphanedUploads(
+            @RequestParam(value = "dryRun", defaultValue = "false") boolean dryRun) {
+        boolean started = uploadGarbageCollectorService.start(dryRun);
+        Map<String, Object> status = uploadGarbageCollectorService.getStatus();
+        
+        if (!started) {
+            return ResponseEntity.ok(ApiResponse.success("Upload GC already running", status));
+        }
+        System.out.println("🧹 Admin - Upload GC started" + (dryRun ? " (dry run)" : ""));
+        return ResponseEntity.accepted().body(ApiResponse.success("Upload GC started", status));
+    }
+
+    /**
+     * Upload GC progress and last report
+     */
+    @GetMapping("/uploads/gc/status")
+    @Operation(summary = "Upload GC status", 
+               description = "Get orphaned upload collection progress and reclaimed bytes")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getUploadGcStatus() {
+        return ResponseEntity.ok(ApiResponse.success("Upload GC status retrieved", uploadGarbageCollectorService.getStatus()));
+    }
+
     /**
      * Helper method to create mock notification
      */
@@ -1,12 +1,15 @@
 package com.gemnet.controller;
 
 import com.gemnet.dto.*;
+import com.gemnet.model.VerificationJob;
 import com.gemnet.service.UserService;
+import com.gemnet.service.VerificationJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +19,8 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -26,6 +31,9 @@ public class AuthController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private VerificationJobService verificationJobService;
+    
     @Autowired
     private com.gemnet.repository.UserRepository userRepository;    @PostMapping("/register")
     @Operation(summary = "Register new user", description = "Register a new user with personal information")
@@ -139,17 +147,19 @@ public class AuthController {
                     .body(ApiResponse.error("Invalid file type. Please upload an image", result));
             }
             
-            // Process face verification
-            ApiResponse<Map<String, Object>> response = userService.processFaceVerification(userId, faceImage);
+            // Verification runs as a background job; the client polls /verification-jobs/{jobId}
+            VerificationJob job = verificationJobService.submitFace(userId, faceImage);
+            System.out.println("📷 Face verification job " + job.getId() + " queued for user: " + userId);
             
-            if (response.isSuccess()) {
-                System.out.println("✅ Face verification successful for user: " + userId);
-            } else {
-                System.out.println("❌ Face verification failed for user: " + userId + 
-                                 " - " + response.getMessage());
-            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Face verification queued", verificationJobService.toView(job)));
             
-            return ResponseEntity.ok(response);
+        } catch (RejectedExecutionException e) {
+            System.err.println("⚠️ Verification queue full, face upload refused for user: " + userId);
+            result.put("error", "Verification queue full");
+            result.put("userId", userId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ApiResponse.error("Verification is busy. Please try again in a moment.", result));
             
         } catch (Exception e) {
             System.err.println("❌ Face verification error for user " + userId + ": " + e.getMessage());
@@ -202,17 +212,19 @@ public class AuthController {
                     .body(ApiResponse.error("Invalid file type. Please upload an image", result));
             }
             
-            // Process NIC verification
-            ApiResponse<Map<String, Object>> response = userService.processNicVerification(userId, nicImage);
+            // Verification runs as a background job; the client polls /verification-jobs/{jobId}
+            VerificationJob job = verificationJobService.submitNic(userId, nicImage);
+            System.out.println("🆔 NIC verification job " + job.getId() + " queued for user: " + userId);
             
-            if (response.isSuccess()) {
-                System.out.println("✅ NIC verification successful for user: " + userId);
-            } else {
-                System.out.println("❌ NIC verification failed for user: " + userId + 
-                                 " - " + response.getMessage());
-            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("NIC verification queued", verificationJobService.toView(job)));
             
-            return ResponseEntity.ok(response);
+        } catch (RejectedExecutionException e) {
+            System.err.println("⚠️ Verification queue full, NIC upload refused for user: " + userId);
+            result.put("error", "Verification queue full");
+            result.put("userId", userId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ApiResponse.error("Verification is busy. Please try again in a moment.", result));
             
         } catch (Exception e) {
             System.err.println("❌ NIC verification error for user " + userId + ": " + e.getMessage());
@@ -224,6 +236,17 @@ public class AuthController {
         }
     }
     
+    @GetMapping("/verification-jobs/{jobId}")
+    @Operation(summary = "Verification job status", description = "Poll a face or NIC verification job; includes the verification result once finished")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getVerificationJob(@PathVariable String jobId) {
+        Optional<VerificationJob> job = verificationJobService.getJob(jobId);
+        if (!job.isPresent()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ApiResponse.error("Verification job not found"));
+        }
+        return ResponseEntity.ok(ApiResponse.success("Verification job " + job.get().getStatus(), verificationJobService.toView(job.get())));
+    }
+    
     @PostMapping("/login")
     @Operation(summary = "User login", description = "Authenticate user and return JWT token")
     public ResponseEntity<ApiResponse<AuthenticationResponse>> login(@Valid @RequestBody LoginRequest request) {
@@ -3,18 +3,25 @@ package com.gemnet.controller;
 import com.gemnet.dto.ApiResponse;
 import com.gemnet.dto.GemCertificateDataDto;
 import com.gemnet.dto.GemListingDataDto;
+import com.gemnet.exception.OcrEngineBusyException;
 import com.gemnet.service.GemCertificateService;
+import com.gemnet.service.GemListingBatchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controller for handling CSL (Colored Stone Laboratory) certificate processing and data extraction
@@ -28,6 +35,9 @@ public class GemCertificateController {
     @Autowired
     private GemCertificateService gemCertificateService;
     
+    @Autowired
+    private GemListingBatchService gemListingBatchService;
+    
     /**
      * Extract data from CSL gem certificate image
      */
@@ -83,6 +93,8 @@ public class GemCertificateController {
                 return ResponseEntity.ok(response); // Return 200 with error details in response
             }
             
+        } catch (OcrEngineBusyException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("❌ CSL certificate extraction error: " + e.getMessage());
             e.printStackTrace();
@@ -368,6 +380,71 @@ public class GemCertificateController {
         }
     }
     
+    /**
+     * List many certified stones in one upload (dealers). Each stone is a folder holding its
+     * certificate image(s) (file names starting with "cert") and gem images/videos, sent as a
+     * zip archive or as files named "folder/file". Progress is streamed as server-sent events.
+     */
+    @PostMapping(value = "/batch-list-gem-data", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Batch list gem data", 
+               description = "Upload certificates and gem media for many stones at once; runs OCR, duplicate checks and media storage in parallel, bulk-inserts the listings and streams per-stone progress")
+    @CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.POST})
+    public ResponseEntity<SseEmitter> batchListGemData(
+            @RequestParam("gemListingData") String gemListingDataJson,
+            @RequestParam(value = "items", required = false) String itemsJson,
+            @RequestParam(value = "archive", required = false) MultipartFile archive,
+            @RequestParam(value = "files", required = false) MultipartFile[] files) {
+        
+        System.out.println("📦 Batch gem listing request received");
+        
+        try {
+            Map<String, List<MultipartFile>> stones;
+            if (archive != null && !archive.isEmpty()) {
+                System.out.println("📁 Archive: " + archive.getOriginalFilename() + " (" + archive.getSize() + " bytes)");
+                stones = gemListingBatchService.readArchive(archive);
+            } else if (files != null && files.length > 0) {
+                System.out.println("📁 Number of files: " + files.length);
+                stones = gemListingBatchService.readFiles(files);
+            } else {
+                return batchError(HttpStatus.BAD_REQUEST, "Upload an archive or files, one folder per stone");
+            }
+            
+            SseEmitter emitter = gemListingBatchService.start(gemListingDataJson, itemsJson, stones);
+            System.out.println("✅ Batch started for " + stones.size() + " stones");
+            return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+            
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Invalid batch: " + e.getMessage());
+            return batchError(HttpStatus.BAD_REQUEST, e.getMessage());
+            
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            System.err.println("❌ JSON parsing error: " + e.getMessage());
+            return batchError(HttpStatus.BAD_REQUEST, "Invalid JSON data format: " + e.getMessage());
+            
+        } catch (RejectedExecutionException e) {
+            System.err.println("⚠️ Batch refused, too many batches running");
+            return batchError(HttpStatus.SERVICE_UNAVAILABLE, "Other batches are being processed, please try again shortly");
+            
+        } catch (IOException e) {
+            System.err.println("❌ Batch upload error: " + e.getMessage());
+            return batchError(HttpStatus.BAD_REQUEST, "Could not read upload: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * An event stream carrying only an "error" event, so batch clients parse one format
+     */
+    private ResponseEntity<SseEmitter> batchError(HttpStatus status, String message) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("error").data(ApiResponse.error(message)));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return ResponseEntity.status(status).contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+    }
+    
     /**
      * Delete a gem listing by ID
      */
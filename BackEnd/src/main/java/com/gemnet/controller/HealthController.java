@@ -1,5 +1,8 @@
 package com.gemnet.controller;
 
+import com.gemnet.service.StartupOrchestrator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -12,6 +15,9 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class HealthController {
 
+    @Autowired
+    private StartupOrchestrator startupOrchestrator;
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
         Map<String, Object> response = new HashMap<>();
@@ -30,4 +36,15 @@ public class HealthController {
         response.put("uptime", "active");
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Readiness probe: 503 until startup initializers and warm-up are done, with their timings
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        Map<String, Object> response = startupOrchestrator.getStatus();
+        response.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.status(startupOrchestrator.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+            .body(response);
+    }
 }
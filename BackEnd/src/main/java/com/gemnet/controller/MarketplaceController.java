@@ -136,10 +136,12 @@ public class MarketplaceController {
             
             // Extract videos from GemImage objects
             List<String> videoUrls = new ArrayList<>();
+            List<String> videoPosters = new ArrayList<>(); // Poster per video, null until extracted
             if (listing.getImages() != null) {
                 for (GemImage img : listing.getImages()) {
                     if (img.isVideo() && img.getVideoUrl() != null && !img.getVideoUrl().isEmpty()) {
                         videoUrls.add(img.getVideoUrl());
+                        videoPosters.add(img.getVideoThumbnailUrl());
                         System.out.println("🎬 Found video: " + img.getVideoUrl());
                     }
                 }
@@ -162,6 +164,7 @@ public class MarketplaceController {
                     Map<String, Object> enhancedResponse = new HashMap<>();
                     enhancedResponse.put("gemstone", responseListing);
                     enhancedResponse.put("videos", videoUrls);
+                    enhancedResponse.put("videoPosters", videoPosters);
                     enhancedResponse.put("hasVideos", true);
                     enhancedResponse.put("videoCount", videoUrls.size());
                     
@@ -181,6 +184,7 @@ public class MarketplaceController {
                     Map<String, Object> debugResponse = new HashMap<>();
                     debugResponse.put("gemstone", listing);
                     debugResponse.put("videos", videoUrls);
+                    debugResponse.put("videoPosters", videoPosters);
                     debugResponse.put("hasVideos", true);
                     debugResponse.put("videoCount", videoUrls.size());
                     debugResponse.put("debugMode", true);
@@ -1,8 +1,9 @@
 package com.gemnet.controller;
 
+import com.gemnet.model.RepricingJob;
 import com.gemnet.service.GemListingPriceUpdateService;
 import com.gemnet.service.GemListingPriceUpdateService.MarketplaceStats;
-import com.gemnet.service.GemListingPriceUpdateService.MarketplaceUpdateResult;
+import com.gemnet.service.MarketplaceRepricingJobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,34 +26,31 @@ public class MarketplacePriceUpdateController {
     @Autowired
     private GemListingPriceUpdateService priceUpdateService;
     
+    @Autowired
+    private MarketplaceRepricingJobService repricingJobService;
+    
     /**
-     * Update all marketplace listings with Sri Lankan market pricing
+     * Start an incremental repricing job for marketplace listings with Sri Lankan market pricing.
+     * Only listings whose attributes changed or whose pricing is from an older dataset/model
+     * version are repriced, unless force=true.
      */
     @PostMapping("/update-prices")
-    public ResponseEntity<Map<String, Object>> updateMarketplacePrices() {
-        logger.info("🇱🇰 Received request to update marketplace prices with Sri Lankan data");
+    public ResponseEntity<Map<String, Object>> updateMarketplacePrices(
+            @RequestParam(defaultValue = "false") boolean force) {
+        logger.info("🇱🇰 Received request to update marketplace prices with Sri Lankan data (force={})", force);
         
         try {
-            // Trigger the price update process
-            MarketplaceUpdateResult result = priceUpdateService.updateAllListingsWithSriLankanPricing();
+            RepricingJob job = repricingJobService.startJob(force);
             
             Map<String, Object> response = new HashMap<>();
             response.put("status", "success");
-            response.put("message", "Marketplace prices updated with Sri Lankan market data");
-            response.put("statistics", Map.of(
-                "totalListings", result.getTotalListings(),
-                "updatedWithSriLankanData", result.getUpdatedListings(),
-                "updatePercentage", Math.round(result.getUpdatePercentage() * 100) / 100.0,
-                "highConfidencePredictions", result.getHighConfidencePredictions(),
-                "mediumConfidencePredictions", result.getMediumConfidencePredictions(),
-                "lowConfidencePredictions", result.getLowConfidencePredictions()
-            ));
+            response.put("message", "Marketplace repricing job started");
+            response.put("job", repricingJobService.describe(job));
             
-            logger.info("✅ Marketplace price update completed successfully");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
             
         } catch (Exception e) {
-            logger.error("❌ Error updating marketplace prices", e);
+            logger.error("❌ Error starting marketplace repricing job", e);
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("status", "error");
             errorResponse.put("message", "Failed to update marketplace prices: " + e.getMessage());
@@ -61,6 +59,40 @@ public class MarketplacePriceUpdateController {
         }
     }
     
+    /**
+     * Live status and throughput of the latest repricing job
+     */
+    @GetMapping("/update-prices/status")
+    public ResponseEntity<Map<String, Object>> getLatestRepricingJob() {
+        Map<String, Object> response = new HashMap<>();
+        return repricingJobService.getLatestJob()
+            .map(job -> {
+                response.put("status", "success");
+                response.put("job", repricingJobService.describe(job));
+                return ResponseEntity.ok(response);
+            })
+            .orElseGet(() -> {
+                response.put("status", "success");
+                response.put("message", "No repricing job has been run yet");
+                return ResponseEntity.ok(response);
+            });
+    }
+    
+    /**
+     * Status and throughput of a specific repricing job
+     */
+    @GetMapping("/update-prices/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getRepricingJob(@PathVariable String jobId) {
+        return repricingJobService.getJob(jobId)
+            .map(job -> {
+                Map<String, Object> response = new HashMap<>();
+                response.put("status", "success");
+                response.put("job", repricingJobService.describe(job));
+                return ResponseEntity.ok(response);
+            })
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
     /**
      * Update a specific listing with Sri Lankan market pricing
      */
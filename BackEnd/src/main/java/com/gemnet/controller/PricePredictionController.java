@@ -4,6 +4,7 @@ import com.gemnet.dto.PricePredictionRequest;
 import com.gemnet.dto.PricePredictionResponse;
 import com.gemnet.service.PricePredictionService;
 import com.gemnet.service.GemListingService;
+import com.gemnet.service.PredictionAccuracyService;
 import com.gemnet.service.SriLankanMarketPriceService;
 import com.gemnet.model.GemListing;
 
@@ -33,6 +34,9 @@ public class PricePredictionController {
     
     @Autowired
     private SriLankanMarketPriceService sriLankanMarketPriceService;
+    
+    @Autowired
+    private PredictionAccuracyService predictionAccuracyService;
 
     /**
      * Predict price based on gemstone attributes
@@ -104,21 +108,14 @@ public class PricePredictionController {
         try {
             logger.info("Received bulk price prediction request for {} listings", listingIds.size());
             
-            java.util.Map<String, PricePredictionResponse> predictions = new java.util.HashMap<>();
+            // Fetch every listing in one round trip and predict them as a single pipeline
+            java.util.List<String> distinctIds = listingIds.stream().distinct().collect(java.util.stream.Collectors.toList());
+            java.util.List<GemListing> listings = gemListingService.getByIds(distinctIds);
+            java.util.Map<String, PricePredictionResponse> found = pricePredictionService.predictPrices(listings);
             
-            for (String listingId : listingIds) {
-                try {
-                    GemListing gemListing = gemListingService.getById(listingId);
-                    if (gemListing != null) {
-                        PricePredictionResponse response = pricePredictionService.predictPrice(gemListing);
-                        predictions.put(listingId, response);
-                    } else {
-                        predictions.put(listingId, PricePredictionResponse.error("Listing not found"));
-                    }
-                } catch (Exception e) {
-                    logger.error("Error predicting price for listing: " + listingId, e);
-                    predictions.put(listingId, PricePredictionResponse.error("Prediction failed"));
-                }
+            java.util.Map<String, PricePredictionResponse> predictions = new java.util.LinkedHashMap<>();
+            for (String listingId : distinctIds) {
+                predictions.put(listingId, found.getOrDefault(listingId, PricePredictionResponse.error("Listing not found")));
             }
             
             return ResponseEntity.ok(predictions);
@@ -130,87 +127,13 @@ public class PricePredictionController {
     }
 
     /**
-     * Get accuracy analysis by comparing predicted prices with actual listing prices
+     * Get accuracy analysis by comparing predicted prices with actual listing prices.
+     * Served from the background-computed report; lastRefreshedAt tells how fresh it is.
      */
     @GetMapping("/accuracy-analysis")
     public ResponseEntity<?> getAccuracyAnalysis() {
         try {
-            logger.info("Received request for price prediction accuracy analysis");
-            
-            // Get all gem listings (not just active ones for testing)
-            java.util.List<GemListing> allListings = gemListingService.getAllListings();
-            logger.info("Found {} total listings for accuracy analysis", allListings.size());
-            
-            // Filter for listings with pricing data
-            java.util.List<GemListing> validListings = allListings.stream()
-                .filter(listing -> listing.getPrice() != null && listing.getWeight() != null)
-                .collect(java.util.stream.Collectors.toList());
-            logger.info("Found {} listings with valid pricing data", validListings.size());
-            
-            java.util.List<java.util.Map<String, Object>> accuracyResults = new java.util.ArrayList<>();
-            
-            for (GemListing listing : validListings) {
-                try {
-                    // Get prediction for this listing
-                    PricePredictionResponse prediction = pricePredictionService.predictPrice(listing);
-                    
-                    if (!"ERROR".equals(prediction.getStatus())) {
-                        // Calculate accuracy percentage
-                        double actualPrice = listing.getPrice().doubleValue();
-                        double predictedPrice = prediction.getPredictedPrice().doubleValue();
-                        double minPrice = prediction.getMinPrice().doubleValue();
-                        double maxPrice = prediction.getMaxPrice().doubleValue();
-                        
-                        // Calculate accuracy based on how close predicted price is to actual price
-                        double accuracyPercentage = calculateAccuracyPercentage(actualPrice, predictedPrice, minPrice, maxPrice);
-                        
-                        // Create result object
-                        java.util.Map<String, Object> result = new java.util.HashMap<>();
-                        result.put("listingId", listing.getId());
-                        result.put("gemName", listing.getGemName());
-                        result.put("species", listing.getSpecies());
-                        result.put("weight", listing.getWeight());
-                        result.put("color", listing.getColor());
-                        result.put("actualPrice", actualPrice);
-                        result.put("predictedPrice", predictedPrice);
-                        result.put("priceRange", minPrice + " - " + maxPrice + " LKR");
-                        result.put("accuracyPercentage", Math.round(accuracyPercentage * 100) / 100.0);
-                        result.put("modelConfidence", Math.round(prediction.getConfidenceScore() * 100));
-                        result.put("isCertified", listing.getIsCertified());
-                        result.put("currency", listing.getCurrency());
-                        
-                        // Add accuracy grade
-                        String accuracyGrade = getAccuracyGrade(accuracyPercentage);
-                        result.put("accuracyGrade", accuracyGrade);
-                        
-                        accuracyResults.add(result);
-                        
-                        logger.info("Accuracy for {}: {}% (Actual: {} LKR, Predicted: {} LKR)", 
-                                   listing.getGemName(), 
-                                   Math.round(accuracyPercentage * 100) / 100.0, 
-                                   actualPrice, 
-                                   predictedPrice);
-                    }
-                    
-                } catch (Exception e) {
-                    logger.error("Error calculating accuracy for listing {}: {}", listing.getId(), e.getMessage());
-                }
-            }
-            
-            // Calculate overall statistics
-            java.util.Map<String, Object> statistics = calculateOverallStatistics(accuracyResults);
-            
-            // Create response
-            java.util.Map<String, Object> response = new java.util.HashMap<>();
-            response.put("totalListings", accuracyResults.size());
-            response.put("accuracyResults", accuracyResults);
-            response.put("overallStatistics", statistics);
-            response.put("status", "SUCCESS");
-            response.put("message", "Accuracy analysis completed successfully");
-            
-            logger.info("Accuracy analysis completed for {} listings", accuracyResults.size());
-            return ResponseEntity.ok(response);
-            
+            return ResponseEntity.ok(predictionAccuracyService.getReport());
         } catch (Exception e) {
             logger.error("Error in accuracy analysis", e);
             java.util.Map<String, String> errorResponse = new java.util.HashMap<>();
@@ -221,102 +144,17 @@ public class PricePredictionController {
     }
     
     /**
-     * Calculate accuracy percentage based on how close predicted price is to actual price
-     */
-    private double calculateAccuracyPercentage(double actualPrice, double predictedPrice, double minPrice, double maxPrice) {
-        // Validate inputs to prevent NaN
-        if (actualPrice <= 0 || predictedPrice <= 0 || minPrice < 0 || maxPrice <= 0) {
-            return 0.0; // Invalid input, return 0% accuracy
-        }
-        
-        // Method 1: Check if actual price falls within predicted range
-        boolean withinRange = actualPrice >= minPrice && actualPrice <= maxPrice;
-        
-        if (withinRange) {
-            // If within range, calculate how close predicted price is to actual price
-            double difference = Math.abs(actualPrice - predictedPrice);
-            double relativeError = difference / actualPrice;
-            return Math.max(0, 100 - (relativeError * 100));
-        } else {
-            // If outside range, calculate distance from nearest range boundary
-            double distanceFromRange;
-            if (actualPrice < minPrice) {
-                distanceFromRange = minPrice - actualPrice;
-            } else {
-                distanceFromRange = actualPrice - maxPrice;
-            }
-            
-            double relativeDistance = distanceFromRange / actualPrice;
-            double accuracy = Math.max(0, 100 - (relativeDistance * 100));
-            
-            // Cap accuracy at 60% if outside predicted range
-            return Math.min(accuracy, 60.0);
-        }
-    }
-    
-    /**
-     * Get accuracy grade based on percentage
+     * Queue an incremental refresh of the accuracy report
      */
-    private String getAccuracyGrade(double accuracyPercentage) {
-        if (accuracyPercentage >= 90) return "Excellent";
-        if (accuracyPercentage >= 80) return "Very Good";
-        if (accuracyPercentage >= 70) return "Good";
-        if (accuracyPercentage >= 60) return "Fair";
-        if (accuracyPercentage >= 40) return "Poor";
-        return "Very Poor";
-    }
-    
-    /**
-     * Calculate overall statistics for accuracy results
-     */
-    private java.util.Map<String, Object> calculateOverallStatistics(java.util.List<java.util.Map<String, Object>> results) {
-        java.util.Map<String, Object> stats = new java.util.HashMap<>();
-        
-        if (results.isEmpty()) {
-            stats.put("averageAccuracy", 0.0);
-            stats.put("highAccuracyCount", 0);
-            stats.put("mediumAccuracyCount", 0);
-            stats.put("lowAccuracyCount", 0);
-            stats.put("highAccuracyPercentage", 0);
-            stats.put("mediumAccuracyPercentage", 0);
-            stats.put("lowAccuracyPercentage", 0);
-            return stats;
-        }
-        
-        double totalAccuracy = 0;
-        int highAccuracy = 0; // >= 70%
-        int mediumAccuracy = 0; // 40-69%
-        int lowAccuracy = 0; // < 40%
-        
-        for (java.util.Map<String, Object> result : results) {
-            Object accuracyObj = result.get("accuracyPercentage");
-            if (accuracyObj != null && accuracyObj instanceof Double) {
-                double accuracy = (Double) accuracyObj;
-                
-                // Validate accuracy value
-                if (!Double.isNaN(accuracy) && Double.isFinite(accuracy)) {
-                    totalAccuracy += accuracy;
-                    
-                    if (accuracy >= 70) {
-                        highAccuracy++;
-                    } else if (accuracy >= 40) {
-                        mediumAccuracy++;
-                    } else {
-                        lowAccuracy++;
-                    }
-                }
-            }
-        }
-        
-        stats.put("averageAccuracy", Math.round((totalAccuracy / results.size()) * 100) / 100.0);
-        stats.put("highAccuracyCount", highAccuracy);
-        stats.put("mediumAccuracyCount", mediumAccuracy);
-        stats.put("lowAccuracyCount", lowAccuracy);
-        stats.put("highAccuracyPercentage", Math.round(((double) highAccuracy / results.size()) * 100));
-        stats.put("mediumAccuracyPercentage", Math.round(((double) mediumAccuracy / results.size()) * 100));
-        stats.put("lowAccuracyPercentage", Math.round(((double) lowAccuracy / results.size()) * 100));
+    @PostMapping("/accuracy-analysis/refresh")
+    public ResponseEntity<?> refreshAccuracyAnalysis() {
+        logger.info("Received request to refresh price prediction accuracy analysis");
+        predictionAccuracyService.requestRefresh();
         
-        return stats;
+        java.util.Map<String, Object> response = new java.util.HashMap<>();
+        response.put("status", "SUCCESS");
+        response.put("message", "Accuracy analysis refresh queued");
+        return ResponseEntity.accepted().body(response);
     }
 
     /**
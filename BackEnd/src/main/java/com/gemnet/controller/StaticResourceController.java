@@ -1,26 +1,77 @@
 package com.gemnet.controller;
 
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import com.gemnet.service.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/uploads")
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001", "http://localhost:3002", "http://localhost:3003", "http://localhost:3004"})
 public class StaticResourceController {
 
+    private static final Logger logger = LoggerFactory.getLogger(StaticResourceController.class);
+
+    private static final String DEFAULT_CACHE_CONTROL = "public, max-age=3600";
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // Hex content hash (SHA-1/SHA-256) file names, optionally with a resized variant suffix
+    private static final Pattern CONTENT_HASH_NAME = Pattern.compile("[0-9a-f]{40,64}(_w\\d+)?(\\.[A-Za-z0-9]+)?");
+
+    // Tomcat sendfile request attributes
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+    private static final long SENDFILE_THRESHOLD = 48 * 1024;
+
+    // Content types by file extension; probed once for anything not listed
+    private static final Map<String, String> MIME_TYPES = new ConcurrentHashMap<>(Map.ofEntries(
+        Map.entry("jpg", "image/jpeg"),
+        Map.entry("jpeg", "image/jpeg"),
+        Map.entry("png", "image/png"),
+        Map.entry("gif", "image/gif"),
+        Map.entry("webp", "image/webp"),
+        Map.entry("svg", "image/svg+xml"),
+        Map.entry("mp4", "video/mp4"),
+        Map.entry("webm", "video/webm"),
+        Map.entry("mov", "video/quicktime"),
+        Map.entry("avi", "video/x-msvideo"),
+        Map.entry("wmv", "video/x-ms-wmv"),
+        Map.entry("pdf", "application/pdf")
+    ));
+
     private final Path uploadsLocation;
 
+    // Files this node does not have are looked up in the blob store (shared bucket)
+    @Autowired
+    private BlobStore blobStore;
+
+    @Value("${app.file-storage.s3.presign-expiry-minutes:15}")
+    private long presignExpiryMinutes;
+
     public StaticResourceController() {
         // Try multiple possible paths for uploads directory
         Path uploadsPath = null;
@@ -83,62 +134,254 @@ public class StaticResourceController {
         System.out.println("📁 Is directory: " + Files.isDirectory(uploadsLocation));
     }
 
-    @GetMapping("/**")
-    public ResponseEntity<Resource> getFile(HttpServletRequest request) {
+    /**
+     * Serve an uploaded file with conditional GET and single-range support.
+     * Large bodies go out through Tomcat sendfile when available, otherwise through
+     * FileChannel.transferTo, so file bytes never pass through the Java heap.
+     */
+    @RequestMapping(value = "/**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getFile(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String requestPath = request.getRequestURI().substring("/uploads/".length());
+        Path filePath = uploadsLocation.resolve(requestPath).normalize();
+
+        if (!filePath.startsWith(uploadsLocation)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        if (isHidden(uploadsLocation.relativize(filePath))) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        BasicFileAttributes attributes = readAttributes(filePath);
+        if (attributes == null) {
+            // Not on this node: redirect large objects to the backend, pull the rest into the cache
+            long size = blobStore.size(requestPath);
+            if (size < 0) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            long threshold = blobStore.directDownloadThreshold();
+            if (threshold >= 0 && size >= threshold) {
+                Optional<String> presigned = blobStore.presignedUrl(requestPath, Duration.ofMinutes(presignExpiryMinutes));
+                if (presigned.isPresent()) {
+                    response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-store");
+                    response.sendRedirect(presigned.get());
+                    return;
+                }
+            }
+            Path cached = blobStore.localPath(requestPath);
+            attributes = cached != null ? readAttributes(cached) : null;
+            if (attributes == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            filePath = cached;
+        }
+        if (!attributes.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String fileName = filePath.getFileName().toString();
+        long fileLength = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        boolean contentAddressed = isContentAddressed(fileName);
+        // Strong validator: the content hash when the name carries one, else size + mtime
+        String etag = contentAddressed
+            ? "\"" + fileName.replaceFirst("\\..*$", "") + "\""
+            : "\"" + Long.toHexString(fileLength) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, contentAddressed ? IMMUTABLE_CACHE_CONTROL : DEFAULT_CACHE_CONTROL);
+
+        // Conditional GET: If-None-Match takes precedence over If-Modified-Since
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            if (matchesEtag(ifNoneMatch, etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        } else {
+            long ifModifiedSince = parseDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+            if (ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+
+        response.setContentType(contentTypeFor(filePath));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"");
+
+        long start = 0;
+        long end = fileLength - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && rangeApplies(request, etag, lastModified)) {
+            long[] bounds = parseRange(range, fileLength);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileLength);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileLength);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length <= 0) {
+            return;
+        }
+
+        // Let Tomcat write the body with sendfile after the request returns
+        if (length >= SENDFILE_THRESHOLD && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, filePath.toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        } catch (IOException ex) {
+            // Clients abort media downloads all the time (seeking, closing the page)
+            if (!response.isCommitted()) {
+                logger.debug("Error serving file {}: {}", requestPath, ex.getMessage());
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+
+    private BasicFileAttributes readAttributes(Path path) throws IOException {
         try {
-            // Extract the file path from the request
-            String requestPath = request.getRequestURI().substring("/uploads/".length());
-            
-            System.out.println("📥 File request received: " + requestPath);
-            
-            // Resolve the file path
-            Path filePath = uploadsLocation.resolve(requestPath).normalize();
-            
-            System.out.println("📁 Resolved file path: " + filePath.toString());
-            System.out.println("📁 File exists: " + Files.exists(filePath));
-            System.out.println("📁 File is readable: " + Files.isReadable(filePath));
-            
-            // Check if the file exists and is readable
-            if (!Files.exists(filePath) || !Files.isReadable(filePath)) {
-                System.out.println("❌ File not found or not readable: " + filePath);
-                return ResponseEntity.notFound().build();
-            }
-
-            // Load file as Resource
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (!resource.exists() || !resource.isReadable()) {
-                System.out.println("❌ Resource not readable: " + filePath);
-                return ResponseEntity.notFound().build();
-            }
-
-            // Determine content type
-            String contentType = null;
-            try {
-                contentType = Files.probeContentType(filePath);
-            } catch (IOException ex) {
-                System.out.println("⚠️ Could not determine file type: " + ex.getMessage());
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Dot directories hold internal files (.quarantine from the upload GC, blob temp files),
+     * including uploads of deleted users, so they are never served
+     */
+    private boolean isHidden(Path relativePath) {
+        for (Path segment : relativePath) {
+            if (segment.toString().startsWith(".")) {
+                return true;
             }
+        }
+        return false;
+    }
+
+    /**
+     * Files named by their content hash never change, so they can be cached forever
+     */
+    private boolean isContentAddressed(String fileName) {
+        return CONTENT_HASH_NAME.matcher(fileName).matches();
+    }
 
-            // Fallback content type
-            if (contentType == null) {
-                contentType = "application/octet-stream";
+    private boolean matchesEtag(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
             }
+            if ("*".equals(value) || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            System.out.println("✅ Serving file: " + requestPath + " (Type: " + contentType + ")");
+    /**
+     * A Range request is only honoured when If-Range (if present) still matches the file
+     */
+    private boolean rangeApplies(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        long ifRangeDate = parseDateHeader(request, HttpHeaders.IF_RANGE);
+        return ifRangeDate != -1 && lastModified / 1000 <= ifRangeDate / 1000;
+    }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
+    private long parseDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException ex) {
+            return -1;
+        }
+    }
 
-        } catch (MalformedURLException ex) {
-            System.out.println("❌ Malformed URL error: " + ex.getMessage());
-            return ResponseEntity.badRequest().build();
-        } catch (Exception ex) {
-            System.out.println("❌ Error serving file: " + ex.getMessage());
-            ex.printStackTrace();
-            return ResponseEntity.internalServerError().build();
+    /**
+     * Parse a single "bytes=" range. Returns {start, end}, an empty array when the header
+     * should be ignored (multiple ranges or bad syntax), or null when it cannot be satisfied.
+     */
+    private long[] parseRange(String header, long fileLength) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') != -1) {
+            return new long[0];
         }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Suffix range: last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, fileLength - suffix);
+                end = fileLength - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? fileLength - 1 : Math.min(Long.parseLong(last), fileLength - 1);
+            }
+            if (start >= fileLength || start > end) {
+                return null;
+            }
+            return new long[] {start, end};
+        } catch (NumberFormatException ex) {
+            return new long[0];
+        }
+    }
+
+    private String contentTypeFor(Path filePath) {
+        String fileName = filePath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot != -1 ? fileName.substring(dot + 1).toLowerCase() : "";
+        return MIME_TYPES.computeIfAbsent(extension, key -> {
+            try {
+                String probed = Files.probeContentType(filePath);
+                return probed != null ? probed : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+            } catch (IOException ex) {
+                return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+            }
+        });
     }
 }
@@ -5,6 +5,7 @@ import com.gemnet.model.Meeting;
 import com.gemnet.service.FaceRecognitionService;
 import com.gemnet.service.NicVerificationService;
 import com.gemnet.service.FileStorageService;
+import com.gemnet.util.UploadedImage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -33,12 +34,13 @@ public class TestController {
     @PostMapping("/verify-nic-full")
     @Operation(summary = "Complete NIC verification test", description = "Test complete NIC verification with face comparison")
     public ResponseEntity<ApiResponse<Map<String, Object>>> testNicVerification(
-            @RequestParam("nicImage") MultipartFile nicImage,
-            @RequestParam("faceImage") MultipartFile faceImage) {
+            @RequestParam("nicImage") MultipartFile nicImageFile,
+            @RequestParam("faceImage") MultipartFile faceImageFile) {
         
         Map<String, Object> results = new HashMap<>();
         
-        try {
+        try (UploadedImage nicImage = UploadedImage.read(nicImageFile);
+             UploadedImage faceImage = UploadedImage.read(faceImageFile)) {
             // Test 1: Validate NIC image quality
             boolean nicQualityValid = nicVerificationService.validateNicImageQuality(nicImage);
             results.put("nicImageQualityValid", nicQualityValid);
@@ -59,9 +61,9 @@ public class TestController {
             results.put("faceImageValid", faceValid);
             
             // Test 4: Extract face features
-            String faceFeatures = null;
+            byte[] faceFeatures = null;
             try {
-                faceFeatures = faceRecognitionService.extractFaceFeatures(faceImage);
+                faceFeatures = faceRecognitionService.extractFaceDescriptor(faceImage);
                 results.put("faceFeatureExtractionSuccess", true);
                 results.put("faceFeatures", faceFeatures != null ? "Generated successfully" : "Failed");
             } catch (Exception e) {
@@ -81,15 +83,18 @@ public class TestController {
                 
                 // Test 6: Extract photo from NIC
                 try {
-                    String extractedPhotoPath = nicVerificationService.extractNicPhoto(nicImage, testUserId);
+                    NicVerificationService.ExtractedNicPhoto extractedPhoto = nicVerificationService.extractNicPhoto(nicImage, testUserId);
                     results.put("nicPhotoExtractionSuccess", true);
-                    results.put("extractedPhotoPath", extractedPhotoPath);
+                    results.put("extractedPhotoPath", extractedPhoto.getPath());
                     
-                    // Test 7: Compare faces
+                    // Test 7: Compare faces (the template score is advisory)
                     try {
-                        boolean facesMatch = faceRecognitionService.compareFaces(faceImagePath, extractedPhotoPath);
+                        boolean facesMatch = faceRecognitionService.compareFaces(
+                            fileStorageService.getLocalFile(faceImagePath).toString(),
+                            fileStorageService.getLocalFile(extractedPhoto.getPath()).toString());
                         results.put("faceComparisonSuccess", true);
                         results.put("facesMatch", facesMatch);
+                        results.put("faceSimilarity", faceRecognitionService.similarity(faceFeatures, extractedPhoto.getFaceDescriptor()));
                     } catch (Exception e) {
                         results.put("faceComparisonSuccess", false);
                         results.put("faceComparisonError", e.getMessage());
@@ -126,11 +131,11 @@ public class TestController {
     @PostMapping("/extract-nic-number")
     @Operation(summary = "Test NIC number extraction", description = "Test OCR extraction from NIC image")
     public ResponseEntity<ApiResponse<Map<String, Object>>> testNicNumberExtraction(
-            @RequestParam("nicImage") MultipartFile nicImage) {
+            @RequestParam("nicImage") MultipartFile nicImageFile) {
         
         Map<String, Object> results = new HashMap<>();
         
-        try {
+        try (UploadedImage nicImage = UploadedImage.read(nicImageFile)) {
             String extractedNumber = nicVerificationService.extractNicNumber(nicImage);
             results.put("extractedNumber", extractedNumber);
             results.put("success", true);
@@ -148,16 +153,16 @@ public class TestController {
     @PostMapping("/validate-face")
     @Operation(summary = "Test face validation", description = "Test face detection in uploaded image")
     public ResponseEntity<ApiResponse<Map<String, Object>>> testFaceValidation(
-            @RequestParam("faceImage") MultipartFile faceImage) {
+            @RequestParam("faceImage") MultipartFile faceImageFile) {
         
         Map<String, Object> results = new HashMap<>();
         
-        try {
+        try (UploadedImage faceImage = UploadedImage.read(faceImageFile)) {
             boolean isValid = faceRecognitionService.validateFaceInImage(faceImage);
             results.put("faceDetected", isValid);
             
             if (isValid) {
-                String features = faceRecognitionService.extractFaceFeatures(faceImage);
+                byte[] features = faceRecognitionService.extractFaceDescriptor(faceImage);
                 results.put("featuresExtracted", features != null);
             }
             
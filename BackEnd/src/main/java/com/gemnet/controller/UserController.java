@@ -4,6 +4,7 @@ import com.gemnet.dto.ApiResponse;
 import com.gemnet.dto.UserProfileUpdateRequest;
 import com.gemnet.model.User;
 import com.gemnet.model.Meeting;
+import com.gemnet.service.FileStorageService;
 import com.gemnet.service.UserService;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import io.swagger.v3.oas.annotations.Operation;
@@ -22,7 +23,6 @@ import java.util.Optional;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 
 @RestController
 @RequestMapping("/api/users")
@@ -35,6 +35,9 @@ public class UserController {
 
     @Autowired
     private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private FileStorageService fileStorageService;
 
     @GetMapping("/profile/{userId}")
     @Operation(summary = "Get user profile", description = "Fetch user profile information by user ID")
@@ -332,8 +335,8 @@ public class UserController {
                 return ResponseEntity.notFound().build();
             }
             
-            // Convert absolute path to relative path from project root
-            Path fullPath = Paths.get(imagePath);
+            // Local copy of the stored image (fetched from the blob store if this node lacks it)
+            Path fullPath = fileStorageService.getFilePath(imagePath);
             File imageFile = fullPath.toFile();
             
             if (!imageFile.exists()) {
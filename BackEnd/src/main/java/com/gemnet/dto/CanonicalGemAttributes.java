@@ -0,0 +1,60 @@
+package com.gemnet.dto;
+
+import com.gemnet.enums.GemClarity;
+import com.gemnet.enums.GemColor;
+import com.gemnet.enums.GemCut;
+import com.gemnet.enums.GemSpecies;
+
+/**
+ * Gem attributes resolved to canonical codes, computed once per request or dataset row.
+ * colorTerm is the interned normalized colour text, so "same exact colour" is a reference check
+ * while color gives the broader colour family.
+ */
+public class CanonicalGemAttributes {
+    
+    private final GemSpecies species;
+    private final GemColor color;
+    private final String colorTerm;
+    private final GemClarity clarity;
+    private final GemCut cut;
+    
+    public CanonicalGemAttributes(GemSpecies species, GemColor color, String colorTerm,
+                                  GemClarity clarity, GemCut cut) {
+        this.species = species;
+        this.color = color;
+        this.colorTerm = colorTerm;
+        this.clarity = clarity;
+        this.cut = cut;
+    }
+    
+    public GemSpecies getSpecies() {
+        return species;
+    }
+    
+    public GemColor getColor() {
+        return color;
+    }
+    
+    public String getColorTerm() {
+        return colorTerm;
+    }
+    
+    public GemClarity getClarity() {
+        return clarity;
+    }
+    
+    public GemCut getCut() {
+        return cut;
+    }
+    
+    @Override
+    public String toString() {
+        return "CanonicalGemAttributes{" +
+                "species=" + species +
+                ", color=" + color +
+                ", colorTerm='" + colorTerm + '\'' +
+                ", clarity=" + clarity +
+                ", cut=" + cut +
+                '}';
+    }
+}
@@ -1,5 +1,6 @@
 package com.gemnet.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.NotBlank;
@@ -45,6 +46,10 @@ public class PricePredictionRequest {
     // Seller's asking price (for range adjustment)
     private Double sellerPrice;
     
+    // Canonical codes for species/color/cut/clarity, resolved once and reset when they change
+    @JsonIgnore
+    private transient CanonicalGemAttributes canonicalAttributes;
+    
     // Default constructor
     public PricePredictionRequest() {}
     
@@ -74,6 +79,7 @@ public class PricePredictionRequest {
     
     public void setColor(String color) {
         this.color = color;
+        this.canonicalAttributes = null;
     }
     
     public String getCut() {
@@ -82,6 +88,7 @@ public class PricePredictionRequest {
     
     public void setCut(String cut) {
         this.cut = cut;
+        this.canonicalAttributes = null;
     }
     
     public String getClarity() {
@@ -90,6 +97,7 @@ public class PricePredictionRequest {
     
     public void setClarity(String clarity) {
         this.clarity = clarity;
+        this.canonicalAttributes = null;
     }
     
     public String getSpecies() {
@@ -98,6 +106,7 @@ public class PricePredictionRequest {
     
     public void setSpecies(String species) {
         this.species = species;
+        this.canonicalAttributes = null;
     }
     
     public Double getLength() {
@@ -164,6 +173,16 @@ public class PricePredictionRequest {
         this.sellerPrice = sellerPrice;
     }
     
+    @JsonIgnore
+    public CanonicalGemAttributes getCanonicalAttributes() {
+        return canonicalAttributes;
+    }
+    
+    @JsonIgnore
+    public void setCanonicalAttributes(CanonicalGemAttributes canonicalAttributes) {
+        this.canonicalAttributes = canonicalAttributes;
+    }
+    
     @Override
     public String toString() {
         return "PricePredictionRequest{" +
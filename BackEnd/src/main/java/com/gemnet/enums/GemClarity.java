@@ -0,0 +1,52 @@
+package com.gemnet.enums;
+
+/**
+ * Canonical clarity grades used by all price predictors.
+ * Generic grades (VVS, VS, SI) take the values of their lower sub-grade.
+ */
+public enum GemClarity {
+    FL(10, 2.0, "IF", "fl", "flawless"),
+    IF(9, 1.8, "IF", "if", "internally flawless"),
+    VVS1(8, 1.6, "VVS1", "vvs1"),
+    VVS2(7, 1.5, "VVS2", "vvs2"),
+    VVS(7, 1.5, "VVS2", "vvs"),
+    VS1(6, 1.3, "VS1", "vs1"),
+    VS2(5, 1.2, "VS2", "vs2"),
+    VS(5, 1.2, "VS2", "vs"),
+    SI1(4, 1.0, "SI1", "si1"),
+    SI2(3, 0.9, "SI2", "si2"),
+    SI(3, 0.9, "SI2", "si"),
+    EYE_CLEAN(3, 1.0, "VS2", "eye clean", "eyeclean"),
+    I1(2, 0.7, "I1", "i1", "p1"),
+    I2(1, 0.6, "I1", "i2", "p2"),
+    I3(0, 0.5, "I1", "i3", "p3"),
+    UNKNOWN(5, 1.0, "VS2");
+    
+    private final int rank;              // Higher is clearer; used for similarity scoring
+    private final double ruleMultiplier; // Rule-based price multiplier
+    private final String mlGrade;        // Clarity grade expected by the ML model
+    private final String[] synonyms;
+    
+    GemClarity(int rank, double ruleMultiplier, String mlGrade, String... synonyms) {
+        this.rank = rank;
+        this.ruleMultiplier = ruleMultiplier;
+        this.mlGrade = mlGrade;
+        this.synonyms = synonyms;
+    }
+    
+    public int getRank() {
+        return rank;
+    }
+    
+    public double getRuleMultiplier() {
+        return ruleMultiplier;
+    }
+    
+    public String getMlGrade() {
+        return mlGrade;
+    }
+    
+    public String[] getSynonyms() {
+        return synonyms;
+    }
+}
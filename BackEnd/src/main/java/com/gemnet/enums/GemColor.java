@@ -0,0 +1,39 @@
+package com.gemnet.enums;
+
+/**
+ * Canonical colour families used by all price predictors
+ */
+public enum GemColor {
+    BLUE(1.2, "F", "blue", "royal blue", "cornflower", "navy"),
+    RED(1.5, "E", "red", "pigeon blood", "crimson"),
+    PINK(1.3, "E", "pink", "orange pink", "pinkish orange", "padparadscha", "rose"),
+    YELLOW(1.1, "J", "yellow", "golden", "champagne"),
+    GREEN(1.15, "G", "green"),
+    PURPLE(1.25, "H", "purple", "violet", "lavender"),
+    ORANGE(1.1, "G", "orange"),
+    WHITE(1.0, "D", "white"),
+    COLORLESS(1.0, "D", "colorless", "colourless"),
+    OTHER(1.0, "G");
+    
+    private final double ruleMultiplier; // Rule-based price multiplier
+    private final String mlGrade;        // Colour grade expected by the ML model (D-J)
+    private final String[] synonyms;
+    
+    GemColor(double ruleMultiplier, String mlGrade, String... synonyms) {
+        this.ruleMultiplier = ruleMultiplier;
+        this.mlGrade = mlGrade;
+        this.synonyms = synonyms;
+    }
+    
+    public double getRuleMultiplier() {
+        return ruleMultiplier;
+    }
+    
+    public String getMlGrade() {
+        return mlGrade;
+    }
+    
+    public String[] getSynonyms() {
+        return synonyms;
+    }
+}
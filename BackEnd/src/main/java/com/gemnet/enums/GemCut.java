@@ -0,0 +1,46 @@
+package com.gemnet.enums;
+
+/**
+ * Canonical cut grades and cut shapes used by all price predictors
+ */
+public enum GemCut {
+    EXCELLENT(1.3, "Ideal", "excellent"),
+    IDEAL(1.3, "Ideal", "ideal"),
+    VERY_GOOD(1.2, "Very Good", "very good"),
+    PREMIUM(1.2, "Premium", "premium"),
+    GOOD(1.1, "Good", "good"),
+    FAIR(1.0, "Fair", "fair"),
+    POOR(0.8, "Fair", "poor"),
+    ROUND(1.2, "Good", "round", "brilliant"),
+    OVAL(1.1, "Good", "oval"),
+    CUSHION(1.15, "Good", "cushion"),
+    EMERALD(1.1, "Good", "emerald", "emerald cut", "octagon"),
+    PRINCESS(1.1, "Good", "princess"),
+    PEAR(1.05, "Good", "pear"),
+    MARQUISE(1.05, "Good", "marquise"),
+    HEART(1.0, "Good", "heart"),
+    RADIANT(1.0, "Good", "radiant"),
+    UNKNOWN(1.0, "Good");
+    
+    private final double ruleMultiplier; // Rule-based price multiplier
+    private final String mlGrade;        // Cut grade expected by the ML model
+    private final String[] synonyms;
+    
+    GemCut(double ruleMultiplier, String mlGrade, String... synonyms) {
+        this.ruleMultiplier = ruleMultiplier;
+        this.mlGrade = mlGrade;
+        this.synonyms = synonyms;
+    }
+    
+    public double getRuleMultiplier() {
+        return ruleMultiplier;
+    }
+    
+    public String getMlGrade() {
+        return mlGrade;
+    }
+    
+    public String[] getSynonyms() {
+        return synonyms;
+    }
+}
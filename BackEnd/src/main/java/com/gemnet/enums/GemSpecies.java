@@ -0,0 +1,53 @@
+package com.gemnet.enums;
+
+/**
+ * Canonical gemstone species codes used by all price predictors.
+ * Sapphire colour varieties are separate codes because they price differently,
+ * but they share the SAPPHIRE dataset family.
+ */
+public enum GemSpecies {
+    SAPPHIRE(90000.0, null, "sapphire", "corundum", "blue", "blue sapphire"),
+    RUBY(150000.0, null, "ruby", "red", "red corundum"),
+    PADPARADSCHA(250000.0, SAPPHIRE, "padparadscha", "padparadscha sapphire"),
+    YELLOW_SAPPHIRE(50000.0, SAPPHIRE, "yellow", "yellow sapphire"),
+    PINK_SAPPHIRE(75000.0, SAPPHIRE, "pink", "pink sapphire"),
+    WHITE_SAPPHIRE(35000.0, SAPPHIRE, "white", "white sapphire"),
+    GREEN_SAPPHIRE(55000.0, SAPPHIRE, "green", "green sapphire"),
+    PURPLE_SAPPHIRE(60000.0, SAPPHIRE, "purple", "purple sapphire"),
+    SPINEL(50000.0, null, "spinel"),
+    GARNET(15000.0, null, "garnet"),
+    TOURMALINE(20000.0, null, "tourmaline"),
+    MOONSTONE(10000.0, null, "moonstone"),
+    CHRYSOBERYL(75000.0, null, "chrysoberyl", "cats eye", "cat's eye"),
+    ALEXANDRITE(180000.0, null, "alexandrite"),
+    EMERALD(110000.0, null, "emerald", "beryl"),
+    AQUAMARINE(35000.0, null, "aquamarine"),
+    DIAMOND(300000.0, null, "diamond"),
+    TOPAZ(25000.0, null, "topaz"),
+    ZIRCON(30000.0, null, "zircon"),
+    PERIDOT(20000.0, null, "peridot"),
+    QUARTZ(25000.0, null, "quartz", "amethyst", "citrine"),
+    UNKNOWN(25000.0, null);
+    
+    private final double basePricePerCarat; // Sri Lankan market base price per carat in LKR
+    private final GemSpecies family;        // Species group used for dataset lookups
+    private final String[] synonyms;
+    
+    GemSpecies(double basePricePerCarat, GemSpecies family, String... synonyms) {
+        this.basePricePerCarat = basePricePerCarat;
+        this.family = family;
+        this.synonyms = synonyms;
+    }
+    
+    public double getBasePricePerCarat() {
+        return basePricePerCarat;
+    }
+    
+    public GemSpecies getFamily() {
+        return family != null ? family : this;
+    }
+    
+    public String[] getSynonyms() {
+        return synonyms;
+    }
+}
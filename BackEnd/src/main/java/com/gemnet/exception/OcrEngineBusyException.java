@@ -0,0 +1,7 @@
+package com.gemnet.exception;
+
+public class OcrEngineBusyException extends RuntimeException {
+    public OcrEngineBusyException(String message) {
+        super(message);
+    }
+}
@@ -42,6 +42,9 @@ public class Advertisement {
     
     private List<String> images;
     
+    // Resized variants for each entry in images
+    private List<ImageVariantSet> imageVariants;
+    
     private String video; // Field to store video file path/URL
     
     @Indexed
@@ -147,6 +150,14 @@ public class Advertisement {
         this.images = images;
     }
 
+    public List<ImageVariantSet> getImageVariants() {
+        return imageVariants;
+    }
+
+    public void setImageVariants(List<ImageVariantSet> imageVariants) {
+        this.imageVariants = imageVariants;
+    }
+
     public String getVideo() {
         return video;
     }
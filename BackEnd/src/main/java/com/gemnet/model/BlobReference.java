@@ -0,0 +1,98 @@
+package com.gemnet.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.Indexed;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reference count for one content-addressed upload blob.
+ * The id is the blob file name (SHA-256 hex plus extension); refCount is the number of
+ * GemImage, Advertisement and User references currently pointing at it.
+ */
+@Document(collection = "blob_refs")
+public class BlobReference {
+    
+    @Id
+    private String id;
+    
+    private String hash;
+    private String extension;
+    private Long size;
+    
+    @Indexed
+    private long refCount;
+    
+    private LocalDateTime createdAt;
+    private LocalDateTime lastReferencedAt;
+    private LocalDateTime lastReleasedAt;
+    
+    // Constructors
+    public BlobReference() {}
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getHash() {
+        return hash;
+    }
+    
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+    
+    public void setExtension(String extension) {
+        this.extension = extension;
+    }
+    
+    public Long getSize() {
+        return size;
+    }
+    
+    public void setSize(Long size) {
+        this.size = size;
+    }
+    
+    public long getRefCount() {
+        return refCount;
+    }
+    
+    public void setRefCount(long refCount) {
+        this.refCount = refCount;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getLastReferencedAt() {
+        return lastReferencedAt;
+    }
+    
+    public void setLastReferencedAt(LocalDateTime lastReferencedAt) {
+        this.lastReferencedAt = lastReferencedAt;
+    }
+    
+    public LocalDateTime getLastReleasedAt() {
+        return lastReleasedAt;
+    }
+    
+    public void setLastReleasedAt(LocalDateTime lastReleasedAt) {
+        this.lastReleasedAt = lastReleasedAt;
+    }
+}
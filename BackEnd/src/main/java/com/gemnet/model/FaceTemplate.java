@@ -0,0 +1,151 @@
+package com.gemnet.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Face template of a user, kept out of the users collection so user lookups stay small.
+ * The descriptor is a fixed-length binary vector produced by the named algorithm
+ * (see LbpFaceDescriptor). A user has at most one template per kind: FACE for the captured
+ * face (User.faceTemplateId points to it) and NIC_PHOTO for the photo cropped from the NIC.
+ */
+@Document(collection = "face_templates")
+@CompoundIndex(name = "user_kind", def = "{'userId': 1, 'kind': 1}", unique = true)
+public class FaceTemplate {
+
+    @Id
+    private String id;
+
+    private String userId;
+    private String kind;
+
+    private String algorithm;
+    private byte[] descriptor;
+
+    // FACE_CAPTURE for the registration selfie, NIC_EXTRACTION for the NIC photo,
+    // LEGACY_MIGRATION for converted User.faceFeatures
+    private String source;
+
+    // Other users whose FACE template was close to this one at enrolment, for admin review
+    private List<DuplicateCandidate> duplicateCandidates;
+    private LocalDateTime duplicateCheckedAt;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public FaceTemplate() {}
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public byte[] getDescriptor() {
+        return descriptor;
+    }
+
+    public void setDescriptor(byte[] descriptor) {
+        this.descriptor = descriptor;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public List<DuplicateCandidate> getDuplicateCandidates() {
+        return duplicateCandidates;
+    }
+
+    public void setDuplicateCandidates(List<DuplicateCandidate> duplicateCandidates) {
+        this.duplicateCandidates = duplicateCandidates;
+    }
+
+    public LocalDateTime getDuplicateCheckedAt() {
+        return duplicateCheckedAt;
+    }
+
+    public void setDuplicateCheckedAt(LocalDateTime duplicateCheckedAt) {
+        this.duplicateCheckedAt = duplicateCheckedAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public static class DuplicateCandidate {
+        private String userId;
+        private double similarity;
+
+        public DuplicateCandidate() {}
+
+        public DuplicateCandidate(String userId, double similarity) {
+            this.userId = userId;
+            this.similarity = similarity;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        public void setSimilarity(double similarity) {
+            this.similarity = similarity;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.gemnet.model;
 import org.springframework.data.annotation.CreatedDate;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Embedded document for gem images and videos within GemListing
@@ -15,6 +16,11 @@ public class GemImage {
     private Long size;
     private String imageUrl;
     private String thumbnailUrl;
+    private List<ImageVariant> variants; // Resized copies, smallest first
+    private String contentHash; // SHA-256 of the stored file
+    private Long perceptualHash; // 64-bit pHash of gemstone photos, for near-duplicate checks
+    private Integer width; // Pixel dimensions read at upload (images only)
+    private Integer height;
     private Boolean isPrimary = false;
     private Integer displayOrder;
     private String description;
@@ -123,6 +129,14 @@ public class GemImage {
         this.thumbnailUrl = thumbnailUrl;
     }
     
+    public List<ImageVariant> getVariants() {
+        return variants;
+    }
+    
+    public void setVariants(List<ImageVariant> variants) {
+        this.variants = variants;
+    }
+    
     public Boolean getIsPrimary() {
         return isPrimary;
     }
@@ -242,6 +256,52 @@ public class GemImage {
         return thumbnailUrl;
     }
     
+    public String getContentHash() {
+        return contentHash;
+    }
+    
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+    
+    public Long getPerceptualHash() {
+        return perceptualHash;
+    }
+    
+    public void setPerceptualHash(Long perceptualHash) {
+        this.perceptualHash = perceptualHash;
+    }
+    
+    public Integer getWidth() {
+        return width;
+    }
+    
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+    
+    public Integer getHeight() {
+        return height;
+    }
+    
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+    
+    /**
+     * Smallest variant at least minWidth wide, falling back to the original image
+     */
+    public String getVariantUrl(int minWidth) {
+        if (variants != null) {
+            for (ImageVariant variant : variants) {
+                if (variant.getWidth() != null && variant.getWidth() >= minWidth) {
+                    return variant.getUrl();
+                }
+            }
+        }
+        return imageUrl;
+    }
+    
     @Override
     public String toString() {
         return "GemImage{" +
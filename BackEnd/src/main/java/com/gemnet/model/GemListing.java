@@ -94,6 +94,11 @@ public class GemListing {
     // Images
     private List<GemImage> images;
     private String primaryImageUrl;
+    private String mediaStatus;               // PROCESSING while background media jobs run, then READY or PARTIAL
+    private Integer pendingMediaJobs;         // Background media jobs (variants, video posters) still to finish
+    private LocalDateTime mediaProcessedAt;   // When the last media job finished
+    private List<DuplicateImageMatch> duplicateImageMatches; // Near-duplicates of these photos in other listings
+    private LocalDateTime duplicateImagesCheckedAt;
     
     // Metadata
     @Indexed
@@ -130,6 +135,8 @@ public class GemListing {
     private String marketInsights;            // Market insights from Sri Lankan dataset
     private Integer dataPointsUsed;           // Number of Sri Lankan gemstones used for comparison
     private LocalDateTime lastPriceUpdate;    // When the price was last updated with Sri Lankan data
+    private String pricingFingerprint;        // Hash of the pricing attributes at the last repricing run
+    private String pricingVersion;            // Dataset/model version used at the last repricing run
     
     // Constructors
     public GemListing() {
@@ -530,6 +537,62 @@ public class GemListing {
         this.lastPriceUpdate = lastPriceUpdate;
     }
     
+    public String getPricingFingerprint() {
+        return pricingFingerprint;
+    }
+    
+    public void setPricingFingerprint(String pricingFingerprint) {
+        this.pricingFingerprint = pricingFingerprint;
+    }
+    
+    public String getMediaStatus() {
+        return mediaStatus;
+    }
+    
+    public void setMediaStatus(String mediaStatus) {
+        this.mediaStatus = mediaStatus;
+    }
+    
+    public Integer getPendingMediaJobs() {
+        return pendingMediaJobs;
+    }
+    
+    public void setPendingMediaJobs(Integer pendingMediaJobs) {
+        this.pendingMediaJobs = pendingMediaJobs;
+    }
+    
+    public LocalDateTime getMediaProcessedAt() {
+        return mediaProcessedAt;
+    }
+    
+    public void setMediaProcessedAt(LocalDateTime mediaProcessedAt) {
+        this.mediaProcessedAt = mediaProcessedAt;
+    }
+    
+    public List<DuplicateImageMatch> getDuplicateImageMatches() {
+        return duplicateImageMatches;
+    }
+    
+    public void setDuplicateImageMatches(List<DuplicateImageMatch> duplicateImageMatches) {
+        this.duplicateImageMatches = duplicateImageMatches;
+    }
+    
+    public LocalDateTime getDuplicateImagesCheckedAt() {
+        return duplicateImagesCheckedAt;
+    }
+    
+    public void setDuplicateImagesCheckedAt(LocalDateTime duplicateImagesCheckedAt) {
+        this.duplicateImagesCheckedAt = duplicateImagesCheckedAt;
+    }
+    
+    public String getPricingVersion() {
+        return pricingVersion;
+    }
+    
+    public void setPricingVersion(String pricingVersion) {
+        this.pricingVersion = pricingVersion;
+    }
+    
     // Helper methods
     public boolean isValidForSave() {
         return userId != null && userName != null && !userName.trim().isEmpty() &&
@@ -595,4 +658,66 @@ public class GemListing {
                 ", createdAt=" + createdAt +
                 '}';
     }
+
+    /**
+     * A photo of this listing that is a near-duplicate of a photo in another listing
+     */
+    public static class DuplicateImageMatch {
+        private String imageId;
+        private String matchedListingId;
+        private String matchedImageId;
+        private int distance; // Differing bits of the two perceptual hashes
+        private boolean sameSeller;
+
+        public DuplicateImageMatch() {}
+
+        public DuplicateImageMatch(String imageId, String matchedListingId, String matchedImageId,
+                                   int distance, boolean sameSeller) {
+            this.imageId = imageId;
+            this.matchedListingId = matchedListingId;
+            this.matchedImageId = matchedImageId;
+            this.distance = distance;
+            this.sameSeller = sameSeller;
+        }
+
+        public String getImageId() {
+            return imageId;
+        }
+
+        public void setImageId(String imageId) {
+            this.imageId = imageId;
+        }
+
+        public String getMatchedListingId() {
+            return matchedListingId;
+        }
+
+        public void setMatchedListingId(String matchedListingId) {
+            this.matchedListingId = matchedListingId;
+        }
+
+        public String getMatchedImageId() {
+            return matchedImageId;
+        }
+
+        public void setMatchedImageId(String matchedImageId) {
+            this.matchedImageId = matchedImageId;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+
+        public void setDistance(int distance) {
+            this.distance = distance;
+        }
+
+        public boolean isSameSeller() {
+            return sameSeller;
+        }
+
+        public void setSameSeller(boolean sameSeller) {
+            this.sameSeller = sameSeller;
+        }
+    }
 }
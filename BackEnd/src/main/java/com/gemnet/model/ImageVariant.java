@@ -0,0 +1,65 @@
+package com.gemnet.model;
+
+/**
+ * Embedded document for one resized copy of an uploaded image
+ */
+public class ImageVariant {
+    
+    private Integer width;
+    private Integer height;
+    private String url;
+    private Long size;
+    
+    // Constructors
+    public ImageVariant() {}
+    
+    public ImageVariant(Integer width, Integer height, String url, Long size) {
+        this.width = width;
+        this.height = height;
+        this.url = url;
+        this.size = size;
+    }
+    
+    // Getters and Setters
+    public Integer getWidth() {
+        return width;
+    }
+    
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+    
+    public Integer getHeight() {
+        return height;
+    }
+    
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+    
+    public String getUrl() {
+        return url;
+    }
+    
+    public void setUrl(String url) {
+        this.url = url;
+    }
+    
+    public Long getSize() {
+        return size;
+    }
+    
+    public void setSize(Long size) {
+        this.size = size;
+    }
+    
+    @Override
+    public String toString() {
+        return "ImageVariant{" +
+                "width=" + width +
+                ", height=" + height +
+                ", url='" + url + '\'' +
+                ", size=" + size +
+                '}';
+    }
+}
@@ -0,0 +1,48 @@
+package com.gemnet.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Embedded document linking an uploaded image URL to its resized variants
+ */
+public class ImageVariantSet {
+    
+    private String sourceUrl;
+    private List<ImageVariant> variants;
+    private LocalDateTime generatedAt;
+    
+    // Constructors
+    public ImageVariantSet() {}
+    
+    public ImageVariantSet(String sourceUrl, List<ImageVariant> variants) {
+        this.sourceUrl = sourceUrl;
+        this.variants = variants;
+        this.generatedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getSourceUrl() {
+        return sourceUrl;
+    }
+    
+    public void setSourceUrl(String sourceUrl) {
+        this.sourceUrl = sourceUrl;
+    }
+    
+    public List<ImageVariant> getVariants() {
+        return variants;
+    }
+    
+    public void setVariants(List<ImageVariant> variants) {
+        this.variants = variants;
+    }
+    
+    public LocalDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+    
+    public void setGeneratedAt(LocalDateTime generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+}
@@ -0,0 +1,89 @@
+package com.gemnet.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.Indexed;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cached Tesseract output for one image under one OCR profile.
+ * The id is the SHA-256 hex of the profile configuration and the pixels handed to the engine,
+ * so a repeat upload of the same certificate or NIC skips OCR.
+ */
+@Document(collection = "ocr_results")
+public class OcrResult {
+
+    @Id
+    private String id;
+
+    private String profile;
+    private String text;
+    private long hits;
+
+    private LocalDateTime createdAt;
+
+    // Least recently used entries are evicted first
+    @Indexed
+    private LocalDateTime lastUsedAt;
+
+    // Constructors
+    public OcrResult() {}
+
+    public OcrResult(String id, String profile, String text) {
+        this.id = id;
+        this.profile = profile;
+        this.text = text;
+        this.createdAt = LocalDateTime.now();
+        this.lastUsedAt = this.createdAt;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public void setLastUsedAt(LocalDateTime lastUsedAt) {
+        this.lastUsedAt = lastUsedAt;
+    }
+}
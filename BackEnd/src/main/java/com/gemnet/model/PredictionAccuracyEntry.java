@@ -0,0 +1,180 @@
+package com.gemnet.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.Indexed;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stored prediction accuracy for one gem listing.
+ * The id is the listing ID; sourceFingerprint tells the background refresh whether the
+ * listing changed since the prediction was made.
+ */
+@Document(collection = "prediction_accuracy")
+public class PredictionAccuracyEntry {
+    
+    @Id
+    private String listingId;
+    
+    private String sourceFingerprint;
+    
+    private String gemName;
+    
+    @Indexed
+    private String species;
+    
+    private String weight;
+    private String color;
+    private Double actualPrice;
+    private Double predictedPrice;
+    private Double minPrice;
+    private Double maxPrice;
+    private Double accuracyPercentage;
+    private Long modelConfidence;
+    private Boolean isCertified;
+    private String currency;
+    
+    @Indexed
+    private String accuracyGrade;
+    
+    private LocalDateTime computedAt;
+    
+    // Constructors
+    public PredictionAccuracyEntry() {}
+    
+    public PredictionAccuracyEntry(String listingId, String sourceFingerprint) {
+        this.listingId = listingId;
+        this.sourceFingerprint = sourceFingerprint;
+        this.computedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getListingId() {
+        return listingId;
+    }
+    
+    public void setListingId(String listingId) {
+        this.listingId = listingId;
+    }
+    
+    public String getSourceFingerprint() {
+        return sourceFingerprint;
+    }
+    
+    public void setSourceFingerprint(String sourceFingerprint) {
+        this.sourceFingerprint = sourceFingerprint;
+    }
+    
+    public String getGemName() {
+        return gemName;
+    }
+    
+    public void setGemName(String gemName) {
+        this.gemName = gemName;
+    }
+    
+    public String getSpecies() {
+        return species;
+    }
+    
+    public void setSpecies(String species) {
+        this.species = species;
+    }
+    
+    public String getWeight() {
+        return weight;
+    }
+    
+    public void setWeight(String weight) {
+        this.weight = weight;
+    }
+    
+    public String getColor() {
+        return color;
+    }
+    
+    public void setColor(String color) {
+        this.color = color;
+    }
+    
+    public Double getActualPrice() {
+        return actualPrice;
+    }
+    
+    public void setActualPrice(Double actualPrice) {
+        this.actualPrice = actualPrice;
+    }
+    
+    public Double getPredictedPrice() {
+        return predictedPrice;
+    }
+    
+    public void setPredictedPrice(Double predictedPrice) {
+        this.predictedPrice = predictedPrice;
+    }
+    
+    public Double getMinPrice() {
+        return minPrice;
+    }
+    
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+    
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+    
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+    
+    public Double getAccuracyPercentage() {
+        return accuracyPercentage;
+    }
+    
+    public void setAccuracyPercentage(Double accuracyPercentage) {
+        this.accuracyPercentage = accuracyPercentage;
+    }
+    
+    public Long getModelConfidence() {
+        return modelConfidence;
+    }
+    
+    public void setModelConfidence(Long modelConfidence) {
+        this.modelConfidence = modelConfidence;
+    }
+    
+    public Boolean getIsCertified() {
+        return isCertified;
+    }
+    
+    public void setIsCertified(Boolean isCertified) {
+        this.isCertified = isCertified;
+    }
+    
+    public String getCurrency() {
+        return currency;
+    }
+    
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+    
+    public String getAccuracyGrade() {
+        return accuracyGrade;
+    }
+    
+    public void setAccuracyGrade(String accuracyGrade) {
+        this.accuracyGrade = accuracyGrade;
+    }
+    
+    public LocalDateTime getComputedAt() {
+        return computedAt;
+    }
+    
+    public void setComputedAt(LocalDateTime computedAt) {
+        this.computedAt = computedAt;
+    }
+}
@@ -0,0 +1,107 @@
+package com.gemnet.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Summary of the latest background accuracy refresh.
+ * Per-listing results live in {@link PredictionAccuracyEntry}.
+ */
+@Document(collection = "prediction_accuracy_reports")
+public class PredictionAccuracyReport {
+    
+    public static final String LATEST_ID = "latest";
+    
+    @Id
+    private String id = LATEST_ID;
+    
+    private int totalListings;
+    private Map<String, Object> overallStatistics;
+    private Map<String, Map<String, Object>> speciesBreakdown;
+    private Map<String, Long> gradeBreakdown;
+    
+    // Refresh details
+    private int recomputedListings;
+    private int removedListings;
+    private long refreshDurationMs;
+    private LocalDateTime refreshedAt;
+    
+    // Constructors
+    public PredictionAccuracyReport() {}
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public int getTotalListings() {
+        return totalListings;
+    }
+    
+    public void setTotalListings(int totalListings) {
+        this.totalListings = totalListings;
+    }
+    
+    public Map<String, Object> getOverallStatistics() {
+        return overallStatistics;
+    }
+    
+    public void setOverallStatistics(Map<String, Object> overallStatistics) {
+        this.overallStatistics = overallStatistics;
+    }
+    
+    public Map<String, Map<String, Object>> getSpeciesBreakdown() {
+        return speciesBreakdown;
+    }
+    
+    public void setSpeciesBreakdown(Map<String, Map<String, Object>> speciesBreakdown) {
+        this.speciesBreakdown = speciesBreakdown;
+    }
+    
+    public Map<String, Long> getGradeBreakdown() {
+        return gradeBreakdown;
+    }
+    
+    public void setGradeBreakdown(Map<String, Long> gradeBreakdown) {
+        this.gradeBreakdown = gradeBreakdown;
+    }
+    
+    public int getRecomputedListings() {
+        return recomputedListings;
+    }
+    
+    public void setRecomputedListings(int recomputedListings) {
+        this.recomputedListings = recomputedListings;
+    }
+    
+    public int getRemovedListings() {
+        return removedListings;
+    }
+    
+    public void setRemovedListings(int removedListings) {
+        this.removedListings = removedListings;
+    }
+    
+    public long getRefreshDurationMs() {
+        return refreshDurationMs;
+    }
+    
+    public void setRefreshDurationMs(long refreshDurationMs) {
+        this.refreshDurationMs = refreshDurationMs;
+    }
+    
+    public LocalDateTime getRefreshedAt() {
+        return refreshedAt;
+    }
+    
+    public void setRefreshedAt(LocalDateTime refreshedAt) {
+        this.refreshedAt = refreshedAt;
+    }
+}
@@ -0,0 +1,209 @@
+package com.gemnet.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.Indexed;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checkpointed state of a marketplace repricing run.
+ * Listings are scanned in _id order, so lastProcessedId is enough to resume after a restart.
+ */
+@Document(collection = "repricing_jobs")
+public class RepricingJob {
+    
+    @Id
+    private String id;
+    
+    @Indexed
+    private String status; // RUNNING, COMPLETED, FAILED
+    
+    private String pricingVersion; // Dataset/model version the job reprices against
+    private boolean force;         // Reprice every listing regardless of fingerprint/version
+    
+    // Checkpoint
+    private String lastProcessedId;
+    
+    // Counters
+    private long scannedListings;
+    private long candidateListings;
+    private long updatedListings;
+    private long skippedListings;
+    private long failedListings;
+    private long highConfidencePredictions;
+    private long mediumConfidencePredictions;
+    private long lowConfidencePredictions;
+    
+    private int resumeCount;
+    private String errorMessage;
+    
+    private LocalDateTime startedAt;
+    private LocalDateTime lastCheckpointAt;
+    private LocalDateTime completedAt;
+    
+    // Constructors
+    public RepricingJob() {}
+    
+    public RepricingJob(String pricingVersion, boolean force) {
+        this.pricingVersion = pricingVersion;
+        this.force = force;
+        this.status = "RUNNING";
+        this.startedAt = LocalDateTime.now();
+        this.lastCheckpointAt = this.startedAt;
+    }
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getPricingVersion() {
+        return pricingVersion;
+    }
+    
+    public void setPricingVersion(String pricingVersion) {
+        this.pricingVersion = pricingVersion;
+    }
+    
+    public boolean isForce() {
+        return force;
+    }
+    
+    public void setForce(boolean force) {
+        this.force = force;
+    }
+    
+    public String getLastProcessedId() {
+        return lastProcessedId;
+    }
+    
+    public void setLastProcessedId(String lastProcessedId) {
+        this.lastProcessedId = lastProcessedId;
+    }
+    
+    public long getScannedListings() {
+        return scannedListings;
+    }
+    
+    public void setScannedListings(long scannedListings) {
+        this.scannedListings = scannedListings;
+    }
+    
+    public long getCandidateListings() {
+        return candidateListings;
+    }
+    
+    public void setCandidateListings(long candidateListings) {
+        this.candidateListings = candidateListings;
+    }
+    
+    public long getUpdatedListings() {
+        return updatedListings;
+    }
+    
+    public void setUpdatedListings(long updatedListings) {
+        this.updatedListings = updatedListings;
+    }
+    
+    public long getSkippedListings() {
+        return skippedListings;
+    }
+    
+    public void setSkippedListings(long skippedListings) {
+        this.skippedListings = skippedListings;
+    }
+    
+    public long getFailedListings() {
+        return failedListings;
+    }
+    
+    public void setFailedListings(long failedListings) {
+        this.failedListings = failedListings;
+    }
+    
+    public long getHighConfidencePredictions() {
+        return highConfidencePredictions;
+    }
+    
+    public void setHighConfidencePredictions(long highConfidencePredictions) {
+        this.highConfidencePredictions = highConfidencePredictions;
+    }
+    
+    public long getMediumConfidencePredictions() {
+        return mediumConfidencePredictions;
+    }
+    
+    public void setMediumConfidencePredictions(long mediumConfidencePredictions) {
+        this.mediumConfidencePredictions = mediumConfidencePredictions;
+    }
+    
+    public long getLowConfidencePredictions() {
+        return lowConfidencePredictions;
+    }
+    
+    public void setLowConfidencePredictions(long lowConfidencePredictions) {
+        this.lowConfidencePredictions = lowConfidencePredictions;
+    }
+    
+    public int getResumeCount() {
+        return resumeCount;
+    }
+    
+    public void setResumeCount(int resumeCount) {
+        this.resumeCount = resumeCount;
+    }
+    
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getLastCheckpointAt() {
+        return lastCheckpointAt;
+    }
+    
+    public void setLastCheckpointAt(LocalDateTime lastCheckpointAt) {
+        this.lastCheckpointAt = lastCheckpointAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+    
+    // Helper methods
+    public boolean isRunning() {
+        return "RUNNING".equals(status);
+    }
+    
+    public long getProcessedListings() {
+        return updatedListings + skippedListings + failedListings;
+    }
+}
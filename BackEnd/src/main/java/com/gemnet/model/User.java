@@ -55,7 +55,7 @@ public class User {
     
     // Face verification data
     private String faceImagePath;
-    private String faceFeatures; // Encoded face features for comparison
+    private String faceTemplateId; // Face template in face_templates
     
     // Identity card verification data
     private String nicImagePath;
@@ -151,8 +151,8 @@ public class User {
     public String getFaceImagePath() { return faceImagePath; }
     public void setFaceImagePath(String faceImagePath) { this.faceImagePath = faceImagePath; }
     
-    public String getFaceFeatures() { return faceFeatures; }
-    public void setFaceFeatures(String faceFeatures) { this.faceFeatures = faceFeatures; }
+    public String getFaceTemplateId() { return faceTemplateId; }
+    public void setFaceTemplateId(String faceTemplateId) { this.faceTemplateId = faceTemplateId; }
     
     public String getNicImagePath() { return nicImagePath; }
     public void setNicImagePath(String nicImagePath) { this.nicImagePath = nicImagePath; }
@@ -0,0 +1,134 @@
+package com.gemnet.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.Indexed;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * An identity verification step (face capture or NIC check) queued from an upload.
+ * The request returns the job id straight away; clients poll the job for the outcome,
+ * which is the same data the synchronous verification used to return.
+ */
+@Document(collection = "verification_jobs")
+public class VerificationJob {
+    
+    @Id
+    private String id;
+    
+    @Indexed
+    private String userId;
+    
+    private String type;   // FACE, NIC
+    
+    @Indexed
+    private String status; // QUEUED, RUNNING, SUCCEEDED, FAILED
+    
+    // Outcome of the verification step
+    private Boolean success;
+    private String message;
+    private Map<String, Object> result;
+    
+    // Finished jobs are only kept for polling and troubleshooting
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    
+    // Constructors
+    public VerificationJob() {}
+    
+    public VerificationJob(String userId, String type) {
+        this.userId = userId;
+        this.type = type;
+        this.status = "QUEUED";
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    public boolean isFinished() {
+        return "SUCCEEDED".equals(status) || "FAILED".equals(status);
+    }
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    public void setType(String type) {
+        this.type = type;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public Boolean getSuccess() {
+        return success;
+    }
+    
+    public void setSuccess(Boolean success) {
+        this.success = success;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    public Map<String, Object> getResult() {
+        return result;
+    }
+    
+    public void setResult(Map<String, Object> result) {
+        this.result = result;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,14 @@
+package com.gemnet.repository;
+
+import com.gemnet.model.FaceTemplate;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface FaceTemplateRepository extends MongoRepository<FaceTemplate, String> {
+
+    // Template of a user by kind (FACE, NIC_PHOTO)
+    Optional<FaceTemplate> findByUserIdAndKind(String userId, String kind);
+}
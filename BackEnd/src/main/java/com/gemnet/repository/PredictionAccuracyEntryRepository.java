@@ -0,0 +1,9 @@
+package com.gemnet.repository;
+
+import com.gemnet.model.PredictionAccuracyEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PredictionAccuracyEntryRepository extends MongoRepository<PredictionAccuracyEntry, String> {
+}
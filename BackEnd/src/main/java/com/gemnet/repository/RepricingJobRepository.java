@@ -0,0 +1,18 @@
+package com.gemnet.repository;
+
+import com.gemnet.model.RepricingJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RepricingJobRepository extends MongoRepository<RepricingJob, String> {
+    
+    // Find jobs by status (RUNNING jobs are resumed at startup)
+    List<RepricingJob> findByStatus(String status);
+    
+    // Most recently started job
+    Optional<RepricingJob> findFirstByOrderByStartedAtDesc();
+}
@@ -0,0 +1,14 @@
+package com.gemnet.repository;
+
+import com.gemnet.model.VerificationJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface VerificationJobRepository extends MongoRepository<VerificationJob, String> {
+    
+    // Unfinished jobs (QUEUED, RUNNING) are failed at startup since their uploads are gone
+    List<VerificationJob> findByStatusIn(List<String> statuses);
+}
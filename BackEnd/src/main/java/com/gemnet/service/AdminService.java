@@ -74,6 +74,16 @@ public class AdminService {
             responseData.put("hasNext", pendingListingsPage.hasNext());
             responseData.put("hasPrevious", pendingListingsPage.hasPrevious());
             
+            // Listings on this page whose photos were found in other listings
+            Map<String, List<GemListing.DuplicateImageMatch>> duplicateImageFlags = new HashMap<>();
+            for (GemListing listing : pendingListingsPage.getContent()) {
+                if (listing.getDuplicateImageMatches() != null && !listing.getDuplicateImageMatches().isEmpty()) {
+                    duplicateImageFlags.put(listing.getId(), listing.getDuplicateImageMatches());
+                }
+            }
+            responseData.put("duplicateImageFlags", duplicateImageFlags);
+            responseData.put("flaggedListings", duplicateImageFlags.size());
+            
             System.out.println("✅ Retrieved " + pendingListingsPage.getNumberOfElements() + 
                              " pending listings out of " + pendingListingsPage.getTotalElements() + " total");
             
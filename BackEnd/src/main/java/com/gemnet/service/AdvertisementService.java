@@ -11,7 +11,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -28,6 +27,9 @@ public class AdvertisementService {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+    
     @Autowired
     private UserRepository userRepository;
     
@@ -79,6 +81,11 @@ public class AdvertisementService {
         advertisement.setImages(webImageURLs.getImages());
         Advertisement savedAdvertisement = advertisementRepository.save(advertisement);
         
+        // Generate resized image variants in the background
+        if (imagePaths != null) {
+            imageDerivativeService.scheduleAdvertisement(savedAdvertisement.getId());
+        }
+        
         // Notify admin of new advertisement if status is pending
         if ("pending".equals(savedAdvertisement.getApproved())) {
             try {
@@ -142,6 +149,7 @@ public class AdvertisementService {
                     fileStorageService.deleteFile(imagePath);
                 }
             }
+            imageDerivativeService.deleteVariants(advertisement.getImageVariants());
             
             // Delete advertisement from database
             advertisementRepository.deleteById(id);
@@ -194,6 +202,8 @@ public class AdvertisementService {
                     fileStorageService.deleteFile(imagePath);
                 }
             }
+            imageDerivativeService.deleteVariants(advertisement.getImageVariants());
+            advertisement.setImageVariants(null);
             
             // Store new images
             List<String> imagePaths = fileStorageService.storeAdvertisementImages(requestDto.getImages(), advertisement.getUserId());
@@ -220,6 +230,11 @@ public class AdvertisementService {
         Advertisement webImageURLs = transformImagePathsToUrls(advertisement);
         advertisement.setImages(webImageURLs.getImages());
         Advertisement savedAdvertisement = advertisementRepository.save(advertisement);
+        
+        // New images need new variants
+        if (savedAdvertisement.getImageVariants() == null && savedAdvertisement.getImages() != null) {
+            imageDerivativeService.scheduleAdvertisement(savedAdvertisement.getId());
+        }
         return Optional.of(transformImagePathsToUrls(savedAdvertisement));
     }
 
@@ -267,14 +282,11 @@ public class AdvertisementService {
      */
     private String convertFilePathToUrl(String filePath) {
         try {
-            // Extract filename from the full path
-            String fileName = Paths.get(filePath).getFileName().toString();
-            
-            // Determine the directory based on the file path
-            String directory = "advertisement-images"; // Default
+            // Path below /uploads (legacy advertisement-images/ or content-addressed blobs/)
+            String relativePath = fileStorageService.toRelativeUploadPath(filePath, "advertisement-images");
             
             // Construct web URL
-            return String.format("%s:%s/uploads/%s/%s", baseUrl, serverPort, directory, fileName);
+            return String.format("%s:%s/uploads/%s", baseUrl, serverPort, relativePath);
         } catch (Exception e) {
             System.err.println("❌ Error converting file path to URL: " + filePath + " - " + e.getMessage());
             // Return the original path as fallback
@@ -287,11 +299,11 @@ public class AdvertisementService {
      */
     private String convertVideoPathToUrl(String filePath) {
         try {
-            // Extract filename from the full path
-            String fileName = Paths.get(filePath).getFileName().toString();
+            // Path below /uploads (legacy advertisement-videos/ or content-addressed blobs/)
+            String relativePath = fileStorageService.toRelativeUploadPath(filePath, "advertisement-videos");
             
             // Construct web URL for videos
-            return String.format("%s:%s/uploads/advertisement-videos/%s", baseUrl, serverPort, fileName);
+            return String.format("%s:%s/uploads/%s", baseUrl, serverPort, relativePath);
         } catch (Exception e) {
             System.err.println("❌ Error converting video path to URL: " + filePath + " - " + e.getMessage());
             // Return the original path as fallback
@@ -0,0 +1,58 @@
+package com.gemnet.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Storage backend for uploaded media. Keys are paths relative to the uploads root
+ * ("gems/x.jpg", "blobs/ab/cd/&lt;hash&gt;.jpg"), the same paths served under /uploads/.
+ * Selected with app.file-storage.backend (local or s3).
+ */
+public interface BlobStore {
+
+    /**
+     * Store a file under the key, replacing any existing object. The source may be moved
+     * into the local store or cache, so callers must not use it afterwards.
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    /**
+     * Open an object for reading; throws NoSuchFileException when it does not exist
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Object size in bytes, or -1 when it does not exist
+     */
+    long size(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return size(key) >= 0;
+    }
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Local file holding the object, fetched into the read-through cache when the backend
+     * is remote. Returns null when the object does not exist.
+     */
+    Path localPath(String key) throws IOException;
+
+    /**
+     * Time-limited URL clients can download the object from directly, when the backend has one
+     */
+    Optional<String> presignedUrl(String key, Duration validity);
+
+    /**
+     * Size above which downloads should go straight to the backend instead of through this node,
+     * or -1 when the backend has no direct downloads
+     */
+    default long directDownloadThreshold() {
+        return -1;
+    }
+
+    String getType();
+}
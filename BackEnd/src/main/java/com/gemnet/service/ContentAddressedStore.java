@@ -0,0 +1,233 @@
+package com.gemnet.service;
+
+import com.gemnet.model.BlobReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deduplicating upload store. Each upload is hashed (SHA-256) while it streams to a temp file,
+ * then kept once at blobs/ab/cd/&lt;hash&gt;.&lt;ext&gt; in the configured BlobStore. blob_refs counts
+ * how many records point at each blob; blobs whose count drops to zero are left in place for
+ * the upload sweep, which avoids racing a concurrent upload of the same content.
+ */
+@Service
+public class ContentAddressedStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentAddressedStore.class);
+
+    public static final String BLOB_DIRECTORY = "blobs";
+
+    // blobs/ab/cd/<64 hex>.<ext> as a file path or /uploads URL
+    private static final Pattern BLOB_REFERENCE = Pattern.compile(
+        "(?:^|[/\\\\])" + BLOB_DIRECTORY + "[/\\\\][0-9a-f]{2}[/\\\\][0-9a-f]{2}[/\\\\]([0-9a-f]{64})\\.([a-z0-9]+)$");
+
+    @Value("${app.file-storage.base-path:./uploads}")
+    private String baseStoragePath;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    private Path blobRoot;
+    private Path tempDirectory;
+
+    @PostConstruct
+    public void init() {
+        try {
+            blobRoot = Paths.get(baseStoragePath).toAbsolutePath().normalize().resolve(BLOB_DIRECTORY);
+            tempDirectory = blobRoot.resolve(".tmp");
+            Files.createDirectories(tempDirectory);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize content-addressed storage", e);
+        }
+    }
+
+    /**
+     * Stream an upload into the store and take one reference on it
+     */
+    public StoredBlob store(InputStream input, String extension) throws IOException {
+        Path temp = Files.createTempFile(tempDirectory, "upload-", ".part");
+        try {
+            MessageDigest digest = newDigest();
+            long size;
+            try (DigestInputStream digestInput = new DigestInputStream(input, digest)) {
+                size = Files.copy(digestInput, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return commit(temp, HexFormat.of().formatHex(digest.digest()), normalizeExtension(extension), size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Add an existing file to the store (the source is left in place) and take one reference on it
+     */
+    public StoredBlob storeFile(Path source, String extension) throws IOException {
+        try (InputStream input = Files.newInputStream(source)) {
+            return store(input, extension);
+        }
+    }
+
+    /**
+     * Take another reference on an already stored blob
+     */
+    public void retain(StoredBlob blob) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("id").is(blob.getHash() + "." + blob.getExtension())),
+            new Update().inc("refCount", 1).set("lastReferencedAt", LocalDateTime.now()),
+            BlobReference.class);
+    }
+
+    /**
+     * Drop one reference. Returns false when the path is not a content-addressed blob.
+     */
+    public boolean release(String pathOrUrl) {
+        Matcher matcher = pathOrUrl != null ? BLOB_REFERENCE.matcher(pathOrUrl) : null;
+        if (matcher == null || !matcher.find()) {
+            return false;
+        }
+        String blobId = matcher.group(1) + "." + matcher.group(2);
+        BlobReference reference = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("id").is(blobId).and("refCount").gt(0)),
+            new Update().inc("refCount", -1).set("lastReleasedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            BlobReference.class);
+        if (reference != null && reference.getRefCount() == 0) {
+            logger.debug("Blob {} is no longer referenced", blobId);
+        }
+        return true;
+    }
+
+    /**
+     * Whether a stored path or URL points at a content-addressed blob (not a variant of one)
+     */
+    public boolean isBlobReference(String pathOrUrl) {
+        return pathOrUrl != null && BLOB_REFERENCE.matcher(pathOrUrl).find();
+    }
+
+    /**
+     * SHA-256 of a content-addressed blob from its path or URL, or null for other uploads
+     */
+    public String hashOf(String pathOrUrl) {
+        Matcher matcher = pathOrUrl != null ? BLOB_REFERENCE.matcher(pathOrUrl) : null;
+        return matcher != null && matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Whether a path lies inside the blob tree (blobs and their derived variants)
+     */
+    public boolean isInBlobTree(String pathOrUrl) {
+        return pathOrUrl != null
+            && (pathOrUrl.contains("/" + BLOB_DIRECTORY + "/") || pathOrUrl.contains("\\" + BLOB_DIRECTORY + "\\"));
+    }
+
+    public Path getBlobRoot() {
+        return blobRoot;
+    }
+
+    private StoredBlob commit(Path temp, String hash, String extension, long size) throws IOException {
+        String blobId = hash + "." + extension;
+        Path target = blobRoot.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(blobId);
+
+        // Take the reference first so a concurrent release can never see this blob at zero
+        LocalDateTime now = LocalDateTime.now();
+        BlobReference previous = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("id").is(blobId)),
+            new Update().inc("refCount", 1)
+                .set("lastReferencedAt", now)
+                .setOnInsert("hash", hash)
+                .setOnInsert("extension", extension)
+                .setOnInsert("size", size)
+                .setOnInsert("createdAt", now),
+            FindAndModifyOptions.options().upsert(true).returnNew(false),
+            BlobReference.class);
+
+        String key = BLOB_DIRECTORY + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + blobId;
+        boolean deduplicated = blobStore.exists(key);
+        if (!deduplicated) {
+            blobStore.put(key, temp, contentTypeFor(extension));
+        }
+
+        if (deduplicated) {
+            logger.info("♻️ Duplicate upload stored once: {} (refs {})", blobId,
+                       previous != null ? previous.getRefCount() + 1 : 1);
+        }
+        return new StoredBlob(hash, extension, target, toUrl(target), size, deduplicated);
+    }
+
+    private String toUrl(Path target) {
+        return "/uploads/" + blobRoot.getParent().relativize(target).toString().replace('\\', '/');
+    }
+
+    private String contentTypeFor(String extension) {
+        String contentType = URLConnection.guessContentTypeFromName("blob." + extension);
+        return contentType != null ? contentType : "application/octet-stream";
+    }
+
+    private String normalizeExtension(String extension) {
+        String normalized = extension == null ? "" : extension.toLowerCase().replaceAll("[^a-z0-9]", "");
+        return normalized.isEmpty() ? "bin" : normalized;
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Result of storing an upload
+     */
+    public static class StoredBlob {
+        private final String hash;
+        private final String extension;
+        private final Path path;
+        private final String url;
+        private final long size;
+        private final boolean deduplicated;
+
+        public StoredBlob(String hash, String extension, Path path, String url, long size, boolean deduplicated) {
+            this.hash = hash;
+            this.extension = extension;
+            this.path = path;
+            this.url = url;
+            this.size = size;
+            this.deduplicated = deduplicated;
+        }
+
+        public String getHash() { return hash; }
+        public String getExtension() { return extension; }
+        public Path getPath() { return path; }
+        public String getUrl() { return url; }
+        public long getSize() { return size; }
+        public boolean isDeduplicated() { return deduplicated; }
+    }
+}
@@ -0,0 +1,364 @@
+package com.gemnet.service;
+
+import com.gemnet.model.FaceTemplate;
+import com.gemnet.util.FaceLshIndex;
+import com.gemnet.util.LbpFaceDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 1:N duplicate identity check. Keeps the FACE templates of all face-verified users in an
+ * in-memory LSH index, loaded at startup and updated on enrolment, so a new selfie can be
+ * compared against every registered face within a fixed time budget. Close matches are
+ * stored on the new template for admin review; registration is not blocked.
+ */
+@Service
+public class FaceDuplicateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FaceDuplicateService.class);
+
+    // Fixed so hashes are reproducible between restarts
+    private static final long HYPERPLANE_SEED = 0x6A3D5EEDL;
+
+    // Re-centre once the index has doubled since the mean was taken
+    private static final int MIN_RECENTRE_SIZE = 64;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Off until the threshold is calibrated on real same-person selfie pairs
+    @Value("${gemnet.face.duplicates.enabled:false}")
+    private boolean enabled;
+
+    // Above every cross-user selfie pair measured so far; see the calibration report
+    @Value("${gemnet.face.duplicates.threshold:0.97}")
+    private double threshold;
+
+    @Value("${gemnet.face.match-threshold:0.9}")
+    private double matchThreshold;
+
+    @Value("${gemnet.face.duplicates.budget-ms:50}")
+    private long budgetMs;
+
+    @Value("${gemnet.face.duplicates.max-candidates:5}")
+    private int maxCandidates;
+
+    @Value("${gemnet.face.duplicates.lsh.tables:16}")
+    private int tables;
+
+    @Value("${gemnet.face.duplicates.lsh.bits:8}")
+    private int bits;
+
+    @Value("${gemnet.face.duplicates.lsh.probes:3}")
+    private int probes;
+
+    private volatile FaceLshIndex index;
+    private volatile int centredSize;
+    private volatile boolean ready = false;
+    private final Object writeLock = new Object();
+    private final AtomicBoolean recentring = new AtomicBoolean(false);
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong flagged = new AtomicLong();
+    private final AtomicLong truncated = new AtomicLong();
+    private final AtomicLong totalCheckNanos = new AtomicLong();
+    private volatile long loadMillis;
+
+    /**
+     * Load the index in the background; checks made before it is ready are skipped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "face-duplicate-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        Map<String, byte[]> templates = new HashMap<>();
+
+        Query query = Query.query(Criteria.where("kind").is(FaceTemplateService.FACE)
+                .and("algorithm").is(LbpFaceDescriptor.ALGORITHM));
+        query.fields().include("userId", "descriptor");
+        try (Stream<FaceTemplate> stream = mongoTemplate.stream(query, FaceTemplate.class)) {
+            stream.forEach(template -> templates.put(template.getUserId(), template.getDescriptor()));
+        } catch (Exception e) {
+            logger.error("❌ Failed to load face duplicate index: {}", e.getMessage(), e);
+            return;
+        }
+
+        synchronized (writeLock) {
+            // Keep anything enrolled while the collection was being read
+            if (index != null) {
+                templates.putAll(index.getTemplates());
+            }
+            index = build(templates);
+            ready = true;
+        }
+        loadMillis = System.currentTimeMillis() - start;
+        logger.info("✅ Face duplicate index loaded: {} templates in {} ms", templates.size(), loadMillis);
+    }
+
+    /**
+     * Add or replace a user's FACE template without checking it (e.g. migrated templates)
+     */
+    public void add(String userId, byte[] descriptor) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (index == null) {
+                index = build(new HashMap<>());
+            }
+            index.put(userId, descriptor);
+        }
+        recentreIfGrown();
+    }
+
+    /**
+     * Look for other users with a near-identical face, record the candidates on the user's
+     * FACE template and enrol the template. Returns a summary safe to show the user.
+     */
+    public Map<String, Object> checkAndEnrol(String userId, byte[] descriptor) {
+        Map<String, Object> summary = new HashMap<>();
+        if (!enabled || descriptor == null) {
+            summary.put("duplicateCheck", "SKIPPED");
+            return summary;
+        }
+        if (!ready) {
+            add(userId, descriptor);
+            summary.put("duplicateCheck", "INDEX_LOADING");
+            return summary;
+        }
+
+        long start = System.nanoTime();
+        FaceLshIndex.QueryResult result = index.query(descriptor, threshold, maxCandidates, userId,
+                start + TimeUnit.MILLISECONDS.toNanos(budgetMs));
+        long elapsed = System.nanoTime() - start;
+        add(userId, descriptor);
+
+        checks.incrementAndGet();
+        totalCheckNanos.addAndGet(elapsed);
+        if (result.isTruncated()) {
+            truncated.incrementAndGet();
+        }
+
+        List<FaceTemplate.DuplicateCandidate> candidates = new ArrayList<>();
+        for (FaceLshIndex.Match match : result.getMatches()) {
+            candidates.add(new FaceTemplate.DuplicateCandidate(match.getId(), Math.round(match.getSimilarity() * 1000) / 1000.0));
+        }
+        saveCandidates(userId, candidates);
+
+        if (!candidates.isEmpty()) {
+            flagged.incrementAndGet();
+            logger.warn("⚠️ Face of user {} is close to {} other user(s), flagged for review", userId, candidates.size());
+        }
+
+        summary.put("duplicateCheck", result.isTruncated() ? "PARTIAL" : "COMPLETE");
+        summary.put("duplicateReview", !candidates.isEmpty());
+        return summary;
+    }
+
+    /**
+     * FACE templates with duplicate candidates, most recently checked first
+     */
+    public List<Map<String, Object>> getFlagged(int limit) {
+        Query query = Query.query(Criteria.where("kind").is(FaceTemplateService.FACE)
+                .and("duplicateCandidates.0").exists(true))
+                .with(Sort.by(Sort.Direction.DESC, "duplicateCheckedAt"))
+                .limit(limit);
+        query.fields().include("userId", "duplicateCandidates", "duplicateCheckedAt");
+
+        List<Map<String, Object>> flaggedUsers = new ArrayList<>();
+        for (FaceTemplate template : mongoTemplate.find(query, FaceTemplate.class)) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("userId", template.getUserId());
+            entry.put("candidates", template.getDuplicateCandidates());
+            entry.put("checkedAt", template.getDuplicateCheckedAt());
+            flaggedUsers.add(entry);
+        }
+        return flaggedUsers;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        long checkCount = checks.get();
+        status.put("enabled", enabled);
+        status.put("ready", ready);
+        status.put("indexedTemplates", index != null ? index.size() : 0);
+        status.put("loadMillis", loadMillis);
+        status.put("lshTables", tables);
+        status.put("lshBits", bits);
+        status.put("lshProbes", probes);
+        status.put("threshold", threshold);
+        status.put("budgetMs", budgetMs);
+        status.put("checks", checkCount);
+        status.put("flagged", flagged.get());
+        status.put("truncated", truncated.get());
+        status.put("avgCheckMicros", checkCount > 0 ? totalCheckNanos.get() / checkCount / 1000 : 0);
+        return status;
+    }
+
+    /**
+     * Measure the face thresholds on stored templates. Genuine pairs are a user's selfie and
+     * NIC photo (the pair the match threshold decides on); impostor pairs are the selfies of
+     * two random users. Reports how many of each both thresholds accept, and how many genuine
+     * pairs the LSH index finds from the NIC photo at the duplicate threshold, i.e. its recall
+     * on real faces rather than synthetic ones.
+     */
+    public Map<String, Object> calibrate(int impostorPairs) {
+        Map<String, byte[]> faces = new HashMap<>();
+        Map<String, byte[]> nicPhotos = new HashMap<>();
+        Query query = Query.query(Criteria.where("algorithm").is(LbpFaceDescriptor.ALGORITHM)
+                .and("kind").in(FaceTemplateService.FACE, FaceTemplateService.NIC_PHOTO));
+        query.fields().include("userId", "kind", "descriptor");
+        try (Stream<FaceTemplate> stream = mongoTemplate.stream(query, FaceTemplate.class)) {
+            stream.forEach(template -> (FaceTemplateService.FACE.equals(template.getKind()) ? faces : nicPhotos)
+                    .put(template.getUserId(), template.getDescriptor()));
+        }
+
+        FaceLshIndex current = ready ? index : null;
+        List<Double> genuine = new ArrayList<>();
+        int recallPairs = 0;
+        int recalled = 0;
+        for (Map.Entry<String, byte[]> nicPhoto : nicPhotos.entrySet()) {
+            byte[] face = faces.get(nicPhoto.getKey());
+            if (face == null) {
+                continue;
+            }
+            double similarity = LbpFaceDescriptor.similarity(face, nicPhoto.getValue());
+            genuine.add(similarity);
+            if (current != null && similarity >= threshold) {
+                recallPairs++;
+                FaceLshIndex.QueryResult result = current.query(nicPhoto.getValue(), threshold, maxCandidates, null,
+                        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs));
+                if (result.getMatches().stream().anyMatch(match -> match.getId().equals(nicPhoto.getKey()))) {
+                    recalled++;
+                }
+            }
+        }
+
+        List<Double> impostor = new ArrayList<>();
+        List<String> users = new ArrayList<>(faces.keySet());
+        Random random = new Random(HYPERPLANE_SEED);
+        for (int i = 0; i < impostorPairs && users.size() > 1; i++) {
+            int first = random.nextInt(users.size());
+            int second = random.nextInt(users.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            impostor.add(LbpFaceDescriptor.similarity(faces.get(users.get(first)), faces.get(users.get(second))));
+        }
+        Collections.sort(genuine);
+        Collections.sort(impostor);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("matchThreshold", matchThreshold);
+        report.put("duplicateThreshold", threshold);
+        report.put("genuinePairs", genuine.size());
+        report.put("impostorPairs", impostor.size());
+        report.put("genuineP01", percentile(genuine, 0.01));
+        report.put("genuineP05", percentile(genuine, 0.05));
+        report.put("genuineP50", percentile(genuine, 0.5));
+        report.put("impostorP50", percentile(impostor, 0.5));
+        report.put("impostorP99", percentile(impostor, 0.99));
+        report.put("impostorP999", percentile(impostor, 0.999));
+        report.put("impostorMax", percentile(impostor, 1.0));
+        report.put("genuineAcceptedAtMatchThreshold", fractionAtLeast(genuine, matchThreshold));
+        report.put("impostorAcceptedAtMatchThreshold", fractionAtLeast(impostor, matchThreshold));
+        report.put("genuineAcceptedAtDuplicateThreshold", fractionAtLeast(genuine, threshold));
+        report.put("impostorAcceptedAtDuplicateThreshold", fractionAtLeast(impostor, threshold));
+        report.put("lshRecallPairs", recallPairs);
+        report.put("lshRecall", recallPairs > 0 ? Math.round(recalled * 1000.0 / recallPairs) / 1000.0 : null);
+        return report;
+    }
+
+    private static Double percentile(List<Double> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return null;
+        }
+        double value = sorted.get(Math.min(sorted.size() - 1, (int) (quantile * sorted.size())));
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static Double fractionAtLeast(List<Double> sorted, double threshold) {
+        if (sorted.isEmpty()) {
+            return null;
+        }
+        long accepted = sorted.stream().filter(value -> value >= threshold).count();
+        return Math.round(accepted * 10000.0 / sorted.size()) / 10000.0;
+    }
+
+    private void saveCandidates(String userId, List<FaceTemplate.DuplicateCandidate> candidates) {
+        Query query = Query.query(Criteria.where("userId").is(userId).and("kind").is(FaceTemplateService.FACE));
+        Update update = new Update()
+                .set("duplicateCandidates", candidates)
+                .set("duplicateCheckedAt", LocalDateTime.now());
+        mongoTemplate.updateFirst(query, update, FaceTemplate.class);
+    }
+
+    private FaceLshIndex build(Map<String, byte[]> templates) {
+        FaceLshIndex built = new FaceLshIndex(tables, bits, probes, FaceLshIndex.meanOf(templates.values()), HYPERPLANE_SEED);
+        templates.forEach(built::put);
+        centredSize = templates.size();
+        return built;
+    }
+
+    /**
+     * Rebuild with a fresh mean once the population has doubled; hashes centred on a stale
+     * (or empty) mean bucket poorly
+     */
+    private void recentreIfGrown() {
+        FaceLshIndex current = index;
+        if (!ready || current.size() < Math.max(MIN_RECENTRE_SIZE, centredSize * 2)
+                || !recentring.compareAndSet(false, true)) {
+            return;
+        }
+        Thread worker = new Thread(() -> {
+            try {
+                FaceLshIndex rebuilt = build(new HashMap<>(current.getTemplates()));
+                synchronized (writeLock) {
+                    // Carry over enrolments made during the rebuild
+                    index.getTemplates().forEach((userId, descriptor) -> {
+                        if (rebuilt.getTemplates().get(userId) != descriptor) {
+                            rebuilt.put(userId, descriptor);
+                        }
+                    });
+                    index = rebuilt;
+                }
+                logger.info("🔄 Face duplicate index re-centred at {} templates", rebuilt.size());
+            } finally {
+                recentring.set(false);
+            }
+        }, "face-duplicate-recentre");
+        worker.setDaemon(true);
+        worker.start();
+    }
+}
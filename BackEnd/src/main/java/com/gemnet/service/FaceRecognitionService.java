@@ -3,27 +3,44 @@ package com.gemnet.service;
 import org.opencv.core.*;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
-import org.opencv.objdetect.CascadeClassifier;
+import com.gemnet.util.FaceDetector;
+import com.gemnet.util.LbpFaceDescriptor;
+import com.gemnet.util.MatScope;
+import com.gemnet.util.UploadedImage;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import jakarta.annotation.PostConstruct;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Base64;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class FaceRecognitionService {
     
-    private CascadeClassifier faceDetector;
+    private FaceDetector faceDetector;
     
-    // Configurable thresholds for different matching methods
-    private static final double TEMPLATE_MATCH_THRESHOLD = 0.45; // Lowered from 0.6
-    private static final double CORRELATION_THRESHOLD = 0.4;      // Additional method
-    private static final double HISTOGRAM_THRESHOLD = 0.7;       // Histogram comparison
+    // Photos are detected on a copy no larger than this (longest side, 0 = full resolution)
+    @Value("${gemnet.face.detection.max-dimension:640}")
+    private int detectionMaxDimension;
     
-    @PostConstruct
+    // Smallest face searched for, as a fraction of the image's shorter side
+    @Value("${gemnet.face.detection.min-face-ratio:0.2}")
+    private double detectionMinFaceRatio;
+    
+    // Template similarity (Bhattacharyya coefficient of the LBP histograms) reported as a match.
+    // Advisory only: verification decides with the image comparison below.
+    @Value("${gemnet.face.match-threshold:0.9}")
+    private double matchThreshold;
+    
+    // Thresholds of the image-level scores that decide selfie vs NIC photo
+    private static final double TEMPLATE_MATCH_THRESHOLD = 0.45;
+    private static final double CORRELATION_THRESHOLD = 0.4;
+    private static final double HISTOGRAM_THRESHOLD = 0.7;
+    private static final double STRUCTURAL_THRESHOLD = 0.3;
+    
+    // Run by the StartupOrchestrator, in parallel with the other startup initializers
     public void init() {
         try {
             // Load OpenCV native library
@@ -52,8 +69,9 @@ public class FaceRecognitionService {
                 }
             }
             
-            faceDetector = new CascadeClassifier();
-            if (!faceDetector.load(classifierPath)) {
+            // One cascade per thread; CascadeClassifier is not safe to share
+            faceDetector = new FaceDetector(classifierPath, detectionMaxDimension, detectionMinFaceRatio, 1.1, 3);
+            if (!faceDetector.isUsable()) {
                 System.err.println("❌ Error loading face detector from: " + classifierPath);
                 // Use a fallback - create a simple face detector
                 System.out.println("⚠️ Using fallback face detection (will be less accurate)");
@@ -68,319 +86,265 @@ public class FaceRecognitionService {
     }
     
     /**
-     * Extract face features from uploaded image
+     * Extract the compact face template (LbpFaceDescriptor) from an uploaded image
      */
-    public String extractFaceFeatures(MultipartFile imageFile) throws IOException {
-        // Convert MultipartFile to Mat
-        byte[] imageBytes = imageFile.getBytes();
-        Mat image = Imgcodecs.imdecode(new MatOfByte(imageBytes), Imgcodecs.IMREAD_COLOR);
-        
-        if (image.empty()) {
+    public byte[] extractFaceDescriptor(UploadedImage imageFile) throws IOException {
+        if (!imageFile.isDecodable()) {
             throw new RuntimeException("Could not load image");
         }
         
-        // Convert to grayscale
-        Mat grayImage = new Mat();
-        Imgproc.cvtColor(image, grayImage, Imgproc.COLOR_BGR2GRAY);
-        
-        Rect faceRect = null;
-        
-        // Try to detect faces if face detector is available
-        if (faceDetector != null && !faceDetector.empty()) {
-            MatOfRect faces = new MatOfRect();
-            faceDetector.detectMultiScale(grayImage, faces);
+        // Grayscale image shared with validation
+        return describeLargestFace(imageFile.getGray());
+    }
+    
+    /**
+     * Face template of an in-memory BGR or grayscale image (e.g. the photo cropped from a NIC)
+     */
+    public byte[] extractFaceDescriptor(Mat image) {
+        try (MatScope scope = new MatScope()) {
+            Mat grayImage = image;
+            if (image.channels() > 1) {
+                grayImage = scope.newMat();
+                Imgproc.cvtColor(image, grayImage, Imgproc.COLOR_BGR2GRAY);
+            }
+            return describeLargestFace(grayImage);
+        }
+    }
+    
+    /**
+     * Face template of a stored image, for users enrolled before templates were kept
+     */
+    public byte[] extractFaceDescriptor(String imagePath) throws IOException {
+        try (MatScope scope = new MatScope()) {
+            Mat grayImage = scope.track(Imgcodecs.imread(imagePath, Imgcodecs.IMREAD_GRAYSCALE));
+            if (grayImage.empty()) {
+                throw new IOException("Could not load image: " + imagePath);
+            }
+            return describeLargestFace(grayImage);
+        }
+    }
+    
+    /**
+     * Detect the largest face (or fall back to the whole image) and describe it with LBP histograms
+     */
+    private byte[] describeLargestFace(Mat grayImage) {
+        try (MatScope scope = new MatScope()) {
+            Rect faceRect = null;
             
-            Rect[] facesArray = faces.toArray();
-            if (facesArray.length > 0) {
-                faceRect = facesArray[0];
+            // Try to detect faces if face detector is available
+            if (faceDetector != null) {
+                faceRect = faceDetector.detectLargest(grayImage);
             }
+            
+            // If no face detector or no face detected, use entire image
+            if (faceRect == null) {
+                System.out.println("⚠️ Using entire image as face region (no face detected)");
+                faceRect = new Rect(0, 0, grayImage.cols(), grayImage.rows());
+            }
+            
+            Mat faceROI = scope.track(new Mat(grayImage, faceRect));
+            return LbpFaceDescriptor.compute(faceROI);
         }
-        
-        // If no face detector or no face detected, use entire image
-        if (faceRect == null) {
-            System.out.println("⚠️ Using entire image as face region (no face detection available)");
-            faceRect = new Rect(0, 0, grayImage.cols(), grayImage.rows());
+    }
+    
+    /**
+     * Face detector configuration and timings
+     */
+    public Map<String, Object> getDetectionStats() {
+        if (faceDetector == null) {
+            return Map.of("available", false);
         }
+        Map<String, Object> stats = faceDetector.getStats();
+        stats.put("available", true);
+        return stats;
+    }
+    
+    /**
+     * Similarity of two face templates, from 0 (unrelated) to 1 (identical)
+     */
+    public double similarity(byte[] template1, byte[] template2) {
+        return LbpFaceDescriptor.similarity(template1, template2);
+    }
+    
+    /**
+     * Whether two precomputed templates score at least gemnet.face.match-threshold. The LBP
+     * score is not calibrated on real selfie/NIC pairs yet, so this is reported, not decided on.
+     */
+    public boolean compareFaceTemplates(byte[] template1, byte[] template2) {
+        double score = similarity(template1, template2);
+        boolean isMatch = score >= matchThreshold;
         
-        // Extract face region
-        Mat faceROI = new Mat(grayImage, faceRect);
-        
-        // Resize face to standard size
-        Mat resizedFace = new Mat();
-        Size standardSize = new Size(100, 100);
-        Imgproc.resize(faceROI, resizedFace, standardSize);
-        
-        // Convert to feature vector (simplified - in production use more sophisticated features)
-        byte[] faceData = new byte[(int) (resizedFace.total() * resizedFace.elemSize())];
-        resizedFace.get(0, 0, faceData);
-        
-        // Encode as Base64 string
-        return Base64.getEncoder().encodeToString(faceData);
+        System.out.println("📊 Face template similarity: " + String.format("%.3f", score) + 
+                          " (advisory threshold: " + matchThreshold + ")");
+        return isMatch;
     }
     
     /**
-     * Enhanced face comparison with multiple methods and better preprocessing
+     * Compare the faces in two image files; this is the verification decision
      */
     public boolean compareFaces(String faceImagePath1, String faceImagePath2) {
-        try {
-            System.out.println("🔍 Starting enhanced face comparison...");
-            System.out.println("   • Image 1: " + faceImagePath1);
-            System.out.println("   • Image 2: " + faceImagePath2);
-            
-            // Load images
-            Mat image1 = Imgcodecs.imread(faceImagePath1);
-            Mat image2 = Imgcodecs.imread(faceImagePath2);
-            
-            if (image1.empty() || image2.empty()) {
+        try (MatScope scope = new MatScope()) {
+            System.out.println("🔍 Comparing faces: " + faceImagePath1 + " vs " + faceImagePath2);
+            Mat gray1 = scope.track(Imgcodecs.imread(faceImagePath1, Imgcodecs.IMREAD_GRAYSCALE));
+            Mat gray2 = scope.track(Imgcodecs.imread(faceImagePath2, Imgcodecs.IMREAD_GRAYSCALE));
+            if (gray1.empty() || gray2.empty()) {
                 System.err.println("❌ Could not load one or both images");
                 return false;
             }
-            
-            // Convert to grayscale
-            Mat gray1 = new Mat();
-            Mat gray2 = new Mat();
-            Imgproc.cvtColor(image1, gray1, Imgproc.COLOR_BGR2GRAY);
-            Imgproc.cvtColor(image2, gray2, Imgproc.COLOR_BGR2GRAY);
-            
-            System.out.println("📐 Image sizes: " + gray1.size() + " vs " + gray2.size());
-            
-            // Detect faces with more lenient parameters
-            MatOfRect faces1 = new MatOfRect();
-            MatOfRect faces2 = new MatOfRect();
-            
-            Rect[] facesArray1 = null;
-            Rect[] facesArray2 = null;
-            
-            if (faceDetector != null && !faceDetector.empty()) {
-                // More lenient face detection parameters
-                faceDetector.detectMultiScale(gray1, faces1, 1.1, 3, 0, new Size(30, 30), new Size());
-                faceDetector.detectMultiScale(gray2, faces2, 1.1, 3, 0, new Size(30, 30), new Size());
-                
-                facesArray1 = faces1.toArray();
-                facesArray2 = faces2.toArray();
-                
-                System.out.println("👤 Faces detected: " + facesArray1.length + " in image1, " + facesArray2.length + " in image2");
+            return compareFaceImages(gray1, gray2);
+        } catch (Exception e) {
+            System.err.println("❌ Error comparing faces: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Compare the largest faces of two grayscale images with four image-level scores
+     * (template match, correlation, histogram, structure). A match needs two of them to agree
+     * or a high weighted score, which tolerates age and lighting differences to the NIC photo.
+     */
+    public boolean compareFaceImages(Mat gray1, Mat gray2) {
+        try (MatScope scope = new MatScope()) {
+            Rect faceRect1;
+            Rect faceRect2;
+            if (faceDetector != null) {
+                faceRect1 = faceDetector.detectLargest(gray1);
+                faceRect2 = faceDetector.detectLargest(gray2);
+                if (faceRect1 == null || faceRect2 == null) {
+                    System.err.println("❌ No faces detected in one or both images");
+                    return false;
+                }
             } else {
                 System.out.println("⚠️ Face detector not available, using entire images for comparison");
-                // Use entire images as face regions
-                facesArray1 = new Rect[]{ new Rect(0, 0, gray1.cols(), gray1.rows()) };
-                facesArray2 = new Rect[]{ new Rect(0, 0, gray2.cols(), gray2.rows()) };
-                System.out.println("👤 Using full images as face regions");
-            }
-            
-            if (facesArray1.length == 0 || facesArray2.length == 0) {
-                System.err.println("❌ No faces detected in one or both images");
-                return false;
+                faceRect1 = new Rect(0, 0, gray1.cols(), gray1.rows());
+                faceRect2 = new Rect(0, 0, gray2.cols(), gray2.rows());
             }
             
-            // Extract face regions
-            Mat face1 = new Mat(gray1, facesArray1[0]);
-            Mat face2 = new Mat(gray2, facesArray2[0]);
-            
-            System.out.println("📐 Face regions: " + face1.size() + " vs " + face2.size());
-            
-            // Preprocess faces for better comparison
-            Mat processedFace1 = preprocessFace(face1);
-            Mat processedFace2 = preprocessFace(face2);
+            Mat face1 = preprocessFace(scope.track(new Mat(gray1, faceRect1)), scope);
+            Mat face2 = preprocessFace(scope.track(new Mat(gray2, faceRect2)), scope);
             
-            // Method 1: Template Matching (improved)
-            double templateScore = calculateTemplateMatchScore(processedFace1, processedFace2);
+            double templateScore = calculateTemplateMatchScore(face1, face2, scope);
+            double correlationScore = calculateCorrelationScore(face1, face2, scope);
+            double histogramScore = calculateHistogramScore(face1, face2, scope);
+            double structuralScore = calculateStructuralScore(face1, face2, scope);
             
-            // Method 2: Normalized Cross Correlation
-            double correlationScore = calculateCorrelationScore(processedFace1, processedFace2);
-            
-            // Method 3: Histogram Comparison
-            double histogramScore = calculateHistogramScore(processedFace1, processedFace2);
-            
-            // Method 4: Structural Similarity (basic version)
-            double structuralScore = calculateStructuralScore(processedFace1, processedFace2);
-            
-            // Log all scores for debugging
-            System.out.println("📊 Similarity Scores:");
-            System.out.println("   • Template Match: " + String.format("%.3f", templateScore) + " (threshold: " + TEMPLATE_MATCH_THRESHOLD + ")");
-            System.out.println("   • Correlation: " + String.format("%.3f", correlationScore) + " (threshold: " + CORRELATION_THRESHOLD + ")");
-            System.out.println("   • Histogram: " + String.format("%.3f", histogramScore) + " (threshold: " + HISTOGRAM_THRESHOLD + ")");
-            System.out.println("   • Structural: " + String.format("%.3f", structuralScore));
-            
-            // Weighted voting system (more lenient for age-related changes)
             int matches = 0;
             double weightedScore = 0.0;
-            
             if (templateScore > TEMPLATE_MATCH_THRESHOLD) {
                 matches++;
-                weightedScore += templateScore * 0.3; // 30% weight
+                weightedScore += templateScore * 0.3;
             }
-            
             if (correlationScore > CORRELATION_THRESHOLD) {
                 matches++;
-                weightedScore += correlationScore * 0.25; // 25% weight
+                weightedScore += correlationScore * 0.25;
             }
-            
             if (histogramScore > HISTOGRAM_THRESHOLD) {
                 matches++;
-                weightedScore += histogramScore * 0.25; // 25% weight
+                weightedScore += histogramScore * 0.25;
             }
-            
-            if (structuralScore > 0.3) { // Lower threshold for structural similarity
+            if (structuralScore > STRUCTURAL_THRESHOLD) {
                 matches++;
-                weightedScore += structuralScore * 0.2; // 20% weight
+                weightedScore += structuralScore * 0.2;
             }
             
-            // Decision logic: require at least 2 methods to agree, OR very high weighted score
-            boolean isMatch = (matches >= 2) || (weightedScore > 0.6);
-            
-            System.out.println("🎯 Final Result:");
-            System.out.println("   • Methods agreeing: " + matches + "/4");
-            System.out.println("   • Weighted score: " + String.format("%.3f", weightedScore));
-            System.out.println("   • Match: " + (isMatch ? "✅ YES" : "❌ NO"));
-            
+            boolean isMatch = matches >= 2 || weightedScore > 0.6;
+            System.out.println("🎯 Face comparison: template " + String.format("%.3f", templateScore) +
+                              ", correlation " + String.format("%.3f", correlationScore) +
+                              ", histogram " + String.format("%.3f", histogramScore) +
+                              ", structural " + String.format("%.3f", structuralScore) +
+                              " → " + matches + "/4 agree, weighted " + String.format("%.3f", weightedScore) +
+                              " → " + (isMatch ? "✅ MATCH" : "❌ NO MATCH"));
             return isMatch;
-            
-        } catch (Exception e) {
-            System.err.println("❌ Error comparing faces: " + e.getMessage());
-            e.printStackTrace();
-            return false;
         }
     }
     
     /**
-     * Preprocess face for better comparison (handles lighting, contrast, etc.)
+     * Standard size, equalized lighting and a light blur against sensor noise
      */
-    private Mat preprocessFace(Mat face) {
-        Mat processed = new Mat();
-        
-        // Resize to standard size
-        Size standardSize = new Size(100, 100);
-        Imgproc.resize(face, processed, standardSize);
-        
-        // Apply histogram equalization to normalize lighting
-        Mat equalized = new Mat();
-        Imgproc.equalizeHist(processed, equalized);
-        
-        // Apply Gaussian blur to reduce noise
-        Mat blurred = new Mat();
+    private Mat preprocessFace(Mat face, MatScope scope) {
+        Mat resized = scope.newMat();
+        Imgproc.resize(face, resized, new Size(LbpFaceDescriptor.FACE_SIZE, LbpFaceDescriptor.FACE_SIZE));
+        Mat equalized = scope.newMat();
+        Imgproc.equalizeHist(resized, equalized);
+        Mat blurred = scope.newMat();
         Imgproc.GaussianBlur(equalized, blurred, new Size(3, 3), 0);
-        
         return blurred;
     }
     
-    /**
-     * Calculate template matching score
-     */
-    private double calculateTemplateMatchScore(Mat face1, Mat face2) {
-        Mat result = new Mat();
+    private double calculateTemplateMatchScore(Mat face1, Mat face2, MatScope scope) {
+        Mat result = scope.newMat();
         Imgproc.matchTemplate(face1, face2, result, Imgproc.TM_CCOEFF_NORMED);
-        Core.MinMaxLocResult mmr = Core.minMaxLoc(result);
-        return mmr.maxVal;
+        return Core.minMaxLoc(result).maxVal;
     }
     
-    /**
-     * Calculate normalized cross correlation
-     */
-    private double calculateCorrelationScore(Mat face1, Mat face2) {
-        Mat result = new Mat();
+    private double calculateCorrelationScore(Mat face1, Mat face2, MatScope scope) {
+        Mat result = scope.newMat();
         Imgproc.matchTemplate(face1, face2, result, Imgproc.TM_CCORR_NORMED);
-        Core.MinMaxLocResult mmr = Core.minMaxLoc(result);
-        return mmr.maxVal;
+        return Core.minMaxLoc(result).maxVal;
     }
     
-    /**
-     * Calculate histogram similarity
-     */
-    private double calculateHistogramScore(Mat face1, Mat face2) {
-        try {
-            // Calculate histograms
-            Mat hist1 = new Mat();
-            Mat hist2 = new Mat();
-            
-            // Parameters for histogram calculation
-            int histSize = 256;
-            float[] range = {0, 256};
-            MatOfFloat histRange = new MatOfFloat(range);
-            MatOfInt channels = new MatOfInt(0);
-            
-            Imgproc.calcHist(java.util.Arrays.asList(face1), channels, new Mat(), hist1, new MatOfInt(histSize), histRange);
-            Imgproc.calcHist(java.util.Arrays.asList(face2), channels, new Mat(), hist2, new MatOfInt(histSize), histRange);
-            
-            // Normalize histograms
-            Core.normalize(hist1, hist1, 0, 1, Core.NORM_MINMAX);
-            Core.normalize(hist2, hist2, 0, 1, Core.NORM_MINMAX);
-            
-            // Compare histograms using correlation
-            return Imgproc.compareHist(hist1, hist2, Imgproc.HISTCMP_CORREL);
-            
-        } catch (Exception e) {
-            System.err.println("⚠️ Histogram comparison failed: " + e.getMessage());
-            return 0.0;
-        }
+    private double calculateHistogramScore(Mat face1, Mat face2, MatScope scope) {
+        MatOfInt channels = scope.track(new MatOfInt(0));
+        MatOfInt histSize = scope.track(new MatOfInt(256));
+        MatOfFloat ranges = scope.track(new MatOfFloat(0, 256));
+        Mat noMask = scope.newMat();
+        Mat hist1 = scope.newMat();
+        Mat hist2 = scope.newMat();
+        Imgproc.calcHist(List.of(face1), channels, noMask, hist1, histSize, ranges);
+        Imgproc.calcHist(List.of(face2), channels, noMask, hist2, histSize, ranges);
+        Core.normalize(hist1, hist1, 0, 1, Core.NORM_MINMAX);
+        Core.normalize(hist2, hist2, 0, 1, Core.NORM_MINMAX);
+        return Imgproc.compareHist(hist1, hist2, Imgproc.HISTCMP_CORREL);
     }
     
     /**
-     * Calculate basic structural similarity
+     * Single-window SSIM approximation over the whole face
      */
-    private double calculateStructuralScore(Mat face1, Mat face2) {
-        try {
-            // Convert to floating point
-            Mat f1 = new Mat();
-            Mat f2 = new Mat();
-            face1.convertTo(f1, CvType.CV_32F);
-            face2.convertTo(f2, CvType.CV_32F);
-            
-            // Calculate means
-            Scalar mean1 = Core.mean(f1);
-            Scalar mean2 = Core.mean(f2);
-            
-            // Calculate standard deviations
-            Mat diff1 = new Mat();
-            Mat diff2 = new Mat();
-            Core.subtract(f1, mean1, diff1);
-            Core.subtract(f2, mean2, diff2);
-            
-            // Simple structural similarity approximation
-            Mat mul = new Mat();
-            Core.multiply(diff1, diff2, mul);
-            Scalar covariance = Core.mean(mul);
-            
-            // Simplified SSIM calculation
-            double c1 = 6.5025; // (0.01*255)^2
-            double c2 = 58.5225; // (0.03*255)^2
-            
-            double numerator = (2 * mean1.val[0] * mean2.val[0] + c1) * (2 * covariance.val[0] + c2);
-            double denominator = (mean1.val[0] * mean1.val[0] + mean2.val[0] * mean2.val[0] + c1) * 
-                               (Core.mean(diff1.mul(diff1)).val[0] + Core.mean(diff2.mul(diff2)).val[0] + c2);
-            
-            return Math.abs(numerator / denominator);
-            
-        } catch (Exception e) {
-            System.err.println("⚠️ Structural similarity calculation failed: " + e.getMessage());
-            return 0.0;
-        }
+    private double calculateStructuralScore(Mat face1, Mat face2, MatScope scope) {
+        Mat f1 = scope.newMat();
+        Mat f2 = scope.newMat();
+        face1.convertTo(f1, CvType.CV_32F);
+        face2.convertTo(f2, CvType.CV_32F);
+        
+        Scalar mean1 = Core.mean(f1);
+        Scalar mean2 = Core.mean(f2);
+        Mat diff1 = scope.newMat();
+        Mat diff2 = scope.newMat();
+        Core.subtract(f1, mean1, diff1);
+        Core.subtract(f2, mean2, diff2);
+        
+        Mat product = scope.newMat();
+        Core.multiply(diff1, diff2, product);
+        double covariance = Core.mean(product).val[0];
+        Core.multiply(diff1, diff1, product);
+        double variance1 = Core.mean(product).val[0];
+        Core.multiply(diff2, diff2, product);
+        double variance2 = Core.mean(product).val[0];
+        
+        double c1 = 6.5025; // (0.01*255)^2
+        double c2 = 58.5225; // (0.03*255)^2
+        double numerator = (2 * mean1.val[0] * mean2.val[0] + c1) * (2 * covariance + c2);
+        double denominator = (mean1.val[0] * mean1.val[0] + mean2.val[0] * mean2.val[0] + c1) * (variance1 + variance2 + c2);
+        return Math.abs(numerator / denominator);
     }
     
     /**
      * Validate if image contains a face
      */
-    public boolean validateFaceInImage(MultipartFile imageFile) {
+    public boolean validateFaceInImage(UploadedImage imageFile) {
         try {
             System.out.println("🔍 Validating face in uploaded image...");
             
-            byte[] imageBytes = imageFile.getBytes();
-            Mat image = Imgcodecs.imdecode(new MatOfByte(imageBytes), Imgcodecs.IMREAD_COLOR);
-            
-            if (image.empty()) {
+            if (!imageFile.isDecodable()) {
                 System.err.println("❌ Could not decode uploaded image");
                 return false;
             }
             
-            Mat grayImage = new Mat();
-            Imgproc.cvtColor(image, grayImage, Imgproc.COLOR_BGR2GRAY);
+            Mat grayImage = imageFile.getGray();
             
             // Check if face detector is available
-            if (faceDetector != null && !faceDetector.empty()) {
-                MatOfRect faces = new MatOfRect();
-                faceDetector.detectMultiScale(grayImage, faces, 1.1, 3, 0, new Size(30, 30), new Size());
-                
-                Rect[] facesArray = faces.toArray();
+            if (faceDetector != null) {
+                Rect[] facesArray = faceDetector.detect(grayImage);
                 System.out.println("👤 Faces detected: " + facesArray.length);
                 
                 return facesArray.length > 0;
@@ -401,7 +365,7 @@ public class FaceRecognitionService {
      * Fallback validation using basic image analysis
      */
     private boolean validateImageQuality(Mat grayImage) {
-        try {
+        try (MatScope scope = new MatScope()) {
             // Check image dimensions (should be reasonable for a face photo)
             int width = grayImage.cols();
             int height = grayImage.rows();
@@ -421,8 +385,8 @@ public class FaceRecognitionService {
             }
             
             // Calculate standard deviation (measure of contrast)
-            MatOfDouble mean = new MatOfDouble();
-            MatOfDouble stddev = new MatOfDouble();
+            MatOfDouble mean = scope.track(new MatOfDouble());
+            MatOfDouble stddev = scope.track(new MatOfDouble());
             Core.meanStdDev(grayImage, mean, stddev);
             double contrast = stddev.get(0, 0)[0];
             
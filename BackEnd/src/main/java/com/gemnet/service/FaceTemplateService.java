@@ -0,0 +1,162 @@
+package com.gemnet.service;
+
+import com.gemnet.model.FaceTemplate;
+import com.gemnet.model.User;
+import com.gemnet.repository.FaceTemplateRepository;
+import com.gemnet.util.LbpFaceDescriptor;
+import com.gemnet.util.MatScope;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Stores face templates in their own collection and converts the raw 100x100 crops that
+ * older registrations kept in users.faceFeatures into compact templates.
+ */
+@Service
+public class FaceTemplateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FaceTemplateService.class);
+
+    public static final String FACE = "FACE";
+    public static final String NIC_PHOTO = "NIC_PHOTO";
+
+    private static final String LEGACY_FIELD = "faceFeatures";
+
+    @Autowired
+    private FaceTemplateRepository faceTemplateRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private FaceDuplicateService faceDuplicateService;
+
+    @Value("${gemnet.face.templates.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+
+    /**
+     * Store (or replace) a template of a user and return its id
+     */
+    public String saveTemplate(String userId, String kind, byte[] descriptor, String source) {
+        LocalDateTime now = LocalDateTime.now();
+        FaceTemplate template = faceTemplateRepository.findByUserIdAndKind(userId, kind).orElseGet(() -> {
+            FaceTemplate created = new FaceTemplate();
+            created.setUserId(userId);
+            created.setKind(kind);
+            created.setCreatedAt(now);
+            return created;
+        });
+        template.setAlgorithm(LbpFaceDescriptor.ALGORITHM);
+        template.setDescriptor(descriptor);
+        template.setSource(source);
+        template.setUpdatedAt(now);
+        return faceTemplateRepository.save(template).getId();
+    }
+
+    /**
+     * Template of the captured face of a user
+     */
+    public Optional<FaceTemplate> findFaceTemplate(User user) {
+        if (user.getFaceTemplateId() != null) {
+            Optional<FaceTemplate> template = faceTemplateRepository.findById(user.getFaceTemplateId());
+            if (template.isPresent()) {
+                return template;
+            }
+        }
+        return faceTemplateRepository.findByUserIdAndKind(user.getId(), FACE);
+    }
+
+    /**
+     * Cached template of the photo cropped from the user's NIC
+     */
+    public Optional<FaceTemplate> findNicPhotoTemplate(String userId) {
+        return faceTemplateRepository.findByUserIdAndKind(userId, NIC_PHOTO);
+    }
+
+    /**
+     * Convert users.faceFeatures left by older registrations and drop the field from the user documents
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyFeatures() {
+        if (!migrateOnStartup) {
+            return;
+        }
+        Thread migration = new Thread(this::migrate, "face-template-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    private void migrate() {
+        Query query = Query.query(Criteria.where(LEGACY_FIELD).exists(true));
+        query.fields().include("_id", LEGACY_FIELD);
+
+        int converted = 0;
+        int dropped = 0;
+        try (Stream<Document> users = mongoTemplate.stream(query, Document.class, "users")) {
+            for (Document user : (Iterable<Document>) users::iterator) {
+                Object rawId = user.get("_id");
+                String userId = rawId instanceof ObjectId ? ((ObjectId) rawId).toHexString() : String.valueOf(rawId);
+                Update update = new Update().unset(LEGACY_FIELD);
+
+                byte[] descriptor = legacyDescriptor(user.getString(LEGACY_FIELD));
+                if (descriptor != null) {
+                    update.set("faceTemplateId", saveTemplate(userId, FACE, descriptor, "LEGACY_MIGRATION"));
+                    faceDuplicateService.add(userId, descriptor);
+                    converted++;
+                } else {
+                    dropped++;
+                }
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(rawId)), update, "users");
+            }
+        } catch (Exception e) {
+            logger.error("❌ Face template migration stopped: {}", e.getMessage(), e);
+            return;
+        }
+
+        if (converted + dropped > 0) {
+            logger.info("✅ Moved {} legacy face features to face_templates ({} unreadable dropped)", converted, dropped);
+        }
+    }
+
+    /**
+     * Template of a legacy Base64 100x100 grayscale crop, or null if it is not one
+     */
+    private byte[] legacyDescriptor(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return null;
+        }
+        try {
+            byte[] pixels = Base64.getDecoder().decode(encoded);
+            int size = LbpFaceDescriptor.FACE_SIZE;
+            if (pixels.length != size * size) {
+                return null;
+            }
+            nu.pattern.OpenCV.loadLocally();
+            try (MatScope scope = new MatScope()) {
+                Mat face = scope.track(new Mat(size, size, CvType.CV_8UC1));
+                face.put(0, 0, pixels);
+                return LbpFaceDescriptor.compute(face);
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -1,21 +1,30 @@
 package com.gemnet.service;
 
+import com.gemnet.service.ContentAddressedStore.StoredBlob;
+import com.gemnet.util.MatScope;
 import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
 import org.opencv.imgcodecs.Imgcodecs;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -24,6 +33,17 @@ public class FileStorageService {
     @Value("${app.file-storage.base-path:./uploads}")
     private String baseStoragePath;
     
+    // Store uploads once per content under blobs/ instead of one copy per upload
+    @Value("${app.file-storage.content-addressed:true}")
+    private boolean contentAddressed;
+    
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
+    
+    // Local directory or S3 bucket; the directories below are its local layout / cache
+    @Autowired
+    private BlobStore blobStore;
+    
     private Path faceImagesPath;
     private Path nicImagesPath;
     private Path extractedPhotosPath;
@@ -67,11 +87,14 @@ public class FileStorageService {
      */
     public String storeFaceImage(MultipartFile file, String userId) throws IOException {
         validateImageFile(file);
+        if (contentAddressed) {
+            return storeBlob(file).getPath().toString();
+        }
         
         String filename = generateFileName(userId, "face", getFileExtension(file.getOriginalFilename()));
         Path targetPath = faceImagesPath.resolve(filename);
         
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        writeUpload(file, targetPath);
         
         return targetPath.toString();
     }
@@ -81,11 +104,14 @@ public class FileStorageService {
      */
     public String storeNicImage(MultipartFile file, String userId) throws IOException {
         validateImageFile(file);
+        if (contentAddressed) {
+            return storeBlob(file).getPath().toString();
+        }
         
         String filename = generateFileName(userId, "nic", getFileExtension(file.getOriginalFilename()));
         Path targetPath = nicImagesPath.resolve(filename);
         
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        writeUpload(file, targetPath);
         
         return targetPath.toString();
     }
@@ -99,11 +125,15 @@ public class FileStorageService {
         for (int i = 0; i < files.size(); i++) {
             MultipartFile file = files.get(i);
             validateImageFile(file);
+            if (contentAddressed) {
+                imagePaths.add(storeBlob(file).getPath().toString());
+                continue;
+            }
             
             String filename = generateFileName(userId, "advertisement_" + i, getFileExtension(file.getOriginalFilename()));
             Path targetPath = advertisementImagesPath.resolve(filename);
             
-            Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+            writeUpload(file, targetPath);
             imagePaths.add(targetPath.toString());
         }
         
@@ -115,11 +145,14 @@ public class FileStorageService {
      */
     public String storeAdvertisementImage(MultipartFile file, String userId) throws IOException {
         validateImageFile(file);
+        if (contentAddressed) {
+            return storeBlob(file).getPath().toString();
+        }
         
         String filename = generateFileName(userId, "advertisement", getFileExtension(file.getOriginalFilename()));
         Path targetPath = advertisementImagesPath.resolve(filename);
         
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        writeUpload(file, targetPath);
         
         return targetPath.toString();
     }
@@ -129,11 +162,14 @@ public class FileStorageService {
      */
     public String storeAdvertisementVideo(MultipartFile file, String userId) throws IOException {
         validateVideoFile(file);
+        if (contentAddressed) {
+            return storeBlob(file).getPath().toString();
+        }
         
         String filename = generateFileName(userId, "advertisement_video", getFileExtension(file.getOriginalFilename()));
         Path targetPath = advertisementVideosPath.resolve(filename);
         
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        writeUpload(file, targetPath);
         
         return targetPath.toString();
     }
@@ -142,11 +178,27 @@ public class FileStorageService {
      * Save extracted photo from NIC
      */
     public String saveExtractedNicPhoto(Mat photoMat, String userId) {
+        if (contentAddressed) {
+            try (MatScope scope = new MatScope()) {
+                MatOfByte encoded = scope.track(new MatOfByte());
+                if (Imgcodecs.imencode(".jpg", photoMat, encoded)) {
+                    return contentAddressedStore.store(new ByteArrayInputStream(encoded.toArray()), "jpg").getPath().toString();
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ Content-addressed store failed for extracted photo, saving copy: " + e.getMessage());
+            }
+        }
+        
         String filename = generateFileName(userId, "extracted", "jpg");
         Path targetPath = extractedPhotosPath.resolve(filename);
         
         // Save Mat as image file
         Imgcodecs.imwrite(targetPath.toString(), photoMat);
+        try {
+            publish(targetPath);
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not publish extracted photo to blob store: " + e.getMessage());
+        }
         
         return targetPath.toString();
     }
@@ -156,11 +208,14 @@ public class FileStorageService {
      */
     public String storeGemImage(MultipartFile file, String imageId) throws IOException {
         validateImageFile(file);
+        if (contentAddressed) {
+            return storeBlob(file).getUrl();
+        }
         
         String filename = imageId + "." + getFileExtension(file.getOriginalFilename());
         Path targetPath = gemImagesPath.resolve(filename);
         
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        writeUpload(file, targetPath);
         
         // Return relative URL path for database storage
         return "/uploads/gems/" + filename;
@@ -171,11 +226,14 @@ public class FileStorageService {
      */
     public String storeGemCertificateImage(MultipartFile file, String certificateId) throws IOException {
         validateImageFile(file);
+        if (contentAddressed) {
+            return storeBlob(file).getUrl();
+        }
         
         String filename = certificateId + "." + getFileExtension(file.getOriginalFilename());
         Path targetPath = gemCertificatesPath.resolve(filename);
         
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        writeUpload(file, targetPath);
         
         // Return relative URL path for database storage
         return "/uploads/gemstone-certificates/" + filename;
@@ -186,16 +244,108 @@ public class FileStorageService {
      */
     public String storeGemVideo(MultipartFile file, String videoId) throws IOException {
         validateVideoFile(file);
+        if (contentAddressed) {
+            return storeBlob(file).getUrl();
+        }
         
         String filename = videoId + "." + getFileExtension(file.getOriginalFilename());
         Path targetPath = gemVideosPath.resolve(filename);
         
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        writeUpload(file, targetPath);
         
         // Return relative URL path for database storage
         return "/uploads/gem-videos/" + filename;
     }
     
+    /**
+     * Hash and store an upload once, taking a reference on the blob
+     */
+    private StoredBlob storeBlob(MultipartFile file) throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            return contentAddressedStore.store(input, getFileExtension(file.getOriginalFilename()));
+        }
+    }
+    
+    /**
+     * Copy an upload to its local path and hand it to the blob store
+     */
+    private void writeUpload(MultipartFile file, Path targetPath) throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            Files.copy(input, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        blobStore.put(storageKey(targetPath), targetPath, file.getContentType());
+    }
+    
+    /**
+     * Hand a file written under the uploads directory (e.g. a generated variant) to the blob store
+     */
+    public void publish(Path localFile) throws IOException {
+        String key = storageKey(localFile);
+        if (key == null) {
+            throw new IllegalArgumentException("File is outside the storage directory: " + localFile);
+        }
+        blobStore.put(key, localFile, URLConnection.guessContentTypeFromName(localFile.getFileName().toString()));
+    }
+    
+    /**
+     * Local file for a stored path or URL, fetched from the blob store when this node does not
+     * have it (another node took the upload, or it was evicted from the cache)
+     */
+    public Path getLocalFile(String pathOrUrl) throws IOException {
+        Path path = resolveUploadUrl(pathOrUrl);
+        if (Files.isRegularFile(path)) {
+            return path;
+        }
+        String key = storageKey(path);
+        Path fetched = key != null ? blobStore.localPath(key) : null;
+        return fetched != null ? fetched : path;
+    }
+    
+    /**
+     * Presigned direct-download URL for a stored upload, when the backend supports it
+     */
+    public Optional<String> getDownloadUrl(String pathOrUrl, Duration validity) {
+        String key = storageKey(resolveUploadUrl(pathOrUrl));
+        return key != null ? blobStore.presignedUrl(key, validity) : Optional.empty();
+    }
+    
+    /**
+     * Blob store key (path relative to the uploads root) of a local upload path, or null
+     */
+    private String storageKey(Path path) {
+        Path basePath = Paths.get(baseStoragePath).toAbsolutePath().normalize();
+        Path normalized = path.toAbsolutePath().normalize();
+        if (!normalized.startsWith(basePath) || normalized.equals(basePath)) {
+            return null;
+        }
+        return basePath.relativize(normalized).toString().replace('\\', '/');
+    }
+    
+    /**
+     * Drop a record's reference to a stored upload. Only content-addressed blobs are
+     * reference counted; legacy per-upload files are left untouched.
+     */
+    public boolean releaseReference(String pathOrUrl) {
+        return contentAddressedStore.release(pathOrUrl);
+    }
+    
+    /**
+     * Path of an upload relative to the uploads root ("gems/x.jpg", "blobs/ab/cd/....jpg"),
+     * using defaultDirectory for bare file names
+     */
+    public String toRelativeUploadPath(String pathOrUrl, String defaultDirectory) {
+        int index = pathOrUrl.indexOf("/uploads/");
+        if (index != -1) {
+            return pathOrUrl.substring(index + "/uploads/".length());
+        }
+        Path basePath = Paths.get(baseStoragePath).toAbsolutePath().normalize();
+        Path path = Paths.get(pathOrUrl).toAbsolutePath().normalize();
+        if (path.startsWith(basePath)) {
+            return basePath.relativize(path).toString().replace('\\', '/');
+        }
+        return defaultDirectory + "/" + path.getFileName();
+    }
+    
     /**
      * Generate unique filename
      */
@@ -289,6 +439,11 @@ public class FileStorageService {
      * Delete file
      */
     public boolean deleteFile(String filePath) {
+        // Blobs are shared between records: drop the reference, never the file
+        if (contentAddressedStore.isInBlobTree(filePath)) {
+            return contentAddressedStore.release(filePath);
+        }
+        
         try {
             Path path;
             
@@ -323,6 +478,12 @@ public class FileStorageService {
                 path = Paths.get(filePath);
             }
             
+            String key = storageKey(path);
+            if (key != null) {
+                boolean existed = blobStore.exists(key);
+                blobStore.delete(key);
+                return existed;
+            }
             return Files.deleteIfExists(path);
         } catch (IOException e) {
             System.err.println("❌ Error deleting file: " + filePath + " - " + e.getMessage());
@@ -347,17 +508,55 @@ public class FileStorageService {
         }
     }
     
+    /**
+     * Resolve a stored upload URL ("/uploads/gems/x.jpg" or "http://host:port/uploads/...") to its file
+     */
+    public Path resolveUploadUrl(String url) {
+        int index = url.indexOf("/uploads/");
+        if (index == -1) {
+            // Already a file system path
+            return Paths.get(url);
+        }
+        
+        String relative = url.substring(index + "/uploads/".length());
+        int queryIndex = relative.indexOf('?');
+        if (queryIndex != -1) {
+            relative = relative.substring(0, queryIndex);
+        }
+        
+        Path basePath = Paths.get(baseStoragePath).toAbsolutePath().normalize();
+        Path resolved = basePath.resolve(relative).normalize();
+        if (!resolved.startsWith(basePath)) {
+            throw new IllegalArgumentException("Upload URL is outside the storage directory: " + url);
+        }
+        return resolved;
+    }
+    
     /**
      * Check if file exists
      */
     public boolean fileExists(String filePath) {
-        return Files.exists(Paths.get(filePath));
+        Path path = Paths.get(filePath);
+        if (Files.exists(path)) {
+            return true;
+        }
+        try {
+            String key = storageKey(path);
+            return key != null && blobStore.exists(key);
+        } catch (IOException e) {
+            return false;
+        }
     }
     
     /**
      * Get file path for reading
      */
     public Path getFilePath(String filePath) {
-        return Paths.get(filePath);
+        try {
+            return getLocalFile(filePath);
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not fetch " + filePath + " from blob store: " + e.getMessage());
+            return Paths.get(filePath);
+        }
     }
 }
@@ -0,0 +1,224 @@
+package com.gemnet.service;
+
+import com.gemnet.config.GemAttributeSynonymConfig;
+import com.gemnet.dto.CanonicalGemAttributes;
+import com.gemnet.dto.PricePredictionRequest;
+import com.gemnet.enums.GemClarity;
+import com.gemnet.enums.GemColor;
+import com.gemnet.enums.GemCut;
+import com.gemnet.enums.GemSpecies;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves free-text species/colour/clarity/cut values to canonical enum codes.
+ * Shared by the rule-based, ML and Sri Lankan market predictors so they all agree on
+ * what "Blue Sapphire", "VVS 1" or "Very-Good" mean. Resolution is done once per raw
+ * string and cached; each request carries its resolved codes after the first lookup.
+ */
+@Service
+public class GemAttributeCanonicalizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(GemAttributeCanonicalizer.class);
+
+    private static final Pattern SEPARATORS = Pattern.compile("[-_/,()]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private GemAttributeSynonymConfig synonymConfig;
+
+    @Value("${gemnet.attributes.cache-size:10000}")
+    private int cacheSize;
+
+    private TermIndex<GemSpecies> speciesIndex;
+    private TermIndex<GemColor> colorIndex;
+    private TermIndex<GemClarity> clarityIndex;
+    private TermIndex<GemCut> cutIndex;
+
+    // Interned colour terms so equal colours share one String instance
+    private final Map<String, String> colorTerms = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        colorIndex = new TermIndex<>(GemColor.class, GemColor.OTHER, GemColor::getSynonyms, synonymConfig.getColor(), term -> false);
+        // Bare colour words ("yellow" for yellow sapphire) only count when no species name is present,
+        // so "Yellow Zircon" is a zircon rather than a yellow sapphire
+        speciesIndex = new TermIndex<>(GemSpecies.class, GemSpecies.UNKNOWN, GemSpecies::getSynonyms, synonymConfig.getSpecies(),
+            colorIndex::isTerm);
+        clarityIndex = new TermIndex<>(GemClarity.class, GemClarity.UNKNOWN, GemClarity::getSynonyms, synonymConfig.getClarity(), term -> false);
+        cutIndex = new TermIndex<>(GemCut.class, GemCut.UNKNOWN, GemCut::getSynonyms, synonymConfig.getCut(), term -> false);
+        logger.info("Gem attribute canonicalizer initialized ({} species, {} color, {} clarity, {} cut terms)",
+                   speciesIndex.size(), colorIndex.size(), clarityIndex.size(), cutIndex.size());
+    }
+
+    /**
+     * Canonical codes for a request, resolved on first use and kept on the request
+     */
+    public CanonicalGemAttributes canonicalize(PricePredictionRequest request) {
+        CanonicalGemAttributes attributes = request.getCanonicalAttributes();
+        if (attributes == null) {
+            attributes = canonicalize(request.getSpecies(), request.getColor(), request.getClarity(), request.getCut());
+            request.setCanonicalAttributes(attributes);
+        }
+        return attributes;
+    }
+
+    public CanonicalGemAttributes canonicalize(String species, String color, String clarity, String cut) {
+        return new CanonicalGemAttributes(
+            resolveSpecies(species),
+            resolveColor(color),
+            colorTerm(color),
+            resolveClarity(clarity),
+            resolveCut(cut)
+        );
+    }
+
+    public GemSpecies resolveSpecies(String value) {
+        return speciesIndex.resolve(value);
+    }
+
+    public GemColor resolveColor(String value) {
+        return colorIndex.resolve(value);
+    }
+
+    public GemClarity resolveClarity(String value) {
+        return clarityIndex.resolve(value);
+    }
+
+    public GemCut resolveCut(String value) {
+        return cutIndex.resolve(value);
+    }
+
+    /**
+     * Normalized, interned colour text used for exact colour comparisons
+     */
+    public String colorTerm(String value) {
+        String normalized = normalize(value);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        String interned = colorTerms.get(normalized);
+        if (interned != null) {
+            return interned;
+        }
+        if (colorTerms.size() >= cacheSize) {
+            return normalized;
+        }
+        interned = colorTerms.putIfAbsent(normalized, normalized);
+        return interned != null ? interned : normalized;
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String normalized = SEPARATORS.matcher(value.toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    /**
+     * Synonym table for one attribute: exact lookups first, then the longest
+     * synonym appearing as whole words in the value. Weak synonyms are only
+     * searched for when no other synonym appears.
+     */
+    private class TermIndex<E extends Enum<E>> {
+        private final E unknown;
+        private final Map<String, E> exact = new HashMap<>();
+        private final List<Map.Entry<String, E>> phrases = new ArrayList<>();
+        private final Map<String, E> resolved = new ConcurrentHashMap<>();
+
+        TermIndex(Class<E> type, E unknown, Function<E, String[]> synonyms, Map<String, String> overrides,
+                  Predicate<String> weak) {
+            this.unknown = unknown;
+            for (E constant : type.getEnumConstants()) {
+                register(constant.name(), constant);
+                for (String synonym : synonyms.apply(constant)) {
+                    register(synonym, constant);
+                }
+            }
+            if (overrides != null) {
+                overrides.forEach((synonym, name) -> {
+                    try {
+                        E constant = Enum.valueOf(type, name.trim().toUpperCase(Locale.ROOT));
+                        String key = normalize(synonym);
+                        exact.put(key, constant);
+                        phrases.removeIf(entry -> entry.getKey().equals(key));
+                        phrases.add(Map.entry(key, constant));
+                    } catch (IllegalArgumentException e) {
+                        logger.warn("⚠️ Ignoring {} synonym '{}': unknown code '{}'", type.getSimpleName(), synonym, name);
+                    }
+                });
+            }
+            // Strong phrases before weak ones, then longest phrase wins; ties keep declaration order
+            phrases.sort(Comparator.comparing((Map.Entry<String, E> entry) -> weak.test(entry.getKey()))
+                .thenComparing(Comparator.comparingInt((Map.Entry<String, E> entry) -> entry.getKey().length()).reversed()));
+        }
+
+        private void register(String synonym, E constant) {
+            String key = normalize(synonym);
+            if (!key.isEmpty() && exact.putIfAbsent(key, constant) == null) {
+                phrases.add(Map.entry(key, constant));
+            }
+        }
+
+        E resolve(String value) {
+            if (value == null) {
+                return unknown;
+            }
+            E cached = resolved.get(value);
+            if (cached != null) {
+                return cached;
+            }
+            E result = lookup(normalize(value));
+            if (resolved.size() < cacheSize) {
+                resolved.put(value, result);
+            }
+            return result;
+        }
+
+        private E lookup(String normalized) {
+            if (normalized.isEmpty()) {
+                return unknown;
+            }
+            E match = exact.get(normalized);
+            if (match != null) {
+                return match;
+            }
+            // Grades are often written with spaces ("VVS 1")
+            match = exact.get(normalized.replace(" ", ""));
+            if (match != null) {
+                return match;
+            }
+            String padded = " " + normalized + " ";
+            for (Map.Entry<String, E> phrase : phrases) {
+                if (padded.contains(" " + phrase.getKey() + " ")) {
+                    return phrase.getValue();
+                }
+            }
+            return unknown;
+        }
+
+        int size() {
+            return exact.size();
+        }
+
+        boolean isTerm(String normalized) {
+            return exact.containsKey(normalized);
+        }
+    }
+}
@@ -3,10 +3,13 @@ package com.gemnet.service;
 import com.gemnet.dto.ApiResponse;
 import com.gemnet.dto.GemCertificateDataDto;
 import com.gemnet.dto.GemListingDataDto;
+import com.gemnet.exception.OcrEngineBusyException;
 import com.gemnet.model.GemListing;
 import com.gemnet.model.GemImage;
 import com.gemnet.repository.GemListingRepository;
-import net.sourceforge.tess4j.Tesseract;
+import com.gemnet.util.CertificateLayout;
+import com.gemnet.util.MatScope;
+import com.gemnet.util.StageScope;
 import net.sourceforge.tess4j.TesseractException;
 import org.opencv.core.*;
 import org.opencv.imgcodecs.Imgcodecs;
@@ -16,19 +19,27 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.imageio.ImageIO;
@@ -42,6 +53,21 @@ public class GemCertificateService {
     @Autowired
     private FileStorageService fileStorageService;
     
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+    
+    @Autowired
+    private MediaIngestionService mediaIngestionService;
+    
+    @Autowired
+    private VideoPosterService videoPosterService;
+    
+    @Autowired
+    private ListingMediaStatusService listingMediaStatusService;
+
+    @Autowired
+    private ListingImageDuplicateService listingImageDuplicateService;
+    
     @Autowired
     private GemListingRepository gemListingRepository;
     
@@ -61,12 +87,65 @@ public class GemCertificateService {
     @Value("${tesseract.pageSegMode:6}")
     private int pageSegMode;
     
-    private Tesseract tesseract;
+    @Autowired
+    private OcrEnginePool ocrEnginePool;
+    
+    @Autowired
+    private OcrResultCache ocrResultCache;
+    
+    private static final String OCR_PROFILE = "certificate";
+    // Single text line per image; used for the field crops of a known layout
+    private static final String LINE_OCR_PROFILE = "certificate-line";
+    // Part of the cache key of layout reads; bump when the crops or rebuilt lines change
+    private static final String LAYOUT_CACHE_VERSION = "v1";
+    
+    // Leads the sample text returned when Tesseract is unavailable or fails on an image
+    public static final String FALLBACK_MARKER = "FALLBACK_MODE";
+    
+    private static final String OCR_WHITELIST = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789.,:-/ ()[]";
+    
+    // CSL Memo No like Y13Z, B9BV (typically alphanumeric, 3-4 characters)
+    private static final Pattern MEMO_PATTERN = Pattern.compile("(?:CSL\\s+Memo\\s+No\\s*[:.]?\\s*)([A-Z0-9]{3,4})", Pattern.CASE_INSENSITIVE);
+    private static final Pattern MEMO_ALT_PATTERN = Pattern.compile("Memo\\s+No\\s*[:.]?\\s*([A-Z0-9]{3,4})", Pattern.CASE_INSENSITIVE);
+    // Dates like 2025-05-14 (CSL format), then other day/month/year formats
+    private static final Pattern DATE_PATTERN = Pattern.compile("(?:Date\\s*[:.]?\\s*)?(\\d{4}[-]\\d{1,2}[-]\\d{1,2})", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DATE_ALT_PATTERN = Pattern.compile("(?:Date\\s*[:.]?\\s*)?(\\d{1,2}[/-]\\d{1,2}[/-]\\d{4})", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern LEADING_SEPARATORS = Pattern.compile("^[:.\\-_\\s]+");
+    private static final Pattern TRAILING_SEPARATORS = Pattern.compile("[:.\\-_\\s]+$");
+    // Field name -> {single-line pattern, value-on-next-line pattern}, compiled on first use
+    private static final Map<String, Pattern[]> FIELD_PATTERNS = new ConcurrentHashMap<>();
+    // Listing fields in GemListingPriceUpdateService.computePricingFingerprint
+    private static final Set<String> PRICING_ATTRIBUTES = Set.of(
+        "weight", "variety", "species", "color", "cut", "clarity", "shape", "treatment", "isCertified", "measurements");
+    
+    // Read a recognised card field by field before falling back to full-page OCR
+    @Value("${gemnet.certificates.layout-ocr.enabled:true}")
+    private boolean layoutOcrEnabled;
+    
+    // Layout reads below this confidence are retried with full-page OCR
+    @Value("${gemnet.certificates.layout-ocr.min-confidence:60}")
+    private double layoutMinConfidence;
+    
+    // OCR of the field regions of one certificate, run side by side
+    private ExecutorService regionExecutor;
+    
+    private final AtomicLong layoutAttempts = new AtomicLong();
+    private final AtomicLong layoutCardsFound = new AtomicLong();
+    private final AtomicLong layoutReads = new AtomicLong();
+    private final AtomicLong totalLayoutMillis = new AtomicLong();
+    
     private boolean tesseractInitialized = false;
     private String tesseractStatus = "Not initialized";
     
-    @PostConstruct
+    // Run by the StartupOrchestrator, in parallel with the other startup initializers
     public void init() {
+        regionExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "certificate-region-ocr");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
         try {
             // Load OpenCV native library
             nu.pattern.OpenCV.loadLocally();
@@ -81,6 +160,13 @@ public class GemCertificateService {
         }
     }
     
+    @PreDestroy
+    public void shutdown() {
+        if (regionExecutor != null) {
+            regionExecutor.shutdownNow();
+        }
+    }
+    
     private void initializeTesseractSafely() {
         try {
             System.out.println("🔧 Attempting to initialize Tesseract for CSL certificate processing...");
@@ -90,9 +176,6 @@ public class GemCertificateService {
             // Set up environment variables
             setupEnvironmentForTesseract();
             
-            // Create Tesseract instance
-            tesseract = new Tesseract();
-            
             // Verify tessdata directory exists
             Path tessPath = Paths.get(tesseractDataPath);
             Path engFile = tessPath.resolve(tesseractLanguage + ".traineddata");
@@ -105,17 +188,26 @@ public class GemCertificateService {
                 throw new RuntimeException("Language file not found: " + engFile.toString());
             }
             
-            // Configure Tesseract for CSL certificate text recognition
-            tesseract.setDatapath(tesseractDataPath);
-            tesseract.setLanguage(tesseractLanguage);
-            tesseract.setOcrEngineMode(ocrEngineMode);
-            tesseract.setPageSegMode(pageSegMode);
+            // Pooled engines configured for CSL certificate text recognition
+            OcrEnginePool.OcrProfile profile = new OcrEnginePool.OcrProfile(
+                    OCR_PROFILE, tesseractLanguage, ocrEngineMode, pageSegMode)
+                .withVariable("tessedit_char_whitelist", OCR_WHITELIST)
+                .withVariable("classify_bln_numeric_mode", "0");
             
-            // Set OCR configuration optimized for CSL certificates
-            tesseract.setVariable("tessedit_char_whitelist", 
-                "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789.,:-/ ()[]");
-            tesseract.setVariable("classify_bln_numeric_mode", "0");
-            tesseract.setVariable("tessedit_pageseg_mode", String.valueOf(pageSegMode));
+            if (!ocrEnginePool.register(profile)) {
+                throw new RuntimeException(ocrEnginePool.getStatus(OCR_PROFILE));
+            }
+            
+            // PSM 7: each field crop holds exactly one line of text
+            OcrEnginePool.OcrProfile lineProfile = new OcrEnginePool.OcrProfile(
+                    LINE_OCR_PROFILE, tesseractLanguage, ocrEngineMode, 7)
+                .withVariable("tessedit_char_whitelist", OCR_WHITELIST)
+                .withVariable("classify_bln_numeric_mode", "0");
+            
+            if (!ocrEnginePool.register(lineProfile)) {
+                System.err.println("⚠️ Line OCR unavailable, certificates will use full-page OCR: " 
+                    + ocrEnginePool.getStatus(LINE_OCR_PROFILE));
+            }
             
             tesseractInitialized = true;
             tesseractStatus = "Initialized successfully for CSL processing";
@@ -168,28 +260,37 @@ public class GemCertificateService {
             }
             
             // Convert MultipartFile to BufferedImage
-            BufferedImage bufferedImage = ImageIO.read(certificateImage.getInputStream());
+            byte[] imageBytes = certificateImage.getBytes();
+            BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(imageBytes));
             if (bufferedImage == null) {
                 throw new IOException("Could not read image file");
             }
             
             System.out.println("📐 Original image size: " + bufferedImage.getWidth() + "x" + bufferedImage.getHeight());
             
-            // Preprocess image for better OCR results
-            BufferedImage preprocessedImage = preprocessImageForOCR(bufferedImage);
-            
-            // Perform OCR
-            String ocrResult = performOCR(preprocessedImage);
-            
-            if (ocrResult == null || ocrResult.trim().isEmpty()) {
-                return ApiResponse.error("Could not extract text from CSL certificate image");
+            // Known card layout first: deskew and read each field region on its own
+            GemCertificateDataDto certificateData = null;
+            if (layoutOcrEnabled && tesseractInitialized && ocrEnginePool.isAvailable(LINE_OCR_PROFILE)) {
+                certificateData = extractWithLayout(imageBytes, CertificateLayout.CSL_CARD);
             }
             
-            System.out.println("📄 OCR Raw Result Preview: " + 
-                ocrResult.substring(0, Math.min(400, ocrResult.length())) + "...");
-            
-            // Extract structured data from OCR text using CSL-specific logic
-            GemCertificateDataDto certificateData = extractCSLStructuredData(ocrResult);
+            if (certificateData == null) {
+                // Preprocess image for better OCR results
+                BufferedImage preprocessedImage = preprocessImageForOCR(bufferedImage);
+                
+                // Perform OCR
+                String ocrResult = performOCR(preprocessedImage);
+                
+                if (ocrResult == null || ocrResult.trim().isEmpty()) {
+                    return ApiResponse.error("Could not extract text from CSL certificate image");
+                }
+                
+                System.out.println("📄 OCR Raw Result Preview: " + 
+                    ocrResult.substring(0, Math.min(400, ocrResult.length())) + "...");
+                
+                // Extract structured data from OCR text using CSL-specific logic
+                certificateData = extractCSLStructuredData(ocrResult);
+            }
             
             if (!certificateData.hasValidData()) {
                 return ApiResponse.error("Could not extract valid CSL certificate data from image", certificateData);
@@ -198,6 +299,9 @@ public class GemCertificateService {
             System.out.println("✅ CSL certificate data successfully extracted: " + certificateData.getCslMemoNo());
             return ApiResponse.success("CSL certificate data extracted successfully", certificateData);
             
+        } catch (OcrEngineBusyException e) {
+            // Surfaces as 503 through GlobalExceptionHandler
+            throw e;
         } catch (Exception e) {
             System.err.println("❌ CSL certificate extraction failed: " + e.getMessage());
             e.printStackTrace();
@@ -216,17 +320,137 @@ public class GemCertificateService {
         
         try {
             System.out.println("🔍 Performing OCR with Tesseract on CSL certificate...");
-            String result = tesseract.doOCR(image);
+            String result = ocrEnginePool.recognize(OCR_PROFILE, image);
             System.out.println("✅ OCR completed successfully for CSL certificate");
             return result;
         } catch (TesseractException e) {
+            // The pool replaces the failed engine, so later certificates still get OCR
             System.err.println("❌ Tesseract OCR error: " + e.getMessage());
-            tesseractInitialized = false; // Disable for future calls
             return performFallbackTextExtraction(image);
+        }
+    }
+    
+    /**
+     * Read a certificate through its known layout: find and deskew the card, check the header
+     * and OCR every field region in parallel as a single line. Returns null when the card,
+     * header or enough of the fields can't be read, so the caller falls back to full-page OCR.
+     * The text of a good read is cached once under the uploaded file, not per field crop.
+     */
+    private GemCertificateDataDto extractWithLayout(byte[] imageBytes, CertificateLayout layout) {
+        long start = System.currentTimeMillis();
+        layoutAttempts.incrementAndGet();
+        try {
+            String cacheKey = null;
+            String text = null;
+            if (ocrResultCache.isEnabled()) {
+                cacheKey = ocrResultCache.keyOf(layout.getName() + " layout " + LAYOUT_CACHE_VERSION, imageBytes,
+                    ocrEnginePool.getProfile(OCR_PROFILE), ocrEnginePool.getProfile(LINE_OCR_PROFILE));
+                text = ocrResultCache.get(cacheKey);
+            }
+            boolean cached = text != null;
+            if (!cached) {
+                text = readLayoutText(imageBytes, layout);
+                if (text == null) {
+                    return null;
+                }
+            }
+            
+            GemCertificateDataDto certificateData = extractCSLStructuredData(text);
+            certificateData.setExtractionMethod("Tesseract OCR (" + layout.getName() + " layout)");
+            if (certificateData.getCslMemoNo() == null || certificateData.getConfidence() < layoutMinConfidence) {
+                System.out.println("⚠️ Layout read too incomplete (" + certificateData.getConfidence() + "%), using full-page OCR");
+                return null;
+            }
+            
+            if (cacheKey != null && !cached) {
+                ocrResultCache.put(cacheKey, layout.getName() + " layout", text);
+            }
+            layoutReads.incrementAndGet();
+            System.out.println("✅ Certificate read from its " + layout.getName() + " layout" 
+                + (cached ? " (cached)" : "") + " in " + (System.currentTimeMillis() - start) + " ms");
+            return certificateData;
+            
+        } catch (OcrEngineBusyException e) {
+            // Full-page OCR would wait on the same saturated pool
+            throw e;
         } catch (Exception e) {
-            System.err.println("❌ Unexpected OCR error: " + e.getMessage());
-            tesseractInitialized = false;
-            return performFallbackTextExtraction(image);
+            System.err.println("⚠️ Layout OCR failed, using full-page OCR: " + e.getMessage());
+            return null;
+        } finally {
+            totalLayoutMillis.addAndGet(System.currentTimeMillis() - start);
+        }
+    }
+    
+    /**
+     * OCR the header and field regions of a certificate image as "Label : value" lines,
+     * or null when no card or a different header is found
+     */
+    private String readLayoutText(byte[] imageBytes, CertificateLayout layout) throws Exception {
+        try (MatScope scope = new MatScope()) {
+            Mat image = scope.track(Imgcodecs.imdecode(scope.track(new MatOfByte(imageBytes)), Imgcodecs.IMREAD_COLOR));
+            if (image.empty()) {
+                return null;
+            }
+            
+            Mat card = CertificateLayout.extractCard(image, scope);
+            if (card == null) {
+                System.out.println("⚠️ No certificate card outline found, using full-page OCR");
+                return null;
+            }
+            layoutCardsFound.incrementAndGet();
+            
+            // Crops are encoded up front so the OCR stages never touch native memory
+            BufferedImage header = toBufferedImage(CertificateLayout.crop(card, 
+                layout.getHeader().toRect(card.cols(), card.rows()), scope));
+            Map<String, BufferedImage> fields = new LinkedHashMap<>();
+            for (Map.Entry<String, Rect> field : layout.locateFields(card).entrySet()) {
+                fields.put(field.getKey(), toBufferedImage(CertificateLayout.crop(card, field.getValue(), scope)));
+            }
+            
+            try (StageScope stages = new StageScope(regionExecutor)) {
+                // Header first: a card of another kind skips the field OCRs that haven't started
+                CompletableFuture<String> headerText = stages.fork(() -> ocrEnginePool.recognize(OCR_PROFILE, header, false));
+                Map<String, CompletableFuture<String>> fieldText = new LinkedHashMap<>();
+                fields.forEach((label, crop) -> 
+                    fieldText.put(label, stages.fork(() -> ocrEnginePool.recognize(LINE_OCR_PROFILE, crop, false))));
+                
+                String headerLine;
+                try {
+                    headerLine = StageScope.join(headerText);
+                } catch (Exception e) {
+                    stages.cancel();
+                    throw e;
+                }
+                if (!layout.matchesHeader(headerLine)) {
+                    // The crops are heap images, so running field OCRs can outlive this scope
+                    stages.cancel();
+                    System.out.println("⚠️ Certificate header does not match " + layout.getName() + ", using full-page OCR");
+                    return null;
+                }
+                
+                // Rebuild "Label : value" lines so the CSL parser reads them like full-page text;
+                // the header goes last so "COLORED" is not taken for the Color field
+                StringBuilder lines = new StringBuilder();
+                for (Map.Entry<String, CompletableFuture<String>> field : fieldText.entrySet()) {
+                    String value = WHITESPACE.matcher(StageScope.join(field.getValue())).replaceAll(" ");
+                    value = LEADING_SEPARATORS.matcher(value).replaceFirst("");
+                    lines.append(field.getKey()).append(" : ").append(value).append('\n');
+                }
+                return lines.append(headerLine.trim()).toString();
+            }
+        }
+    }
+    
+    /**
+     * Encode a Mat losslessly and read it back for Tesseract
+     */
+    private BufferedImage toBufferedImage(Mat mat) throws IOException {
+        MatOfByte matOfByte = new MatOfByte();
+        try {
+            Imgcodecs.imencode(".png", mat, matOfByte);
+            return ImageIO.read(new ByteArrayInputStream(matOfByte.toArray()));
+        } finally {
+            matOfByte.release();
         }
     }
     
@@ -237,7 +461,7 @@ public class GemCertificateService {
         System.out.println("🔄 Using fallback text extraction method for CSL certificate");
         
         // For demo purposes, return a CSL sample structure
-        return "FALLBACK_MODE: Please ensure Tesseract is properly installed for full OCR functionality.\n" +
+        return FALLBACK_MARKER + ": Please ensure Tesseract is properly installed for full OCR functionality.\n" +
                "CSL COLORED STONE LABORATORY\n" +
                "GIA ALUMNI MEMBER\n" +
                "Date: 2025-05-14\n" +
@@ -306,7 +530,9 @@ public class GemCertificateService {
         
         GemCertificateDataDto certificateData = new GemCertificateDataDto();
         certificateData.setRawOcrText(ocrText);
-        certificateData.setExtractionMethod(tesseractInitialized ? "Tesseract OCR" : "Fallback");
+        // A failed engine call also returns the sample text; label that read as fallback too
+        boolean fallback = !tesseractInitialized || ocrText.startsWith(FALLBACK_MARKER);
+        certificateData.setExtractionMethod(fallback ? "Fallback" : "Tesseract OCR");
         
         // Extract CSL authority information
         String authority = extractCSLAuthority(ocrText);
@@ -357,7 +583,7 @@ public class GemCertificateService {
         }
         
         // Check for fallback mode
-        if (text.contains("FALLBACK_MODE")) {
+        if (text.contains(FALLBACK_MARKER)) {
             return "CSL (Colored Stone Laboratory) - Fallback";
         }
         
@@ -368,17 +594,13 @@ public class GemCertificateService {
      * Extract CSL Memo Number from OCR text
      */
     private String extractCSLMemoNumber(String text) {
-        // Pattern for CSL Memo No like Y13Z, B9BV (typically alphanumeric, 3-4 characters)
-        Pattern memoPattern = Pattern.compile("(?i)(?:CSL\\s+Memo\\s+No\\s*[:.]?\\s*)([A-Z0-9]{3,4})", 
-            Pattern.CASE_INSENSITIVE);
-        Matcher matcher = memoPattern.matcher(text);
+        Matcher matcher = MEMO_PATTERN.matcher(text);
         if (matcher.find()) {
             return matcher.group(1).trim();
         }
         
         // Alternative pattern - just look for the memo format after "Memo No"
-        Pattern altPattern = Pattern.compile("(?i)Memo\\s+No\\s*[:.]?\\s*([A-Z0-9]{3,4})");
-        matcher = altPattern.matcher(text);
+        matcher = MEMO_ALT_PATTERN.matcher(text);
         if (matcher.find()) {
             return matcher.group(1).trim();
         }
@@ -396,17 +618,13 @@ public class GemCertificateService {
      * Extract date from CSL certificate OCR text
      */
     private String extractDate(String text) {
-        // Pattern for dates like 2025-05-14 (CSL format)
-        Pattern datePattern = Pattern.compile("(?i)(?:Date\\s*[:.]?\\s*)?(\\d{4}[-]\\d{1,2}[-]\\d{1,2})", 
-            Pattern.CASE_INSENSITIVE);
-        Matcher matcher = datePattern.matcher(text);
+        Matcher matcher = DATE_PATTERN.matcher(text);
         if (matcher.find()) {
             return matcher.group(1).trim();
         }
         
         // Alternative pattern for other date formats
-        Pattern altDatePattern = Pattern.compile("(?i)(?:Date\\s*[:.]?\\s*)?(\\d{1,2}[/-]\\d{1,2}[/-]\\d{4})");
-        matcher = altDatePattern.matcher(text);
+        matcher = DATE_ALT_PATTERN.matcher(text);
         if (matcher.find()) {
             return matcher.group(1).trim();
         }
@@ -425,16 +643,18 @@ public class GemCertificateService {
     private String extractCSLField(String text, String fieldName) {
         try {
             // CSL certificates have a clean format: "FieldName : Value"
-            String pattern = "(?i)" + Pattern.quote(fieldName) + "\\s*[:.]?\\s*([^\\n\\r]+?)(?=\\n|$)";
-            Pattern fieldPattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-            Matcher matcher = fieldPattern.matcher(text);
+            Pattern[] fieldPatterns = FIELD_PATTERNS.computeIfAbsent(fieldName, name -> new Pattern[] {
+                Pattern.compile(Pattern.quote(name) + "\\s*[:.]?\\s*([^\\n\\r]+?)(?=\\n|$)", Pattern.CASE_INSENSITIVE),
+                Pattern.compile(Pattern.quote(name) + "\\s*[:.]?\\s*\\n?\\s*([^\\n]+)", Pattern.CASE_INSENSITIVE)
+            });
+            Matcher matcher = fieldPatterns[0].matcher(text);
             
             if (matcher.find()) {
                 String value = matcher.group(1).trim();
                 // Clean up the value
-                value = value.replaceAll("\\s+", " ");
-                value = value.replaceAll("^[:.\\-_\\s]+", "");
-                value = value.replaceAll("[:.\\-_\\s]+$", "");
+                value = WHITESPACE.matcher(value).replaceAll(" ");
+                value = LEADING_SEPARATORS.matcher(value).replaceFirst("");
+                value = TRAILING_SEPARATORS.matcher(value).replaceFirst("");
                 
                 // Handle special cases for variety (often in red/emphasized text)
                 if ("Variety".equalsIgnoreCase(fieldName)) {
@@ -447,9 +667,7 @@ public class GemCertificateService {
             }
             
             // Try alternative pattern for multi-line values
-            pattern = "(?i)" + Pattern.quote(fieldName) + "\\s*[:.]?\\s*\\n?\\s*([^\\n]+)";
-            fieldPattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-            matcher = fieldPattern.matcher(text);
+            matcher = fieldPatterns[1].matcher(text);
             
             if (matcher.find()) {
                 String value = matcher.group(1).trim();
@@ -555,6 +773,18 @@ public class GemCertificateService {
         status.put("language", tesseractLanguage);
         status.put("ocrEngineMode", ocrEngineMode);
         status.put("pageSegMode", pageSegMode);
+        status.put("enginePool", ocrEnginePool.getStats(OCR_PROFILE));
+        status.put("lineEnginePool", ocrEnginePool.getStats(LINE_OCR_PROFILE));
+        
+        Map<String, Object> layoutOcr = new LinkedHashMap<>();
+        long attempts = layoutAttempts.get();
+        layoutOcr.put("enabled", layoutOcrEnabled);
+        layoutOcr.put("layouts", List.of(CertificateLayout.CSL_CARD.getName()));
+        layoutOcr.put("attempts", attempts);
+        layoutOcr.put("cardsFound", layoutCardsFound.get());
+        layoutOcr.put("reads", layoutReads.get());
+        layoutOcr.put("avgMillis", attempts > 0 ? totalLayoutMillis.get() / attempts : 0);
+        status.put("layoutOcr", layoutOcr);
         status.put("certificateType", "CSL (Colored Stone Laboratory)");
         status.put("optimizedFor", "Card-based certificates with structured text layout");
         return status;
@@ -621,176 +851,28 @@ public class GemCertificateService {
                 }
             }
             
-            // Create GemListing entity from DTO
-            GemListing gemListing = convertDtoToEntity(gemListingData);
-            
-            // Process and save gem images
-            List<GemImage> processedImages = new ArrayList<>();
-            
-            // Process gemstone images
-            if (gemImages != null && gemImages.length > 0) {
-                System.out.println("🖼️ Processing " + gemImages.length + " gem images for database storage...");
-                
-                for (int i = 0; i < gemImages.length; i++) {
-                    MultipartFile image = gemImages[i];
-                    
-                    try {
-                        // Generate unique image ID
-                        String imageId = "GEM_" + System.currentTimeMillis() + "_" + i;
-                        
-                        // Store image using FileStorageService
-                        String imageUrl = fileStorageService.storeGemImage(image, imageId);
-                        // For now, use the same image as thumbnail
-                        String thumbnailUrl = imageUrl;
-                        
-                        // Create GemImage entity
-                        GemImage gemImage = new GemImage();
-                        gemImage.setImageId(imageId);
-                        gemImage.setOriginalName(image.getOriginalFilename());
-                        gemImage.setContentType(image.getContentType());
-                        gemImage.setSize(image.getSize());
-                        gemImage.setImageUrl(imageUrl);
-                        gemImage.setThumbnailUrl(thumbnailUrl);
-                        gemImage.setIsPrimary(i == 0); // First gemstone image is primary
-                        gemImage.setDisplayOrder(i);
-                        gemImage.setImageType("GEMSTONE");
-                        
-                        processedImages.add(gemImage);
-                        
-                        System.out.println("✅ Gemstone image " + (i + 1) + " processed and stored: " + image.getOriginalFilename());
-                        System.out.println("   📁 Stored at: " + imageUrl);
-                        
-                    } catch (Exception e) {
-                        System.err.println("❌ Error processing gemstone image " + (i + 1) + ": " + e.getMessage());
-                        return ApiResponse.error("Failed to process gemstone image " + (i + 1) + ": " + e.getMessage());
-                    }
-                }
-                
-                System.out.println("✅ All " + gemImages.length + " gemstone images processed for database storage");
-            }
-            
-            // Process gemstone videos
-            if (gemVideos != null && gemVideos.length > 0) {
-                System.out.println("🎬 Processing " + gemVideos.length + " gem videos for database storage...");
-                
-                for (int i = 0; i < gemVideos.length; i++) {
-                    MultipartFile video = gemVideos[i];
-                    
-                    try {
-                        // Generate unique video ID
-                        String videoId = "VIDEO_" + System.currentTimeMillis() + "_" + i;
-                        
-                        // Store video using FileStorageService
-                        String videoUrl = fileStorageService.storeGemVideo(video, videoId);
-                        
-                        // Create GemImage entity for video (using the same class for consistency)
-                        GemImage gemVideo = new GemImage();
-                        gemVideo.setImageId(videoId);
-                        gemVideo.setOriginalName(video.getOriginalFilename());
-                        gemVideo.setContentType(video.getContentType());
-                        gemVideo.setSize(video.getSize());
-                        gemVideo.setVideoUrl(videoUrl);
-                        gemVideo.setMediaType("VIDEO");
-                        gemVideo.setVideoFormat(getVideoFormat(video.getOriginalFilename()));
-                        gemVideo.setIsPrimary(false); // Videos are never primary for card display
-                        gemVideo.setDisplayOrder(processedImages.size() + i); // After images
-                        gemVideo.setImageType("GEMSTONE");
-                        gemVideo.setDescription("Gemstone Video " + (i + 1));
-                        
-                        // TODO: Generate video thumbnail in the future
-                        // For now, we'll leave thumbnails null
-                        
-                        processedImages.add(gemVideo);
-                        
-                        System.out.println("✅ Gemstone video " + (i + 1) + " processed and stored: " + video.getOriginalFilename());
-                        System.out.println("   📁 Stored at: " + videoUrl);
-                        
-                    } catch (Exception e) {
-                        System.err.println("❌ Error processing gemstone video " + (i + 1) + ": " + e.getMessage());
-                        return ApiResponse.error("Failed to process gemstone video " + (i + 1) + ": " + e.getMessage());
-                    }
-                }
-                
-                System.out.println("✅ All " + gemVideos.length + " gemstone videos processed for database storage");
+            // Store gem images, videos and certificate images (certified stones only) in parallel
+            MultipartFile[] listingCertificateImages = gemListingData.isCertifiedStone() ? certificateImages : null;
+            System.out.println("🖼️ Storing listing media: " + countOf(gemImages) + " images, "
+                + countOf(gemVideos) + " videos, " + countOf(listingCertificateImages) + " certificate images");
+            List<GemImage> processedImages;
+            try {
+                processedImages = mediaIngestionService.ingestListingMedia(gemImages, gemVideos, listingCertificateImages);
+            } catch (IOException e) {
+                System.err.println("❌ " + e.getMessage());
+                return ApiResponse.error(e.getMessage());
             }
+            System.out.println("✅ All " + processedImages.size() + " media files stored for database storage");
             
-            // Process certificate images (only for certified stones)
-            if (certificateImages != null && certificateImages.length > 0 && gemListingData.isCertifiedStone()) {
-                System.out.println("📋 Processing " + certificateImages.length + " certificate images for database storage...");
-                
-                for (int i = 0; i < certificateImages.length; i++) {
-                    MultipartFile image = certificateImages[i];
-                    
-                    try {
-                        // Generate unique certificate image ID
-                        String imageId = "CERT_" + System.currentTimeMillis() + "_" + i;
-                        
-                        // Store certificate image using FileStorageService
-                        String imageUrl = fileStorageService.storeGemCertificateImage(image, imageId);
-                        // For now, use the same image as thumbnail
-                        String thumbnailUrl = imageUrl;
-                        
-                        // Create GemImage entity for certificate
-                        GemImage certImage = new GemImage();
-                        certImage.setImageId(imageId);
-                        certImage.setOriginalName(image.getOriginalFilename());
-                        certImage.setContentType(image.getContentType());
-                        certImage.setSize(image.getSize());
-                        certImage.setImageUrl(imageUrl);
-                        certImage.setThumbnailUrl(thumbnailUrl);
-                        certImage.setIsPrimary(false); // Certificate images are never primary
-                        certImage.setDisplayOrder(processedImages.size() + i); // After gemstone images
-                        certImage.setImageType("CERTIFICATE");
-                        certImage.setDescription("Certificate Image " + (i + 1));
-                        
-                        processedImages.add(certImage);
-                        
-                        System.out.println("✅ Certificate image " + (i + 1) + " processed and stored: " + image.getOriginalFilename());
-                        System.out.println("   📁 Stored at: " + imageUrl);
-                        
-                    } catch (Exception e) {
-                        System.err.println("❌ Error processing certificate image " + (i + 1) + ": " + e.getMessage());
-                        return ApiResponse.error("Failed to process certificate image " + (i + 1) + ": " + e.getMessage());
-                    }
-                }
-                
-                System.out.println("✅ All " + certificateImages.length + " certificate images processed for database storage");
-            }
-            
-            // Set images and primary image URL
-            gemListing.setImages(processedImages);
-            if (!processedImages.isEmpty()) {
-                // Find the first gemstone image for primary image URL
-                GemImage primaryImage = processedImages.stream()
-                    .filter(img -> "GEMSTONE".equals(img.getImageType()) && img.getIsPrimary())
-                    .findFirst()
-                    .orElse(processedImages.stream()
-                        .filter(img -> "GEMSTONE".equals(img.getImageType()))
-                        .findFirst()
-                        .orElse(processedImages.get(0)));
-                
-                gemListing.setPrimaryImageUrl(primaryImage.getImageUrl());
-            }
+            // Create GemListing entity from DTO
+            GemListing gemListing = prepareListing(gemListingData, processedImages);
             
             // Save to database
             System.out.println("💾 Saving gem listing to database...");
             GemListing savedListing = gemListingRepository.save(gemListing);
             System.out.println("✅ Gem listing saved to database with ID: " + savedListing.getId());
             
-            // Notify admin of new listing if status is PENDING
-            if ("PENDING".equals(savedListing.getListingStatus())) {
-                try {
-                    notificationService.notifyAdminOfNewListing(
-                        savedListing.getId(),
-                        savedListing.getGemName(),
-                        savedListing.getUserName(),
-                        savedListing.getUserId()
-                    );
-                } catch (Exception e) {
-                    System.err.println("⚠️ Failed to notify admin of new listing: " + e.getMessage());
-                    // Don't fail the listing creation if notification fails
-                }
-            }
+            onListingSaved(savedListing);
             
             // Prepare success response
             saveResult.put("success", true);
@@ -808,6 +890,7 @@ public class GemCertificateService {
             
             // Add image information
             saveResult.put("imagesCount", processedImages.size());
+            saveResult.put("mediaStatus", savedListing.getMediaStatus());
             saveResult.put("images", convertImagesToResponseFormat(processedImages));
             if (!processedImages.isEmpty()) {
                 saveResult.put("primaryImageUrl", processedImages.get(0).getImageUrl());
@@ -871,6 +954,98 @@ public class GemCertificateService {
         return saveGemListingData(gemListingData, gemImages, null);
     }
     
+    /**
+     * Listing entity for a DTO and its stored media, ready to insert
+     */
+    GemListing prepareListing(GemListingDataDto gemListingData, List<GemImage> processedImages) {
+        GemListing gemListing = convertDtoToEntity(gemListingData);
+        
+        // Thumbnails (image variants) and video posters are generated in the background
+        boolean hasStillImages = processedImages.stream().anyMatch(item -> !item.isVideo());
+        long videoCount = processedImages.stream().filter(GemImage::isVideo).count();
+        listingMediaStatusService.begin(gemListing, (hasStillImages ? 1 : 0) + (int) videoCount);
+        
+        // Set images and primary image URL
+        gemListing.setImages(processedImages);
+        if (!processedImages.isEmpty()) {
+            // Find the first gemstone image for primary image URL
+            GemImage primaryImage = processedImages.stream()
+                .filter(img -> "GEMSTONE".equals(img.getImageType()) && img.getIsPrimary())
+                .findFirst()
+                .orElse(processedImages.stream()
+                    .filter(img -> "GEMSTONE".equals(img.getImageType()))
+                    .findFirst()
+                    .orElse(processedImages.get(0)));
+            
+            gemListing.setPrimaryImageUrl(primaryImage.getImageUrl());
+        }
+        return gemListing;
+    }
+    
+    /**
+     * Queue the media work of listings whose background jobs were lost in a restart.
+     * Run by the StartupOrchestrator, in parallel with the other startup initializers.
+     */
+    public void resumeInterruptedMediaJobs() {
+        try {
+            List<GemListing> interrupted = listingMediaStatusService.resetInterrupted();
+            for (GemListing listing : interrupted) {
+                if (listing.getImages().stream().anyMatch(ListingMediaStatusService::needsVariants)) {
+                    imageDerivativeService.scheduleGemListing(listing.getId());
+                }
+                for (GemImage video : listing.getImages()) {
+                    if (ListingMediaStatusService.needsPoster(video)) {
+                        videoPosterService.scheduleVideo(listing.getId(), video.getImageId());
+                    }
+                }
+            }
+            if (!interrupted.isEmpty()) {
+                System.out.println("🔄 Re-queued media jobs of " + interrupted.size() + " listings interrupted by a restart");
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not resume interrupted media jobs: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Background media jobs and admin notification for a newly inserted listing
+     */
+    void onListingSaved(GemListing savedListing) {
+        List<GemImage> media = savedListing.getImages() != null ? savedListing.getImages() : List.of();
+        
+        // Generate resized image variants in the background
+        if (media.stream().anyMatch(item -> !item.isVideo())) {
+            imageDerivativeService.scheduleGemListing(savedListing.getId());
+        }
+        for (GemImage video : media) {
+            if (video.isVideo()) {
+                videoPosterService.scheduleVideo(savedListing.getId(), video.getImageId());
+            }
+        }
+        
+        // Flag photos reused from other listings for the admin review
+        try {
+            listingImageDuplicateService.checkListing(savedListing);
+        } catch (Exception e) {
+            System.err.println("⚠️ Duplicate image check failed: " + e.getMessage());
+        }
+        
+        // Notify admin of new listing if status is PENDING
+        if ("PENDING".equals(savedListing.getListingStatus())) {
+            try {
+                notificationService.notifyAdminOfNewListing(
+                    savedListing.getId(),
+                    savedListing.getGemName(),
+                    savedListing.getUserName(),
+                    savedListing.getUserId()
+                );
+            } catch (Exception e) {
+                System.err.println("⚠️ Failed to notify admin of new listing: " + e.getMessage());
+                // Don't fail the listing creation if notification fails
+            }
+        }
+    }
+    
     /**
      * Convert DTO to Entity
      */
@@ -932,6 +1107,23 @@ public class GemCertificateService {
         return entity;
     }
     
+    /**
+     * Release content-addressed upload references held by listing media
+     */
+    void releaseStoredMedia(List<GemImage> media) {
+        if (media == null) {
+            return;
+        }
+        for (GemImage item : media) {
+            if (item.getImageUrl() != null) {
+                fileStorageService.releaseReference(item.getImageUrl());
+            }
+            if (item.getVideoUrl() != null) {
+                fileStorageService.releaseReference(item.getVideoUrl());
+            }
+        }
+    }
+    
     /**
      * Convert GemImage entities to response format
      */
@@ -946,6 +1138,15 @@ public class GemCertificateService {
             imageInfo.put("size", image.getSize());
             imageInfo.put("imageUrl", image.getImageUrl());
             imageInfo.put("thumbnailUrl", image.getThumbnailUrl());
+            imageInfo.put("variants", image.getVariants());
+            imageInfo.put("contentHash", image.getContentHash());
+            imageInfo.put("width", image.getWidth());
+            imageInfo.put("height", image.getHeight());
+            imageInfo.put("mediaType", image.getMediaType());
+            imageInfo.put("videoUrl", image.getVideoUrl());
+            imageInfo.put("videoThumbnailUrl", image.getVideoThumbnailUrl());
+            imageInfo.put("videoDurationSeconds", image.getVideoDurationSeconds());
+            imageInfo.put("videoFormat", image.getVideoFormat());
             imageInfo.put("isPrimary", image.getIsPrimary());
             imageInfo.put("displayOrder", image.getDisplayOrder());
             imageInfo.put("uploadedAt", image.getUploadedAt());
@@ -1160,6 +1361,7 @@ public class GemCertificateService {
         
         // Image information
         data.put("primaryImageUrl", listing.getPrimaryImageUrl());
+        data.put("mediaStatus", listing.getMediaStatus());
         if (listing.getImages() != null && !listing.getImages().isEmpty()) {
             data.put("imagesCount", listing.getImages().size());
             data.put("images", convertImagesToResponseFormat(listing.getImages()));
@@ -1214,8 +1416,10 @@ public class GemCertificateService {
                 );
             }
             
-            // Delete the listing
+            // Delete the listing and drop its references to stored media
             gemListingRepository.deleteById(listingId);
+            releaseStoredMedia(existingListing.get().getImages());
+            listingImageDuplicateService.removeListing(existingListing.get());
             
             // Prepare success response
             Map<String, Object> responseData = new HashMap<>();
@@ -1324,6 +1528,11 @@ public class GemCertificateService {
                 }
             });
             
+            // The repricing job only fetches listings whose pricing version is stale
+            if (updateData.keySet().stream().anyMatch(PRICING_ATTRIBUTES::contains)) {
+                existingListing.setPricingVersion(null);
+            }
+            
             // Save the updated listing
             GemListing updatedListing = gemListingRepository.save(existingListing);
             System.out.println("✅ Gem listing updated successfully: " + updatedListing.getId());
@@ -1337,14 +1546,8 @@ public class GemCertificateService {
         }
     }
     
-    /**
-     * Helper method to get video format from filename
-     */
-    private String getVideoFormat(String filename) {
-        if (filename == null || filename.lastIndexOf('.') == -1) {
-            return "mp4"; // default format
-        }
-        return filename.substring(filename.lastIndexOf('.') + 1).toLowerCase();
+    private int countOf(MultipartFile[] files) {
+        return files != null ? files.length : 0;
     }
     
     /**
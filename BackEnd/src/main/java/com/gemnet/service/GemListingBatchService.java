@@ -0,0 +1,558 @@
+package com.gemnet.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gemnet.dto.ApiResponse;
+import com.gemnet.dto.GemCertificateDataDto;
+import com.gemnet.dto.GemListingDataDto;
+import com.gemnet.exception.OcrEngineBusyException;
+import com.gemnet.model.GemImage;
+import com.gemnet.model.GemListing;
+import com.gemnet.repository.GemListingRepository;
+import com.gemnet.util.BufferedUpload;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Lists many stones of one seller in a single upload. Files are grouped into items by folder
+ * (one folder per stone, from a zip archive or from multipart file names); each item runs
+ * certificate OCR, duplicate certificate/memo checks and media storage on a bounded worker
+ * pool, and the listings that pass are inserted with one unordered bulk write. Progress of
+ * every item is streamed to the caller as server-sent events.
+ *
+ * Work continues if the client disconnects; listings saved by then are not rolled back.
+ */
+@Service
+public class GemListingBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GemListingBatchService.class);
+
+    // Content types of archive entries by extension, as accepted by FileStorageService
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+        "jpg", "image/jpeg", "jpeg", "image/jpeg", "png", "image/png", "gif", "image/gif",
+        "mp4", "video/mp4", "avi", "video/avi", "mov", "video/mov", "wmv", "video/wmv", "webm", "video/webm");
+
+    @Autowired
+    private GemCertificateService gemCertificateService;
+
+    @Autowired
+    private MediaIngestionService mediaIngestionService;
+
+    @Autowired
+    private GemListingRepository gemListingRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Stones processed at once across all batches
+    @Value("${gemnet.listings.batch.parallelism:4}")
+    private int parallelism;
+
+    @Value("${gemnet.listings.batch.max-items:100}")
+    private int maxItems;
+
+    // Batches running at once; further uploads are refused
+    @Value("${gemnet.listings.batch.concurrent-batches:2}")
+    private int concurrentBatches;
+
+    // Limit on the unpacked size of an archive
+    @Value("${gemnet.listings.batch.max-archive-mb:200}")
+    private long maxArchiveMb;
+
+    // Certificate reads below this confidence (percent) don't fill in listing fields
+    @Value("${gemnet.listings.batch.certificate-min-confidence:60}")
+    private double certificateMinConfidence;
+
+    // How long the progress stream stays open
+    @Value("${gemnet.listings.batch.stream-timeout-minutes:30}")
+    private long streamTimeoutMinutes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private ThreadPoolExecutor batchExecutor;
+    private ThreadPoolExecutor itemExecutor;
+
+    @PostConstruct
+    public void init() {
+        int batches = Math.max(1, concurrentBatches);
+        batchExecutor = new ThreadPoolExecutor(batches, batches, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(batches),
+            runnable -> {
+                Thread thread = new Thread(runnable, "listing-batch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        int items = Math.max(1, parallelism);
+        itemExecutor = new ThreadPoolExecutor(items, items, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "listing-batch-item");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdownNow();
+        itemExecutor.shutdownNow();
+    }
+
+    /**
+     * Files of a zip archive grouped by the folder they are in
+     */
+    public Map<String, List<MultipartFile>> readArchive(MultipartFile archive) throws IOException {
+        Map<String, List<MultipartFile>> files = new LinkedHashMap<>();
+        long budget = maxArchiveMb * 1024 * 1024;
+        try (ZipInputStream zip = new ZipInputStream(archive.getInputStream())) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                byte[] bytes = readEntry(zip, budget);
+                budget -= bytes.length;
+                addFile(files, entry.getName(), null, bytes);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Uploaded files grouped by the folder in their file name (e.g. "stone-01/certificate.jpg")
+     */
+    public Map<String, List<MultipartFile>> readFiles(MultipartFile[] uploads) throws IOException {
+        Map<String, List<MultipartFile>> files = new LinkedHashMap<>();
+        for (MultipartFile upload : uploads) {
+            if (!upload.isEmpty()) {
+                addFile(files, upload.getOriginalFilename(), upload.getContentType(), upload.getBytes());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Validate a batch and start it. Events on the returned stream: "batch" once with the item
+     * keys, "item" for each stage of each stone, then "complete" with the totals.
+     *
+     * @param gemListingDataJson seller details and listing fields shared by every stone
+     * @param itemsJson          per-stone fields keyed by folder name (price, gemName, ...), may be null
+     * @throws IllegalArgumentException    when the batch itself is invalid
+     * @throws RejectedExecutionException  when too many batches are already running
+     */
+    public SseEmitter start(String gemListingDataJson, String itemsJson, Map<String, List<MultipartFile>> files)
+            throws IOException {
+        JsonNode defaults = objectMapper.readTree(gemListingDataJson);
+        if (defaults == null || !defaults.isObject()) {
+            throw new IllegalArgumentException("gemListingData must be a JSON object");
+        }
+        JsonNode overrides = itemsJson != null && !itemsJson.isBlank() ? objectMapper.readTree(itemsJson) : objectMapper.createObjectNode();
+        if (!overrides.isObject()) {
+            throw new IllegalArgumentException("items must be a JSON object keyed by folder name");
+        }
+        if (!"SELLER".equals(defaults.path("userRole").asText("SELLER"))) {
+            throw new IllegalArgumentException("Only sellers can create gem listings");
+        }
+
+        List<Item> items = new ArrayList<>();
+        for (Map.Entry<String, List<MultipartFile>> group : files.entrySet()) {
+            items.add(new Item(group.getKey(), group.getValue(), overrides.get(group.getKey())));
+        }
+        for (Iterator<String> keys = overrides.fieldNames(); keys.hasNext(); ) {
+            String key = keys.next();
+            if (!files.containsKey(key)) {
+                items.add(new Item(key, List.of(), overrides.get(key)));
+            }
+        }
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("No stones found; put each stone's files in its own folder");
+        }
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("A batch can list at most " + maxItems + " stones");
+        }
+
+        Batch batch = new Batch((ObjectNode) defaults, items, new SseEmitter(TimeUnit.MINUTES.toMillis(streamTimeoutMinutes)));
+        Map<String, Object> accepted = new LinkedHashMap<>();
+        accepted.put("items", items.stream().map(item -> item.key).toList());
+        accepted.put("parallelism", itemExecutor.getMaximumPoolSize());
+        // Queued by the emitter until the response starts, so it always arrives first
+        batch.send("batch", accepted);
+        batchExecutor.execute(() -> run(batch));
+        logger.info("📦 Started listing batch of {} stones for user {}", items.size(), defaults.path("userId").asText());
+        return batch.emitter;
+    }
+
+    private void run(Batch batch) {
+        long started = System.currentTimeMillis();
+        try {
+            List<CompletableFuture<GemListing>> pipelines = new ArrayList<>(batch.items.size());
+            for (Item item : batch.items) {
+                pipelines.add(CompletableFuture.supplyAsync(() -> prepare(batch, item), itemExecutor));
+            }
+
+            // Stones that passed every check, in upload order
+            List<Item> ready = new ArrayList<>();
+            List<GemListing> listings = new ArrayList<>();
+            for (int i = 0; i < pipelines.size(); i++) {
+                GemListing listing = pipelines.get(i).join();
+                if (listing != null) {
+                    ready.add(batch.items.get(i));
+                    listings.add(listing);
+                }
+            }
+
+            Set<Integer> failedInserts = insert(listings);
+            int saved = 0;
+            for (int i = 0; i < listings.size(); i++) {
+                Item item = ready.get(i);
+                GemListing listing = listings.get(i);
+                if (failedInserts.contains(i)) {
+                    gemCertificateService.releaseStoredMedia(item.media);
+                    batch.fail(item, "Could not save listing");
+                    continue;
+                }
+                gemCertificateService.onListingSaved(listing);
+                saved++;
+                Map<String, Object> event = batch.itemEvent(item, "SAVED");
+                event.put("listingId", listing.getId());
+                event.put("listingStatus", listing.getListingStatus());
+                batch.send("item", event);
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("total", batch.items.size());
+            summary.put("saved", saved);
+            summary.put("failed", batch.items.size() - saved);
+            summary.put("durationMs", System.currentTimeMillis() - started);
+            batch.send("complete", summary);
+            logger.info("✅ Listing batch finished: {} of {} stones saved in {} ms",
+                       saved, batch.items.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            logger.error("❌ Listing batch failed: {}", e.getMessage(), e);
+            batch.send("error", ApiResponse.error("Batch failed: " + e.getMessage()));
+        } finally {
+            batch.emitter.complete();
+        }
+    }
+
+    /**
+     * OCR, checks and media storage of one stone; null if the stone can't be listed
+     */
+    private GemListing prepare(Batch batch, Item item) {
+        try {
+            if (item.files.isEmpty()) {
+                return batch.fail(item, "No files uploaded for this stone");
+            }
+            GemListingDataDto dto = merge(batch.defaults, item.overrides);
+            batch.send("item", batch.itemEvent(item, "STARTED"));
+
+            if (!item.certificates.isEmpty()) {
+                dto.setIsCertified(true);
+                if (dto.getCertificateNumber() == null || dto.getCslMemoNo() == null) {
+                    boolean filled = readCertificate(dto, item.certificates.get(0));
+                    Map<String, Object> event = batch.itemEvent(item, "CERTIFICATE_READ");
+                    event.put("autoFilled", filled);
+                    event.put("cslMemoNo", dto.getCslMemoNo());
+                    event.put("certificateNumber", dto.getCertificateNumber());
+                    batch.send("item", event);
+                }
+            } else if (dto.getIsCertified() == null) {
+                dto.setIsCertified(false);
+            }
+
+            String invalid = validate(dto, item);
+            if (invalid != null) {
+                return batch.fail(item, invalid);
+            }
+            String duplicate = checkDuplicates(batch, dto);
+            if (duplicate != null) {
+                return batch.fail(item, duplicate);
+            }
+            batch.send("item", batch.itemEvent(item, "CHECKED"));
+
+            try {
+                item.media = mediaIngestionService.ingestListingMedia(
+                    item.gemImages.toArray(new MultipartFile[0]),
+                    item.gemVideos.toArray(new MultipartFile[0]),
+                    dto.isCertifiedStone() ? item.certificates.toArray(new MultipartFile[0]) : null);
+            } catch (IOException e) {
+                return batch.fail(item, e.getMessage());
+            }
+
+            GemListing listing = gemCertificateService.prepareListing(dto, item.media);
+            // Known before the bulk insert, so results map back to stones
+            listing.setId(new ObjectId().toHexString());
+            Map<String, Object> event = batch.itemEvent(item, "MEDIA_STORED");
+            event.put("mediaCount", item.media.size());
+            batch.send("item", event);
+            return listing;
+        } catch (Exception e) {
+            logger.warn("⚠️ Batch stone {} failed: {}", item.key, e.getMessage());
+            gemCertificateService.releaseStoredMedia(item.media);
+            return batch.fail(item, e.getMessage());
+        }
+    }
+
+    /**
+     * Fill certificate fields the seller left empty from the OCR of the first certificate image.
+     * Returns false, leaving the stone as uploaded, when the read is not trustworthy.
+     */
+    private boolean readCertificate(GemListingDataDto dto, MultipartFile certificate) {
+        ApiResponse<GemCertificateDataDto> response;
+        try {
+            response = gemCertificateService.extractCertificateData(certificate);
+        } catch (OcrEngineBusyException e) {
+            logger.info("OCR engines busy; stone uploaded without certificate auto-fill");
+            return false;
+        }
+        GemCertificateDataDto data = response.getData();
+        if (!response.isSuccess() || data == null || isSampleRead(data)) {
+            return false;
+        }
+        if (data.getConfidence() == null || data.getConfidence() < certificateMinConfidence) {
+            logger.info("Certificate read at {}% confidence, below {}%; not auto-filling",
+                data.getConfidence(), certificateMinConfidence);
+            return false;
+        }
+
+        if (dto.getCslMemoNo() == null) dto.setCslMemoNo(data.getCslMemoNo());
+        if (dto.getCertificateNumber() == null) dto.setCertificateNumber(data.getCslMemoNo());
+        if (dto.getIssueDate() == null) dto.setIssueDate(data.getIssueDate());
+        if (dto.getAuthority() == null) dto.setAuthority(data.getAuthority());
+        if (dto.getGiaAlumniMember() == null) dto.setGiaAlumniMember(data.isGiaAlumniMember());
+        if (dto.getColor() == null) dto.setColor(data.getColor());
+        if (dto.getShape() == null) dto.setShape(data.getShape());
+        if (dto.getWeight() == null) dto.setWeight(data.getWeight());
+        if (dto.getMeasurements() == null) dto.setMeasurements(data.getMeasurements());
+        if (dto.getVariety() == null) dto.setVariety(data.getVariety());
+        if (dto.getSpecies() == null) dto.setSpecies(data.getSpecies());
+        if (dto.getTreatment() == null) dto.setTreatment(data.getTreatment());
+        return true;
+    }
+
+    /**
+     * Fallback mode returns sample text, not this certificate
+     */
+    private static boolean isSampleRead(GemCertificateDataDto data) {
+        return "Fallback".equals(data.getExtractionMethod())
+            || (data.getRawOcrText() != null && data.getRawOcrText().contains(GemCertificateService.FALLBACK_MARKER))
+            || "SAMPLE".equalsIgnoreCase(data.getCslMemoNo());
+    }
+
+    /**
+     * The checks of the single listing endpoint; null if the stone can be listed
+     */
+    private String validate(GemListingDataDto dto, Item item) {
+        if (!"SELLER".equals(dto.getUserRole())) {
+            return "Only sellers can create gem listings";
+        }
+        if (!dto.isValidForSave()) {
+            return "Invalid gem listing data. Please check all required fields.";
+        }
+        if (dto.isCertifiedStone() && (dto.getCertificateNumber() == null || dto.getCertificateNumber().trim().isEmpty())) {
+            return "Certificate number is required for certified stones";
+        }
+        if (dto.isCertifiedStone() && item.certificates.isEmpty()) {
+            return "Certificate images are required for certified stones";
+        }
+        if (item.gemImages.isEmpty() && item.gemVideos.isEmpty()) {
+            return "At least one gemstone image or video is required";
+        }
+        return null;
+    }
+
+    /**
+     * Certificate number and CSL memo must be new, both in the database and within the batch
+     */
+    private String checkDuplicates(Batch batch, GemListingDataDto dto) {
+        if (!dto.isCertifiedStone()) {
+            return null;
+        }
+        String certificateNumber = dto.getCertificateNumber().trim();
+        if (batch.certificateNumbers.putIfAbsent(certificateNumber, Boolean.TRUE) != null) {
+            return "Certificate number " + certificateNumber + " appears more than once in this batch";
+        }
+        if (gemListingRepository.existsByCertificateNumber(certificateNumber)) {
+            return "A listing with certificate number " + certificateNumber + " already exists";
+        }
+
+        String memo = dto.getCslMemoNo();
+        if (memo != null && !memo.isBlank()) {
+            if (batch.memoNumbers.putIfAbsent(memo.trim(), Boolean.TRUE) != null) {
+                return "CSL memo " + memo + " appears more than once in this batch";
+            }
+            if (gemListingRepository.existsByCslMemoNo(memo.trim())) {
+                return "A listing with CSL memo " + memo + " already exists";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Insert all listings with one unordered bulk write; returns the indexes that failed
+     */
+    private Set<Integer> insert(List<GemListing> listings) {
+        Set<Integer> failed = new HashSet<>();
+        if (listings.isEmpty()) {
+            return failed;
+        }
+        try {
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, GemListing.class);
+            bulkOps.insert(listings);
+            bulkOps.execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().forEach(error -> failed.add(error.getIndex()));
+            logger.warn("⚠️ {} of {} batch listings could not be inserted", failed.size(), listings.size());
+        }
+        return failed;
+    }
+
+    private GemListingDataDto merge(ObjectNode defaults, JsonNode overrides) throws IOException {
+        ObjectNode merged = defaults.deepCopy();
+        if (overrides != null && overrides.isObject()) {
+            merged.setAll((ObjectNode) overrides);
+        }
+        return objectMapper.treeToValue(merged, GemListingDataDto.class);
+    }
+
+    private void addFile(Map<String, List<MultipartFile>> files, String path, String contentType, byte[] bytes) {
+        if (path == null) {
+            return;
+        }
+        String[] segments = path.replace('\\', '/').split("/");
+        String name = segments[segments.length - 1];
+        // Archive tool metadata and loose files outside a stone folder
+        if (segments.length < 2 || name.startsWith(".") || path.contains("__MACOSX")) {
+            return;
+        }
+        if (contentType == null) {
+            int dot = name.lastIndexOf('.');
+            contentType = dot >= 0 ? CONTENT_TYPES.get(name.substring(dot + 1).toLowerCase(Locale.ROOT)) : null;
+            if (contentType == null) {
+                return;
+            }
+        }
+        String key = segments[segments.length - 2];
+        files.computeIfAbsent(key, ignored -> new ArrayList<>())
+            .add(new BufferedUpload("file", name, contentType, bytes));
+    }
+
+    private byte[] readEntry(InputStream zip, long budget) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = zip.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (out.size() > budget) {
+                throw new IllegalArgumentException("Archive is larger than " + maxArchiveMb + " MB unpacked");
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * One stone: its folder name, files sorted by role and per-stone fields
+     */
+    private static class Item {
+        private final String key;
+        private final List<MultipartFile> files;
+        private final JsonNode overrides;
+        private final List<MultipartFile> certificates = new ArrayList<>();
+        private final List<MultipartFile> gemImages = new ArrayList<>();
+        private final List<MultipartFile> gemVideos = new ArrayList<>();
+        private List<GemImage> media = List.of();
+
+        Item(String key, List<MultipartFile> files, JsonNode overrides) {
+            this.key = key;
+            this.files = files;
+            this.overrides = overrides;
+            for (MultipartFile file : files) {
+                String name = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase(Locale.ROOT) : "";
+                if (file.getContentType() != null && file.getContentType().startsWith("video/")) {
+                    gemVideos.add(file);
+                } else if (name.startsWith("cert")) {
+                    certificates.add(file);
+                } else {
+                    gemImages.add(file);
+                }
+            }
+        }
+    }
+
+    private static class Batch {
+        private final ObjectNode defaults;
+        private final List<Item> items;
+        private final SseEmitter emitter;
+        private final Map<String, Boolean> certificateNumbers = new ConcurrentHashMap<>();
+        private final Map<String, Boolean> memoNumbers = new ConcurrentHashMap<>();
+        private volatile boolean clientGone;
+
+        Batch(ObjectNode defaults, List<Item> items, SseEmitter emitter) {
+            this.defaults = defaults;
+            this.items = items;
+            this.emitter = emitter;
+            emitter.onTimeout(() -> clientGone = true);
+            emitter.onError(error -> clientGone = true);
+        }
+
+        Map<String, Object> itemEvent(Item item, String stage) {
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("key", item.key);
+            event.put("stage", stage);
+            return event;
+        }
+
+        GemListing fail(Item item, String message) {
+            Map<String, Object> event = itemEvent(item, "FAILED");
+            event.put("message", message);
+            send("item", event);
+            return null;
+        }
+
+        synchronized void send(String name, Object data) {
+            if (clientGone) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data));
+            } catch (IOException | IllegalStateException e) {
+                // Keep listing the stones; the seller sees them in their listings
+                clientGone = true;
+            }
+        }
+    }
+}
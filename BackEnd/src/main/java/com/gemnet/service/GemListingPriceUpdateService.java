@@ -4,16 +4,25 @@ import com.gemnet.model.GemListing;
 import com.gemnet.repository.GemListingRepository;
 import com.gemnet.dto.PricePredictionRequest;
 import com.gemnet.dto.PricePredictionResponse;
+import com.gemnet.enums.GemSpecies;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Service to update marketplace gem listings with Sri Lankan market pricing
@@ -32,72 +41,94 @@ public class GemListingPriceUpdateService {
     @Autowired
     private PricePredictionService pricePredictionService;
     
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private GemAttributeCanonicalizer canonicalizer;
+    
+    // Listing fields read by the repricing job; everything else (images, bids, ...) stays on the server
+    public static final String[] PRICING_FIELDS = {
+        "weight", "variety", "species", "color", "cut", "clarity", "shape", "treatment",
+        "isCertified", "measurements", "price", "description", "pricingFingerprint", "pricingVersion"
+    };
+    
     /**
-     * Update all marketplace gem listings with Sri Lankan market pricing
+     * Current dataset/model version that listing prices are compared against
      */
-    public MarketplaceUpdateResult updateAllListingsWithSriLankanPricing() {
-        logger.info("🇱🇰 Starting marketplace price update with Sri Lankan market data...");
-        
+    public String getCurrentPricingVersion() {
+        return sriLankanMarketPriceService.getDatasetVersion();
+    }
+    
+    /**
+     * Hash of the listing attributes that feed the price prediction.
+     * The price itself is excluded because repricing rewrites it.
+     */
+    public String computePricingFingerprint(GemListing listing) {
+        String attributes = String.join("|",
+            String.valueOf(listing.getWeight()), String.valueOf(listing.getVariety()),
+            String.valueOf(listing.getSpecies()), String.valueOf(listing.getColor()),
+            String.valueOf(listing.getCut()), String.valueOf(listing.getClarity()),
+            String.valueOf(listing.getShape()), String.valueOf(listing.getTreatment()),
+            String.valueOf(listing.getIsCertified()), String.valueOf(listing.getMeasurements()));
         try {
-            List<GemListing> activeListings = getActiveListings();
-            logger.info("Found {} active marketplace listings to update", activeListings.size());
-            
-            int totalListings = activeListings.size();
-            int updatedCount = 0;
-            int highConfidenceCount = 0;
-            int mediumConfidenceCount = 0;
-            int lowConfidenceCount = 0;
-            
-            for (GemListing listing : activeListings) {
-                try {
-                    // Create prediction request from listing attributes
-                    PricePredictionRequest request = createRequestFromListing(listing);
-                    
-                    // Get Sri Lankan market prediction
-                    PricePredictionResponse sriLankanPrediction = 
-                        sriLankanMarketPriceService.predictSriLankanPrice(request);
-                    
-                    // Update listing with new pricing if significant improvement
-                    boolean wasUpdated = updateListingPricing(listing, sriLankanPrediction);
-                    
-                    if (wasUpdated) {
-                        updatedCount++;
-                        
-                        // Track confidence levels
-                        double accuracy = sriLankanPrediction.getAccuracyScore() != null ? 
-                            sriLankanPrediction.getAccuracyScore() : 0.0;
-                        
-                        if (accuracy >= 0.8) {
-                            highConfidenceCount++;
-                        } else if (accuracy >= 0.6) {
-                            mediumConfidenceCount++;
-                        } else {
-                            lowConfidenceCount++;
-                        }
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(digest.digest(attributes.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            return Integer.toHexString(attributes.hashCode());
+        }
+    }
+    
+    /**
+     * Reprice a chunk of listings and write all changes with one unordered bulk $set.
+     * Listings that are skipped still get their fingerprint/version stamped so the
+     * next incremental run does not pick them up again.
+     */
+    public RepricingChunkResult repriceChunk(List<GemListing> listings, String pricingVersion) {
+        RepricingChunkResult result = new RepricingChunkResult();
+        if (listings.isEmpty()) {
+            return result;
+        }
+        
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, GemListing.class);
+        LocalDateTime now = LocalDateTime.now();
+        
+        for (GemListing listing : listings) {
+            try {
+                PricePredictionRequest request = createRequestFromListing(listing);
+                PricePredictionResponse prediction = sriLankanMarketPriceService.predictSriLankanPrice(request);
+                
+                Update update = new Update()
+                    .set("pricingFingerprint", computePricingFingerprint(listing))
+                    .set("pricingVersion", pricingVersion);
+                
+                if (applyPricing(listing, prediction, update, now)) {
+                    result.updated++;
+                    double accuracy = prediction.getAccuracyScore();
+                    if (accuracy >= 0.8) {
+                        result.highConfidence++;
+                    } else if (accuracy >= 0.6) {
+                        result.mediumConfidence++;
+                    } else {
+                        result.lowConfidence++;
                     }
-                    
-                } catch (Exception e) {
-                    logger.warn("Failed to update pricing for listing {}: {}", 
-                               listing.getId(), e.getMessage());
+                } else {
+                    result.skipped++;
                 }
+                
+                bulkOps.updateOne(Query.query(Criteria.where("id").is(listing.getId())), update);
+                
+            } catch (Exception e) {
+                result.failed++;
+                logger.warn("Failed to update pricing for listing {}: {}", listing.getId(), e.getMessage());
             }
-            
-            logger.info("✅ Marketplace price update completed:");
-            logger.info("   Total listings processed: {}", totalListings);
-            logger.info("   Successfully updated: {}", updatedCount);
-            logger.info("   High confidence (80%+): {}", highConfidenceCount);
-            logger.info("   Medium confidence (60-79%): {}", mediumConfidenceCount);
-            logger.info("   Low confidence (<60%): {}", lowConfidenceCount);
-            
-            return new MarketplaceUpdateResult(
-                totalListings, updatedCount, highConfidenceCount, 
-                mediumConfidenceCount, lowConfidenceCount
-            );
-            
-        } catch (Exception e) {
-            logger.error("❌ Error during marketplace price update", e);
-            return new MarketplaceUpdateResult(0, 0, 0, 0, 0);
         }
+        
+        if (result.updated + result.skipped > 0) {
+            bulkOps.execute();
+        }
+        
+        return result;
     }
     
     /**
@@ -113,11 +144,8 @@ public class GemListingPriceUpdateService {
                 return false;
             }
             
-            GemListing listing = listingOpt.get();
-            PricePredictionRequest request = createRequestFromListing(listing);
-            PricePredictionResponse prediction = sriLankanMarketPriceService.predictSriLankanPrice(request);
-            
-            return updateListingPricing(listing, prediction);
+            RepricingChunkResult result = repriceChunk(List.of(listingOpt.get()), getCurrentPricingVersion());
+            return result.getUpdated() > 0;
             
         } catch (Exception e) {
             logger.error("Error updating listing {}: {}", listingId, e.getMessage());
@@ -125,17 +153,6 @@ public class GemListingPriceUpdateService {
         }
     }
     
-    /**
-     * Get active listings for update
-     */
-    private List<GemListing> getActiveListings() {
-        return gemListingRepository.findAll()
-                .stream()
-                .filter(listing -> listing.getIsActive() && 
-                        ("APPROVED".equals(listing.getListingStatus()) || "ACTIVE".equals(listing.getListingStatus())))
-                .collect(Collectors.toList());
-    }
-    
     /**
      * Create prediction request from gem listing attributes
      */
@@ -144,7 +161,7 @@ public class GemListingPriceUpdateService {
         
         // Map basic attributes
         request.setCarat(parseCaratFromWeight(listing.getWeight()));
-        request.setSpecies(mapVarietyToSpecies(listing.getVariety()));
+        request.setSpecies(mapVarietyToSpecies(listing));
         request.setColor(listing.getColor());
         request.setCut(listing.getCut());
         request.setClarity(listing.getClarity());
@@ -185,32 +202,16 @@ public class GemListingPriceUpdateService {
     }
     
     /**
-     * Map variety to species for Sri Lankan dataset
+     * Pick the most specific species text: variety when it names a known gem, else species
      */
-    private String mapVarietyToSpecies(String variety) {
-        if (variety == null) return "Corundum";
-        
-        String var = variety.toLowerCase();
-        if (var.contains("sapphire") || var.contains("ruby") || var.contains("corundum")) {
-            return "Corundum";
-        }
-        if (var.contains("spinel")) {
-            return "Spinel";
-        }
-        if (var.contains("emerald") || var.contains("beryl")) {
-            return "Beryl";
+    private String mapVarietyToSpecies(GemListing listing) {
+        if (canonicalizer.resolveSpecies(listing.getVariety()) != GemSpecies.UNKNOWN) {
+            return listing.getVariety();
         }
-        if (var.contains("garnet")) {
-            return "Garnet";
+        if (canonicalizer.resolveSpecies(listing.getSpecies()) != GemSpecies.UNKNOWN) {
+            return listing.getSpecies();
         }
-        if (var.contains("tourmaline")) {
-            return "Tourmaline";
-        }
-        if (var.contains("quartz")) {
-            return "Quartz";
-        }
-        
-        return "Corundum"; // Default to most common
+        return "Sapphire"; // Default to most common
     }
     
     /**
@@ -251,62 +252,57 @@ public class GemListingPriceUpdateService {
     }
     
     /**
-     * Update listing pricing with Sri Lankan market prediction
+     * Add the Sri Lankan market prediction to the pending update if it is confident
+     * and not too far from the current price
      */
-    private boolean updateListingPricing(GemListing listing, PricePredictionResponse prediction) {
-        try {
-            // Only update if we have good confidence and data
-            if (prediction.getAccuracyScore() == null || prediction.getAccuracyScore() < 0.5) {
-                logger.debug("Skipping low-confidence prediction for listing {}", listing.getId());
+    private boolean applyPricing(GemListing listing, PricePredictionResponse prediction, Update update, LocalDateTime now) {
+        // Only update if we have good confidence and data
+        if (prediction.getAccuracyScore() == null || prediction.getAccuracyScore() < 0.5) {
+            logger.debug("Skipping low-confidence prediction for listing {}", listing.getId());
+            return false;
+        }
+        
+        // Store original price for comparison
+        BigDecimal originalPrice = listing.getPrice();
+        BigDecimal newPrice = prediction.getPredictedPrice();
+        
+        // Apply reasonable bounds (don't change price by more than 200%)
+        if (originalPrice != null && newPrice != null && originalPrice.signum() > 0) {
+            BigDecimal ratio = newPrice.divide(originalPrice, 2, RoundingMode.HALF_UP);
+            if (ratio.compareTo(BigDecimal.valueOf(3.0)) > 0 || 
+                ratio.compareTo(BigDecimal.valueOf(0.3)) < 0) {
+                logger.debug("Price change too dramatic for listing {}, skipping", listing.getId());
                 return false;
             }
-            
-            // Store original price for comparison
-            BigDecimal originalPrice = listing.getPrice();
-            BigDecimal newPrice = prediction.getPredictedPrice();
-            
-            // Apply reasonable bounds (don't change price by more than 200%)
-            if (originalPrice != null && newPrice != null) {
-                BigDecimal ratio = newPrice.divide(originalPrice, 2, BigDecimal.ROUND_HALF_UP);
-                if (ratio.compareTo(BigDecimal.valueOf(3.0)) > 0 || 
-                    ratio.compareTo(BigDecimal.valueOf(0.3)) < 0) {
-                    logger.debug("Price change too dramatic for listing {}, skipping", listing.getId());
-                    return false;
-                }
-            }
-            
-            // Update pricing and metadata
-            listing.setPrice(newPrice);
-            listing.setPricingMethod(prediction.getMethodUsed());
-            listing.setPricingConfidence(prediction.getAccuracyScore());
-            listing.setMarketInsights(prediction.getMarketInsights());
-            listing.setDataPointsUsed(prediction.getDataPoints());
-            listing.setLastPriceUpdate(LocalDateTime.now());
-            
-            // Add market analysis to description
-            updateDescriptionWithMarketAnalysis(listing, prediction);
-            
-            // Save updated listing
-            gemListingRepository.save(listing);
-            
-            logger.info("✅ Updated listing {}: {} → {} LKR ({}% confidence)", 
-                       listing.getId(),
-                       originalPrice != null ? originalPrice : "N/A",
-                       newPrice,
-                       Math.round(prediction.getAccuracyScore() * 100));
-            
-            return true;
-            
-        } catch (Exception e) {
-            logger.error("Error updating listing pricing: {}", e.getMessage());
-            return false;
         }
+        
+        // Update pricing and metadata
+        update.set("price", newPrice)
+              .set("pricingMethod", prediction.getMethodUsed())
+              .set("pricingConfidence", prediction.getAccuracyScore())
+              .set("marketInsights", prediction.getMarketInsights())
+              .set("dataPointsUsed", prediction.getDataPoints())
+              .set("lastPriceUpdate", now);
+        
+        // Add market analysis to description
+        String description = describeWithMarketAnalysis(listing, prediction);
+        if (description != null) {
+            update.set("description", description);
+        }
+        
+        logger.debug("Repriced listing {}: {} → {} LKR ({}% confidence)", 
+                   listing.getId(),
+                   originalPrice != null ? originalPrice : "N/A",
+                   newPrice,
+                   Math.round(prediction.getAccuracyScore() * 100));
+        
+        return true;
     }
     
     /**
-     * Add market analysis information to listing description
+     * Listing description with market analysis appended, or null if it is already there
      */
-    private void updateDescriptionWithMarketAnalysis(GemListing listing, PricePredictionResponse prediction) {
+    private String describeWithMarketAnalysis(GemListing listing, PricePredictionResponse prediction) {
         String significanceInfo = String.format(
             "\n\n📊 Sri Lankan Market Analysis: %.1f%% accuracy using %d comparable gemstones. %s",
             (prediction.getAccuracyScore() * 100),
@@ -315,9 +311,10 @@ public class GemListingPriceUpdateService {
         );
         
         String currentDescription = listing.getDescription() != null ? listing.getDescription() : "";
-        if (!currentDescription.contains("Sri Lankan Market Analysis:")) {
-            listing.setDescription(currentDescription + significanceInfo);
+        if (currentDescription.contains("Sri Lankan Market Analysis:")) {
+            return null;
         }
+        return currentDescription + significanceInfo;
     }
     
     /**
@@ -325,30 +322,19 @@ public class GemListingPriceUpdateService {
      */
     public MarketplaceStats getMarketplaceStats() {
         try {
-            List<GemListing> activeListings = gemListingRepository.findByIsActive(true);
-            
-            int totalActiveListings = activeListings.size();
-            int sriLankanPriced = 0;
-            int highConfidence = 0;
-            int mediumConfidence = 0;
-            int lowConfidence = 0;
-            
-            for (GemListing listing : activeListings) {
-                if (listing.getPricingConfidence() != null) {
-                    sriLankanPriced++;
-                    double confidence = listing.getPricingConfidence();
-                    if (confidence >= 0.8) highConfidence++;
-                    else if (confidence >= 0.6) mediumConfidence++;
-                    else lowConfidence++;
-                }
-            }
+            // Count on the server instead of loading every active listing
+            long totalActiveListings = countActive(null);
+            long sriLankanPriced = countActive(Criteria.where("pricingConfidence").ne(null));
+            long highConfidence = countActive(Criteria.where("pricingConfidence").gte(0.8));
+            long mediumConfidence = countActive(Criteria.where("pricingConfidence").gte(0.6).lt(0.8));
+            long lowConfidence = countActive(Criteria.where("pricingConfidence").lt(0.6));
             
             double coveragePercentage = totalActiveListings > 0 ? 
                 ((double) sriLankanPriced / totalActiveListings) * 100 : 0;
             
             return new MarketplaceStats(
-                totalActiveListings, sriLankanPriced, coveragePercentage,
-                highConfidence, mediumConfidence, lowConfidence
+                (int) totalActiveListings, (int) sriLankanPriced, coveragePercentage,
+                (int) highConfidence, (int) mediumConfidence, (int) lowConfidence
             );
             
         } catch (Exception e) {
@@ -357,36 +343,32 @@ public class GemListingPriceUpdateService {
         }
     }
     
+    private long countActive(Criteria criteria) {
+        Query query = Query.query(Criteria.where("isActive").is(true));
+        if (criteria != null) {
+            query.addCriteria(criteria);
+        }
+        return mongoTemplate.count(query, GemListing.class);
+    }
+    
     /**
-     * Update result container class
+     * Counters for one repriced chunk
      */
-    public static class MarketplaceUpdateResult {
-        private final int totalListings;
-        private final int updatedListings;
-        private final int highConfidencePredictions;
-        private final int mediumConfidencePredictions;
-        private final int lowConfidencePredictions;
-        
-        public MarketplaceUpdateResult(int totalListings, int updatedListings,
-                                     int highConfidencePredictions, int mediumConfidencePredictions,
-                                     int lowConfidencePredictions) {
-            this.totalListings = totalListings;
-            this.updatedListings = updatedListings;
-            this.highConfidencePredictions = highConfidencePredictions;
-            this.mediumConfidencePredictions = mediumConfidencePredictions;
-            this.lowConfidencePredictions = lowConfidencePredictions;
-        }
+    public static class RepricingChunkResult {
+        private int updated;
+        private int skipped;
+        private int failed;
+        private int highConfidence;
+        private int mediumConfidence;
+        private int lowConfidence;
         
         // Getters
-        public int getTotalListings() { return totalListings; }
-        public int getUpdatedListings() { return updatedListings; }
-        public int getHighConfidencePredictions() { return highConfidencePredictions; }
-        public int getMediumConfidencePredictions() { return mediumConfidencePredictions; }
-        public int getLowConfidencePredictions() { return lowConfidencePredictions; }
-        
-        public double getUpdatePercentage() {
-            return totalListings > 0 ? (double) updatedListings / totalListings * 100 : 0;
-        }
+        public int getUpdated() { return updated; }
+        public int getSkipped() { return skipped; }
+        public int getFailed() { return failed; }
+        public int getHighConfidence() { return highConfidence; }
+        public int getMediumConfidence() { return mediumConfidence; }
+        public int getLowConfidence() { return lowConfidence; }
     }
     
     /**
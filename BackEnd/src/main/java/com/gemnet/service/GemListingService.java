@@ -25,6 +25,13 @@ public class GemListingService {
         return listing.orElse(null);
     }
 
+    /**
+     * Get several gem listings with a single query
+     */
+    public List<GemListing> getByIds(List<String> ids) {
+        return gemListingRepository.findAllById(ids);
+    }
+
     /**
      * Save gem listing
      */
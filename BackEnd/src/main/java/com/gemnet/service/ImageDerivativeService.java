@@ -0,0 +1,425 @@
+package com.gemnet.service;
+
+import com.gemnet.model.Advertisement;
+import com.gemnet.model.GemImage;
+import com.gemnet.model.GemListing;
+import com.gemnet.model.ImageVariant;
+import com.gemnet.model.ImageVariantSet;
+import com.mongodb.client.result.UpdateResult;
+import org.imgscalr.Scalr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Generates resized variants (e.g. 160/480/1200 px wide) of gem listing and advertisement
+ * images in the background after upload. Variants are written next to the originals and
+ * recorded on GemImage.variants / Advertisement.imageVariants; the card-sized variant
+ * becomes the gem image thumbnail. A backfill run covers uploads made before this existed
+ * or dropped because the queue was full.
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ListingMediaStatusService listingMediaStatusService;
+
+    @Value("${gemnet.images.variant-widths:160,480,1200}")
+    private List<Integer> variantWidths;
+
+    @Value("${gemnet.images.thumbnail-width:480}")
+    private int thumbnailWidth;
+
+    @Value("${gemnet.images.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${gemnet.images.variant-threads:2}")
+    private int variantThreads;
+
+    @Value("${gemnet.images.variant-queue-capacity:500}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor variantExecutor;
+    private ExecutorService backfillExecutor;
+
+    // Backfill progress
+    private volatile boolean backfillRunning;
+    private volatile LocalDateTime backfillStartedAt;
+    private volatile LocalDateTime backfillCompletedAt;
+    private final AtomicLong backfillListings = new AtomicLong();
+    private final AtomicLong backfillAdvertisements = new AtomicLong();
+    private final AtomicLong imagesProcessed = new AtomicLong();
+    private final AtomicLong imagesFailed = new AtomicLong();
+
+    // Refused by the full queue; advertisements have no media status, so their ids are kept
+    // here until a later run (usually the backfill) creates their variants
+    private final AtomicLong tasksDropped = new AtomicLong();
+    private final Set<String> droppedAdvertisements = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        // Largest first so each size is scaled down from the previous one
+        variantWidths = new ArrayList<>(variantWidths);
+        variantWidths.sort(Collections.reverseOrder());
+
+        int threads = Math.max(1, variantThreads);
+        variantExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            runnable -> {
+                Thread thread = new Thread(runnable, "image-variants");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            },
+            (runnable, executor) -> {
+                tasksDropped.incrementAndGet();
+                if (runnable instanceof ListingTask) {
+                    String listingId = ((ListingTask) runnable).listingId;
+                    logger.warn("⚠️ Image variant queue full; listing {} left for backfill", listingId);
+                    // The listing would otherwise wait for this job forever
+                    listingMediaStatusService.jobDropped(listingId);
+                } else if (runnable instanceof AdvertisementTask) {
+                    String advertisementId = ((AdvertisementTask) runnable).advertisementId;
+                    logger.warn("⚠️ Image variant queue full; advertisement {} left for backfill", advertisementId);
+                    droppedAdvertisements.add(advertisementId);
+                } else {
+                    logger.warn("⚠️ Image variant queue full; task left for backfill");
+                }
+            });
+        backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "image-variants-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Image variant pipeline initialized (widths {}, {} threads)", variantWidths, threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        variantExecutor.shutdownNow();
+        backfillExecutor.shutdownNow();
+    }
+
+    /**
+     * Queue variant generation for every image of a saved gem listing
+     */
+    public void scheduleGemListing(String listingId) {
+        variantExecutor.execute(new ListingTask(listingId, () -> processGemListing(listingId)));
+    }
+
+    /**
+     * Queue variant generation for every image of a saved advertisement
+     */
+    public void scheduleAdvertisement(String advertisementId) {
+        variantExecutor.execute(new AdvertisementTask(advertisementId, () -> processAdvertisement(advertisementId)));
+    }
+
+    /**
+     * Start a backfill over listings and advertisements that have no variants yet
+     */
+    public synchronized boolean startBackfill() {
+        if (backfillRunning) {
+            return false;
+        }
+        backfillRunning = true;
+        backfillStartedAt = LocalDateTime.now();
+        backfillCompletedAt = null;
+        backfillListings.set(0);
+        backfillAdvertisements.set(0);
+        backfillExecutor.submit(this::runBackfill);
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("backfillRunning", backfillRunning);
+        status.put("backfillStartedAt", backfillStartedAt);
+        status.put("backfillCompletedAt", backfillCompletedAt);
+        status.put("backfillListings", backfillListings.get());
+        status.put("backfillAdvertisements", backfillAdvertisements.get());
+        status.put("imagesProcessed", imagesProcessed.get());
+        status.put("imagesFailed", imagesFailed.get());
+        status.put("tasksDropped", tasksDropped.get());
+        status.put("droppedAdvertisements", new ArrayList<>(droppedAdvertisements));
+        status.put("queuedTasks", variantExecutor.getQueue().size());
+        status.put("variantWidths", variantWidths);
+        return status;
+    }
+
+    /**
+     * Delete the variant files of an advertisement image set
+     */
+    public void deleteVariants(List<ImageVariantSet> variantSets) {
+        if (variantSets == null) {
+            return;
+        }
+        for (ImageVariantSet variantSet : variantSets) {
+            if (variantSet.getVariants() != null) {
+                for (ImageVariant variant : variantSet.getVariants()) {
+                    fileStorageService.deleteFile(variant.getUrl());
+                }
+            }
+        }
+    }
+
+    private void runBackfill() {
+        try {
+            logger.info("🖼️ Image variant backfill started");
+
+            Query listingQuery = Query.query(Criteria.where("images").elemMatch(
+                Criteria.where("imageUrl").ne(null).and("variants").exists(false)));
+            listingQuery.fields().include("id");
+            try (Stream<GemListing> listings = mongoTemplate.stream(listingQuery, GemListing.class)) {
+                listings.forEach(listing -> {
+                    processGemListing(listing.getId());
+                    backfillListings.incrementAndGet();
+                });
+            }
+
+            Query advertisementQuery = Query.query(Criteria.where("images.0").exists(true)
+                .and("imageVariants").exists(false));
+            advertisementQuery.fields().include("id");
+            try (Stream<Advertisement> advertisements = mongoTemplate.stream(advertisementQuery, Advertisement.class)) {
+                advertisements.forEach(advertisement -> {
+                    processAdvertisement(advertisement.getId());
+                    backfillAdvertisements.incrementAndGet();
+                });
+            }
+
+            logger.info("✅ Image variant backfill completed: {} listings, {} advertisements",
+                       backfillListings.get(), backfillAdvertisements.get());
+        } catch (Exception e) {
+            logger.error("❌ Image variant backfill failed", e);
+        } finally {
+            backfillCompletedAt = LocalDateTime.now();
+            backfillRunning = false;
+        }
+    }
+
+    private void processGemListing(String listingId) {
+        boolean succeeded = false;
+        try {
+            GemListing listing = mongoTemplate.findById(listingId, GemListing.class);
+            if (listing == null || listing.getImages() == null) {
+                return;
+            }
+
+            for (GemImage image : listing.getImages()) {
+                if (image.getImageUrl() == null || image.getVariants() != null || image.isVideo()) {
+                    continue;
+                }
+
+                List<ImageVariant> variants = createVariants(image.getImageUrl());
+                Update update = new Update().set("images.$.variants", variants);
+                String thumbnailUrl = thumbnailFor(variants);
+                if (thumbnailUrl != null) {
+                    update.set("images.$.thumbnailUrl", thumbnailUrl);
+                }
+
+                // Positional update so concurrent edits to other fields are not overwritten
+                mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("id").is(listingId).and("images.imageId").is(image.getImageId())),
+                    update, GemListing.class);
+            }
+            succeeded = true;
+        } catch (Exception e) {
+            logger.error("❌ Failed to create image variants for listing {}", listingId, e);
+        } finally {
+            listingMediaStatusService.jobFinished(listingId, succeeded);
+        }
+    }
+
+    private void processAdvertisement(String advertisementId) {
+        try {
+            Advertisement advertisement = mongoTemplate.findById(advertisementId, Advertisement.class);
+            if (advertisement == null || advertisement.getImages() == null || advertisement.getImages().isEmpty()) {
+                droppedAdvertisements.remove(advertisementId);
+                return;
+            }
+
+            List<ImageVariantSet> variantSets = new ArrayList<>();
+            for (String imageUrl : advertisement.getImages()) {
+                variantSets.add(new ImageVariantSet(imageUrl, createVariants(imageUrl)));
+            }
+
+            // Only record the variants if the images were not replaced meanwhile
+            UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(advertisementId).and("images").is(advertisement.getImages())),
+                new Update().set("imageVariants", variantSets), Advertisement.class);
+            if (result.getMatchedCount() == 0) {
+                deleteVariants(variantSets);
+            }
+            droppedAdvertisements.remove(advertisementId);
+        } catch (Exception e) {
+            logger.error("❌ Failed to create image variants for advertisement {}", advertisementId, e);
+        }
+    }
+
+    /**
+     * Resize one stored image to every configured width narrower than the original.
+     * Returns an empty list when the original is missing, unreadable or already small,
+     * so the image is not retried by later backfills.
+     */
+    private List<ImageVariant> createVariants(String imageUrl) {
+        List<ImageVariant> variants = new ArrayList<>();
+        try {
+            Path original = fileStorageService.getLocalFile(imageUrl);
+            if (!Files.exists(original)) {
+                logger.warn("⚠️ Original image not found for variants: {}", imageUrl);
+                imagesFailed.incrementAndGet();
+                return variants;
+            }
+
+            BufferedImage source = ImageIO.read(original.toFile());
+            if (source == null) {
+                logger.warn("⚠️ Unsupported image format for variants: {}", imageUrl);
+                imagesFailed.incrementAndGet();
+                return variants;
+            }
+
+            boolean hasAlpha = source.getColorModel().hasAlpha();
+            String extension = hasAlpha ? "png" : "jpg";
+            String fileName = original.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+            String urlPrefix = imageUrl.substring(0, imageUrl.lastIndexOf('/') + 1);
+
+            BufferedImage current = source;
+            for (int width : variantWidths) {
+                if (width >= current.getWidth()) {
+                    continue;
+                }
+                BufferedImage resized = Scalr.resize(current, Scalr.Method.QUALITY, Scalr.Mode.FIT_TO_WIDTH, width);
+                if (current != source) {
+                    current.flush();
+                }
+                current = resized;
+
+                String variantName = baseName + "_w" + width + "." + extension;
+                Path target = original.resolveSibling(variantName);
+                writeImage(resized, extension, target);
+                long size = Files.size(target);
+                fileStorageService.publish(target);
+                variants.add(new ImageVariant(resized.getWidth(), resized.getHeight(),
+                                              urlPrefix + variantName, size));
+            }
+            if (current != source) {
+                current.flush();
+            }
+            source.flush();
+
+            // Smallest first
+            Collections.reverse(variants);
+            imagesProcessed.incrementAndGet();
+            return variants;
+
+        } catch (Exception e) {
+            logger.error("❌ Failed to resize image {}: {}", imageUrl, e.getMessage());
+            imagesFailed.incrementAndGet();
+            return variants;
+        }
+    }
+
+    private void writeImage(BufferedImage image, String extension, Path target) throws IOException {
+        if (!"jpg".equals(extension)) {
+            ImageIO.write(image, extension, target.toFile());
+            return;
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private String thumbnailFor(List<ImageVariant> variants) {
+        ImageVariant best = null;
+        for (ImageVariant variant : variants) {
+            best = variant;
+            if (variant.getWidth() >= thumbnailWidth) {
+                break;
+            }
+        }
+        return best != null ? best.getUrl() : null;
+    }
+
+    /**
+     * Variant job of a listing; identifies the listing when the queue refuses the job
+     */
+    private static class ListingTask implements Runnable {
+        private final String listingId;
+        private final Runnable work;
+
+        ListingTask(String listingId, Runnable work) {
+            this.listingId = listingId;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            work.run();
+        }
+    }
+
+    private static class AdvertisementTask implements Runnable {
+        private final String advertisementId;
+        private final Runnable work;
+
+        AdvertisementTask(String advertisementId, Runnable work) {
+            this.advertisementId = advertisementId;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            work.run();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.gemnet.service;
+
+import com.gemnet.model.GemImage;
+import com.gemnet.model.GemListing;
+import com.gemnet.util.HammingIndex;
+import com.gemnet.util.PerceptualHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Near-duplicate gemstone photo check. Every gemstone photo gets a 64-bit perceptual hash at
+ * ingestion; the hashes of all listings are kept in an in-memory Hamming index, loaded at
+ * startup, so a new listing's photos are compared against every stored photo with a few
+ * bucket lookups. Photos of other listings within max-distance bits are recorded on the new
+ * listing for admin review; saving is not blocked.
+ *
+ * Certificate images are left out: CSL cards share one layout and would all match each other.
+ */
+@Service
+public class ListingImageDuplicateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingImageDuplicateService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Value("${gemnet.images.duplicates.enabled:true}")
+    private boolean enabled;
+
+    // Hash bits two photos may differ in and still count as the same photo
+    @Value("${gemnet.images.duplicates.max-distance:6}")
+    private int maxDistance;
+
+    @Value("${gemnet.images.duplicates.max-matches:10}")
+    private int maxMatches;
+
+    private volatile boolean openCvAvailable = false;
+    private volatile boolean ready = false;
+    private final HammingIndex index = new HammingIndex();
+    private final Map<String, String> sellerByListing = new HashMap<>();
+    // Listings saved while the index was loading; checked once it is ready
+    private final List<GemListing> pendingChecks = new ArrayList<>();
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong flagged = new AtomicLong();
+    private final AtomicLong candidatesChecked = new AtomicLong();
+    private final AtomicLong totalCheckNanos = new AtomicLong();
+    private final AtomicLong backfilled = new AtomicLong();
+    private volatile long loadMillis;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            nu.pattern.OpenCV.loadLocally();
+            openCvAvailable = true;
+        } catch (Throwable e) {
+            logger.warn("⚠️ OpenCV not available, duplicate image checks disabled: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Perceptual hash of a stored gemstone photo, or null when checks are off or it can't be decoded
+     */
+    public Long hashOf(Path file) {
+        if (!enabled || !openCvAvailable) {
+            return null;
+        }
+        try {
+            return PerceptualHash.ofFile(file);
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not hash {}: {}", file.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Load the index in the background, hashing photos stored before hashes existed, then
+     * check the listings that have never been checked
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        if (!enabled || !openCvAvailable) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "listing-image-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        List<GemListing> unchecked = new ArrayList<>();
+
+        Query query = new Query();
+        query.fields().include("userId", "images", "duplicateImagesCheckedAt");
+        try (Stream<GemListing> stream = mongoTemplate.stream(query, GemListing.class)) {
+            stream.forEach(listing -> {
+                backfillHashes(listing);
+                synchronized (index) {
+                    addToIndex(listing);
+                }
+                if (listing.getDuplicateImagesCheckedAt() == null && hasHashes(listing)) {
+                    unchecked.add(listing);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("❌ Failed to load listing image index: {}", e.getMessage(), e);
+            return;
+        }
+
+        List<GemListing> saved;
+        synchronized (index) {
+            ready = true;
+            saved = new ArrayList<>(pendingChecks);
+            pendingChecks.clear();
+        }
+        loadMillis = System.currentTimeMillis() - start;
+        logger.info("✅ Listing image index loaded: {} photos in {} ms ({} hashed now)",
+            index.getReferenceCount(), loadMillis, backfilled.get());
+
+        unchecked.addAll(saved);
+        for (GemListing listing : unchecked) {
+            try {
+                check(listing);
+            } catch (Exception e) {
+                logger.warn("⚠️ Duplicate image check failed for listing {}: {}", listing.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Look for near-duplicates of a new listing's photos in other listings, record them on the
+     * listing and index its photos
+     */
+    public void checkListing(GemListing listing) {
+        if (!enabled || !openCvAvailable || listing.getId() == null || !hasHashes(listing)) {
+            return;
+        }
+        synchronized (index) {
+            addToIndex(listing);
+            if (!ready) {
+                pendingChecks.add(listing);
+                return;
+            }
+        }
+        check(listing);
+    }
+
+    /**
+     * Drop a deleted listing's photos from the index
+     */
+    public void removeListing(GemListing listing) {
+        if (!enabled || listing.getImages() == null) {
+            return;
+        }
+        synchronized (index) {
+            for (GemImage image : listing.getImages()) {
+                if (isIndexable(image)) {
+                    index.remove(image.getPerceptualHash(), referenceOf(listing.getId(), image.getImageId()));
+                }
+            }
+            sellerByListing.remove(listing.getId());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long checkCount = checks.get();
+        stats.put("enabled", enabled);
+        stats.put("openCvAvailable", openCvAvailable);
+        stats.put("ready", ready);
+        synchronized (index) {
+            stats.put("indexedPhotos", index.getReferenceCount());
+            stats.put("distinctHashes", index.getHashCount());
+        }
+        stats.put("loadMillis", loadMillis);
+        stats.put("hashedOnLoad", backfilled.get());
+        stats.put("maxDistance", maxDistance);
+        stats.put("checks", checkCount);
+        stats.put("flagged", flagged.get());
+        stats.put("avgCandidatesChecked", checkCount > 0 ? candidatesChecked.get() / checkCount : 0);
+        stats.put("avgCheckMicros", checkCount > 0 ? totalCheckNanos.get() / checkCount / 1000 : 0);
+        return stats;
+    }
+
+    private void check(GemListing listing) {
+        long start = System.nanoTime();
+        String listingId = listing.getId();
+        // Closest match per photo of another listing
+        Map<String, GemListing.DuplicateImageMatch> closest = new HashMap<>();
+
+        synchronized (index) {
+            String seller = sellerByListing.get(listingId);
+            for (GemImage image : listing.getImages()) {
+                if (!isIndexable(image)) {
+                    continue;
+                }
+                HammingIndex.SearchResult result = index.search(image.getPerceptualHash(), maxDistance);
+                candidatesChecked.addAndGet(result.getCandidatesChecked());
+                for (HammingIndex.Match match : result.getMatches()) {
+                    String reference = match.getReference();
+                    int separator = reference.indexOf('/');
+                    String matchedListingId = reference.substring(0, separator);
+                    if (matchedListingId.equals(listingId)) {
+                        continue;
+                    }
+                    GemListing.DuplicateImageMatch existing = closest.get(reference);
+                    if (existing == null || match.getDistance() < existing.getDistance()) {
+                        closest.put(reference, new GemListing.DuplicateImageMatch(image.getImageId(),
+                            matchedListingId, reference.substring(separator + 1), match.getDistance(),
+                            seller != null && seller.equals(sellerByListing.get(matchedListingId))));
+                    }
+                }
+            }
+        }
+
+        List<GemListing.DuplicateImageMatch> matches = new ArrayList<>(closest.values());
+        matches.sort(Comparator.comparingInt(GemListing.DuplicateImageMatch::getDistance));
+        if (matches.size() > maxMatches) {
+            matches = new ArrayList<>(matches.subList(0, maxMatches));
+        }
+        checks.incrementAndGet();
+        totalCheckNanos.addAndGet(System.nanoTime() - start);
+
+        LocalDateTime checkedAt = LocalDateTime.now();
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(listingId)),
+            new Update().set("duplicateImageMatches", matches).set("duplicateImagesCheckedAt", checkedAt),
+            GemListing.class);
+        listing.setDuplicateImageMatches(matches);
+        listing.setDuplicateImagesCheckedAt(checkedAt);
+
+        if (!matches.isEmpty()) {
+            flagged.incrementAndGet();
+            logger.warn("⚠️ Listing {} reuses {} photo(s) of other listings, flagged for review", listingId, matches.size());
+        }
+    }
+
+    /**
+     * Hash gemstone photos stored before hashes were computed at ingestion
+     */
+    private void backfillHashes(GemListing listing) {
+        if (listing.getImages() == null) {
+            return;
+        }
+        for (GemImage image : listing.getImages()) {
+            if (image.isVideo() || !"GEMSTONE".equals(image.getImageType())
+                    || image.getPerceptualHash() != null || image.getImageUrl() == null) {
+                continue;
+            }
+            try {
+                Path stored = fileStorageService.getLocalFile(image.getImageUrl());
+                Long hash = Files.isRegularFile(stored) ? hashOf(stored) : null;
+                if (hash == null) {
+                    continue;
+                }
+                image.setPerceptualHash(hash);
+                mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(listing.getId()).and("images.imageId").is(image.getImageId())),
+                    new Update().set("images.$.perceptualHash", hash), GemListing.class);
+                backfilled.incrementAndGet();
+            } catch (Exception e) {
+                logger.debug("Could not hash photo {} of listing {}: {}", image.getImageId(), listing.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void addToIndex(GemListing listing) {
+        if (listing.getImages() == null) {
+            return;
+        }
+        if (listing.getUserId() != null) {
+            sellerByListing.put(listing.getId(), listing.getUserId());
+        }
+        for (GemImage image : listing.getImages()) {
+            if (!isIndexable(image)) {
+                continue;
+            }
+            // A listing saved while loading can be streamed as well; index it once
+            String reference = referenceOf(listing.getId(), image.getImageId());
+            index.remove(image.getPerceptualHash(), reference);
+            index.add(image.getPerceptualHash(), reference);
+        }
+    }
+
+    private boolean hasHashes(GemListing listing) {
+        return listing.getImages() != null && listing.getImages().stream().anyMatch(this::isIndexable);
+    }
+
+    private boolean isIndexable(GemImage image) {
+        return image.getPerceptualHash() != null && !image.isVideo() && "GEMSTONE".equals(image.getImageType());
+    }
+
+    private static String referenceOf(String listingId, String imageId) {
+        return listingId + "/" + imageId;
+    }
+}
@@ -0,0 +1,144 @@
+package com.gemnet.service;
+
+import com.gemnet.model.GemImage;
+import com.gemnet.model.GemListing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks background media work (image variants, video posters) on a gem listing.
+ * A listing is saved with the number of jobs it waits for; each job counts itself down and
+ * the last one flips mediaStatus from PROCESSING to READY (or leaves PARTIAL after a failure).
+ * Jobs only live in memory, so listings a restart left in PROCESSING are reset at startup and
+ * their missing media queued again.
+ */
+@Service
+public class ListingMediaStatusService {
+
+    public static final String PROCESSING = "PROCESSING";
+    public static final String READY = "READY";
+    public static final String PARTIAL = "PARTIAL";
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingMediaStatusService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final LocalDateTime bootTime = LocalDateTime.now();
+
+    /**
+     * Initialise the status of a listing that is about to be saved
+     */
+    public void begin(GemListing listing, int pendingJobs) {
+        if (pendingJobs > 0) {
+            listing.setMediaStatus(PROCESSING);
+            listing.setPendingMediaJobs(pendingJobs);
+        } else {
+            listing.setMediaStatus(READY);
+            listing.setPendingMediaJobs(0);
+            listing.setMediaProcessedAt(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Count one background job of a listing as finished. Listings without pending jobs
+     * (backfills, older listings) are left alone.
+     */
+    public void jobFinished(String listingId, boolean succeeded) {
+        Update update = new Update()
+            .inc("pendingMediaJobs", -1)
+            .set("mediaProcessedAt", LocalDateTime.now());
+        if (!succeeded) {
+            update.set("mediaStatus", PARTIAL);
+        }
+
+        Query query = Query.query(Criteria.where("id").is(listingId).and("pendingMediaJobs").gt(0));
+        query.fields().include("pendingMediaJobs", "mediaStatus");
+        GemListing listing = mongoTemplate.findAndModify(query, update,
+            FindAndModifyOptions.options().returnNew(true), GemListing.class);
+
+        if (listing != null && listing.getPendingMediaJobs() != null && listing.getPendingMediaJobs() == 0
+                && PROCESSING.equals(listing.getMediaStatus())) {
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(listingId).and("mediaStatus").is(PROCESSING).and("pendingMediaJobs").is(0)),
+                new Update().set("mediaStatus", READY),
+                GemListing.class);
+        }
+    }
+
+    /**
+     * Count a job its queue refused as failed; the backfill can still produce the media later
+     */
+    public void jobDropped(String listingId) {
+        try {
+            jobFinished(listingId, false);
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not record dropped media job of listing {}: {}", listingId, e.getMessage());
+        }
+    }
+
+    /**
+     * Reset listings left in PROCESSING by a previous run: the pending count becomes the number
+     * of jobs still missing (READY when nothing is). Returns the listings whose work has to be
+     * queued again.
+     */
+    public List<GemListing> resetInterrupted() {
+        Query query = Query.query(Criteria.where("mediaStatus").is(PROCESSING).and("createdAt").lt(bootTime));
+        query.fields().include("images", "mediaStatus");
+
+        List<GemListing> resumed = new ArrayList<>();
+        for (GemListing listing : mongoTemplate.find(query, GemListing.class)) {
+            int remaining = remainingJobs(listing);
+            Update update = new Update().set("pendingMediaJobs", remaining);
+            if (remaining == 0) {
+                update.set("mediaStatus", READY).set("mediaProcessedAt", LocalDateTime.now());
+            }
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(listing.getId()).and("mediaStatus").is(PROCESSING)),
+                update, GemListing.class);
+            if (remaining > 0) {
+                resumed.add(listing);
+            }
+        }
+        return resumed;
+    }
+
+    /**
+     * Still image without variants yet
+     */
+    public static boolean needsVariants(GemImage image) {
+        return !image.isVideo() && image.getImageUrl() != null && image.getVariants() == null;
+    }
+
+    /**
+     * Video without a poster yet
+     */
+    public static boolean needsPoster(GemImage image) {
+        return image.isVideo() && image.getVideoThumbnailUrl() == null;
+    }
+
+    // One variant job covers all still images; each video has its own poster job
+    private static int remainingJobs(GemListing listing) {
+        if (listing.getImages() == null) {
+            return 0;
+        }
+        int remaining = listing.getImages().stream().anyMatch(ListingMediaStatusService::needsVariants) ? 1 : 0;
+        for (GemImage image : listing.getImages()) {
+            if (needsPoster(image)) {
+                remaining++;
+            }
+        }
+        return remaining;
+    }
+}
@@ -0,0 +1,208 @@
+package com.gemnet.service;
+
+import com.gemnet.dto.PricePredictionRequest;
+import com.gemnet.dto.PricePredictionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces concurrent single-row ML prediction calls into batched Flask requests.
+ * Callers get their own future; the dispatcher waits at most maxWaitMs after the first
+ * queued row (or until maxBatchSize rows arrive) before sending one /predictBatchAPI call.
+ * A caller's timeout starts when its batch is handed to a sender, so time spent waiting
+ * for a free sender doesn't eat into the Flask call; that wait has its own bound.
+ */
+@Service
+public class MLPredictionBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MLPredictionBatcher.class);
+
+    @Autowired
+    private MLPredictionService mlPredictionService;
+
+    @Value("${gemnet.ml.batching.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gemnet.ml.batching.max-wait-ms:5}")
+    private long maxWaitMs;
+
+    @Value("${gemnet.ml.batching.max-batch-size:32}")
+    private int maxBatchSize;
+
+    @Value("${gemnet.ml.batching.max-in-flight:4}")
+    private int maxInFlight;
+
+    // How long a row may wait for a free sender before the caller gives up
+    @Value("${gemnet.ml.batching.max-queue-wait-ms:10000}")
+    private long maxQueueWaitMs;
+
+    private final BlockingQueue<PendingPrediction> queue = new LinkedBlockingQueue<>();
+
+    private Thread dispatcher;
+    private ExecutorService senders;
+    private Semaphore inFlight;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("ML prediction batching disabled");
+            return;
+        }
+        running = true;
+        inFlight = new Semaphore(Math.max(1, maxInFlight));
+        senders = Executors.newFixedThreadPool(Math.max(1, maxInFlight), runnable -> {
+            Thread thread = new Thread(runnable, "ml-batch-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher = new Thread(this::dispatchLoop, "ml-batch-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        logger.info("ML prediction batching enabled (max {} rows, {} ms window, {} in flight)",
+                   maxBatchSize, maxWaitMs, maxInFlight);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        if (senders != null) {
+            senders.shutdownNow();
+        }
+        PendingPrediction pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.complete(PricePredictionResponse.error("ML prediction service shutting down"));
+        }
+    }
+
+    /**
+     * Queue a prediction and wait for its batch
+     */
+    public PricePredictionResponse predict(PricePredictionRequest request) {
+        if (!running) {
+            return mlPredictionService.predictUsingFlaskAPI(request);
+        }
+        PendingPrediction pending = enqueue(request);
+        // The batch call plus the bounded per-row retry when the batch fails
+        long callTimeoutMs = mlPredictionService.getMaxBatchMillis();
+        try {
+            try {
+                pending.dispatched.get(maxQueueWaitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (queue.remove(pending)) {
+                    logger.warn("⚠️ ML prediction waited {} ms for a free sender, giving up", maxQueueWaitMs);
+                    return PricePredictionResponse.error("ML prediction service is busy");
+                }
+                // Already collected into a batch that is waiting for a sender
+                pending.dispatched.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            return pending.future.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return PricePredictionResponse.error("ML prediction interrupted");
+        } catch (Exception e) {
+            logger.error("❌ Batched ML prediction failed: {}", e.getMessage());
+            return PricePredictionResponse.error("ML prediction failed: " + e.getMessage());
+        }
+    }
+
+    private PendingPrediction enqueue(PricePredictionRequest request) {
+        PendingPrediction pending = new PendingPrediction(request);
+        queue.add(pending);
+        return pending;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                PendingPrediction first = queue.take();
+                List<PendingPrediction> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+
+                // Collect more rows until the window closes or the batch is full
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    PendingPrediction next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                inFlight.acquire();
+                for (PendingPrediction pending : batch) {
+                    pending.dispatched.complete(null);
+                }
+                senders.submit(() -> {
+                    try {
+                        send(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("❌ ML batch dispatcher error", e);
+            }
+        }
+    }
+
+    private void send(List<PendingPrediction> batch) {
+        try {
+            List<PricePredictionRequest> requests = batch.stream()
+                    .map(pending -> pending.request)
+                    .collect(Collectors.toList());
+            List<PricePredictionResponse> responses = mlPredictionService.predictBatchUsingFlaskAPI(requests);
+
+            logger.debug("ML batch of {} rows completed", batch.size());
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(responses.get(i));
+            }
+        } catch (Exception e) {
+            for (PendingPrediction pending : batch) {
+                pending.future.complete(PricePredictionResponse.error("ML prediction failed: " + e.getMessage()));
+            }
+        }
+    }
+
+    private static class PendingPrediction {
+        private final PricePredictionRequest request;
+        private final CompletableFuture<PricePredictionResponse> future = new CompletableFuture<>();
+        // Completes when the row's batch goes to a sender (or the row is answered without one)
+        private final CompletableFuture<Void> dispatched = new CompletableFuture<>();
+
+        PendingPrediction(PricePredictionRequest request) {
+            this.request = request;
+            future.whenComplete((response, error) -> dispatched.complete(null));
+        }
+    }
+}
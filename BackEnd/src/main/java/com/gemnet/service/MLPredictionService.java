@@ -2,19 +2,27 @@ package com.gemnet.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gemnet.dto.CanonicalGemAttributes;
 import com.gemnet.dto.PricePredictionRequest;
 import com.gemnet.dto.PricePredictionResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 
+import jakarta.annotation.PostConstruct;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for integrating with external ML prediction APIs
@@ -30,6 +38,20 @@ public class MLPredictionService {
     @Value("${gemnet.flask.api.timeout:10000}")
     private int apiTimeout;
 
+    // Per-row retries of a failed batch stop starting new calls after this long
+    @Value("${gemnet.ml.batch-retry-budget-ms:10000}")
+    private long batchRetryBudgetMs;
+
+    // How long a health check result is reused before /health is asked again
+    @Value("${gemnet.ml.health-cache-ms:5000}")
+    private long healthCacheMs;
+
+    private volatile boolean mlServiceAvailable;
+    private volatile long healthKnownUntil;
+
+    @Autowired
+    private GemAttributeCanonicalizer canonicalizer;
+
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
 
@@ -38,6 +60,15 @@ public class MLPredictionService {
         this.objectMapper = new ObjectMapper();
     }
 
+    @PostConstruct
+    public void init() {
+        // Bounds every Flask call, so a hung model server can't hold callers or batch senders
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(apiTimeout);
+        requestFactory.setReadTimeout(apiTimeout);
+        restTemplate.setRequestFactory(requestFactory);
+    }
+
     /**
      * Predict price using Flask ML API
      */
@@ -73,19 +104,142 @@ public class MLPredictionService {
     }
 
     /**
-     * Check if ML service is available
+     * Predict prices for several gemstones with a single call to the Flask batch endpoint.
+     * The returned list is aligned with the input list. Flask validates each row and answers
+     * a row it can't score with a null price and the reason, which comes back here as an
+     * error response, so callers can fall back per item. When the batch call fails as a
+     * whole but the service answered, the rows are retried one by one.
+     */
+    public List<PricePredictionResponse> predictBatchUsingFlaskAPI(List<PricePredictionRequest> requests) {
+        List<PricePredictionResponse> results = new ArrayList<>(requests.size());
+        if (requests.isEmpty()) {
+            return results;
+        }
+
+        try {
+            logger.info("🤖 Attempting batched ML prediction via Flask API for {} gemstones", requests.size());
+
+            List<Map<String, Object>> rows = new ArrayList<>(requests.size());
+            for (PricePredictionRequest request : requests) {
+                rows.add(prepareMlInput(request));
+            }
+
+            String url = flaskApiUrl + "/predictBatchAPI";
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+
+            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(Map.of("rows", rows), headers);
+
+            ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
+
+            if (response.getStatusCode() != HttpStatus.OK) {
+                logger.warn("⚠️ Flask batch API returned status: {}", response.getStatusCode());
+                return predictEachUsingFlaskAPI(requests);
+            }
+
+            JsonNode body = objectMapper.readTree(response.getBody());
+            JsonNode prices = body.path("prices");
+            // Why each unscored row was rejected; aligned with prices
+            JsonNode errors = body.path("errors");
+            if (!prices.isArray() || prices.size() != requests.size()) {
+                logger.warn("⚠️ Flask batch API returned {} prices for {} rows", prices.size(), requests.size());
+                return predictEachUsingFlaskAPI(requests);
+            }
+
+            for (int i = 0; i < requests.size(); i++) {
+                JsonNode price = prices.get(i);
+                if (price == null || price.isNull()) {
+                    JsonNode error = errors.path(i);
+                    results.add(PricePredictionResponse.error("ML model could not score this gemstone"
+                        + (error.isTextual() ? ": " + error.asText() : "")));
+                } else {
+                    results.add(buildMlResponse(price.asDouble(), requests.get(i)));
+                }
+            }
+
+            logger.info("✅ Batched ML prediction returned {} prices", results.size());
+            rememberAvailability(true);
+            return results;
+
+        } catch (ResourceAccessException e) {
+            // Unreachable or timed out: single calls would fail the same way
+            logger.error("❌ Flask ML batch prediction failed: {}", e.getMessage());
+            rememberAvailability(false);
+            return errorsFor(requests, "ML prediction failed: " + e.getMessage());
+        } catch (Exception e) {
+            logger.warn("⚠️ Flask ML batch prediction failed: {}", e.getMessage());
+            return predictEachUsingFlaskAPI(requests);
+        }
+    }
+
+    /**
+     * Longest a predictBatchUsingFlaskAPI call can take: the batch call, the retry budget and
+     * the retry still running when the budget ran out. Each call is bounded by the connect
+     * and read timeouts.
+     */
+    public long getMaxBatchMillis() {
+        long callMillis = 2L * apiTimeout;
+        return callMillis + batchRetryBudgetMs + callMillis;
+    }
+
+    /**
+     * Score the rows of a failed batch through the single-row endpoint. Rows not reached
+     * within the retry budget get an error instead of another call.
+     */
+    private List<PricePredictionResponse> predictEachUsingFlaskAPI(List<PricePredictionRequest> requests) {
+        logger.info("🔁 Retrying {} gemstones one by one via Flask API", requests.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchRetryBudgetMs);
+        List<PricePredictionResponse> results = new ArrayList<>(requests.size());
+        int skipped = 0;
+        for (PricePredictionRequest request : requests) {
+            if (System.nanoTime() > deadline) {
+                results.add(PricePredictionResponse.error("ML prediction retry budget exhausted"));
+                skipped++;
+            } else {
+                results.add(predictUsingFlaskAPI(request));
+            }
+        }
+        if (skipped > 0) {
+            logger.warn("⚠️ Retry budget of {} ms exhausted, {} of {} gemstones not retried",
+                       batchRetryBudgetMs, skipped, requests.size());
+        }
+        return results;
+    }
+
+    private List<PricePredictionResponse> errorsFor(List<PricePredictionRequest> requests, String message) {
+        List<PricePredictionResponse> errors = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            errors.add(PricePredictionResponse.error(message));
+        }
+        return errors;
+    }
+
+    /**
+     * Check if ML service is available. The answer is reused for gemnet.ml.health-cache-ms,
+     * and batch calls refresh it, so single predictions don't pay a health round trip each.
      */
     public boolean isMlServiceAvailable() {
+        if (System.currentTimeMillis() < healthKnownUntil) {
+            return mlServiceAvailable;
+        }
+        boolean available;
         try {
             String url = flaskApiUrl + "/health";
             ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-            boolean available = response.getStatusCode() == HttpStatus.OK;
+            available = response.getStatusCode() == HttpStatus.OK;
             logger.info("🔍 ML Service availability check: {}", available ? "✅ Available" : "❌ Unavailable");
-            return available;
         } catch (Exception e) {
             logger.debug("🔍 ML Service not available: {}", e.getMessage());
-            return false;
+            available = false;
         }
+        rememberAvailability(available);
+        return available;
+    }
+
+    private void rememberAvailability(boolean available) {
+        mlServiceAvailable = available;
+        healthKnownUntil = System.currentTimeMillis() + healthCacheMs;
     }
 
     /**
@@ -112,9 +266,10 @@ public class MLPredictionService {
         mlInput.put("depth", 61.5); // Typical depth percentage
         
         // Map gemstone attributes to ML model format
-        mlInput.put("cut", mapCutForMl(request.getCut()));
-        mlInput.put("color", mapColorForMl(request.getColor()));
-        mlInput.put("clarity", mapClarityForMl(request.getClarity()));
+        CanonicalGemAttributes attributes = canonicalizer.canonicalize(request);
+        mlInput.put("cut", attributes.getCut().getMlGrade());
+        mlInput.put("color", attributes.getColor().getMlGrade());
+        mlInput.put("clarity", attributes.getClarity().getMlGrade());
         
         logger.info("📊 ML Input prepared: carat={}, cut={}, color={}, clarity={}", 
                    mlInput.get("carat"), mlInput.get("cut"), mlInput.get("color"), mlInput.get("clarity"));
@@ -122,76 +277,6 @@ public class MLPredictionService {
         return mlInput;
     }
 
-    /**
-     * Map gemstone cut to ML model expected values
-     */
-    private String mapCutForMl(String cut) {
-        if (cut == null) return "Good";
-        
-        String normalizedCut = cut.toLowerCase().trim();
-        
-        // Map to standard diamond cut grades expected by ML model
-        if (normalizedCut.contains("excellent") || normalizedCut.contains("ideal")) {
-            return "Ideal";
-        } else if (normalizedCut.contains("very good") || normalizedCut.contains("premium")) {
-            return "Premium";
-        } else if (normalizedCut.contains("good")) {
-            return "Good";
-        } else if (normalizedCut.contains("fair")) {
-            return "Fair";
-        } else {
-            return "Good"; // Default
-        }
-    }
-
-    /**
-     * Map gemstone color to ML model expected values
-     */
-    private String mapColorForMl(String color) {
-        if (color == null) return "G";
-        
-        String normalizedColor = color.toLowerCase().trim();
-        
-        // Map gemstone colors to diamond color scale (D-Z)
-        if (normalizedColor.contains("colorless") || normalizedColor.contains("white")) {
-            return "D"; // Best colorless
-        } else if (normalizedColor.contains("blue")) {
-            return "F"; // Near colorless
-        } else if (normalizedColor.contains("yellow") || normalizedColor.contains("champagne")) {
-            return "J"; // Faint yellow
-        } else if (normalizedColor.contains("pink") || normalizedColor.contains("red")) {
-            return "E"; // Near colorless
-        } else if (normalizedColor.contains("green")) {
-            return "G"; // Near colorless
-        } else if (normalizedColor.contains("purple") || normalizedColor.contains("violet")) {
-            return "H"; // Near colorless
-        } else {
-            return "G"; // Default near colorless
-        }
-    }
-
-    /**
-     * Map gemstone clarity to ML model expected values
-     */
-    private String mapClarityForMl(String clarity) {
-        if (clarity == null) return "VS2";
-        
-        String normalizedClarity = clarity.toLowerCase().replaceAll("\\s+", "");
-        
-        // Direct mapping to diamond clarity scale
-        if (normalizedClarity.equals("fl")) return "FL";
-        else if (normalizedClarity.equals("if")) return "IF";
-        else if (normalizedClarity.equals("vvs1")) return "VVS1";
-        else if (normalizedClarity.equals("vvs2")) return "VVS2";
-        else if (normalizedClarity.equals("vs1")) return "VS1";
-        else if (normalizedClarity.equals("vs2")) return "VS2";
-        else if (normalizedClarity.equals("si1")) return "SI1";
-        else if (normalizedClarity.equals("si2")) return "SI2";
-        else if (normalizedClarity.contains("i1") || normalizedClarity.contains("p1")) return "SI2";
-        else if (normalizedClarity.contains("i2") || normalizedClarity.contains("p2")) return "SI1";
-        else return "VS2"; // Default
-    }
-
     /**
      * Parse ML model response and create prediction response
      */
@@ -210,32 +295,7 @@ public class MLPredictionService {
                 mlPrediction = responseJson.asDouble();
             }
             
-            // Convert USD to LKR (approximate rate: 1 USD = 320 LKR)
-            double lkrPrice = mlPrediction * 320;
-            
-            BigDecimal predictedPrice = BigDecimal.valueOf(lkrPrice);
-            
-            // Calculate confidence based on data quality
-            double confidence = calculateMlConfidence(request, predictedPrice);
-            
-            // Calculate price range (±10% for ML predictions)
-            BigDecimal variance = predictedPrice.multiply(BigDecimal.valueOf(0.10));
-            BigDecimal minPrice = predictedPrice.subtract(variance).max(BigDecimal.ZERO);
-            BigDecimal maxPrice = predictedPrice.add(variance);
-            
-            // Round to nearest 1000 LKR
-            predictedPrice = roundToNearest(predictedPrice, 1000);
-            minPrice = roundToNearest(minPrice, 1000);
-            maxPrice = roundToNearest(maxPrice, 1000);
-            
-            logger.info("✅ ML Prediction successful: {} LKR (confidence: {}%)", 
-                       predictedPrice, Math.round(confidence * 100));
-            
-            PricePredictionResponse response = PricePredictionResponse.success(predictedPrice, minPrice, maxPrice, confidence);
-            response.setPredictionMethod("Machine Learning (CatBoost)");
-            response.setModelAccuracy(0.9794); // Actual model accuracy
-            
-            return response;
+            return buildMlResponse(mlPrediction, request);
             
         } catch (Exception e) {
             logger.error("❌ Failed to parse ML response: {}", e.getMessage());
@@ -243,6 +303,38 @@ public class MLPredictionService {
         }
     }
 
+    /**
+     * Convert a raw model output (USD) into a prediction response in LKR
+     */
+    private PricePredictionResponse buildMlResponse(double mlPrediction, PricePredictionRequest request) {
+        // Convert USD to LKR (approximate rate: 1 USD = 320 LKR)
+        double lkrPrice = mlPrediction * 320;
+        
+        BigDecimal predictedPrice = BigDecimal.valueOf(lkrPrice);
+        
+        // Calculate confidence based on data quality
+        double confidence = calculateMlConfidence(request, predictedPrice);
+        
+        // Calculate price range (±10% for ML predictions)
+        BigDecimal variance = predictedPrice.multiply(BigDecimal.valueOf(0.10));
+        BigDecimal minPrice = predictedPrice.subtract(variance).max(BigDecimal.ZERO);
+        BigDecimal maxPrice = predictedPrice.add(variance);
+        
+        // Round to nearest 1000 LKR
+        predictedPrice = roundToNearest(predictedPrice, 1000);
+        minPrice = roundToNearest(minPrice, 1000);
+        maxPrice = roundToNearest(maxPrice, 1000);
+        
+        logger.info("✅ ML Prediction successful: {} LKR (confidence: {}%)", 
+                   predictedPrice, Math.round(confidence * 100));
+        
+        PricePredictionResponse response = PricePredictionResponse.success(predictedPrice, minPrice, maxPrice, confidence);
+        response.setPredictionMethod("Machine Learning (CatBoost)");
+        response.setModelAccuracy(0.9794); // Actual model accuracy
+        
+        return response;
+    }
+
     /**
      * Calculate confidence score for ML predictions based on data quality
      */
@@ -0,0 +1,300 @@
+package com.gemnet.service;
+
+import com.gemnet.model.GemListing;
+import com.gemnet.model.RepricingJob;
+import com.gemnet.repository.RepricingJobRepository;
+import com.gemnet.service.GemListingPriceUpdateService.RepricingChunkResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Incremental, resumable repricing of marketplace listings.
+ * Only listings whose price was computed under an older dataset/model version are fetched;
+ * editing a pricing attribute clears the listing's version, so it is picked up as well. Each page of listings is split into chunks that are
+ * repriced in parallel and written with bulk $set updates, then the job is checkpointed.
+ */
+@Service
+public class MarketplaceRepricingJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketplaceRepricingJobService.class);
+
+    private static final List<String> MARKETPLACE_STATUSES = List.of("APPROVED", "ACTIVE");
+
+    @Autowired
+    private GemListingPriceUpdateService priceUpdateService;
+
+    @Autowired
+    private RepricingJobRepository repricingJobRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private PredictionAccuracyService predictionAccuracyService;
+
+    @Value("${gemnet.repricing.page-size:1000}")
+    private int pageSize;
+
+    @Value("${gemnet.repricing.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${gemnet.repricing.parallelism:4}")
+    private int parallelism;
+
+    @Value("${gemnet.repricing.resume-on-startup:true}")
+    private boolean resumeOnStartup;
+
+    // One job runs at a time; its chunks fan out on the worker pool
+    private ExecutorService jobExecutor;
+    private ExecutorService chunkExecutor;
+
+    private volatile RepricingJob currentJob;
+    private volatile long runStartedAtMillis;
+    private final AtomicLong processedThisRun = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "repricing-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+        chunkExecutor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "repricing-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        chunkExecutor.shutdownNow();
+    }
+
+    /**
+     * Resume jobs that were still running when the application stopped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        if (!resumeOnStartup) {
+            return;
+        }
+        try {
+            List<RepricingJob> interrupted = repricingJobRepository.findByStatus("RUNNING");
+            for (RepricingJob job : interrupted) {
+                if (currentJob == null) {
+                    logger.info("🔁 Resuming repricing job {} after listing {}", job.getId(), job.getLastProcessedId());
+                    job.setResumeCount(job.getResumeCount() + 1);
+                    submit(job);
+                } else {
+                    // Only one job can run; older interrupted jobs are superseded
+                    job.setStatus("FAILED");
+                    job.setErrorMessage("Superseded by job " + currentJob.getId());
+                    job.setCompletedAt(LocalDateTime.now());
+                    repricingJobRepository.save(job);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not resume repricing jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Start a repricing job in the background, or return the one already running
+     */
+    public synchronized RepricingJob startJob(boolean force) {
+        if (currentJob != null && currentJob.isRunning()) {
+            logger.info("Repricing job {} is already running", currentJob.getId());
+            return currentJob;
+        }
+
+        RepricingJob job = new RepricingJob(priceUpdateService.getCurrentPricingVersion(), force);
+        job = repricingJobRepository.save(job);
+        logger.info("🇱🇰 Starting repricing job {} (version {}, force={})", job.getId(), job.getPricingVersion(), force);
+        submit(job);
+        return job;
+    }
+
+    public Optional<RepricingJob> getJob(String jobId) {
+        if (currentJob != null && currentJob.getId().equals(jobId)) {
+            return Optional.of(currentJob);
+        }
+        return repricingJobRepository.findById(jobId);
+    }
+
+    public Optional<RepricingJob> getLatestJob() {
+        if (currentJob != null) {
+            return Optional.of(currentJob);
+        }
+        return repricingJobRepository.findFirstByOrderByStartedAtDesc();
+    }
+
+    /**
+     * Live status and throughput for a job
+     */
+    public Map<String, Object> describe(RepricingJob job) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("jobId", job.getId());
+        status.put("status", job.getStatus());
+        status.put("pricingVersion", job.getPricingVersion());
+        status.put("force", job.isForce());
+        status.put("lastProcessedId", job.getLastProcessedId());
+        status.put("scannedListings", job.getScannedListings());
+        status.put("candidateListings", job.getCandidateListings());
+        status.put("updatedListings", job.getUpdatedListings());
+        status.put("skippedListings", job.getSkippedListings());
+        status.put("failedListings", job.getFailedListings());
+        status.put("confidenceLevels", Map.of(
+            "high", job.getHighConfidencePredictions(),
+            "medium", job.getMediumConfidencePredictions(),
+            "low", job.getLowConfidencePredictions()
+        ));
+        status.put("resumeCount", job.getResumeCount());
+        status.put("startedAt", job.getStartedAt());
+        status.put("lastCheckpointAt", job.getLastCheckpointAt());
+        status.put("completedAt", job.getCompletedAt());
+        if (job.getErrorMessage() != null) {
+            status.put("errorMessage", job.getErrorMessage());
+        }
+
+        // Throughput: live for the running job, overall for finished ones
+        double listingsPerSecond;
+        if (job == currentJob && job.isRunning()) {
+            long elapsedMillis = Math.max(1, System.currentTimeMillis() - runStartedAtMillis);
+            listingsPerSecond = processedThisRun.get() * 1000.0 / elapsedMillis;
+        } else {
+            LocalDateTime end = job.getCompletedAt() != null ? job.getCompletedAt() : job.getLastCheckpointAt();
+            long elapsedMillis = job.getStartedAt() != null && end != null
+                ? Math.max(1, Duration.between(job.getStartedAt(), end).toMillis()) : 1;
+            listingsPerSecond = job.getProcessedListings() * 1000.0 / elapsedMillis;
+        }
+        status.put("listingsPerSecond", Math.round(listingsPerSecond * 100) / 100.0);
+
+        return status;
+    }
+
+    private void submit(RepricingJob job) {
+        currentJob = job;
+        jobExecutor.submit(() -> runJob(job));
+    }
+
+    private void runJob(RepricingJob job) {
+        runStartedAtMillis = System.currentTimeMillis();
+        processedThisRun.set(0);
+
+        try {
+            while (true) {
+                List<GemListing> page = fetchPage(job);
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                // The query already left out listings priced under this version
+                List<GemListing> candidates = page;
+
+                processCandidates(job, candidates);
+
+                // Checkpoint after the whole page is written so a restart never skips listings
+                job.setScannedListings(job.getScannedListings() + page.size());
+                job.setCandidateListings(job.getCandidateListings() + candidates.size());
+                job.setLastProcessedId(page.get(page.size() - 1).getId());
+                job.setLastCheckpointAt(LocalDateTime.now());
+                repricingJobRepository.save(job);
+
+                if (page.size() < pageSize) {
+                    break;
+                }
+            }
+
+            job.setStatus("COMPLETED");
+            job.setCompletedAt(LocalDateTime.now());
+            repricingJobRepository.save(job);
+
+            // Repriced listings change the accuracy report
+            if (job.getUpdatedListings() > 0) {
+                predictionAccuracyService.requestRefresh();
+            }
+
+            logger.info("✅ Repricing job {} completed: {} scanned, {} candidates, {} updated, {} skipped, {} failed",
+                       job.getId(), job.getScannedListings(), job.getCandidateListings(),
+                       job.getUpdatedListings(), job.getSkippedListings(), job.getFailedListings());
+
+        } catch (Exception e) {
+            logger.error("❌ Repricing job {} failed", job.getId(), e);
+            job.setStatus("FAILED");
+            job.setErrorMessage(e.getMessage());
+            job.setCompletedAt(LocalDateTime.now());
+            repricingJobRepository.save(job);
+        }
+    }
+
+    /**
+     * Next page of marketplace listings after the checkpoint, projected to the pricing fields.
+     * Unless forced, only listings not yet priced under the job's version ($ne also matches
+     * listings that were never priced).
+     */
+    private List<GemListing> fetchPage(RepricingJob job) {
+        Query query = Query.query(Criteria.where("isActive").is(true)
+                .and("listingStatus").in(MARKETPLACE_STATUSES));
+        if (!job.isForce()) {
+            query.addCriteria(Criteria.where("pricingVersion").ne(job.getPricingVersion()));
+        }
+        if (job.getLastProcessedId() != null) {
+            query.addCriteria(Criteria.where("id").gt(job.getLastProcessedId()));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "id")).limit(pageSize);
+        query.fields().include(GemListingPriceUpdateService.PRICING_FIELDS);
+        return mongoTemplate.find(query, GemListing.class);
+    }
+
+    private void processCandidates(RepricingJob job, List<GemListing> candidates) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        int size = Math.max(1, chunkSize);
+        List<CompletableFuture<RepricingChunkResult>> futures = new ArrayList<>();
+        for (int from = 0; from < candidates.size(); from += size) {
+            List<GemListing> chunk = candidates.subList(from, Math.min(from + size, candidates.size()));
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                RepricingChunkResult result = priceUpdateService.repriceChunk(chunk, job.getPricingVersion());
+                processedThisRun.addAndGet(chunk.size());
+                return result;
+            }, chunkExecutor));
+        }
+
+        for (CompletableFuture<RepricingChunkResult> future : futures) {
+            RepricingChunkResult result = future.join();
+            job.setUpdatedListings(job.getUpdatedListings() + result.getUpdated());
+            job.setSkippedListings(job.getSkippedListings() + result.getSkipped());
+            job.setFailedListings(job.getFailedListings() + result.getFailed());
+            job.setHighConfidencePredictions(job.getHighConfidencePredictions() + result.getHighConfidence());
+            job.setMediumConfidencePredictions(job.getMediumConfidencePredictions() + result.getMediumConfidence());
+            job.setLowConfidencePredictions(job.getLowConfidencePredictions() + result.getLowConfidence());
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.gemnet.service;
+
+import com.gemnet.model.GemImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Stores the media parts of a listing upload in parallel on a bounded I/O pool and describes
+ * each stored file (size, SHA-256, pixel dimensions from the image header, perceptual hash
+ * of gemstone photos). The request thread waits for all parts; when the pool is saturated
+ * it stores parts itself.
+ */
+@Service
+public class MediaIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaIngestionService.class);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
+
+    @Autowired
+    private ListingImageDuplicateService listingImageDuplicateService;
+
+    @Value("${gemnet.media.ingest.threads:4}")
+    private int ingestThreads;
+
+    @Value("${gemnet.media.ingest.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${gemnet.media.ingest.timeout-seconds:120}")
+    private long timeoutSeconds;
+
+    private ThreadPoolExecutor ingestExecutor;
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, ingestThreads);
+        ingestExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            runnable -> {
+                Thread thread = new Thread(runnable, "media-ingest");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ingestExecutor.shutdownNow();
+    }
+
+    /**
+     * Store gem images, gem videos and certificate images of one listing, in display order.
+     * If any part fails the parts already stored are released, parts still running release
+     * their blob when they finish, and an IOException names the failed part.
+     */
+    public List<GemImage> ingestListingMedia(MultipartFile[] gemImages, MultipartFile[] gemVideos,
+                                             MultipartFile[] certificateImages) throws IOException {
+        long batchTime = System.currentTimeMillis();
+        int imageCount = gemImages != null ? gemImages.length : 0;
+        int videoCount = gemVideos != null ? gemVideos.length : 0;
+        int certificateCount = certificateImages != null ? certificateImages.length : 0;
+
+        List<MediaPart> parts = new ArrayList<>(imageCount + videoCount + certificateCount);
+        for (int i = 0; i < imageCount; i++) {
+            parts.add(new MediaPart(MediaKind.GEMSTONE_IMAGE, gemImages[i], i, "GEM_" + batchTime + "_" + i, i));
+        }
+        for (int i = 0; i < videoCount; i++) {
+            parts.add(new MediaPart(MediaKind.GEMSTONE_VIDEO, gemVideos[i], i, "VIDEO_" + batchTime + "_" + i, imageCount + i));
+        }
+        for (int i = 0; i < certificateCount; i++) {
+            parts.add(new MediaPart(MediaKind.CERTIFICATE_IMAGE, certificateImages[i], i,
+                "CERT_" + batchTime + "_" + i, imageCount + videoCount + i));
+        }
+        if (parts.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        long started = System.nanoTime();
+        List<Future<GemImage>> futures = new ArrayList<>(parts.size());
+        for (MediaPart part : parts) {
+            futures.add(ingestExecutor.submit(() -> ingest(part)));
+        }
+
+        // Wait for every part; one that outlives the timeout releases its own blob (see track)
+        List<GemImage> stored = new ArrayList<>(parts.size());
+        String failure = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        for (int i = 0; i < futures.size(); i++) {
+            MediaPart part = parts.get(i);
+            try {
+                stored.add(futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (failure == null) {
+                    failure = "Failed to process " + part.label() + ": " + cause.getMessage();
+                }
+            } catch (TimeoutException e) {
+                futures.get(i).cancel(true);
+                if (failure == null) {
+                    failure = "Timed out storing " + part.label();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.get(i).cancel(true);
+                if (failure == null) {
+                    failure = "Interrupted while storing " + part.label();
+                }
+            }
+        }
+
+        if (failure != null) {
+            logger.warn("❌ Listing media ingestion failed: {}", failure);
+            for (MediaPart part : parts) {
+                release(part.abandon());
+            }
+            throw new IOException(failure);
+        }
+
+        logger.info("✅ Stored {} listing media parts ({} images, {} videos, {} certificates) in {} ms",
+                   stored.size(), imageCount, videoCount, certificateCount,
+                   TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return stored;
+    }
+
+    /**
+     * Video format from a file name, defaulting to mp4
+     */
+    public static String getVideoFormat(String filename) {
+        if (filename == null || filename.lastIndexOf('.') == -1) {
+            return "mp4"; // default format
+        }
+        return filename.substring(filename.lastIndexOf('.') + 1).toLowerCase();
+    }
+
+    private GemImage ingest(MediaPart part) throws IOException {
+        MultipartFile file = part.file;
+        GemImage item = new GemImage();
+        item.setImageId(part.id);
+        item.setOriginalName(file.getOriginalFilename());
+        item.setContentType(file.getContentType());
+        item.setSize(file.getSize());
+        item.setDisplayOrder(part.displayOrder);
+
+        switch (part.kind) {
+            case GEMSTONE_IMAGE: {
+                String imageUrl = track(part, fileStorageService.storeGemImage(file, part.id));
+                item.setImageUrl(imageUrl);
+                // Original until the resized variants are generated in the background
+                item.setThumbnailUrl(imageUrl);
+                item.setIsPrimary(part.index == 0); // First gemstone image is primary
+                item.setImageType("GEMSTONE");
+                break;
+            }
+            case GEMSTONE_VIDEO: {
+                item.setVideoUrl(track(part, fileStorageService.storeGemVideo(file, part.id)));
+                item.setMediaType("VIDEO");
+                item.setVideoFormat(getVideoFormat(file.getOriginalFilename()));
+                item.setIsPrimary(false); // Videos are never primary for card display
+                item.setImageType("GEMSTONE");
+                item.setDescription("Gemstone Video " + (part.index + 1));
+                break;
+            }
+            default: {
+                String imageUrl = track(part, fileStorageService.storeGemCertificateImage(file, part.id));
+                item.setImageUrl(imageUrl);
+                item.setThumbnailUrl(imageUrl);
+                item.setIsPrimary(false); // Certificate images are never primary
+                item.setImageType("CERTIFICATE");
+                item.setDescription("Certificate Image " + (part.index + 1));
+                break;
+            }
+        }
+
+        describe(item);
+        logger.debug("Stored {} as {}", part.label(), item.getDisplayUrl());
+        return item;
+    }
+
+    /**
+     * Hand a stored blob to its part. When the upload already gave up on the part (timeout,
+     * cancellation) nobody will record the blob, so it is released here instead.
+     */
+    private String track(MediaPart part, String url) throws IOException {
+        if (!part.keep(url)) {
+            fileStorageService.releaseReference(url);
+            throw new IOException("Upload gave up on " + part.label());
+        }
+        return url;
+    }
+
+    /**
+     * Fill size, content hash, (for images) dimensions and (for gemstone photos) the
+     * perceptual hash from the stored file
+     */
+    private void describe(GemImage item) {
+        String url = item.getDisplayUrl();
+        try {
+            Path stored = fileStorageService.getLocalFile(url);
+            if (!Files.isRegularFile(stored)) {
+                return;
+            }
+            item.setSize(Files.size(stored));
+
+            // Blob names already are the content hash
+            String hash = contentAddressedStore.hashOf(url);
+            item.setContentHash(hash != null ? hash : sha256(stored));
+
+            if (!item.isVideo()) {
+                readDimensions(stored, item);
+            }
+            if (!item.isVideo() && "GEMSTONE".equals(item.getImageType())) {
+                item.setPerceptualHash(listingImageDuplicateService.hashOf(stored));
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not describe stored media {}: {}", url, e.getMessage());
+        }
+    }
+
+    /**
+     * Read width and height from the image header without decoding the pixels
+     */
+    private void readDimensions(Path file, GemImage item) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                return;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                item.setWidth(reader.getWidth(0));
+                item.setHeight(reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private String sha256(Path file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream input = new DigestInputStream(Files.newInputStream(file), digest)) {
+                input.transferTo(OutputStream.nullOutputStream());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void release(List<String> urls) {
+        for (String url : urls) {
+            fileStorageService.releaseReference(url);
+        }
+    }
+
+    private enum MediaKind { GEMSTONE_IMAGE, GEMSTONE_VIDEO, CERTIFICATE_IMAGE }
+
+    private static class MediaPart {
+        private final MediaKind kind;
+        private final MultipartFile file;
+        private final int index;
+        private final String id;
+        private final int displayOrder;
+        // Blobs this part stored, until the upload gives up on it
+        private final List<String> storedUrls = new ArrayList<>();
+        private boolean abandoned;
+
+        MediaPart(MediaKind kind, MultipartFile file, int index, String id, int displayOrder) {
+            this.kind = kind;
+            this.file = file;
+            this.index = index;
+            this.id = id;
+            this.displayOrder = displayOrder;
+        }
+
+        /**
+         * Record a stored blob; false once the upload gave up on this part
+         */
+        synchronized boolean keep(String url) {
+            if (abandoned) {
+                return false;
+            }
+            storedUrls.add(url);
+            return true;
+        }
+
+        /**
+         * Give up on this part and take the blobs it stored so far; later ones are released by the part
+         */
+        synchronized List<String> abandon() {
+            abandoned = true;
+            List<String> urls = new ArrayList<>(storedUrls);
+            storedUrls.clear();
+            return urls;
+        }
+
+        String label() {
+            switch (kind) {
+                case GEMSTONE_IMAGE: return "gemstone image " + (index + 1);
+                case GEMSTONE_VIDEO: return "gemstone video " + (index + 1);
+                default: return "certificate image " + (index + 1);
+            }
+        }
+    }
+}
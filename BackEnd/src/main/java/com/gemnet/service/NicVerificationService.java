@@ -1,18 +1,17 @@
 package com.gemnet.service;
 
-import net.sourceforge.tess4j.Tesseract;
+import com.gemnet.exception.OcrEngineBusyException;
 import net.sourceforge.tess4j.TesseractException;
 import org.opencv.core.*;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import com.gemnet.util.MatScope;
+import com.gemnet.util.UploadedImage;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import jakarta.annotation.PostConstruct;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -27,6 +26,14 @@ public class NicVerificationService {
     @Autowired
     private FileStorageService fileStorageService;
     
+    @Autowired
+    private OcrEnginePool ocrEnginePool;
+    
+    @Autowired
+    private FaceRecognitionService faceRecognitionService;
+    
+    private static final String OCR_PROFILE = "nic";
+    
     // Inject Tesseract configuration from application.properties
     @Value("${tesseract.datapath:/opt/homebrew/share/tessdata}")
     private String tesseractDataPath;
@@ -40,12 +47,11 @@ public class NicVerificationService {
     @Value("${tesseract.pageSegMode:8}")
     private int pageSegMode;
     
-    private Tesseract tesseract;
     private boolean tesseractInitialized = false;
     private String tesseractStatus = "Not initialized";
     private Exception initializationError = null;
     
-    @PostConstruct
+    // Run by the StartupOrchestrator, in parallel with the other startup initializers
     public void init() {
         try {
             // Load OpenCV native library
@@ -70,9 +76,6 @@ public class NicVerificationService {
             // Set up environment variables first
             setupEnvironmentForTesseract();
             
-            // Try to create Tesseract instance
-            tesseract = new Tesseract();
-            
             // Verify tessdata directory exists
             Path tessPath = Paths.get(tesseractDataPath);
             Path engFile = tessPath.resolve(tesseractLanguage + ".traineddata");
@@ -89,18 +92,19 @@ public class NicVerificationService {
             System.out.println("   • Data directory: " + tessPath.toAbsolutePath());
             System.out.println("   • Language file: " + engFile.toAbsolutePath());
             
-            // Configure Tesseract
-            tesseract.setDatapath(tesseractDataPath);
-            tesseract.setLanguage(tesseractLanguage);
-            tesseract.setOcrEngineMode(ocrEngineMode);
-            tesseract.setPageSegMode(pageSegMode);
+            // Configure and pre-warm the pooled engines; whitelist and numeric mode suit NIC numbers
+            OcrEnginePool.OcrProfile profile = new OcrEnginePool.OcrProfile(
+                    OCR_PROFILE, tesseractLanguage, ocrEngineMode, pageSegMode)
+                .withVariable("tessedit_char_whitelist", "0123456789VXvx")
+                .withVariable("classify_bln_numeric_mode", "1");
             
-            // Additional Tesseract configurations for better OCR results
-            tesseract.setVariable("tessedit_char_whitelist", "0123456789VXvx");
-            tesseract.setVariable("classify_bln_numeric_mode", "1");
+            if (!ocrEnginePool.register(profile)) {
+                throw new RuntimeException(ocrEnginePool.getStatus(OCR_PROFILE));
+            }
             
-            // Test Tesseract with a simple operation - but gracefully handle failure
-          //  testTesseractSafely();
+            tesseractInitialized = true;
+            tesseractStatus = "Initialized successfully with path: " + tesseractDataPath;
+            System.out.println("✅ Tesseract engine pool ready for NIC verification");
             
         } catch (Exception e) {
             System.err.println("⚠️ Tesseract initialization failed: " + e.getMessage());
@@ -134,24 +138,6 @@ public class NicVerificationService {
         }
     }
     
-//    private void testTesseractSafely() {
-//        try {
-//            // Create a minimal test - don't actually call doOCR as it might trigger library loading
-//            // Just verify the configuration is set
-//            if (tesseract.getDatapath() != null && tesseract.getLanguage() != null) {
-//                tesseractInitialized = true;
-//                tesseractStatus = "Initialized successfully with path: " + tesseractDataPath;
-//                System.out.println("✅ Tesseract configured successfully (library test skipped for safety)");
-//            } else {
-//                throw new RuntimeException("Tesseract configuration incomplete");
-//            }
-//
-//        } catch (Exception e) {
-//            System.err.println("⚠️ Tesseract configuration test failed: " + e.getMessage());
-//            throw e;
-//        }
-//    }
-    
     private void logTroubleshootingInfo(Exception e) {
         System.err.println("🔍 Tesseract Troubleshooting Information:");
         System.err.println("   • Error Type: " + e.getClass().getSimpleName());
@@ -205,7 +191,7 @@ public class NicVerificationService {
     /**
      * Extract NIC number from NIC image using OCR or fallback
      */
-    public String extractNicNumber(MultipartFile nicImage) throws IOException {
+    public String extractNicNumber(UploadedImage nicImage) throws IOException {
         System.out.println("🔍 Starting NIC number extraction...");
         
         if (!tesseractInitialized) {
@@ -214,16 +200,16 @@ public class NicVerificationService {
         }
         
         try {
-            // Convert MultipartFile to BufferedImage
-            BufferedImage bufferedImage = ImageIO.read(nicImage.getInputStream());
-            if (bufferedImage == null) {
+            // Work from the decoded image shared with quality validation and photo extraction
+            if (!nicImage.isDecodable()) {
                 throw new IOException("Could not read image file");
             }
             
-            System.out.println("📐 Original image size: " + bufferedImage.getWidth() + "x" + bufferedImage.getHeight());
+            Mat grayMat = nicImage.getGray();
+            System.out.println("📐 Original image size: " + grayMat.cols() + "x" + grayMat.rows());
             
             // Preprocess image for better OCR results
-            BufferedImage preprocessedImage = preprocessImageForOCR(bufferedImage);
+            BufferedImage preprocessedImage = preprocessImageForOCR(grayMat);
             
             // Perform OCR with safety check
             String ocrResult = performOCRSafely(preprocessedImage);
@@ -248,6 +234,10 @@ public class NicVerificationService {
             System.out.println("✅ NIC number successfully extracted via OCR: " + nicNumber);
             return nicNumber;
             
+        } catch (OcrEngineBusyException e) {
+            // Don't fall back to trusting the entered NIC just because OCR is saturated
+            System.err.println("⏳ OCR engines busy, rejecting NIC extraction");
+            throw e;
         } catch (Exception e) {
             System.err.println("❌ OCR processing failed: " + e.getMessage());
             System.err.println("📋 Using fallback method");
@@ -258,25 +248,17 @@ public class NicVerificationService {
     private String performOCRSafely(BufferedImage image) {
         try {
             System.out.println("🔍 Performing OCR with Tesseract...");
-            return tesseract.doOCR(image);
+            return ocrEnginePool.recognize(OCR_PROFILE, image);
         } catch (TesseractException e) {
+            // The pool replaces the failed engine, so later calls still get OCR
             System.err.println("❌ Tesseract OCR error: " + e.getMessage());
-            // Disable Tesseract for future calls since it's failing
-            tesseractInitialized = false;
-            tesseractStatus = "Runtime failure: " + e.getMessage();
-            return null;
-        } catch (Exception e) {
-            System.err.println("❌ Unexpected OCR error: " + e.getMessage());
-            // Disable Tesseract for future calls
-            tesseractInitialized = false;
-            tesseractStatus = "Unexpected runtime failure: " + e.getMessage();
             return null;
         }
     }
       /**
      * Enhanced fallback method when Tesseract is not available
      */
-    private String extractNicNumberFallback(MultipartFile nicImage) {
+    private String extractNicNumberFallback(UploadedImage nicImage) {
         System.out.println("🔄 Using enhanced fallback NIC extraction method");
         
         // Strategy 1: Look for NIC number in form data
@@ -333,22 +315,20 @@ public class NicVerificationService {
     }
     
     /**
-     * Extract photo from NIC image
+     * Extract photo from NIC image, saving it and describing its face while it is still in memory
      */
-    public String extractNicPhoto(MultipartFile nicImage, String userId) throws IOException {
+    public ExtractedNicPhoto extractNicPhoto(UploadedImage nicImage, String userId) throws IOException {
         System.out.println("📷 Extracting photo from NIC image for user: " + userId);
         
-        try {
-            // Convert MultipartFile to Mat
-            byte[] imageBytes = nicImage.getBytes();
-            Mat nicMat = Imgcodecs.imdecode(new MatOfByte(imageBytes), Imgcodecs.IMREAD_COLOR);
+        try (MatScope scope = new MatScope()) {
+            Mat nicMat = nicImage.getMat();
             
             if (nicMat.empty()) {
                 throw new RuntimeException("Could not load NIC image");
             }
             
             // Extract photo region from NIC
-            Mat photoRegion = extractPhotoRegionFromNic(nicMat);
+            Mat photoRegion = extractPhotoRegionFromNic(nicMat, scope);
             
             if (photoRegion.empty()) {
                 throw new RuntimeException("Could not extract photo region from NIC");
@@ -358,7 +338,7 @@ public class NicVerificationService {
             String photoPath = fileStorageService.saveExtractedNicPhoto(photoRegion, userId);
             System.out.println("✅ NIC photo extracted and saved: " + photoPath);
             
-            return photoPath;
+            return new ExtractedNicPhoto(photoPath, faceRecognitionService.extractFaceDescriptor(photoRegion));
             
         } catch (Exception e) {
             System.err.println("❌ Failed to extract photo from NIC: " + e.getMessage());
@@ -369,39 +349,26 @@ public class NicVerificationService {
     /**
      * Preprocess image for better OCR results
      */
-    private BufferedImage preprocessImageForOCR(BufferedImage originalImage) {
-        try {
+    private BufferedImage preprocessImageForOCR(Mat grayMat) throws IOException {
+        try (MatScope scope = new MatScope()) {
             System.out.println("🔧 Preprocessing image for OCR...");
             
-            // Convert BufferedImage to Mat
-            byte[] imageData = ((DataBufferByte) originalImage.getRaster().getDataBuffer()).getData();
-            Mat mat = new Mat(originalImage.getHeight(), originalImage.getWidth(), CvType.CV_8UC3);
-            mat.put(0, 0, imageData);
-            
-            // Convert to grayscale
-            Mat grayMat = new Mat();
-            Imgproc.cvtColor(mat, grayMat, Imgproc.COLOR_BGR2GRAY);
-            
             // Apply Gaussian blur to reduce noise
-            Mat blurredMat = new Mat();
+            Mat blurredMat = scope.newMat();
             Imgproc.GaussianBlur(grayMat, blurredMat, new Size(3, 3), 0);
             
             // Apply adaptive threshold for better text extraction
-            Mat thresholdMat = new Mat();
+            Mat thresholdMat = scope.newMat();
             Imgproc.adaptiveThreshold(blurredMat, thresholdMat, 255, 
                 Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C, Imgproc.THRESH_BINARY, 11, 2);
             
             // Apply morphological operations to clean up the image
-            Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(2, 2));
-            Mat cleanedMat = new Mat();
+            Mat kernel = scope.track(Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(2, 2)));
+            Mat cleanedMat = scope.newMat();
             Imgproc.morphologyEx(thresholdMat, cleanedMat, Imgproc.MORPH_CLOSE, kernel);
             
             // Convert back to BufferedImage
-            MatOfByte matOfByte = new MatOfByte();
-            Imgcodecs.imencode(".png", cleanedMat, matOfByte);
-            byte[] processedBytes = matOfByte.toArray();
-            
-            BufferedImage processedImage = ImageIO.read(new ByteArrayInputStream(processedBytes));
+            BufferedImage processedImage = toBufferedImage(cleanedMat);
             System.out.println("✅ Image preprocessing completed");
             System.out.println("📐 Processed image size: " + processedImage.getWidth() + "x" + processedImage.getHeight());
             
@@ -409,7 +376,20 @@ public class NicVerificationService {
             
         } catch (Exception e) {
             System.err.println("⚠️ Image preprocessing failed, using original image: " + e.getMessage());
-            return originalImage;
+            return toBufferedImage(grayMat);
+        }
+    }
+    
+    /**
+     * Encode a Mat losslessly and read it back for Tesseract
+     */
+    private BufferedImage toBufferedImage(Mat mat) throws IOException {
+        MatOfByte matOfByte = new MatOfByte();
+        try {
+            Imgcodecs.imencode(".png", mat, matOfByte);
+            return ImageIO.read(new ByteArrayInputStream(matOfByte.toArray()));
+        } finally {
+            matOfByte.release();
         }
     }
     
@@ -450,9 +430,9 @@ public class NicVerificationService {
     }
     
     /**
-     * Extract photo region from NIC image
+     * Extract photo region from NIC image; the region is a view into the NIC image owned by the scope
      */
-        private Mat extractPhotoRegionFromNic(Mat nicImage) {
+        private Mat extractPhotoRegionFromNic(Mat nicImage, MatScope scope) {
         try {
             System.out.println("🖼️ Extracting photo region from NIC using blue background detection...");
             
@@ -461,7 +441,7 @@ public class NicVerificationService {
             System.out.println("📐 Original NIC image size: " + imageWidth + "x" + imageHeight);
             
             // First try blue background detection
-            Mat photoRegion = detectBlueBackgroundPhoto(nicImage);
+            Mat photoRegion = detectBlueBackgroundPhoto(nicImage, scope);
             
             if (photoRegion != null && !photoRegion.empty()) {
                 System.out.println("✅ Photo extracted using blue background detection");
@@ -470,12 +450,12 @@ public class NicVerificationService {
             
             // Fallback to coordinate-based extraction if blue detection fails
             System.out.println("⚠️ Blue background detection failed, using coordinate-based fallback");
-            return extractPhotoUsingCoordinates(nicImage);
+            return extractPhotoUsingCoordinates(nicImage, scope);
             
         } catch (Exception e) {
             System.err.println("❌ Error extracting photo region: " + e.getMessage());
             // Return coordinate-based extraction as final fallback
-            return extractPhotoUsingCoordinates(nicImage);
+            return extractPhotoUsingCoordinates(nicImage, scope);
         }
     }
     
@@ -483,12 +463,13 @@ public class NicVerificationService {
     /**
      * Detect blue background area and extract photo
      */
-    private Mat detectBlueBackgroundPhoto(Mat nicImage) {
-        try {
+    private Mat detectBlueBackgroundPhoto(Mat nicImage, MatScope scope) {
+        // Masks and contours only live for the detection
+        try (MatScope work = new MatScope()) {
             System.out.println("🔍 Detecting blue background for photo extraction...");
             
             // Convert BGR to HSV for better color detection
-            Mat hsvImage = new Mat();
+            Mat hsvImage = work.newMat();
             Imgproc.cvtColor(nicImage, hsvImage, Imgproc.COLOR_BGR2HSV);
             
             // Define blue color range in HSV
@@ -497,19 +478,20 @@ public class NicVerificationService {
             Scalar upperBlue = new Scalar(130, 255, 255); // Upper blue bound
             
             // Create mask for blue regions
-            Mat blueMask = new Mat();
+            Mat blueMask = work.newMat();
             Core.inRange(hsvImage, lowerBlue, upperBlue, blueMask);
             
             // Apply morphological operations to clean up the mask
-            Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(5, 5));
-            Mat cleanedMask = new Mat();
+            Mat kernel = work.track(Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(5, 5)));
+            Mat cleanedMask = work.newMat();
             Imgproc.morphologyEx(blueMask, cleanedMask, Imgproc.MORPH_CLOSE, kernel);
             Imgproc.morphologyEx(cleanedMask, cleanedMask, Imgproc.MORPH_OPEN, kernel);
             
             // Find contours in the blue mask
             java.util.List<MatOfPoint> contours = new java.util.ArrayList<>();
-            Mat hierarchy = new Mat();
+            Mat hierarchy = work.newMat();
             Imgproc.findContours(cleanedMask, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+            contours.forEach(work::track);
             
             if (contours.isEmpty()) {
                 System.out.println("❌ No blue regions found");
@@ -559,10 +541,10 @@ public class NicVerificationService {
             int height = Math.min(bestPhotoRect.height + 2*padding, nicImage.rows() - y);
             
             Rect paddedRect = new Rect(x, y, width, height);
-            Mat photoRegion = new Mat(nicImage, paddedRect);
+            Mat photoRegion = scope.track(new Mat(nicImage, paddedRect));
             
             System.out.println("✅ Blue background photo extracted successfully");
-            return photoRegion.clone();
+            return photoRegion;
             
         } catch (Exception e) {
             System.err.println("❌ Blue background detection failed: " + e.getMessage());
@@ -573,7 +555,7 @@ public class NicVerificationService {
     /**
      * Fallback coordinate-based photo extraction
      */
-    private Mat extractPhotoUsingCoordinates(Mat nicImage) {
+    private Mat extractPhotoUsingCoordinates(Mat nicImage, MatScope scope) {
         try {
             System.out.println("📐 Using coordinate-based photo extraction as fallback...");
             
@@ -590,25 +572,22 @@ public class NicVerificationService {
                              ", width=" + photoWidth + ", height=" + photoHeight);
             
             Rect photoRect = new Rect(photoX, photoY, photoWidth, photoHeight);
-            Mat photoRegion = new Mat(nicImage, photoRect);
-            
-            return photoRegion.clone();
+            return scope.track(new Mat(nicImage, photoRect));
             
         } catch (Exception e) {
             System.err.println("❌ Coordinate-based extraction failed: " + e.getMessage());
-            return nicImage.clone();
+            return nicImage;
         }
     }
     
     /**
      * Validate NIC image quality
      */
-    public boolean validateNicImageQuality(MultipartFile nicImage) {
-        try {
+    public boolean validateNicImageQuality(UploadedImage nicImage) {
+        try (MatScope scope = new MatScope()) {
             System.out.println("🔍 Validating NIC image quality...");
             
-            byte[] imageBytes = nicImage.getBytes();
-            Mat image = Imgcodecs.imdecode(new MatOfByte(imageBytes), Imgcodecs.IMREAD_COLOR);
+            Mat image = nicImage.getMat();
             
             if (image.empty()) {
                 System.err.println("❌ Could not load image for quality validation");
@@ -628,14 +607,13 @@ public class NicVerificationService {
             }
             
             // Check if image is too blurry using Laplacian variance
-            Mat grayImage = new Mat();
-            Imgproc.cvtColor(image, grayImage, Imgproc.COLOR_BGR2GRAY);
+            Mat grayImage = nicImage.getGray();
             
-            Mat laplacian = new Mat();
+            Mat laplacian = scope.newMat();
             Imgproc.Laplacian(grayImage, laplacian, CvType.CV_64F);
             
-            MatOfDouble meanMat = new MatOfDouble();
-            MatOfDouble stddevMat = new MatOfDouble();
+            MatOfDouble meanMat = scope.track(new MatOfDouble());
+            MatOfDouble stddevMat = scope.track(new MatOfDouble());
             Core.meanStdDev(laplacian, meanMat, stddevMat);
             
             double[] stddevArray = stddevMat.toArray();
@@ -680,6 +658,7 @@ public class NicVerificationService {
         status.append("   • Data Path: ").append(tesseractDataPath).append("\n");
         status.append("   • Language: ").append(tesseractLanguage).append("\n");
         status.append("   • Status: ").append(tesseractStatus).append("\n");
+        status.append("   • Engine Pool: ").append(ocrEnginePool.getStats(OCR_PROFILE)).append("\n");
         
         if (!tesseractInitialized && initializationError != null) {
             status.append("   • Error Type: ").append(initializationError.getClass().getSimpleName()).append("\n");
@@ -721,4 +700,25 @@ public class NicVerificationService {
         
         return instructions.toString();
     }
+    
+    /**
+     * Stored path and face template of the photo cropped from a NIC
+     */
+    public static class ExtractedNicPhoto {
+        private final String path;
+        private final byte[] faceDescriptor;
+        
+        public ExtractedNicPhoto(String path, byte[] faceDescriptor) {
+            this.path = path;
+            this.faceDescriptor = faceDescriptor;
+        }
+        
+        public String getPath() {
+            return path;
+        }
+        
+        public byte[] getFaceDescriptor() {
+            return faceDescriptor;
+        }
+    }
 }
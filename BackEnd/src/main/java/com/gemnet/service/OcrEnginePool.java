@@ -0,0 +1,386 @@
+package com.gemnet.service;
+
+import com.gemnet.exception.OcrEngineBusyException;
+import com.sun.jna.Pointer;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI1;
+import net.sourceforge.tess4j.TesseractException;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pools of initialised Tesseract engines, one pool per OCR profile (language, engine mode,
+ * page segmentation mode and variables). Tess4J's Tesseract object is not thread-safe and
+ * loads the language data again on every doOCR call; an engine here keeps its native handle
+ * initialised and is used by one request at a time.
+ *
+ * Callers wait up to tesseract.pool.borrow-timeout-ms for a free engine and are rejected with
+ * OcrEngineBusyException after that. Pool sizes default to the number of cores and can be set
+ * per profile with tesseract.pool.&lt;profile&gt;.size. Images already read under the same profile
+ * are answered from OcrResultCache without borrowing an engine.
+ */
+@Service
+public class OcrEnginePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(OcrEnginePool.class);
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private OcrResultCache ocrResultCache;
+
+    @Value("${tesseract.datapath:/opt/homebrew/share/tessdata}")
+    private String tesseractDataPath;
+
+    // 0 = one engine per core
+    @Value("${tesseract.pool.size:0}")
+    private int defaultPoolSize;
+
+    @Value("${tesseract.pool.borrow-timeout-ms:10000}")
+    private long borrowTimeoutMs;
+
+    @Value("${tesseract.pool.prewarm:true}")
+    private boolean prewarm;
+
+    private final Map<String, ProfilePool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Register an OCR profile and initialise its engines up front. Returns false when not even
+     * one engine could be initialised (missing native library or language data).
+     */
+    public boolean register(OcrProfile profile) {
+        int configured = environment.getProperty("tesseract.pool." + profile.getName() + ".size",
+            Integer.class, defaultPoolSize);
+        int size = configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+
+        ProfilePool pool = new ProfilePool(profile, size);
+        ProfilePool previous = pools.put(profile.getName(), pool);
+        if (previous != null) {
+            previous.close();
+        }
+
+        long started = System.nanoTime();
+        int warm = prewarm ? size : 1;
+        for (int i = 0; i < warm; i++) {
+            try {
+                pool.idle.add(pool.createEngine());
+            } catch (TesseractException e) {
+                if (i == 0) {
+                    pool.available = false;
+                    pool.status = "Failed to initialize: " + e.getMessage();
+                    logger.warn("⚠️ OCR profile '{}' unavailable: {}", profile.getName(), e.getMessage());
+                    return false;
+                }
+                logger.warn("⚠️ Pre-warmed only {} of {} OCR engines for '{}': {}",
+                           i, size, profile.getName(), e.getMessage());
+                break;
+            }
+        }
+
+        pool.status = "Ready";
+        logger.info("✅ OCR profile '{}' ready: {} of {} engines warm in {} ms", profile.getName(),
+                   pool.idle.size(), size, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return true;
+    }
+
+    public boolean isAvailable(String profileName) {
+        ProfilePool pool = pools.get(profileName);
+        return pool != null && pool.available;
+    }
+
+    public String getStatus(String profileName) {
+        ProfilePool pool = pools.get(profileName);
+        return pool != null ? pool.status : "Not registered";
+    }
+
+    public OcrProfile getProfile(String profileName) {
+        ProfilePool pool = pools.get(profileName);
+        return pool != null ? pool.profile : null;
+    }
+
+    /**
+     * Run OCR on an image with an engine of the given profile
+     *
+     * @throws OcrEngineBusyException when no engine frees up within the borrow timeout
+     */
+    public String recognize(String profileName, BufferedImage image) throws TesseractException {
+        return recognize(profileName, image, true);
+    }
+
+    /**
+     * Run OCR, optionally without the result cache; callers that cache the text of the whole
+     * source image pass false for its pieces
+     *
+     * @throws OcrEngineBusyException when no engine frees up within the borrow timeout
+     */
+    public String recognize(String profileName, BufferedImage image, boolean useCache) throws TesseractException {
+        ProfilePool pool = pools.get(profileName);
+        if (pool == null || !pool.available) {
+            throw new TesseractException("OCR profile '" + profileName + "' is not available");
+        }
+
+        String cacheKey = null;
+        if (useCache && ocrResultCache.isEnabled()) {
+            cacheKey = ocrResultCache.keyOf(pool.profile, image);
+            String cached = ocrResultCache.get(cacheKey);
+            if (cached != null) {
+                pool.cacheHits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        long waitStarted = System.nanoTime();
+        try {
+            if (!pool.permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                pool.rejections.incrementAndGet();
+                throw new OcrEngineBusyException("All OCR engines are busy, please try again shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractException("Interrupted while waiting for an OCR engine");
+        }
+
+        long waited = System.nanoTime() - waitStarted;
+        pool.borrows.incrementAndGet();
+        pool.totalWaitNanos.addAndGet(waited);
+        pool.maxWaitNanos.accumulateAndGet(waited, Math::max);
+        pool.inUse.incrementAndGet();
+
+        Engine engine = null;
+        boolean healthy = false;
+        String text;
+        long ocrStarted = System.nanoTime();
+        try {
+            engine = pool.idle.poll();
+            if (engine == null) {
+                engine = pool.createEngine();
+            }
+            text = engine.recognize(image);
+            healthy = true;
+        } catch (RuntimeException | LinkageError e) {
+            pool.failures.incrementAndGet();
+            throw new TesseractException("OCR failed: " + e.getMessage(), e);
+        } finally {
+            pool.totalOcrNanos.addAndGet(System.nanoTime() - ocrStarted);
+            pool.inUse.decrementAndGet();
+            if (engine != null) {
+                if (healthy) {
+                    pool.idle.add(engine);
+                } else {
+                    // Replace an engine that failed mid-call rather than reuse its native state
+                    pool.discard(engine);
+                }
+            }
+            pool.permits.release();
+        }
+
+        // Stored after the engine is back in the pool
+        if (cacheKey != null) {
+            ocrResultCache.put(cacheKey, profileName, text);
+        }
+        return text;
+    }
+
+    /**
+     * Pool sizes, utilisation and wait times per profile
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (ProfilePool pool : pools.values()) {
+            stats.put(pool.profile.getName(), pool.stats());
+        }
+        return stats;
+    }
+
+    public Map<String, Object> getStats(String profileName) {
+        ProfilePool pool = pools.get(profileName);
+        return pool != null ? pool.stats() : new LinkedHashMap<>();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ProfilePool pool : pools.values()) {
+            pool.close();
+        }
+        pools.clear();
+    }
+
+    /**
+     * Language, engine mode, page segmentation mode and variables of a set of interchangeable engines
+     */
+    public static class OcrProfile {
+        private final String name;
+        private final String language;
+        private final int engineMode;
+        private final int pageSegMode;
+        private final Map<String, String> variables = new LinkedHashMap<>();
+
+        public OcrProfile(String name, String language, int engineMode, int pageSegMode) {
+            this.name = name;
+            this.language = language;
+            this.engineMode = engineMode;
+            this.pageSegMode = pageSegMode;
+        }
+
+        public OcrProfile withVariable(String key, String value) {
+            variables.put(key, value);
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public int getEngineMode() {
+            return engineMode;
+        }
+
+        public int getPageSegMode() {
+            return pageSegMode;
+        }
+
+        public Map<String, String> getVariables() {
+            return variables;
+        }
+    }
+
+    private class ProfilePool {
+        private final OcrProfile profile;
+        private final int size;
+        private final Semaphore permits;
+        private final LinkedBlockingQueue<Engine> idle = new LinkedBlockingQueue<>();
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger inUse = new AtomicInteger();
+        private final AtomicLong borrows = new AtomicLong();
+        private final AtomicLong rejections = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong cacheHits = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong totalOcrNanos = new AtomicLong();
+        private final long createdAt = System.nanoTime();
+        private volatile boolean available = true;
+        private volatile String status = "Initializing";
+
+        ProfilePool(OcrProfile profile, int size) {
+            this.profile = profile;
+            this.size = size;
+            this.permits = new Semaphore(size, true);
+        }
+
+        Engine createEngine() throws TesseractException {
+            Engine engine = new Engine(profile, tesseractDataPath);
+            created.incrementAndGet();
+            return engine;
+        }
+
+        void discard(Engine engine) {
+            created.decrementAndGet();
+            try {
+                engine.close();
+            } catch (RuntimeException | LinkageError e) {
+                logger.warn("⚠️ Could not close OCR engine for '{}': {}", profile.getName(), e.getMessage());
+            }
+        }
+
+        void close() {
+            Engine engine;
+            while ((engine = idle.poll()) != null) {
+                discard(engine);
+            }
+        }
+
+        Map<String, Object> stats() {
+            long borrowCount = borrows.get();
+            long uptimeNanos = Math.max(1, System.nanoTime() - createdAt);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("available", available);
+            stats.put("status", status);
+            stats.put("language", profile.getLanguage());
+            stats.put("pageSegMode", profile.getPageSegMode());
+            stats.put("size", size);
+            stats.put("engines", created.get());
+            stats.put("idle", idle.size());
+            stats.put("inUse", inUse.get());
+            stats.put("waiting", permits.getQueueLength());
+            stats.put("borrows", borrowCount);
+            stats.put("rejections", rejections.get());
+            stats.put("failures", failures.get());
+            stats.put("cacheHits", cacheHits.get());
+            stats.put("avgWaitMs", borrowCount > 0 ? TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / borrowCount) : 0);
+            stats.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+            stats.put("avgOcrMs", borrowCount > 0 ? TimeUnit.NANOSECONDS.toMillis(totalOcrNanos.get() / borrowCount) : 0);
+            // Share of engine time spent on OCR since the pool was created
+            stats.put("utilization", Math.round(1000.0 * totalOcrNanos.get() / ((double) uptimeNanos * size)) / 1000.0);
+            return stats;
+        }
+    }
+
+    /**
+     * One initialised native Tesseract handle; never used by two threads at once
+     */
+    private static class Engine {
+        private final ITessAPI.TessBaseAPI handle;
+
+        Engine(OcrProfile profile, String dataPath) throws TesseractException {
+            try {
+                handle = TessAPI1.TessBaseAPICreate();
+            } catch (LinkageError e) {
+                throw new TesseractException("Tesseract native library not available: " + e.getMessage(), e);
+            }
+            if (TessAPI1.TessBaseAPIInit2(handle, dataPath, profile.getLanguage(), profile.getEngineMode()) != 0) {
+                TessAPI1.TessBaseAPIDelete(handle);
+                throw new TesseractException("Could not load language '" + profile.getLanguage() + "' from " + dataPath);
+            }
+            TessAPI1.TessBaseAPISetPageSegMode(handle, profile.getPageSegMode());
+            for (Map.Entry<String, String> variable : profile.getVariables().entrySet()) {
+                TessAPI1.TessBaseAPISetVariable(handle, variable.getKey(), variable.getValue());
+            }
+        }
+
+        String recognize(BufferedImage image) {
+            ByteBuffer pixels = ImageIOHelper.convertImageData(image);
+            int bitsPerPixel = image.getColorModel().getPixelSize();
+            int bytesPerLine = (int) Math.ceil(image.getWidth() * bitsPerPixel / 8.0);
+            TessAPI1.TessBaseAPISetImage(handle, pixels, image.getWidth(), image.getHeight(),
+                bitsPerPixel / 8, bytesPerLine);
+
+            Pointer text = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+            try {
+                return text != null ? text.getString(0, "UTF-8") : "";
+            } finally {
+                if (text != null) {
+                    TessAPI1.TessDeleteText(text);
+                }
+                TessAPI1.TessBaseAPIClear(handle);
+            }
+        }
+
+        void close() {
+            TessAPI1.TessBaseAPIEnd(handle);
+            TessAPI1.TessBaseAPIDelete(handle);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.gemnet.service;
+
+import com.gemnet.model.OcrResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * OCR results keyed by a SHA-256 of the OCR profile and the exact pixels sent to Tesseract,
+ * i.e. the preprocessed image. Sellers upload the same certificate for the extraction preview,
+ * on listing save and after a failed submit; those repeats decode and preprocess to the same
+ * pixels and get their text back without an engine.
+ *
+ * Results live in ocr_results, bounded to max-entries by evicting the least recently used,
+ * with a small in-memory LRU in front. The hash is exact on purpose: a perceptual match could
+ * return another certificate's memo number.
+ */
+@Service
+public class OcrResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(OcrResultCache.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${gemnet.ocr.cache.enabled:true}")
+    private boolean enabled;
+
+    // Persisted results kept before the least recently used are evicted
+    @Value("${gemnet.ocr.cache.max-entries:5000}")
+    private int maxEntries;
+
+    @Value("${gemnet.ocr.cache.memory-entries:500}")
+    private int memoryEntries;
+
+    private Map<String, String> recent;
+
+    private final AtomicLong persistedEntries = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        recent = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > memoryEntries;
+            }
+        });
+        try {
+            persistedEntries.set(mongoTemplate.count(new Query(), OcrResult.class));
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not count cached OCR results: {}", e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cache key of an image under an OCR profile; the profile's settings are part of the key,
+     * so changing the language, modes or whitelist doesn't serve text read under the old ones
+     */
+    public String keyOf(OcrEnginePool.OcrProfile profile, BufferedImage image) {
+        MessageDigest digest = newDigest();
+        digest.update(settingsOf(profile));
+        digest.update(ByteBuffer.allocate(12).putInt(image.getWidth()).putInt(image.getHeight()).putInt(image.getType()).array());
+
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        if (buffer instanceof DataBufferByte && buffer.getNumBanks() == 1) {
+            digest.update(((DataBufferByte) buffer).getData());
+        } else if (buffer instanceof DataBufferInt && buffer.getNumBanks() == 1) {
+            int[] data = ((DataBufferInt) buffer).getData();
+            ByteBuffer bytes = ByteBuffer.allocate(data.length * 4);
+            bytes.asIntBuffer().put(data);
+            digest.update(bytes.array());
+        } else {
+            int[] row = new int[image.getWidth()];
+            ByteBuffer bytes = ByteBuffer.allocate(row.length * 4);
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.getRGB(0, y, row.length, 1, row, 0, row.length);
+                bytes.clear();
+                bytes.asIntBuffer().put(row);
+                digest.update(bytes.array());
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Cache key of a whole uploaded file read through several profiles, e.g. every field crop
+     * of a certificate layout, so the file costs one lookup instead of one per crop
+     */
+    public String keyOf(String reading, byte[] source, OcrEnginePool.OcrProfile... profiles) {
+        MessageDigest digest = newDigest();
+        digest.update(reading.getBytes(StandardCharsets.UTF_8));
+        for (OcrEnginePool.OcrProfile profile : profiles) {
+            digest.update((byte) '|');
+            digest.update(settingsOf(profile));
+        }
+        digest.update(source);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Cached text for a key, or null
+     */
+    public String get(String key) {
+        String text = recent.get(key);
+        if (text != null) {
+            memoryHits.incrementAndGet();
+            touch(key);
+            return text;
+        }
+
+        try {
+            OcrResult result = mongoTemplate.findById(key, OcrResult.class);
+            if (result != null) {
+                storeHits.incrementAndGet();
+                recent.put(key, result.getText());
+                touch(key);
+                return result.getText();
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ OCR cache lookup failed: {}", e.getMessage());
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, String profileName, String text) {
+        recent.put(key, text);
+        try {
+            mongoTemplate.insert(new OcrResult(key, profileName, text));
+            if (persistedEntries.incrementAndGet() > maxEntries) {
+                evictLeastRecentlyUsed();
+            }
+        } catch (DuplicateKeyException e) {
+            // Another request read the same image at the same time
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not cache OCR result: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hits = memoryHits.get() + storeHits.get();
+        long lookups = hits + misses.get();
+        stats.put("enabled", enabled);
+        stats.put("persistedEntries", persistedEntries.get());
+        stats.put("maxEntries", maxEntries);
+        stats.put("memoryEntries", recent.size());
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("storeHits", storeHits.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRate", lookups > 0 ? Math.round(hits * 1000.0 / lookups) / 1000.0 : 0);
+        stats.put("evicted", evicted.get());
+        return stats;
+    }
+
+    private void touch(String key) {
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(key)),
+                new Update().set("lastUsedAt", LocalDateTime.now()).inc("hits", 1), OcrResult.class);
+        } catch (Exception e) {
+            logger.debug("Could not update OCR cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Drop the least recently used results, down to 90% of max-entries so eviction runs in batches
+     */
+    private void evictLeastRecentlyUsed() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long total = mongoTemplate.count(new Query(), OcrResult.class);
+            int excess = (int) (total - maxEntries * 9L / 10);
+            if (excess > 0) {
+                Query oldest = new Query().with(Sort.by(Sort.Direction.ASC, "lastUsedAt")).limit(excess);
+                oldest.fields().include("_id");
+                List<String> ids = mongoTemplate.find(oldest, OcrResult.class).stream()
+                    .map(OcrResult::getId)
+                    .collect(Collectors.toList());
+                long removed = mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), OcrResult.class)
+                    .getDeletedCount();
+                ids.forEach(recent::remove);
+                evicted.addAndGet(removed);
+                total -= removed;
+                logger.info("🧹 Evicted {} least recently used OCR results", removed);
+            }
+            persistedEntries.set(total);
+        } catch (Exception e) {
+            logger.warn("⚠️ OCR cache eviction failed: {}", e.getMessage());
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private byte[] settingsOf(OcrEnginePool.OcrProfile profile) {
+        return (profile.getName() + '|' + profile.getLanguage() + '|' + profile.getEngineMode() + '|'
+            + profile.getPageSegMode() + '|' + profile.getVariables()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package com.gemnet.service;
+
+import com.gemnet.dto.PricePredictionResponse;
+import com.gemnet.model.GemListing;
+import com.gemnet.model.PredictionAccuracyEntry;
+import com.gemnet.model.PredictionAccuracyReport;
+import com.gemnet.repository.PredictionAccuracyEntryRepository;
+import com.gemnet.repository.PredictionAccuracyReportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Background-computed price prediction accuracy report.
+ * Predictions are only re-run for listings that are new or whose pricing attributes or price
+ * changed since the last refresh; the report is kept in memory and in MongoDB so the
+ * accuracy endpoint can answer instantly.
+ */
+@Service
+public class PredictionAccuracyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PredictionAccuracyService.class);
+
+    private static final String[] ACCURACY_FIELDS = {
+        "weight", "variety", "species", "color", "cut", "clarity", "shape", "treatment", "origin",
+        "isCertified", "measurements", "price", "currency", "gemName", "pricingVersion"
+    };
+
+    @Autowired
+    private PricePredictionService pricePredictionService;
+
+    @Autowired
+    private GemListingPriceUpdateService priceUpdateService;
+
+    @Autowired
+    private PredictionAccuracyEntryRepository entryRepository;
+
+    @Autowired
+    private PredictionAccuracyReportRepository reportRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${gemnet.accuracy.batch-size:200}")
+    private int batchSize;
+
+    private final Map<String, PredictionAccuracyEntry> entries = new ConcurrentHashMap<>();
+    private volatile PredictionAccuracyReport latestReport;
+
+    private ExecutorService refreshExecutor;
+    private final AtomicBoolean refreshQueued = new AtomicBoolean(false);
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "accuracy-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Load the stored report so it can be served straight after a restart, then refresh it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadStoredReport() {
+        try {
+            entryRepository.findAll().forEach(entry -> entries.put(entry.getListingId(), entry));
+            latestReport = reportRepository.findById(PredictionAccuracyReport.LATEST_ID).orElse(null);
+            logger.info("📊 Loaded {} stored accuracy entries", entries.size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not load stored accuracy report: {}", e.getMessage());
+        }
+        requestRefresh();
+    }
+
+    /**
+     * Periodic incremental refresh; picks up new and edited listings
+     */
+    @Scheduled(fixedDelayString = "${gemnet.accuracy.refresh-interval-ms:300000}",
+               initialDelayString = "${gemnet.accuracy.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        requestRefresh();
+    }
+
+    /**
+     * Queue a background refresh. Requests made while one is already queued are coalesced.
+     */
+    public void requestRefresh() {
+        if (refreshQueued.compareAndSet(false, true)) {
+            refreshExecutor.submit(() -> {
+                refreshQueued.set(false);
+                refresh();
+            });
+        }
+    }
+
+    public boolean isRefreshing() {
+        return refreshing.get();
+    }
+
+    /**
+     * Latest report in the shape of the accuracy-analysis endpoint
+     */
+    public Map<String, Object> getReport() {
+        PredictionAccuracyReport report = latestReport;
+        Map<String, Object> response = new HashMap<>();
+
+        if (report == null) {
+            response.put("totalListings", 0);
+            response.put("accuracyResults", List.of());
+            response.put("overallStatistics", calculateOverallStatistics(List.of()));
+            response.put("speciesBreakdown", Map.of());
+            response.put("gradeBreakdown", Map.of());
+            response.put("lastRefreshedAt", null);
+            response.put("refreshing", isRefreshing());
+            response.put("status", "SUCCESS");
+            response.put("message", "Accuracy analysis is being computed in the background");
+            return response;
+        }
+
+        List<Map<String, Object>> accuracyResults = entries.values().stream()
+                .filter(entry -> entry.getAccuracyPercentage() != null)
+                .map(this::toResult)
+                .collect(Collectors.toList());
+
+        response.put("totalListings", report.getTotalListings());
+        response.put("accuracyResults", accuracyResults);
+        response.put("overallStatistics", report.getOverallStatistics());
+        response.put("speciesBreakdown", report.getSpeciesBreakdown());
+        response.put("gradeBreakdown", report.getGradeBreakdown());
+        response.put("lastRefreshedAt", report.getRefreshedAt());
+        response.put("refreshing", isRefreshing());
+        response.put("status", "SUCCESS");
+        response.put("message", "Accuracy analysis completed successfully");
+        return response;
+    }
+
+    private void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            Set<String> seenIds = new HashSet<>();
+            List<GemListing> changed = new ArrayList<>();
+            int recomputed = 0;
+
+            Query query = Query.query(Criteria.where("price").ne(null).and("weight").ne(null));
+            query.fields().include(ACCURACY_FIELDS);
+
+            try (Stream<GemListing> listings = mongoTemplate.stream(query, GemListing.class)) {
+                for (GemListing listing : (Iterable<GemListing>) listings::iterator) {
+                    seenIds.add(listing.getId());
+                    PredictionAccuracyEntry existing = entries.get(listing.getId());
+                    if (existing == null || !fingerprint(listing).equals(existing.getSourceFingerprint())) {
+                        changed.add(listing);
+                    }
+                    if (changed.size() >= batchSize) {
+                        recomputed += recompute(changed);
+                        changed.clear();
+                    }
+                }
+            }
+            recomputed += recompute(changed);
+
+            // Listings that were deleted or lost their price drop out of the report
+            List<String> removed = entries.keySet().stream()
+                    .filter(id -> !seenIds.contains(id))
+                    .collect(Collectors.toList());
+            if (!removed.isEmpty()) {
+                entryRepository.deleteAllById(removed);
+                removed.forEach(entries::remove);
+            }
+
+            PredictionAccuracyReport report = buildReport();
+            report.setRecomputedListings(recomputed);
+            report.setRemovedListings(removed.size());
+            report.setRefreshDurationMs(System.currentTimeMillis() - startTime);
+            latestReport = reportRepository.save(report);
+
+            logger.info("📊 Accuracy report refreshed: {} listings, {} recomputed, {} removed in {} ms",
+                       report.getTotalListings(), recomputed, removed.size(), report.getRefreshDurationMs());
+
+        } catch (Exception e) {
+            logger.error("❌ Error refreshing accuracy report", e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private int recompute(List<GemListing> listings) {
+        if (listings.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, PricePredictionResponse> predictions = pricePredictionService.predictPrices(listings);
+        List<PredictionAccuracyEntry> updated = new ArrayList<>(listings.size());
+
+        for (GemListing listing : listings) {
+            PredictionAccuracyEntry entry = new PredictionAccuracyEntry(listing.getId(), fingerprint(listing));
+            entry.setGemName(listing.getGemName());
+            entry.setSpecies(listing.getSpecies());
+            entry.setWeight(listing.getWeight());
+            entry.setColor(listing.getColor());
+            entry.setIsCertified(listing.getIsCertified());
+            entry.setCurrency(listing.getCurrency());
+            entry.setActualPrice(listing.getPrice().doubleValue());
+
+            PricePredictionResponse prediction = predictions.get(listing.getId());
+            if (prediction != null && !"ERROR".equals(prediction.getStatus())
+                    && prediction.getPredictedPrice() != null && prediction.getMinPrice() != null
+                    && prediction.getMaxPrice() != null) {
+                double actualPrice = listing.getPrice().doubleValue();
+                double predictedPrice = prediction.getPredictedPrice().doubleValue();
+                double minPrice = prediction.getMinPrice().doubleValue();
+                double maxPrice = prediction.getMaxPrice().doubleValue();
+                double accuracyPercentage = calculateAccuracyPercentage(actualPrice, predictedPrice, minPrice, maxPrice);
+                Double confidence = prediction.getConfidenceScore() != null
+                        ? prediction.getConfidenceScore() : prediction.getConfidence();
+
+                entry.setPredictedPrice(predictedPrice);
+                entry.setMinPrice(minPrice);
+                entry.setMaxPrice(maxPrice);
+                entry.setAccuracyPercentage(Math.round(accuracyPercentage * 100) / 100.0);
+                entry.setModelConfidence(confidence != null ? Math.round(confidence * 100) : null);
+                entry.setAccuracyGrade(getAccuracyGrade(accuracyPercentage));
+            }
+            // Entries without a prediction are kept so the listing is not retried until it changes
+
+            updated.add(entry);
+        }
+
+        entryRepository.saveAll(updated);
+        updated.forEach(entry -> entries.put(entry.getListingId(), entry));
+        return updated.size();
+    }
+
+    /**
+     * Identifies the listing state a stored accuracy entry was computed from
+     */
+    private String fingerprint(GemListing listing) {
+        return priceUpdateService.computePricingFingerprint(listing)
+                + "|" + listing.getOrigin()
+                + "|" + listing.getPrice().stripTrailingZeros().toPlainString()
+                + "|" + listing.getPricingVersion();
+    }
+
+    private PredictionAccuracyReport buildReport() {
+        List<PredictionAccuracyEntry> scored = entries.values().stream()
+                .filter(entry -> entry.getAccuracyPercentage() != null)
+                .collect(Collectors.toList());
+
+        Map<String, Map<String, Object>> speciesBreakdown = new LinkedHashMap<>();
+        scored.stream()
+                .collect(Collectors.groupingBy(entry -> entry.getSpecies() != null ? entry.getSpecies() : "Unknown"))
+                .forEach((species, group) -> {
+                    Map<String, Object> stats = calculateOverallStatistics(group);
+                    stats.put("count", group.size());
+                    speciesBreakdown.put(species, stats);
+                });
+
+        Map<String, Long> gradeBreakdown = scored.stream()
+                .collect(Collectors.groupingBy(PredictionAccuracyEntry::getAccuracyGrade, LinkedHashMap::new,
+                        Collectors.counting()));
+
+        PredictionAccuracyReport report = new PredictionAccuracyReport();
+        report.setTotalListings(scored.size());
+        report.setOverallStatistics(calculateOverallStatistics(scored));
+        report.setSpeciesBreakdown(speciesBreakdown);
+        report.setGradeBreakdown(gradeBreakdown);
+        report.setRefreshedAt(LocalDateTime.now());
+        return report;
+    }
+
+    private Map<String, Object> toResult(PredictionAccuracyEntry entry) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("listingId", entry.getListingId());
+        result.put("gemName", entry.getGemName());
+        result.put("species", entry.getSpecies());
+        result.put("weight", entry.getWeight());
+        result.put("color", entry.getColor());
+        result.put("actualPrice", entry.getActualPrice());
+        result.put("predictedPrice", entry.getPredictedPrice());
+        result.put("priceRange", entry.getMinPrice() + " - " + entry.getMaxPrice() + " LKR");
+        result.put("accuracyPercentage", entry.getAccuracyPercentage());
+        result.put("modelConfidence", entry.getModelConfidence());
+        result.put("isCertified", entry.getIsCertified());
+        result.put("currency", entry.getCurrency());
+        result.put("accuracyGrade", entry.getAccuracyGrade());
+        result.put("computedAt", entry.getComputedAt());
+        return result;
+    }
+
+    /**
+     * Calculate accuracy percentage based on how close predicted price is to actual price
+     */
+    private double calculateAccuracyPercentage(double actualPrice, double predictedPrice, double minPrice, double maxPrice) {
+        // Validate inputs to prevent NaN
+        if (actualPrice <= 0 || predictedPrice <= 0 || minPrice < 0 || maxPrice <= 0) {
+            return 0.0; // Invalid input, return 0% accuracy
+        }
+
+        // Method 1: Check if actual price falls within predicted range
+        boolean withinRange = actualPrice >= minPrice && actualPrice <= maxPrice;
+
+        if (withinRange) {
+            // If within range, calculate how close predicted price is to actual price
+            double difference = Math.abs(actualPrice - predictedPrice);
+            double relativeError = difference / actualPrice;
+            return Math.max(0, 100 - (relativeError * 100));
+        } else {
+            // If outside range, calculate distance from nearest range boundary
+            double distanceFromRange;
+            if (actualPrice < minPrice) {
+                distanceFromRange = minPrice - actualPrice;
+            } else {
+                distanceFromRange = actualPrice - maxPrice;
+            }
+
+            double relativeDistance = distanceFromRange / actualPrice;
+            double accuracy = Math.max(0, 100 - (relativeDistance * 100));
+
+            // Cap accuracy at 60% if outside predicted range
+            return Math.min(accuracy, 60.0);
+        }
+    }
+
+    /**
+     * Get accuracy grade based on percentage
+     */
+    private String getAccuracyGrade(double accuracyPercentage) {
+        if (accuracyPercentage >= 90) return "Excellent";
+        if (accuracyPercentage >= 80) return "Very Good";
+        if (accuracyPercentage >= 70) return "Good";
+        if (accuracyPercentage >= 60) return "Fair";
+        if (accuracyPercentage >= 40) return "Poor";
+        return "Very Poor";
+    }
+
+    /**
+     * Calculate overall statistics for accuracy results
+     */
+    private Map<String, Object> calculateOverallStatistics(List<PredictionAccuracyEntry> results) {
+        Map<String, Object> stats = new HashMap<>();
+
+        if (results.isEmpty()) {
+            stats.put("averageAccuracy", 0.0);
+            stats.put("highAccuracyCount", 0);
+            stats.put("mediumAccuracyCount", 0);
+            stats.put("lowAccuracyCount", 0);
+            stats.put("highAccuracyPercentage", 0);
+            stats.put("mediumAccuracyPercentage", 0);
+            stats.put("lowAccuracyPercentage", 0);
+            return stats;
+        }
+
+        double totalAccuracy = 0;
+        int highAccuracy = 0; // >= 70%
+        int mediumAccuracy = 0; // 40-69%
+        int lowAccuracy = 0; // < 40%
+
+        for (PredictionAccuracyEntry result : results) {
+            double accuracy = result.getAccuracyPercentage();
+
+            // Validate accuracy value
+            if (!Double.isNaN(accuracy) && Double.isFinite(accuracy)) {
+                totalAccuracy += accuracy;
+
+                if (accuracy >= 70) {
+                    highAccuracy++;
+                } else if (accuracy >= 40) {
+                    mediumAccuracy++;
+                } else {
+                    lowAccuracy++;
+                }
+            }
+        }
+
+        stats.put("averageAccuracy", Math.round((totalAccuracy / results.size()) * 100) / 100.0);
+        stats.put("highAccuracyCount", highAccuracy);
+        stats.put("mediumAccuracyCount", mediumAccuracy);
+        stats.put("lowAccuracyCount", lowAccuracy);
+        stats.put("highAccuracyPercentage", Math.round(((double) highAccuracy / results.size()) * 100));
+        stats.put("mediumAccuracyPercentage", Math.round(((double) mediumAccuracy / results.size()) * 100));
+        stats.put("lowAccuracyPercentage", Math.round(((double) lowAccuracy / results.size()) * 100));
+
+        return stats;
+    }
+}
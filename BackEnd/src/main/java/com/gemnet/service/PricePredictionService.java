@@ -1,19 +1,24 @@
 package com.gemnet.service;
 
+import com.gemnet.dto.CanonicalGemAttributes;
 import com.gemnet.dto.PricePredictionRequest;
 import com.gemnet.dto.PricePredictionResponse;
 import com.gemnet.model.GemListing;
-import com.gemnet.service.SriLankanMarketPriceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * Service for gemstone price prediction using CatBoost model
@@ -29,105 +34,39 @@ public class PricePredictionService {
     @Value("${gemnet.prediction.confidence.threshold:0.7}")
     private double confidenceThreshold;
 
+    @Value("${gemnet.prediction.bulk.parallelism:0}")
+    private int bulkParallelism;
+
+    @Value("${gemnet.prediction.bulk.ml-batch-size:200}")
+    private int mlBatchSize;
+
     @Autowired
     private MLPredictionService mlPredictionService;
     
+    @Autowired
+    private MLPredictionBatcher mlPredictionBatcher;
+    
     @Autowired
     private SriLankanMarketPriceService sriLankanMarketPriceService;
 
-    // Base price mappings for different gemstone species (in LKR)
-    private final Map<String, Double> basePricePerCarat = new HashMap<>();
-    private final Map<String, Double> colorMultipliers = new HashMap<>();
-    private final Map<String, Double> clarityMultipliers = new HashMap<>();
-    private final Map<String, Double> cutMultipliers = new HashMap<>();
+    @Autowired
+    private GemAttributeCanonicalizer canonicalizer;
 
-    public PricePredictionService() {
-        initializeModel();
-    }
+    // Bounded pool for bulk similarity scoring so large batches never take over the common pool
+    private ForkJoinPool bulkPredictionPool;
 
-    private void initializeModel() {
-        try {
-            // Initialize base prices per carat for different species (in LKR)
-            initializeBasePrices();
-            initializeMultipliers();
-            
-            logger.info("Price prediction service initialized successfully");
-        } catch (Exception e) {
-            logger.error("Failed to initialize price prediction service", e);
-        }
-    }
-
-    private void initializeBasePrices() {
-        // REAL Sri Lankan gem market base prices per carat in LKR (Updated 2025)
-        // These reflect current market rates for average quality stones
-        basePricePerCarat.put("sapphire", 90000.0);        // Blue sapphire base
-        basePricePerCarat.put("blue", 90000.0);            // Blue sapphire
-        basePricePerCarat.put("ruby", 150000.0);           // Ruby (rare in SL, higher price)
-        basePricePerCarat.put("red", 150000.0);            // Ruby
-        basePricePerCarat.put("padparadscha", 250000.0);   // Padparadscha premium
-        basePricePerCarat.put("yellow", 50000.0);          // Yellow sapphire
-        basePricePerCarat.put("pink", 75000.0);            // Pink sapphire  
-        basePricePerCarat.put("white", 35000.0);           // White sapphire
-        basePricePerCarat.put("green", 55000.0);           // Green sapphire
-        basePricePerCarat.put("purple", 60000.0);          // Purple sapphire
-        
-        // Other Sri Lankan gems
-        basePricePerCarat.put("spinel", 50000.0);          // Spinel
-        basePricePerCarat.put("garnet", 15000.0);          // Garnet (local)
-        basePricePerCarat.put("tourmaline", 20000.0);      // Tourmaline
-        basePricePerCarat.put("moonstone", 10000.0);       // Moonstone (famous SL gem)
-        basePricePerCarat.put("chrysoberyl", 75000.0);     // Chrysoberyl
-        basePricePerCarat.put("alexandrite", 180000.0);    // Alexandrite (rare)
-        
-        // International gems (higher due to import/rarity)
-        basePricePerCarat.put("emerald", 110000.0);        // Emerald
-        basePricePerCarat.put("diamond", 300000.0);        // Diamond
-        basePricePerCarat.put("topaz", 25000.0);           // Topaz
-        basePricePerCarat.put("aquamarine", 35000.0);      // Aquamarine
-        basePricePerCarat.put("zircon", 30000.0);          // Zircon
-        basePricePerCarat.put("peridot", 20000.0);         // Peridot
+    @PostConstruct
+    public void initBulkPredictionPool() {
+        int parallelism = bulkParallelism > 0 ? bulkParallelism : Runtime.getRuntime().availableProcessors();
+        bulkPredictionPool = new ForkJoinPool(parallelism);
+        logger.info("Bulk prediction pool initialized with parallelism {}", parallelism);
     }
 
-    private void initializeMultipliers() {
-        // Color multipliers
-        colorMultipliers.put("blue", 1.2);
-        colorMultipliers.put("red", 1.5);
-        colorMultipliers.put("pink", 1.3);
-        colorMultipliers.put("yellow", 1.1);
-        colorMultipliers.put("green", 1.15);
-        colorMultipliers.put("white", 1.0);
-        colorMultipliers.put("purple", 1.25);
-        colorMultipliers.put("orange", 1.1);
-        colorMultipliers.put("colorless", 1.0);
-
-        // Clarity multipliers
-        clarityMultipliers.put("fl", 2.0);      // Flawless
-        clarityMultipliers.put("if", 1.8);      // Internally Flawless
-        clarityMultipliers.put("vvs1", 1.6);    // Very Very Slightly Included 1
-        clarityMultipliers.put("vvs2", 1.5);    // Very Very Slightly Included 2
-        clarityMultipliers.put("vs1", 1.3);     // Very Slightly Included 1
-        clarityMultipliers.put("vs2", 1.2);     // Very Slightly Included 2
-        clarityMultipliers.put("si1", 1.0);     // Slightly Included 1
-        clarityMultipliers.put("si2", 0.9);     // Slightly Included 2
-        clarityMultipliers.put("i1", 0.7);      // Included 1
-        clarityMultipliers.put("i2", 0.6);      // Included 2
-        clarityMultipliers.put("i3", 0.5);      // Included 3
-
-        // Cut multipliers
-        cutMultipliers.put("excellent", 1.3);
-        cutMultipliers.put("very good", 1.2);
-        cutMultipliers.put("good", 1.1);
-        cutMultipliers.put("fair", 1.0);
-        cutMultipliers.put("poor", 0.8);
-        cutMultipliers.put("round", 1.2);
-        cutMultipliers.put("oval", 1.1);
-        cutMultipliers.put("cushion", 1.15);
-        cutMultipliers.put("emerald", 1.1);
-        cutMultipliers.put("princess", 1.1);
-        cutMultipliers.put("pear", 1.05);
-        cutMultipliers.put("marquise", 1.05);
-        cutMultipliers.put("heart", 1.0);
-        cutMultipliers.put("radiant", 1.0);
+    @PreDestroy
+    public void shutdownBulkPredictionPool() {
+        if (bulkPredictionPool != null) {
+            bulkPredictionPool.shutdown();
+        }
     }
 
     /**
@@ -174,14 +113,10 @@ public class PricePredictionService {
                 logger.info("🤖 Attempting ML prediction for certified gemstone");
                 
                 if (mlPredictionService.isMlServiceAvailable()) {
-                    PricePredictionResponse mlResponse = mlPredictionService.predictUsingFlaskAPI(request);
+                    // Coalesced with other concurrent predictions into one batched ML call
+                    PricePredictionResponse mlResponse = mlPredictionBatcher.predict(request);
                     if (mlResponse.isSuccess()) {
-                        // Enhance ML response with Sri Lankan market insights
-                        if (sriLankanResponse.getDataPoints() != null && sriLankanResponse.getDataPoints() > 0) {
-                            mlResponse = enhanceWithSriLankanInsights(mlResponse, sriLankanResponse);
-                        }
-                        logger.info("✅ ML prediction successful: {} LKR", mlResponse.getPredictedPrice());
-                        return mlResponse;
+                        return applyMlPrediction(mlResponse, sriLankanResponse);
                     } else {
                         logger.warn("⚠️ ML prediction failed: {}", mlResponse.getMessage());
                     }
@@ -190,91 +125,207 @@ public class PricePredictionService {
                 }
             }
 
-            // PRIORITY 3: Sri Lankan market data (even if lower confidence)
-            if (sriLankanResponse.getDataPoints() != null && sriLankanResponse.getDataPoints() > 0) {
-                logger.info("� Using available Sri Lankan market data: {} LKR ({}% confidence)", 
-                           sriLankanResponse.getPredictedPrice(), 
-                           Math.round(sriLankanResponse.getConfidence() * 100));
-                return sriLankanResponse;
-            }
+            return predictWithoutMl(request, sriLankanResponse);
 
-            // PRIORITY 4: Rule-based prediction (Fallback)
-            logger.info("📐 Fallback to rule-based Sri Lankan market estimation");
-            BigDecimal predictedPrice = calculateRuleBasedPrice(request);
-            double confidenceScore = calculateConfidenceScore(request);
-            
-            // Create enhanced response
-            PricePredictionResponse response = new PricePredictionResponse();
-            response.setPredictedPrice(predictedPrice);
-            response.setConfidence(confidenceScore);
-            response.setMethodUsed("Rule-based Sri Lankan Market Estimation");
-            response.setAccuracyScore(0.65); // Rule-based accuracy
-            
-            // Calculate price ranges - create tight ranges around seller's price
-            BigDecimal minPrice, maxPrice;
-            if (request.getSellerPrice() != null && request.getSellerPrice() > 0) {
-                // Always prioritize seller's price for realistic ranges
-                BigDecimal sellerPrice = BigDecimal.valueOf(request.getSellerPrice());
-                
-                // Give 85% weight to seller's price and 15% to AI prediction for realistic ranges
-                BigDecimal weightedPrice = sellerPrice.multiply(BigDecimal.valueOf(0.85))
-                                                   .add(predictedPrice.multiply(BigDecimal.valueOf(0.15)));
-                
-                // Use very tight variance (3-4%) to keep ranges realistic
-                BigDecimal variance;
-                if (Boolean.TRUE.equals(request.getIsCertified())) {
-                    // For certified gems, use 4% variance
-                    variance = sellerPrice.multiply(BigDecimal.valueOf(0.04));
-                } else {
-                    // For non-certified gems, use 3% variance  
-                    variance = sellerPrice.multiply(BigDecimal.valueOf(0.03));
+        } catch (Exception e) {
+            logger.error("❌ Error in price prediction", e);
+            return PricePredictionResponse.error("Price prediction failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Predict prices for many listings at once.
+     * Requests are built once per listing, Sri Lankan similarity scoring fans out on a bounded
+     * fork-join pool, and certified gems that still need the ML model are scored with batched
+     * calls after a single availability check. Results are keyed by listing ID in input order.
+     */
+    public Map<String, PricePredictionResponse> predictPrices(List<GemListing> gemListings) {
+        Map<String, PricePredictionResponse> results = new LinkedHashMap<>();
+        if (gemListings.isEmpty()) {
+            return results;
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        // Stage 1: build prediction requests and run similarity scoring in parallel
+        List<BulkItem> items;
+        try {
+            items = bulkPredictionPool.submit(() -> gemListings.parallelStream()
+                    .map(this::prepareBulkItem)
+                    .collect(Collectors.toList()))
+                .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk prediction interrupted", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Bulk prediction failed: " + e.getMessage(), e);
+        }
+
+        // Stage 2: batch the certified gems that still need the ML model
+        List<BulkItem> mlCandidates = items.stream()
+                .filter(item -> item.result == null && Boolean.TRUE.equals(item.request.getIsCertified()))
+                .collect(Collectors.toList());
+
+        if (!mlCandidates.isEmpty() && mlPredictionService.isMlServiceAvailable()) {
+            int batchSize = Math.max(1, mlBatchSize);
+            for (int from = 0; from < mlCandidates.size(); from += batchSize) {
+                List<BulkItem> batch = mlCandidates.subList(from, Math.min(from + batchSize, mlCandidates.size()));
+                List<PricePredictionResponse> mlResponses = mlPredictionService.predictBatchUsingFlaskAPI(
+                        batch.stream().map(item -> item.request).collect(Collectors.toList()));
+
+                for (int i = 0; i < batch.size(); i++) {
+                    PricePredictionResponse mlResponse = mlResponses.get(i);
+                    if (mlResponse.isSuccess()) {
+                        batch.get(i).result = applyMlPrediction(mlResponse, batch.get(i).sriLankanResponse);
+                    }
                 }
-                
-                // Create tight bounds around seller's price
-                minPrice = sellerPrice.subtract(variance).max(BigDecimal.ZERO);
-                maxPrice = sellerPrice.add(variance);
-                
-                // Ensure the range stays within ±8% of seller's price maximum
-                minPrice = minPrice.max(sellerPrice.multiply(BigDecimal.valueOf(0.92)));
-                maxPrice = maxPrice.min(sellerPrice.multiply(BigDecimal.valueOf(1.08)));
-                
-                logger.info("🎯 Seller-anchored range: Predicted: {} LKR, Seller: {} LKR, Final: {} - {} LKR", 
-                           predictedPrice, sellerPrice, minPrice, maxPrice);
-            } else {
-                // Original logic when seller's price is not available
-                if (Boolean.TRUE.equals(request.getIsCertified())) {
-                    BigDecimal variance = predictedPrice.multiply(BigDecimal.valueOf(0.15));
-                    minPrice = predictedPrice.subtract(variance).max(BigDecimal.ZERO);
-                    maxPrice = predictedPrice.add(variance);
-                } else {
-                    minPrice = predictedPrice;
-                    maxPrice = predictedPrice;
+            }
+        } else if (!mlCandidates.isEmpty()) {
+            logger.warn("⚠️ ML service not available for {} certified gemstones in bulk request", mlCandidates.size());
+        }
+
+        // Stage 3: everything else falls back to market data or rules
+        for (BulkItem item : items) {
+            if (item.result == null) {
+                try {
+                    item.result = predictWithoutMl(item.request, item.sriLankanResponse);
+                } catch (Exception e) {
+                    logger.error("Error predicting price for gem listing: " + item.listingId, e);
+                    item.result = PricePredictionResponse.error("Failed to predict price: " + e.getMessage());
                 }
             }
+            results.put(item.listingId, item.result);
+        }
 
-            // Round to nearest 1000 LKR
-            predictedPrice = roundToNearest(predictedPrice, 1000);
-            minPrice = roundToNearest(minPrice, 1000);
-            maxPrice = roundToNearest(maxPrice, 1000);
+        logger.info("💎 Bulk prediction completed for {} listings ({} ML candidates) in {} ms",
+                   items.size(), mlCandidates.size(), System.currentTimeMillis() - startTime);
 
-            response.setPredictedPrice(predictedPrice);
-            response.setMinPrice(minPrice);
-            response.setMaxPrice(maxPrice);
-            response.setConfidenceScore(confidenceScore);
-            response.setPredictionMethod("Enhanced Sri Lankan Rule-based");
-            response.setModelAccuracy(65.0); // Rule-based accuracy percentage
+        return results;
+    }
 
-            logger.info("💎 Final prediction: {} LKR (confidence: {}%)", 
-                       predictedPrice, Math.round(confidenceScore * 100));
+    private BulkItem prepareBulkItem(GemListing gemListing) {
+        BulkItem item = new BulkItem(gemListing.getId());
+        try {
+            item.request = convertToRequest(gemListing);
 
-            return response;
+            if (item.request.getCarat() == null || item.request.getCarat() <= 0) {
+                item.result = PricePredictionResponse.error("Invalid carat weight");
+                return item;
+            }
+            if (item.request.getSpecies() == null || item.request.getSpecies().trim().isEmpty()) {
+                item.result = PricePredictionResponse.error("Species is required");
+                return item;
+            }
 
+            item.sriLankanResponse = sriLankanMarketPriceService.predictSriLankanPrice(item.request);
+            if (item.sriLankanResponse.getAccuracyScore() != null && item.sriLankanResponse.getAccuracyScore() > 0.75) {
+                item.result = item.sriLankanResponse;
+            }
         } catch (Exception e) {
-            logger.error("❌ Error in price prediction", e);
-            return PricePredictionResponse.error("Price prediction failed: " + e.getMessage());
+            logger.error("Error preparing bulk prediction for gem listing: " + gemListing.getId(), e);
+            item.result = PricePredictionResponse.error("Failed to predict price: " + e.getMessage());
         }
+        return item;
     }
-    
+
+    /**
+     * Merge a successful ML prediction with the Sri Lankan market analysis
+     */
+    private PricePredictionResponse applyMlPrediction(PricePredictionResponse mlResponse,
+                                                      PricePredictionResponse sriLankanResponse) {
+        // Enhance ML response with Sri Lankan market insights
+        if (sriLankanResponse.getDataPoints() != null && sriLankanResponse.getDataPoints() > 0) {
+            mlResponse = enhanceWithSriLankanInsights(mlResponse, sriLankanResponse);
+        }
+        logger.info("✅ ML prediction successful: {} LKR", mlResponse.getPredictedPrice());
+        return mlResponse;
+    }
+
+    /**
+     * Priorities 3 and 4: lower-confidence Sri Lankan market data, then the rule-based estimate
+     */
+    private PricePredictionResponse predictWithoutMl(PricePredictionRequest request,
+                                                     PricePredictionResponse sriLankanResponse) {
+        // PRIORITY 3: Sri Lankan market data (even if lower confidence)
+        if (sriLankanResponse.getDataPoints() != null && sriLankanResponse.getDataPoints() > 0) {
+            logger.info("� Using available Sri Lankan market data: {} LKR ({}% confidence)", 
+                       sriLankanResponse.getPredictedPrice(), 
+                       Math.round(sriLankanResponse.getConfidence() * 100));
+            return sriLankanResponse;
+        }
+
+        // PRIORITY 4: Rule-based prediction (Fallback)
+        logger.info("📐 Fallback to rule-based Sri Lankan market estimation");
+        BigDecimal predictedPrice = calculateRuleBasedPrice(request);
+        double confidenceScore = calculateConfidenceScore(request);
+        
+        // Create enhanced response
+        PricePredictionResponse response = new PricePredictionResponse();
+        response.setPredictedPrice(predictedPrice);
+        response.setConfidence(confidenceScore);
+        response.setMethodUsed("Rule-based Sri Lankan Market Estimation");
+        response.setAccuracyScore(0.65); // Rule-based accuracy
+        
+        // Calculate price ranges - create tight ranges around seller's price
+        BigDecimal minPrice, maxPrice;
+        if (request.getSellerPrice() != null && request.getSellerPrice() > 0) {
+            // Always prioritize seller's price for realistic ranges
+            BigDecimal sellerPrice = BigDecimal.valueOf(request.getSellerPrice());
+            
+            // Give 85% weight to seller's price and 15% to AI prediction for realistic ranges
+            BigDecimal weightedPrice = sellerPrice.multiply(BigDecimal.valueOf(0.85))
+                                               .add(predictedPrice.multiply(BigDecimal.valueOf(0.15)));
+            
+            // Use very tight variance (3-4%) to keep ranges realistic
+            BigDecimal variance;
+            if (Boolean.TRUE.equals(request.getIsCertified())) {
+                // For certified gems, use 4% variance
+                variance = sellerPrice.multiply(BigDecimal.valueOf(0.04));
+            } else {
+                // For non-certified gems, use 3% variance  
+                variance = sellerPrice.multiply(BigDecimal.valueOf(0.03));
+            }
+            
+            // Create tight bounds around seller's price
+            minPrice = sellerPrice.subtract(variance).max(BigDecimal.ZERO);
+            maxPrice = sellerPrice.add(variance);
+            
+            // Ensure the range stays within ±8% of seller's price maximum
+            minPrice = minPrice.max(sellerPrice.multiply(BigDecimal.valueOf(0.92)));
+            maxPrice = maxPrice.min(sellerPrice.multiply(BigDecimal.valueOf(1.08)));
+            
+            logger.info("🎯 Seller-anchored range: Predicted: {} LKR, Seller: {} LKR, Final: {} - {} LKR", 
+                       predictedPrice, sellerPrice, minPrice, maxPrice);
+        } else {
+            // Original logic when seller's price is not available
+            if (Boolean.TRUE.equals(request.getIsCertified())) {
+                BigDecimal variance = predictedPrice.multiply(BigDecimal.valueOf(0.15));
+                minPrice = predictedPrice.subtract(variance).max(BigDecimal.ZERO);
+                maxPrice = predictedPrice.add(variance);
+            } else {
+                minPrice = predictedPrice;
+                maxPrice = predictedPrice;
+            }
+        }
+
+        // Round to nearest 1000 LKR
+        predictedPrice = roundToNearest(predictedPrice, 1000);
+        minPrice = roundToNearest(minPrice, 1000);
+        maxPrice = roundToNearest(maxPrice, 1000);
+
+        response.setPredictedPrice(predictedPrice);
+        response.setMinPrice(minPrice);
+        response.setMaxPrice(maxPrice);
+        response.setConfidenceScore(confidenceScore);
+        response.setPredictionMethod("Enhanced Sri Lankan Rule-based");
+        response.setModelAccuracy(65.0); // Rule-based accuracy percentage
+
+        logger.info("💎 Final prediction: {} LKR (confidence: {}%)", 
+                   predictedPrice, Math.round(confidenceScore * 100));
+
+        return response;
+    }
+
     /**
      * Enhance ML prediction response with Sri Lankan market insights
      */
@@ -301,35 +352,16 @@ public class PricePredictionService {
     }
 
     private BigDecimal calculateRuleBasedPrice(PricePredictionRequest request) {
-        String species = request.getSpecies().toLowerCase().trim();
+        CanonicalGemAttributes attributes = canonicalizer.canonicalize(request);
         Double carat = request.getCarat();
 
-        // Get base price per carat
-        Double basePrice = basePricePerCarat.getOrDefault(species, 25000.0); // Default price
-
-        // Apply carat weight
-        double totalPrice = basePrice * carat;
-
-        // Apply color multiplier
-        if (request.getColor() != null) {
-            String color = request.getColor().toLowerCase().trim();
-            Double colorMultiplier = colorMultipliers.getOrDefault(color, 1.0);
-            totalPrice *= colorMultiplier;
-        }
-
-        // Apply clarity multiplier
-        if (request.getClarity() != null) {
-            String clarity = request.getClarity().toLowerCase().trim();
-            Double clarityMultiplier = clarityMultipliers.getOrDefault(clarity, 1.0);
-            totalPrice *= clarityMultiplier;
-        }
+        // Base price per carat for the species, then apply carat weight
+        double totalPrice = attributes.getSpecies().getBasePricePerCarat() * carat;
 
-        // Apply cut multiplier
-        if (request.getCut() != null) {
-            String cut = request.getCut().toLowerCase().trim();
-            Double cutMultiplier = cutMultipliers.getOrDefault(cut, 1.0);
-            totalPrice *= cutMultiplier;
-        }
+        // Apply color, clarity and cut multipliers (unknown values are neutral)
+        totalPrice *= attributes.getColor().getRuleMultiplier();
+        totalPrice *= attributes.getClarity().getRuleMultiplier();
+        totalPrice *= attributes.getCut().getRuleMultiplier();
 
         // Apply certification bonus
         if (Boolean.TRUE.equals(request.getIsCertified())) {
@@ -415,4 +447,18 @@ public class PricePredictionService {
 
         return request;
     }
+
+    /**
+     * Per-listing state carried through the bulk prediction stages
+     */
+    private static class BulkItem {
+        private final String listingId;
+        private PricePredictionRequest request;
+        private PricePredictionResponse sriLankanResponse;
+        private PricePredictionResponse result;
+
+        BulkItem(String listingId) {
+            this.listingId = listingId;
+        }
+    }
 }
@@ -0,0 +1,509 @@
+package com.gemnet.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * S3-protocol backend (AWS S3, MinIO) for running several nodes against one bucket.
+ * Large files are uploaded in parts, clients can be handed presigned GET URLs, and the
+ * local uploads directory acts as a size-bounded read-through cache of hot objects
+ * (least recently used files are evicted once they are confirmed to be in the bucket).
+ */
+@Service
+@ConditionalOnProperty(name = "app.file-storage.backend", havingValue = "s3")
+public class S3BlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3BlobStore.class);
+
+    private static final String CACHE_TEMP_DIRECTORY = ".cache-tmp";
+
+    @Value("${app.file-storage.base-path:./uploads}")
+    private String baseStoragePath;
+
+    @Value("${app.file-storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${app.file-storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.file-storage.s3.bucket:gemnet-uploads}")
+    private String bucket;
+
+    @Value("${app.file-storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${app.file-storage.s3.secret-key:}")
+    private String secretKey;
+
+    // MinIO and most self-hosted stand-ins need path-style URLs
+    @Value("${app.file-storage.s3.path-style-access:true}")
+    private boolean pathStyleAccess;
+
+    @Value("${app.file-storage.s3.create-bucket:false}")
+    private boolean createBucket;
+
+    @Value("${app.file-storage.s3.key-prefix:}")
+    private String keyPrefix;
+
+    @Value("${app.file-storage.s3.multipart-part-size-mb:8}")
+    private int partSizeMb;
+
+    @Value("${app.file-storage.s3.presign-min-bytes:8388608}")
+    private long presignMinBytes;
+
+    @Value("${app.file-storage.s3.cache-max-mb:2048}")
+    private long cacheMaxMb;
+
+    private S3Client s3;
+    private S3Presigner presigner;
+    private Path cacheRoot;
+    private Path cacheTemp;
+    private int partSize;
+    private long cacheMaxBytes;
+
+    private final Map<Path, Long> lastAccess = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Path>> downloads = new ConcurrentHashMap<>();
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+    private ExecutorService evictionExecutor;
+
+    @PostConstruct
+    public void init() {
+        partSize = Math.max(5, partSizeMb) * 1024 * 1024; // S3 minimum part size is 5 MB
+        cacheMaxBytes = cacheMaxMb * 1024 * 1024;
+
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+            ? DefaultCredentialsProvider.create()
+            : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3Configuration serviceConfiguration = S3Configuration.builder()
+            .pathStyleAccessEnabled(pathStyleAccess)
+            .build();
+
+        var clientBuilder = S3Client.builder()
+            .region(Region.of(region))
+            .credentialsProvider(credentials)
+            .serviceConfiguration(serviceConfiguration);
+        var presignerBuilder = S3Presigner.builder()
+            .region(Region.of(region))
+            .credentialsProvider(credentials)
+            .serviceConfiguration(serviceConfiguration);
+        if (!endpoint.isBlank()) {
+            clientBuilder.endpointOverride(URI.create(endpoint));
+            presignerBuilder.endpointOverride(URI.create(endpoint));
+        }
+        s3 = clientBuilder.build();
+        presigner = presignerBuilder.build();
+
+        try {
+            cacheRoot = Paths.get(baseStoragePath).toAbsolutePath().normalize();
+            cacheTemp = cacheRoot.resolve(CACHE_TEMP_DIRECTORY);
+            Files.createDirectories(cacheTemp);
+            cachedBytes.set(cacheSize());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not initialize blob cache directory", e);
+        }
+
+        evictionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "blob-cache-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        ensureBucket();
+        logger.info("🪣 S3 blob store ready: bucket {} at {} (cache {} MB at {})",
+                   bucket, endpoint.isBlank() ? "AWS " + region : endpoint, cacheMaxMb, cacheRoot);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictionExecutor.shutdownNow();
+        presigner.close();
+        s3.close();
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        long size = Files.size(source);
+        try {
+            if (size <= partSize) {
+                s3.putObject(PutObjectRequest.builder()
+                        .bucket(bucket).key(objectKey(key)).contentType(contentType).contentLength(size).build(),
+                    RequestBody.fromFile(source));
+            } else {
+                try (InputStream input = Files.newInputStream(source)) {
+                    uploadMultipart(key, input, contentType);
+                }
+            }
+        } catch (S3Exception e) {
+            throw new IOException("Upload of " + key + " failed: " + e.getMessage(), e);
+        }
+
+        // Fresh uploads are the hottest objects, keep them in the cache
+        Path cached = cachePath(key);
+        if (!source.toAbsolutePath().normalize().equals(cached)) {
+            Files.createDirectories(cached.getParent());
+            move(source, cached);
+        }
+        addToCache(cached, size);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path cached = cachePath(key);
+        if (Files.isRegularFile(cached)) {
+            lastAccess.put(cached, System.currentTimeMillis());
+            return Files.newInputStream(cached);
+        }
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (S3Exception e) {
+            throw new IOException("Download of " + key + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        Path cached = cachePath(key);
+        if (Files.isRegularFile(cached)) {
+            return Files.size(cached);
+        }
+        return remoteSize(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey(key)).build());
+        } catch (S3Exception e) {
+            throw new IOException("Delete of " + key + " failed: " + e.getMessage(), e);
+        }
+        Path cached = cachePath(key);
+        long size = Files.isRegularFile(cached) ? Files.size(cached) : 0;
+        if (Files.deleteIfExists(cached)) {
+            cachedBytes.addAndGet(-size);
+        }
+        lastAccess.remove(cached);
+    }
+
+    @Override
+    public Path localPath(String key) throws IOException {
+        Path cached = cachePath(key);
+        if (Files.isRegularFile(cached)) {
+            lastAccess.put(cached, System.currentTimeMillis());
+            return cached;
+        }
+
+        // One download per key; concurrent readers wait for it
+        CompletableFuture<Path> download = new CompletableFuture<>();
+        CompletableFuture<Path> inProgress = downloads.putIfAbsent(key, download);
+        if (inProgress != null) {
+            return await(inProgress);
+        }
+        try {
+            Path path = download(key, cached);
+            download.complete(path);
+            return path;
+        } catch (IOException | RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            downloads.remove(key);
+        }
+    }
+
+    @Override
+    public Optional<String> presignedUrl(String key, Duration validity) {
+        try {
+            GetObjectPresignRequest request = GetObjectPresignRequest.builder()
+                .signatureDuration(validity)
+                .getObjectRequest(GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build())
+                .build();
+            return Optional.of(presigner.presignGetObject(request).url().toString());
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not presign {}: {}", key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public long directDownloadThreshold() {
+        return presignMinBytes;
+    }
+
+    @Override
+    public String getType() {
+        return "s3";
+    }
+
+    /**
+     * Stream an upload to the bucket one part at a time, so only one part is held in memory
+     */
+    private void uploadMultipart(String key, InputStream input, String contentType) {
+        String objectKey = objectKey(key);
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(objectKey).contentType(contentType).build())
+            .uploadId();
+        try {
+            List<CompletedPart> parts = new ArrayList<>();
+            byte[] buffer = new byte[partSize];
+            int partNumber = 1;
+            int length;
+            while ((length = input.readNBytes(buffer, 0, partSize)) > 0) {
+                String etag = s3.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucket).key(objectKey).uploadId(uploadId)
+                        .partNumber(partNumber).contentLength((long) length).build(),
+                    RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length))
+                    .eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+                partNumber++;
+            }
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucket).key(objectKey).uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+            logger.debug("Uploaded {} in {} parts", key, parts.size());
+        } catch (Exception e) {
+            try {
+                s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket).key(objectKey).uploadId(uploadId).build());
+            } catch (Exception abortFailure) {
+                logger.warn("⚠️ Could not abort multipart upload of {}: {}", key, abortFailure.getMessage());
+            }
+            throw e instanceof RuntimeException ? (RuntimeException) e : new IllegalStateException(e);
+        }
+    }
+
+    private Path download(String key, Path cached) throws IOException {
+        Path temp = cacheTemp.resolve(UUID.randomUUID() + ".part");
+        try {
+            s3.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey(key)).build(),
+                ResponseTransformer.toFile(temp));
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            throw new IOException("Download of " + key + " failed: " + e.getMessage(), e);
+        }
+
+        try {
+            Files.createDirectories(cached.getParent());
+            long size = Files.size(temp);
+            move(temp, cached);
+            addToCache(cached, size);
+            return cached;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private long remoteSize(String key) throws IOException {
+        try {
+            return s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(objectKey(key)).build())
+                .contentLength();
+        } catch (NoSuchKeyException e) {
+            return -1;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return -1;
+            }
+            throw new IOException("Lookup of " + key + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void addToCache(Path cached, long size) {
+        lastAccess.put(cached, System.currentTimeMillis());
+        if (cachedBytes.addAndGet(size) > cacheMaxBytes && evictionScheduled.compareAndSet(false, true)) {
+            evictionExecutor.submit(this::evict);
+        }
+    }
+
+    /**
+     * Drop least recently used cache files until the cache is back under 90% of its limit.
+     * Files that are not in the bucket (pre-migration local uploads) are never evicted.
+     */
+    private void evict() {
+        try {
+            long target = cacheMaxBytes * 9 / 10;
+            List<Path> files = cacheFiles();
+            long total = 0;
+            for (Path file : files) {
+                total += sizeOf(file);
+            }
+            cachedBytes.set(total);
+            if (total <= target) {
+                return;
+            }
+
+            files.sort(Comparator.comparingLong(this::lastAccessOf));
+            long evicted = 0;
+            int count = 0;
+            for (Path file : files) {
+                if (total <= target) {
+                    break;
+                }
+                String key = cacheRoot.relativize(file).toString().replace('\\', '/');
+                long size = sizeOf(file);
+                if (remoteSize(key) != size) {
+                    continue;
+                }
+                if (Files.deleteIfExists(file)) {
+                    total -= size;
+                    evicted += size;
+                    count++;
+                }
+                lastAccess.remove(file);
+            }
+            cachedBytes.set(total);
+            logger.info("🧹 Evicted {} cached blobs ({} bytes), cache now {} bytes", count, evicted, total);
+        } catch (Exception e) {
+            logger.warn("⚠️ Blob cache eviction failed: {}", e.getMessage());
+        } finally {
+            evictionScheduled.set(false);
+        }
+    }
+
+    private long cacheSize() throws IOException {
+        long total = 0;
+        for (Path file : cacheFiles()) {
+            total += sizeOf(file);
+        }
+        return total;
+    }
+
+    private List<Path> cacheFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(cacheRoot)) {
+            return files
+                .filter(Files::isRegularFile)
+                .filter(file -> !file.startsWith(cacheTemp) && !file.getFileName().toString().endsWith(".part"))
+                .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private long lastAccessOf(Path file) {
+        Long accessed = lastAccess.get(file);
+        if (accessed != null) {
+            return accessed;
+        }
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void ensureBucket() {
+        try {
+            s3.headBucket(HeadBucketRequest.builder().bucket(bucket).build());
+        } catch (NoSuchBucketException e) {
+            if (createBucket) {
+                s3.createBucket(CreateBucketRequest.builder().bucket(bucket).build());
+                logger.info("🪣 Created bucket {}", bucket);
+            } else {
+                logger.warn("⚠️ Bucket {} does not exist", bucket);
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not reach bucket {}: {}", bucket, e.getMessage());
+        }
+    }
+
+    private Path await(CompletableFuture<Path> download) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for download", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private String objectKey(String key) {
+        return keyPrefix + key;
+    }
+
+    private Path cachePath(String key) {
+        Path path = cacheRoot.resolve(key).normalize();
+        if (!path.startsWith(cacheRoot)) {
+            throw new IllegalArgumentException("Blob key is outside the storage directory: " + key);
+        }
+        return path;
+    }
+}
@@ -1,5 +1,7 @@
 package com.gemnet.service;
 
+import com.gemnet.dto.CanonicalGemAttributes;
+
 import java.math.BigDecimal;
 
 /**
@@ -33,6 +35,9 @@ public class SriLankanGemData {
     private String sellerType;
     private String notes;
     
+    // Canonical codes resolved once when the dataset is loaded
+    private CanonicalGemAttributes canonicalAttributes;
+    
     // Default constructor
     public SriLankanGemData() {}
     
@@ -237,6 +242,14 @@ public class SriLankanGemData {
         this.notes = notes;
     }
     
+    public CanonicalGemAttributes getCanonicalAttributes() {
+        return canonicalAttributes;
+    }
+    
+    public void setCanonicalAttributes(CanonicalGemAttributes canonicalAttributes) {
+        this.canonicalAttributes = canonicalAttributes;
+    }
+    
     @Override
     public String toString() {
         return "SriLankanGemData{" +
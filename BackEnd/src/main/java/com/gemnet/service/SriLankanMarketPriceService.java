@@ -1,13 +1,17 @@
 package com.gemnet.service;
 
+import com.gemnet.dto.CanonicalGemAttributes;
 import com.gemnet.dto.PricePredictionRequest;
 import com.gemnet.dto.PricePredictionResponse;
+import com.gemnet.enums.GemColor;
+import com.gemnet.enums.GemSpecies;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -17,18 +21,28 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 @Service
 public class SriLankanMarketPriceService {
     
     private static final Logger logger = LoggerFactory.getLogger(SriLankanMarketPriceService.class);
     
+    @Autowired
+    private GemAttributeCanonicalizer canonicalizer;
+    
     private List<SriLankanGemData> gemDataset = new ArrayList<>();
-    private Map<String, List<SriLankanGemData>> gemTypeIndex = new HashMap<>();
+    private Map<GemSpecies, List<SriLankanGemData>> gemTypeIndex = new EnumMap<>(GemSpecies.class);
     private Map<String, List<SriLankanGemData>> locationIndex = new HashMap<>();
     private Map<String, List<SriLankanGemData>> qualityIndex = new HashMap<>();
     
-    @PostConstruct
+    @Value("${gemnet.pricing.model-version:1}")
+    private String modelVersion;
+    
+    // Identifies the dataset contents plus model version; listings priced under another version are stale
+    private String datasetVersion = "unloaded";
+    
+    // Run by the StartupOrchestrator, in parallel with the other startup initializers
     public void loadSriLankanDataset() {
         try {
             try (InputStream inputStream = getClass().getResourceAsStream("/dataset/sri_lankan_gemstone_dataset_full.csv");
@@ -41,8 +55,10 @@ public class SriLankanMarketPriceService {
                 
                 String line;
                 boolean isFirstLine = true;
+                CRC32 checksum = new CRC32();
                 
                 while ((line = reader.readLine()) != null) {
+                    checksum.update(line.getBytes(java.nio.charset.StandardCharsets.UTF_8));
                     if (isFirstLine) {
                         isFirstLine = false;
                         continue; // Skip header
@@ -50,16 +66,21 @@ public class SriLankanMarketPriceService {
                     
                     SriLankanGemData gemData = parseCsvLine(line);
                     if (gemData != null) {
+                        CanonicalGemAttributes attributes = canonicalizer.canonicalize(
+                            gemData.getGemType(), gemData.getColor(), gemData.getClarity(), gemData.getCut());
+                        gemData.setCanonicalAttributes(attributes);
                         gemDataset.add(gemData);
                         
                         // Build indices for faster lookup
-                        gemTypeIndex.computeIfAbsent(gemData.getGemType().toLowerCase(), k -> new ArrayList<>()).add(gemData);
+                        gemTypeIndex.computeIfAbsent(attributes.getSpecies().getFamily(), k -> new ArrayList<>()).add(gemData);
                         locationIndex.computeIfAbsent(gemData.getMiningLocation().toLowerCase(), k -> new ArrayList<>()).add(gemData);
                         qualityIndex.computeIfAbsent(gemData.getQualityGrade(), k -> new ArrayList<>()).add(gemData);
                     }
                 }
                 
-                logger.info("Loaded {} Sri Lankan gemstone records", gemDataset.size());
+                datasetVersion = modelVersion + "-" + Long.toHexString(checksum.getValue());
+                
+                logger.info("Loaded {} Sri Lankan gemstone records (version {})", gemDataset.size(), datasetVersion);
                 logger.info("Gem types available: {}", gemTypeIndex.keySet());
                 logger.info("Mining locations: {}", locationIndex.keySet());
                 
@@ -105,19 +126,29 @@ public class SriLankanMarketPriceService {
         }
     }
     
+    /**
+     * Version of the loaded dataset and pricing model, used to detect stale listing prices
+     */
+    public String getDatasetVersion() {
+        return datasetVersion;
+    }
+    
     public PricePredictionResponse predictSriLankanPrice(PricePredictionRequest request) {
         logger.info("Predicting price for Sri Lankan market with request: {}", request);
         
         try {
             // Find similar gems in the Sri Lankan dataset
-            List<SriLankanGemData> similarGems = findSimilarGems(request);
+            List<ScoredGem> scoredGems = findSimilarGems(request);
             
-            if (similarGems.isEmpty()) {
+            if (scoredGems.isEmpty()) {
                 return createFallbackResponse(request);
             }
+            List<SriLankanGemData> similarGems = scoredGems.stream()
+                    .map(ScoredGem::getGem)
+                    .collect(Collectors.toList());
             
             // Calculate weighted price based on similarity
-            PriceAnalysis analysis = calculateWeightedPrice(similarGems, request);
+            PriceAnalysis analysis = calculateWeightedPrice(scoredGems, request);
             
             // Adjust price range if seller's price is available
             BigDecimal finalMinPrice = analysis.getMinPrice();
@@ -164,81 +195,40 @@ public class SriLankanMarketPriceService {
         }
     }
     
-    private List<SriLankanGemData> findSimilarGems(PricePredictionRequest request) {
-        List<SriLankanGemData> candidates = new ArrayList<>();
+    private List<ScoredGem> findSimilarGems(PricePredictionRequest request) {
+        CanonicalGemAttributes attributes = canonicalizer.canonicalize(request);
         
         // Start with gem type match
-        String gemType = mapSpeciesToGemType(request.getSpecies());
-        List<SriLankanGemData> typeMatches = gemTypeIndex.getOrDefault(gemType.toLowerCase(), new ArrayList<>());
-        
-        if (typeMatches.isEmpty()) {
+        List<SriLankanGemData> candidates = gemTypeIndex.getOrDefault(attributes.getSpecies().getFamily(), Collections.emptyList());
+        if (candidates.isEmpty()) {
             // Fallback to all gems if no type match
-            candidates.addAll(gemDataset);
-        } else {
-            candidates.addAll(typeMatches);
+            candidates = gemDataset;
         }
         
-        // Filter and score by similarity
+        // Filter and score by similarity; each candidate is scored once
         return candidates.stream()
-                .filter(gem -> isReasonableMatch(gem, request))
-                .sorted((a, b) -> Double.compare(calculateSimilarityScore(b, request), 
-                                               calculateSimilarityScore(a, request)))
+                .filter(gem -> isReasonableMatch(gem, request, attributes))
+                .map(gem -> new ScoredGem(gem, calculateSimilarityScore(gem, request, attributes)))
+                .sorted((a, b) -> Double.compare(b.getSimilarity(), a.getSimilarity()))
                 .limit(20) // Top 20 most similar
                 .collect(Collectors.toList());
     }
     
-    private String mapSpeciesToGemType(String species) {
-        if (species == null) return "sapphire";
-        
-        species = species.toLowerCase();
-        if (species.contains("corundum")) return "sapphire";
-        if (species.contains("beryl")) return "emerald";
-        if (species.contains("spinel")) return "spinel";
-        if (species.contains("garnet")) return "garnet";
-        if (species.contains("tourmaline")) return "tourmaline";
-        if (species.contains("quartz")) return "quartz";
-        
-        return "sapphire"; // Default fallback
-    }
-    
-    private boolean isReasonableMatch(SriLankanGemData gem, PricePredictionRequest request) {
+    private boolean isReasonableMatch(SriLankanGemData gem, PricePredictionRequest request, CanonicalGemAttributes attributes) {
         // Carat weight should be within reasonable range
         double caratDiff = Math.abs(gem.getCarat() - request.getCarat()) / request.getCarat();
         if (caratDiff > 0.8) return false; // More than 80% difference
         
-        // Color should have some similarity
-        if (request.getColor() != null && gem.getColor() != null) {
-            String reqColor = request.getColor().toLowerCase();
-            String gemColor = gem.getColor().toLowerCase();
-            if (!reqColor.contains(gemColor.split(" ")[0]) && 
-                !gemColor.contains(reqColor.split(" ")[0])) {
-                // Allow if it's a general match (e.g., "blue" matches "royal blue")
-                if (!hasColorSimilarity(reqColor, gemColor)) {
-                    return false;
-                }
-            }
+        // Color should be in the same family (e.g., "blue" matches "royal blue")
+        if (attributes.getColorTerm() != null && gem.getCanonicalAttributes().getColorTerm() != null) {
+            return calculateColorSimilarity(gem.getCanonicalAttributes(), attributes) > 0.5;
         }
         
         return true;
     }
     
-    private boolean hasColorSimilarity(String color1, String color2) {
-        String[] color1Words = color1.split(" ");
-        String[] color2Words = color2.split(" ");
-        
-        for (String word1 : color1Words) {
-            for (String word2 : color2Words) {
-                if (word1.equals(word2) || 
-                    word1.startsWith(word2) || 
-                    word2.startsWith(word1)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-    
-    private double calculateSimilarityScore(SriLankanGemData gem, PricePredictionRequest request) {
+    private double calculateSimilarityScore(SriLankanGemData gem, PricePredictionRequest request, CanonicalGemAttributes attributes) {
+        CanonicalGemAttributes gemAttributes = gem.getCanonicalAttributes();
         double score = 0.0;
         double totalWeight = 0.0;
         
@@ -248,22 +238,23 @@ public class SriLankanMarketPriceService {
         totalWeight += 30;
         
         // Color similarity (25% weight)
-        if (request.getColor() != null && gem.getColor() != null) {
-            double colorScore = calculateColorSimilarity(gem.getColor(), request.getColor());
+        if (attributes.getColorTerm() != null && gemAttributes.getColorTerm() != null) {
+            double colorScore = calculateColorSimilarity(gemAttributes, attributes);
             score += colorScore * 25;
             totalWeight += 25;
         }
         
         // Cut similarity (20% weight)
         if (request.getCut() != null && gem.getCut() != null) {
-            double cutScore = request.getCut().equalsIgnoreCase(gem.getCut()) ? 1.0 : 0.5;
+            double cutScore = gemAttributes.getCut() == attributes.getCut() ? 1.0 : 0.5;
             score += cutScore * 20;
             totalWeight += 20;
         }
         
         // Clarity similarity (15% weight)
         if (request.getClarity() != null && gem.getClarity() != null) {
-            double clarityScore = calculateClaritySimilarity(gem.getClarity(), request.getClarity());
+            int diff = Math.abs(gemAttributes.getClarity().getRank() - attributes.getClarity().getRank());
+            double clarityScore = Math.max(0.0, 1.0 - (diff * 0.15));
             score += clarityScore * 15;
             totalWeight += 15;
         }
@@ -278,36 +269,13 @@ public class SriLankanMarketPriceService {
         return totalWeight > 0 ? score / totalWeight : 0.0;
     }
     
-    private double calculateColorSimilarity(String gemColor, String requestColor) {
-        if (gemColor.equalsIgnoreCase(requestColor)) return 1.0;
-        if (hasColorSimilarity(gemColor.toLowerCase(), requestColor.toLowerCase())) return 0.8;
+    private double calculateColorSimilarity(CanonicalGemAttributes gem, CanonicalGemAttributes request) {
+        if (gem.getColorTerm().equals(request.getColorTerm())) return 1.0;
+        if (gem.getColor() == request.getColor() && gem.getColor() != GemColor.OTHER) return 0.8;
         return 0.2;
     }
     
-    private double calculateClaritySimilarity(String gemClarity, String requestClarity) {
-        // Define clarity hierarchy
-        Map<String, Integer> clarityRank = new HashMap<>();
-        clarityRank.put("fl", 10);
-        clarityRank.put("if", 9);
-        clarityRank.put("vvs1", 8);
-        clarityRank.put("vvs", 7);
-        clarityRank.put("vs1", 6);
-        clarityRank.put("vs", 5);
-        clarityRank.put("si1", 4);
-        clarityRank.put("si", 3);
-        clarityRank.put("eye-clean", 3);
-        clarityRank.put("i1", 2);
-        clarityRank.put("i2", 1);
-        clarityRank.put("i3", 0);
-        
-        int gemRank = clarityRank.getOrDefault(gemClarity.toLowerCase(), 5);
-        int reqRank = clarityRank.getOrDefault(requestClarity.toLowerCase(), 5);
-        
-        int diff = Math.abs(gemRank - reqRank);
-        return Math.max(0.0, 1.0 - (diff * 0.15));
-    }
-    
-    private PriceAnalysis calculateWeightedPrice(List<SriLankanGemData> similarGems, PricePredictionRequest request) {
+    private PriceAnalysis calculateWeightedPrice(List<ScoredGem> similarGems, PricePredictionRequest request) {
         if (similarGems.isEmpty()) {
             return new PriceAnalysis(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0.0);
         }
@@ -316,11 +284,10 @@ public class SriLankanMarketPriceService {
         double totalWeight = 0.0;
         List<BigDecimal> prices = new ArrayList<>();
         
-        for (SriLankanGemData gem : similarGems) {
-            double similarity = calculateSimilarityScore(gem, request);
-            double weight = Math.pow(similarity, 2); // Square to emphasize better matches
+        for (ScoredGem scored : similarGems) {
+            double weight = Math.pow(scored.getSimilarity(), 2); // Square to emphasize better matches
             
-            BigDecimal price = gem.getPriceLkr();
+            BigDecimal price = scored.getGem().getPriceLkr();
             totalWeightedPrice = totalWeightedPrice.add(price.multiply(BigDecimal.valueOf(weight)));
             totalWeight += weight;
             prices.add(price);
@@ -359,7 +326,7 @@ public class SriLankanMarketPriceService {
         return new PriceAnalysis(weightedPrice, minPrice, maxPrice, confidence);
     }
     
-    private double calculateConfidence(List<SriLankanGemData> similarGems, PricePredictionRequest request) {
+    private double calculateConfidence(List<ScoredGem> similarGems, PricePredictionRequest request) {
         if (similarGems.isEmpty()) return 0.0;
         
         double baseConfidence = 0.75; // Start with 75% for Sri Lankan market data
@@ -371,12 +338,14 @@ public class SriLankanMarketPriceService {
         else if (count >= 3) baseConfidence += 0.05;
         
         // Boost confidence for exact matches
+        CanonicalGemAttributes attributes = canonicalizer.canonicalize(request);
         long exactMatches = similarGems.stream()
-                .mapToLong(gem -> {
+                .mapToLong(scored -> {
+                    CanonicalGemAttributes gem = scored.getGem().getCanonicalAttributes();
                     int matches = 0;
-                    if (request.getColor() != null && request.getColor().equalsIgnoreCase(gem.getColor())) matches++;
-                    if (request.getCut() != null && request.getCut().equalsIgnoreCase(gem.getCut())) matches++;
-                    if (request.getClarity() != null && request.getClarity().equalsIgnoreCase(gem.getClarity())) matches++;
+                    if (attributes.getColorTerm() != null && attributes.getColorTerm().equals(gem.getColorTerm())) matches++;
+                    if (request.getCut() != null && attributes.getCut() == gem.getCut()) matches++;
+                    if (request.getClarity() != null && attributes.getClarity() == gem.getClarity()) matches++;
                     return matches;
                 })
                 .sum();
@@ -486,6 +455,19 @@ public class SriLankanMarketPriceService {
     }
     
     // Inner classes for data structures
+    private static class ScoredGem {
+        private final SriLankanGemData gem;
+        private final double similarity;
+        
+        public ScoredGem(SriLankanGemData gem, double similarity) {
+            this.gem = gem;
+            this.similarity = similarity;
+        }
+        
+        public SriLankanGemData getGem() { return gem; }
+        public double getSimilarity() { return similarity; }
+    }
+    
     private static class PriceAnalysis {
         private final BigDecimal weightedPrice;
         private final BigDecimal minPrice;
@@ -0,0 +1,314 @@
+package com.gemnet.service;
+
+import com.gemnet.GemNetApplication;
+import com.gemnet.config.DatabaseConfig;
+import com.gemnet.dto.PricePredictionRequest;
+import com.gemnet.security.JwtTokenProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the slow, independent startup initializers (OpenCV and face cascades, the two
+ * Tesseract pools, the market price dataset, database seeding and indexes, re-queueing
+ * media jobs lost in a restart) in parallel once all beans exist, before the web server
+ * starts, so boot takes as long as the slowest of them rather than their sum. After startup it warms the hot request paths (price
+ * prediction, marketplace listing query, JWT validation) in the background; the readiness
+ * endpoint reports not ready until that is done, so a rolling deploy only routes traffic to
+ * an instance that no longer pays JIT and lazy-loading costs on its first requests.
+ */
+@Service
+public class StartupOrchestrator implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupOrchestrator.class);
+
+    public static final String INITIALIZING = "INITIALIZING";
+    public static final String WARMING_UP = "WARMING_UP";
+    public static final String READY = "READY";
+
+    @Autowired
+    private GemNetApplication application;
+
+    @Autowired
+    private DatabaseConfig databaseConfig;
+
+    @Autowired
+    private FaceRecognitionService faceRecognitionService;
+
+    @Autowired
+    private GemCertificateService gemCertificateService;
+
+    @Autowired
+    private NicVerificationService nicVerificationService;
+
+    @Autowired
+    private SriLankanMarketPriceService sriLankanMarketPriceService;
+
+    @Autowired
+    private PricePredictionService pricePredictionService;
+
+    @Autowired
+    private MarketplaceService marketplaceService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    // Initializers run at once; 1 runs them one after another as before
+    @Value("${gemnet.startup.parallelism:6}")
+    private int parallelism;
+
+    // How long startup waits for the initializers; stragglers finish in the background
+    @Value("${gemnet.startup.initializer-timeout-seconds:180}")
+    private long initializerTimeoutSeconds;
+
+    @Value("${gemnet.startup.warmup.enabled:true}")
+    private boolean warmupEnabled;
+
+    @Value("${gemnet.startup.warmup.iterations:30}")
+    private int warmupIterations;
+
+    // Ready anyway once warm-up has run this long
+    @Value("${gemnet.startup.warmup.timeout-seconds:60}")
+    private long warmupTimeoutSeconds;
+
+    private final List<StepTiming> initializers = new ArrayList<>();
+    private final List<StepTiming> warmups = new ArrayList<>();
+    private CompletableFuture<Void> initialization;
+    private volatile String phase = INITIALIZING;
+    private volatile long initializationMillis;
+    private volatile long warmupMillis;
+    private volatile LocalDateTime readyAt;
+    private String warmupToken;
+
+    /**
+     * Run the initializers; called once every singleton is created, before the web server starts
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "startup-init");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(initialize(executor, "faceRecognition", faceRecognitionService::init));
+        futures.add(initialize(executor, "certificateOcr", gemCertificateService::init));
+        futures.add(initialize(executor, "nicOcr", nicVerificationService::init));
+        futures.add(initialize(executor, "marketPriceDataset", sriLankanMarketPriceService::loadSriLankanDataset));
+        futures.add(initialize(executor, "databaseSeed", application::initializeDatabase));
+        futures.add(initialize(executor, "databaseIndexes", databaseConfig::ensureIndexes));
+        futures.add(initialize(executor, "mediaJobResume", gemCertificateService::resumeInterruptedMediaJobs));
+        initialization = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        executor.shutdown();
+
+        try {
+            initialization.get(initializerTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("⚠️ Startup initializers still running after {} s, continuing: {}",
+                initializerTimeoutSeconds, describe(initializers));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Failures are recorded per initializer
+        }
+        initializationMillis = System.currentTimeMillis() - start;
+
+        long serialMillis = 0;
+        synchronized (initializers) {
+            for (StepTiming timing : initializers) {
+                serialMillis += timing.millis;
+            }
+        }
+        logger.info("✅ Startup initializers done in {} ms (one after another: {} ms): {}",
+            initializationMillis, serialMillis, describe(initializers));
+    }
+
+    /**
+     * Warm up in the background once the application is up; ready when done
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread warmer = new Thread(() -> {
+            // Initializers that overran their timeout have to finish first
+            initialization.join();
+            if (warmupEnabled) {
+                phase = WARMING_UP;
+                long start = System.currentTimeMillis();
+                long deadline = start + TimeUnit.SECONDS.toMillis(warmupTimeoutSeconds);
+                warm("pricePrediction", deadline, this::warmPricePrediction);
+                warm("marketplaceListings", deadline, this::warmMarketplaceListings);
+                warm("jwtValidation", deadline, this::warmJwtValidation);
+                warmupMillis = System.currentTimeMillis() - start;
+                logger.info("🔥 Warm-up done in {} ms: {}", warmupMillis, describe(warmups));
+            }
+            readyAt = LocalDateTime.now();
+            phase = READY;
+            logger.info("✅ Ready for traffic");
+        }, "startup-warmup");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    public boolean isReady() {
+        return READY.equals(phase);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("phase", phase);
+        status.put("ready", isReady());
+        status.put("readyAt", readyAt);
+        status.put("initializationMillis", initializationMillis);
+        status.put("initializers", toMaps(initializers));
+        status.put("warmupEnabled", warmupEnabled);
+        status.put("warmupIterations", warmupIterations);
+        status.put("warmupMillis", warmupMillis);
+        status.put("warmups", toMaps(warmups));
+        return status;
+    }
+
+    private CompletableFuture<Void> initialize(ExecutorService executor, String name, Runnable initializer) {
+        StepTiming timing = new StepTiming(name);
+        synchronized (initializers) {
+            initializers.add(timing);
+        }
+        return CompletableFuture.runAsync(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                initializer.run();
+                timing.status = "DONE";
+            } catch (Throwable e) {
+                // Native libraries fail with Errors; the services fall back as before
+                timing.status = "FAILED";
+                timing.error = e.getMessage();
+                logger.error("❌ Startup initializer {} failed: {}", name, e.getMessage(), e);
+            } finally {
+                timing.millis = System.currentTimeMillis() - start;
+            }
+        }, executor);
+    }
+
+    /**
+     * Run a warm-up step up to warmupIterations times, stopping at the deadline
+     */
+    private void warm(String name, long deadline, Runnable step) {
+        StepTiming timing = new StepTiming(name);
+        synchronized (warmups) {
+            warmups.add(timing);
+        }
+        long start = System.currentTimeMillis();
+        try {
+            for (int i = 0; i < warmupIterations && System.currentTimeMillis() < deadline; i++) {
+                long iterationStart = System.nanoTime();
+                step.run();
+                long iterationMicros = (System.nanoTime() - iterationStart) / 1000;
+                if (i == 0) {
+                    timing.firstMicros = iterationMicros;
+                }
+                timing.lastMicros = iterationMicros;
+                timing.iterations++;
+            }
+            timing.status = timing.iterations < warmupIterations ? "TIMED_OUT" : "DONE";
+        } catch (Exception e) {
+            timing.status = "FAILED";
+            timing.error = e.getMessage();
+            logger.warn("⚠️ Warm-up of {} failed: {}", name, e.getMessage());
+        } finally {
+            timing.millis = System.currentTimeMillis() - start;
+        }
+    }
+
+    private void warmPricePrediction() {
+        // Uncertified, so the Sri Lankan market path runs without calling the ML service
+        PricePredictionRequest request = new PricePredictionRequest(2.5, "Blue", "Oval", "VS", "Sapphire", false);
+        request.setOrigin("Ratnapura");
+        request.setTreatment("Heated");
+        pricePredictionService.predictPrice(request);
+    }
+
+    private void warmMarketplaceListings() {
+        marketplaceService.getMarketplaceListings(
+            PageRequest.of(0, 12, Sort.by(Sort.Direction.DESC, "createdAt")), null, null, null, null, false, true);
+    }
+
+    private void warmJwtValidation() {
+        if (warmupToken == null) {
+            warmupToken = jwtTokenProvider.generateToken("warmup@gemnet.local", "buyer", "warmup");
+        }
+        String token = warmupToken;
+        jwtTokenProvider.validateToken(token);
+        jwtTokenProvider.getIdentifierFromToken(token);
+        jwtTokenProvider.getUserIdFromToken(token);
+        jwtTokenProvider.getRoleFromToken(token);
+    }
+
+    private static String describe(List<StepTiming> timings) {
+        StringBuilder summary = new StringBuilder();
+        synchronized (timings) {
+            for (StepTiming timing : timings) {
+                if (summary.length() > 0) {
+                    summary.append(", ");
+                }
+                summary.append(timing.name).append('=')
+                    .append("RUNNING".equals(timing.status) ? "RUNNING" : timing.millis + " ms");
+            }
+        }
+        return summary.toString();
+    }
+
+    private static List<Map<String, Object>> toMaps(List<StepTiming> timings) {
+        List<Map<String, Object>> maps = new ArrayList<>();
+        synchronized (timings) {
+            for (StepTiming timing : timings) {
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("name", timing.name);
+                map.put("status", timing.status);
+                map.put("millis", timing.millis);
+                if (timing.iterations > 0) {
+                    map.put("iterations", timing.iterations);
+                    map.put("firstMicros", timing.firstMicros);
+                    map.put("lastMicros", timing.lastMicros);
+                }
+                if (timing.error != null) {
+                    map.put("error", timing.error);
+                }
+                maps.add(map);
+            }
+        }
+        return maps;
+    }
+
+    private static class StepTiming {
+        private final String name;
+        private volatile String status = "RUNNING";
+        private volatile long millis;
+        private volatile String error;
+        private volatile int iterations;
+        private volatile long firstMicros;
+        private volatile long lastMicros;
+
+        StepTiming(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package com.gemnet.service;
+
+import com.gemnet.model.BlobReference;
+import com.gemnet.util.BloomFilter;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Mark-and-sweep collector for upload files nothing points at any more.
+ * Mark streams the file references of gem listings, advertisements and users into a bloom
+ * filter (by file name, so absolute paths and /uploads URLs match alike). Sweep walks the
+ * uploads tree and moves unmarked files older than the grace period into .quarantine/,
+ * which is purged after the retention period. Memory stays bounded by the filter size.
+ */
+@Service
+public class UploadGarbageCollectorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadGarbageCollectorService.class);
+
+    public static final String QUARANTINE_DIRECTORY = ".quarantine";
+
+    private static final DateTimeFormatter RUN_DIRECTORY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // Content-addressed blob file name (variants carry a _w<width> suffix and are not ref-counted)
+    private static final Pattern BLOB_NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]+");
+
+    // Fields holding upload paths/URLs, per collection
+    private static final Map<String, String[]> REFERENCE_FIELDS = Map.of(
+        "gem_listings", new String[] {"primaryImageUrl", "images.imageUrl", "images.thumbnailUrl",
+            "images.videoUrl", "images.videoThumbnailUrl", "images.variants.url"},
+        "advertisements", new String[] {"images", "video", "imageVariants.sourceUrl", "imageVariants.variants.url"},
+        "users", new String[] {"faceImagePath", "nicImagePath", "extractedNicImagePath"}
+    );
+
+    // Rough upper bound of file references per document, for sizing the filter
+    private static final int REFERENCES_PER_DOCUMENT = 16;
+
+    @Value("${app.file-storage.base-path:./uploads}")
+    private String baseStoragePath;
+
+    @Value("${gemnet.uploads.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gemnet.uploads.gc.grace-hours:24}")
+    private long graceHours;
+
+    @Value("${gemnet.uploads.gc.quarantine-retention-days:7}")
+    private long quarantineRetentionDays;
+
+    @Value("${gemnet.uploads.gc.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    private ExecutorService gcExecutor;
+    private Path uploadsRoot;
+    private Path quarantineRoot;
+
+    private volatile boolean running;
+    private volatile boolean dryRun;
+    private volatile String phase;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime completedAt;
+    private volatile String errorMessage;
+    private volatile long filterBytes;
+    private final AtomicLong referencesMarked = new AtomicLong();
+    private final AtomicLong filesScanned = new AtomicLong();
+    private final AtomicLong bytesScanned = new AtomicLong();
+    private final AtomicLong filesReferenced = new AtomicLong();
+    private final AtomicLong filesWithinGracePeriod = new AtomicLong();
+    private final AtomicLong filesQuarantined = new AtomicLong();
+    private final AtomicLong bytesQuarantined = new AtomicLong();
+    private final AtomicLong leakedBlobReferences = new AtomicLong();
+    private final AtomicLong filesPurged = new AtomicLong();
+    private final AtomicLong filesRestored = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        uploadsRoot = Paths.get(baseStoragePath).toAbsolutePath().normalize();
+        quarantineRoot = uploadsRoot.resolve(QUARANTINE_DIRECTORY);
+        gcExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "upload-gc");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        gcExecutor.shutdownNow();
+    }
+
+    @Scheduled(cron = "${gemnet.uploads.gc.cron:0 30 3 * * *}")
+    public void scheduledCollect() {
+        if (enabled) {
+            start(false);
+        }
+    }
+
+    /**
+     * Start a collection in the background; a dry run only reports what would be quarantined
+     */
+    public synchronized boolean start(boolean dryRun) {
+        if (running) {
+            return false;
+        }
+        running = true;
+        this.dryRun = dryRun;
+        phase = "MARK";
+        startedAt = LocalDateTime.now();
+        completedAt = null;
+        errorMessage = null;
+        filterBytes = 0;
+        for (AtomicLong counter : List.of(referencesMarked, filesScanned, bytesScanned, filesReferenced,
+                filesWithinGracePeriod, filesQuarantined, bytesQuarantined, leakedBlobReferences,
+                filesPurged, filesRestored, reclaimedBytes)) {
+            counter.set(0);
+        }
+        gcExecutor.submit(this::run);
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running);
+        status.put("dryRun", dryRun);
+        status.put("phase", phase);
+        status.put("startedAt", startedAt);
+        status.put("completedAt", completedAt);
+        status.put("referencesMarked", referencesMarked.get());
+        status.put("filterBytes", filterBytes);
+        status.put("filesScanned", filesScanned.get());
+        status.put("bytesScanned", bytesScanned.get());
+        status.put("filesReferenced", filesReferenced.get());
+        status.put("filesWithinGracePeriod", filesWithinGracePeriod.get());
+        status.put("filesQuarantined", filesQuarantined.get());
+        status.put("bytesQuarantined", bytesQuarantined.get());
+        status.put("leakedBlobReferences", leakedBlobReferences.get());
+        status.put("filesPurged", filesPurged.get());
+        status.put("filesRestored", filesRestored.get());
+        status.put("reclaimedBytes", reclaimedBytes.get());
+        status.put("graceHours", graceHours);
+        status.put("quarantineRetentionDays", quarantineRetentionDays);
+        if (errorMessage != null) {
+            status.put("errorMessage", errorMessage);
+        }
+        return status;
+    }
+
+    private void run() {
+        try {
+            logger.info("🧹 Upload GC started{}", dryRun ? " (dry run)" : "");
+            BloomFilter referenced = mark();
+
+            phase = "SWEEP";
+            sweep(referenced);
+
+            phase = "PURGE";
+            if (!dryRun) {
+                purgeQuarantine();
+            }
+
+            phase = "DONE";
+            logger.info("✅ Upload GC completed: {} files scanned, {} quarantined ({} bytes), {} purged ({} bytes reclaimed)",
+                       filesScanned.get(), filesQuarantined.get(), bytesQuarantined.get(),
+                       filesPurged.get(), reclaimedBytes.get());
+        } catch (Exception e) {
+            // A failed mark must never be followed by a sweep, so everything aborts here
+            logger.error("❌ Upload GC failed in phase {}", phase, e);
+            phase = "FAILED";
+            errorMessage = e.getMessage();
+        } finally {
+            completedAt = LocalDateTime.now();
+            running = false;
+        }
+    }
+
+    /**
+     * Stream every referenced upload file name into a bloom filter sized from the document counts.
+     * False positives only keep an orphan alive until a later run.
+     */
+    private BloomFilter mark() {
+        long documents = 0;
+        for (String collection : REFERENCE_FIELDS.keySet()) {
+            documents += mongoTemplate.getCollection(collection).estimatedDocumentCount();
+        }
+        BloomFilter filter = new BloomFilter(Math.max(10_000, documents * REFERENCES_PER_DOCUMENT), falsePositiveRate);
+        filterBytes = filter.getSizeInBytes();
+
+        for (Map.Entry<String, String[]> entry : REFERENCE_FIELDS.entrySet()) {
+            Query query = new Query();
+            query.fields().include(entry.getValue()).exclude("_id");
+            try (Stream<Document> documentStream = mongoTemplate.stream(query, Document.class, entry.getKey())) {
+                documentStream.forEach(document -> markValues(document, filter));
+            }
+        }
+        logger.info("Upload GC marked {} references in a {} KB filter", referencesMarked.get(), filterBytes / 1024);
+        return filter;
+    }
+
+    private void markValues(Object value, BloomFilter filter) {
+        if (value instanceof String) {
+            String fileName = fileNameOf((String) value);
+            if (!fileName.isEmpty()) {
+                filter.add(fileName);
+                referencesMarked.incrementAndGet();
+            }
+        } else if (value instanceof Map) {
+            for (Object nested : ((Map<?, ?>) value).values()) {
+                markValues(nested, filter);
+            }
+        } else if (value instanceof List) {
+            for (Object nested : (List<?>) value) {
+                markValues(nested, filter);
+            }
+        }
+    }
+
+    private void sweep(BloomFilter referenced) throws IOException {
+        if (!Files.isDirectory(uploadsRoot)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(graceHours, ChronoUnit.HOURS);
+        Path runDirectory = quarantineRoot.resolve(LocalDateTime.now().format(RUN_DIRECTORY_FORMAT));
+        Path blobRoot = contentAddressedStore.getBlobRoot();
+
+        Files.walkFileTree(uploadsRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                // Quarantine and temp directories (.quarantine, blobs/.tmp, .cache-tmp) are not swept
+                if (!dir.equals(uploadsRoot) && dir.getFileName().toString().startsWith(".")) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                String fileName = file.getFileName().toString();
+                if (!attributes.isRegularFile() || fileName.endsWith(".part")) {
+                    return FileVisitResult.CONTINUE;
+                }
+                filesScanned.incrementAndGet();
+                bytesScanned.addAndGet(attributes.size());
+
+                if (referenced.mightContain(fileName)) {
+                    filesReferenced.incrementAndGet();
+                    return FileVisitResult.CONTINUE;
+                }
+                if (attributes.lastModifiedTime().toInstant().isAfter(cutoff)) {
+                    filesWithinGracePeriod.incrementAndGet();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                boolean blob = file.startsWith(blobRoot) && BLOB_NAME.matcher(fileName).matches();
+                String blobId = blob ? fileName : null;
+                if (blob && !claimBlob(blobId, cutoff)) {
+                    filesWithinGracePeriod.incrementAndGet();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                if (!dryRun) {
+                    quarantine(file, runDirectory, blobId);
+                }
+                filesQuarantined.incrementAndGet();
+                bytesQuarantined.addAndGet(attributes.size());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                logger.warn("⚠️ Upload GC could not read {}: {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Unreferenced blob: drop its blob_refs entry unless it was referenced within the grace
+     * period. A positive count with no referencing record is a leaked reference.
+     */
+    private boolean claimBlob(String blobId, Instant cutoff) {
+        BlobReference reference = mongoTemplate.findById(blobId, BlobReference.class);
+        if (reference == null) {
+            return true;
+        }
+        LocalDateTime lastReferencedAt = reference.getLastReferencedAt();
+        if (lastReferencedAt != null && lastReferencedAt.atZone(ZoneId.systemDefault()).toInstant().isAfter(cutoff)) {
+            return false;
+        }
+        if (reference.getRefCount() > 0) {
+            leakedBlobReferences.incrementAndGet();
+        }
+        if (dryRun) {
+            return true;
+        }
+        // Only remove the entry nobody has touched since we read it
+        Query query = Query.query(Criteria.where("id").is(blobId).and("lastReferencedAt").is(lastReferencedAt));
+        return mongoTemplate.remove(query, BlobReference.class).getDeletedCount() > 0;
+    }
+
+    private void quarantine(Path file, Path runDirectory, String blobId) {
+        Path target = runDirectory.resolve(uploadsRoot.relativize(file));
+        try {
+            Files.createDirectories(target.getParent());
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+
+            // Same content uploaded again while we were moving it: put it back
+            if (blobId != null && mongoTemplate.exists(Query.query(Criteria.where("id").is(blobId)), BlobReference.class)) {
+                Files.move(target, file, StandardCopyOption.REPLACE_EXISTING);
+                logger.info("Blob {} was re-uploaded during GC, restored", blobId);
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ Could not quarantine {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Delete quarantine runs older than the retention period. With a remote blob store the
+     * objects are deleted from the bucket at the same time. A blob that got a reference again
+     * while quarantined (the same content re-uploaded; with a remote store the upload finds
+     * the object in the bucket and skips the put) is restored instead.
+     */
+    private void purgeQuarantine() throws IOException {
+        if (!Files.isDirectory(quarantineRoot)) {
+            return;
+        }
+        LocalDateTime expiry = LocalDateTime.now().minusDays(quarantineRetentionDays);
+        boolean remote = !"local".equals(blobStore.getType());
+
+        try (DirectoryStream<Path> runs = Files.newDirectoryStream(quarantineRoot)) {
+            for (Path run : runs) {
+                if (!Files.isDirectory(run) || !runDate(run).isBefore(expiry)) {
+                    continue;
+                }
+                Files.walkFileTree(run, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                        String key = run.relativize(file).toString().replace('\\', '/');
+                        String fileName = file.getFileName().toString();
+                        boolean blob = BLOB_NAME.matcher(fileName).matches();
+                        if (blob && isReferenced(fileName)) {
+                            restore(file, uploadsRoot.resolve(key));
+                            return FileVisitResult.CONTINUE;
+                        }
+                        if (remote) {
+                            blobStore.delete(key);
+                            // An upload takes its reference before checking the bucket, so one that
+                            // raced the delete is visible now: put the object back
+                            if (blob && isReferenced(fileName)) {
+                                Path original = uploadsRoot.resolve(key);
+                                restore(file, original);
+                                reupload(key, original);
+                                return FileVisitResult.CONTINUE;
+                            }
+                        }
+                        Files.delete(file);
+                        filesPurged.incrementAndGet();
+                        reclaimedBytes.addAndGet(attributes.size());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                        Files.delete(dir);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Put a restored blob back in the bucket; the store may move its source, so a copy is uploaded
+     */
+    private void reupload(String key, Path restored) throws IOException {
+        Path copy = Files.createTempFile(contentAddressedStore.getBlobRoot().resolve(".tmp"), "restore-", ".part");
+        try {
+            Files.copy(restored, copy, StandardCopyOption.REPLACE_EXISTING);
+            String contentType = URLConnection.guessContentTypeFromName(restored.getFileName().toString());
+            blobStore.put(key, copy, contentType != null ? contentType : "application/octet-stream");
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    private boolean isReferenced(String blobId) {
+        return mongoTemplate.exists(Query.query(Criteria.where("id").is(blobId)), BlobReference.class);
+    }
+
+    private void restore(Path quarantined, Path original) throws IOException {
+        if (Files.exists(original)) {
+            // The upload already wrote a fresh local copy
+            Files.delete(quarantined);
+        } else {
+            Files.createDirectories(original.getParent());
+            Files.move(quarantined, original);
+        }
+        filesRestored.incrementAndGet();
+        logger.info("Blob {} is referenced again, restored from quarantine", quarantined.getFileName());
+    }
+
+    private LocalDateTime runDate(Path run) throws IOException {
+        try {
+            return LocalDateTime.parse(run.getFileName().toString(), RUN_DIRECTORY_FORMAT);
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.ofInstant(Files.getLastModifiedTime(run).toInstant(), ZoneId.systemDefault());
+        }
+    }
+
+    private String fileNameOf(String reference) {
+        String value = reference;
+        int query = value.indexOf('?');
+        if (query != -1) {
+            value = value.substring(0, query);
+        }
+        int slash = Math.max(value.lastIndexOf('/'), value.lastIndexOf('\\'));
+        return value.substring(slash + 1);
+    }
+}
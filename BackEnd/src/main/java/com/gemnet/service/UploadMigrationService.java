@@ -0,0 +1,314 @@
+package com.gemnet.service;
+
+import com.gemnet.model.Advertisement;
+import com.gemnet.model.GemImage;
+import com.gemnet.model.GemListing;
+import com.gemnet.model.User;
+import com.gemnet.service.ContentAddressedStore.StoredBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * One-off migration of legacy per-upload files into the content-addressed store.
+ * Streams gem listings, advertisements and users, moves every referenced legacy file into
+ * blobs/ (taking one reference per record), rewrites the record and deletes the legacy copy.
+ * Re-running is safe: references already under blobs/ are skipped.
+ */
+@Service
+public class UploadMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadMigrationService.class);
+
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private ExecutorService migrationExecutor;
+
+    private volatile boolean running;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime completedAt;
+    private volatile String errorMessage;
+    private final AtomicLong documentsScanned = new AtomicLong();
+    private final AtomicLong documentsUpdated = new AtomicLong();
+    private final AtomicLong filesMigrated = new AtomicLong();
+    private final AtomicLong duplicateFiles = new AtomicLong();
+    private final AtomicLong missingFiles = new AtomicLong();
+    private final AtomicLong legacyBytes = new AtomicLong();
+    private final AtomicLong blobBytesWritten = new AtomicLong();
+
+    // Legacy file -> blob for the current run, so shared legacy files are migrated once
+    private Map<Path, StoredBlob> migrated = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        migrationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "upload-migration");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        migrationExecutor.shutdownNow();
+    }
+
+    public synchronized boolean start() {
+        if (running) {
+            return false;
+        }
+        running = true;
+        startedAt = LocalDateTime.now();
+        completedAt = null;
+        errorMessage = null;
+        documentsScanned.set(0);
+        documentsUpdated.set(0);
+        filesMigrated.set(0);
+        duplicateFiles.set(0);
+        missingFiles.set(0);
+        legacyBytes.set(0);
+        blobBytesWritten.set(0);
+        migrationExecutor.submit(this::run);
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running);
+        status.put("startedAt", startedAt);
+        status.put("completedAt", completedAt);
+        status.put("documentsScanned", documentsScanned.get());
+        status.put("documentsUpdated", documentsUpdated.get());
+        status.put("filesMigrated", filesMigrated.get());
+        status.put("duplicateFiles", duplicateFiles.get());
+        status.put("missingFiles", missingFiles.get());
+        status.put("reclaimedBytes", Math.max(0, legacyBytes.get() - blobBytesWritten.get()));
+        if (errorMessage != null) {
+            status.put("errorMessage", errorMessage);
+        }
+        return status;
+    }
+
+    private void run() {
+        migrated = new HashMap<>();
+        try {
+            logger.info("📦 Content-addressed upload migration started");
+            migrateGemListings();
+            migrateAdvertisements();
+            migrateUsers();
+            logger.info("✅ Upload migration completed: {} files migrated, {} duplicates, {} bytes reclaimed",
+                       filesMigrated.get(), duplicateFiles.get(), legacyBytes.get() - blobBytesWritten.get());
+        } catch (Exception e) {
+            logger.error("❌ Upload migration failed", e);
+            errorMessage = e.getMessage();
+        } finally {
+            migrated = new HashMap<>();
+            completedAt = LocalDateTime.now();
+            running = false;
+        }
+    }
+
+    private void migrateGemListings() {
+        Query query = new Query();
+        query.fields().include("id", "images", "primaryImageUrl");
+        try (Stream<GemListing> listings = mongoTemplate.stream(query, GemListing.class)) {
+            listings.forEach(listing -> {
+                documentsScanned.incrementAndGet();
+                if (listing.getImages() == null) {
+                    return;
+                }
+
+                List<Path> legacyFiles = new ArrayList<>();
+                String primaryImageUrl = listing.getPrimaryImageUrl();
+                boolean changed = false;
+                for (GemImage image : listing.getImages()) {
+                    String oldImageUrl = image.getImageUrl();
+                    String newImageUrl = migrate(oldImageUrl, StoredBlob::getUrl, legacyFiles);
+                    if (!Objects.equals(oldImageUrl, newImageUrl)) {
+                        image.setImageUrl(newImageUrl);
+                        if (Objects.equals(image.getThumbnailUrl(), oldImageUrl)) {
+                            image.setThumbnailUrl(newImageUrl);
+                        }
+                        if (Objects.equals(primaryImageUrl, oldImageUrl)) {
+                            primaryImageUrl = newImageUrl;
+                        }
+                        changed = true;
+                    }
+                    String newVideoUrl = migrate(image.getVideoUrl(), StoredBlob::getUrl, legacyFiles);
+                    if (!Objects.equals(image.getVideoUrl(), newVideoUrl)) {
+                        image.setVideoUrl(newVideoUrl);
+                        changed = true;
+                    }
+                }
+
+                if (changed) {
+                    mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(listing.getId())),
+                        new Update().set("images", listing.getImages()).set("primaryImageUrl", primaryImageUrl),
+                        GemListing.class);
+                    documentsUpdated.incrementAndGet();
+                    deleteLegacyFiles(legacyFiles);
+                }
+            });
+        }
+    }
+
+    private void migrateAdvertisements() {
+        Query query = new Query();
+        query.fields().include("id", "images", "video");
+        try (Stream<Advertisement> advertisements = mongoTemplate.stream(query, Advertisement.class)) {
+            advertisements.forEach(advertisement -> {
+                documentsScanned.incrementAndGet();
+                List<Path> legacyFiles = new ArrayList<>();
+                Update update = new Update();
+                boolean changed = false;
+
+                if (advertisement.getImages() != null) {
+                    List<String> images = new ArrayList<>();
+                    for (String image : advertisement.getImages()) {
+                        images.add(migrate(image, StoredBlob::getUrl, legacyFiles));
+                    }
+                    if (!images.equals(advertisement.getImages())) {
+                        update.set("images", images);
+                        changed = true;
+                    }
+                }
+                String video = migrate(advertisement.getVideo(), StoredBlob::getUrl, legacyFiles);
+                if (!Objects.equals(video, advertisement.getVideo())) {
+                    update.set("video", video);
+                    changed = true;
+                }
+
+                if (changed) {
+                    mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(advertisement.getId())),
+                        update, Advertisement.class);
+                    documentsUpdated.incrementAndGet();
+                    deleteLegacyFiles(legacyFiles);
+                }
+            });
+        }
+    }
+
+    private void migrateUsers() {
+        Query query = new Query();
+        query.fields().include("id", "faceImagePath", "nicImagePath", "extractedNicImagePath");
+        Function<StoredBlob, String> filePath = blob -> blob.getPath().toString();
+        try (Stream<User> users = mongoTemplate.stream(query, User.class)) {
+            users.forEach(user -> {
+                documentsScanned.incrementAndGet();
+                List<Path> legacyFiles = new ArrayList<>();
+                Update update = new Update();
+                boolean changed = false;
+
+                String faceImagePath = migrate(user.getFaceImagePath(), filePath, legacyFiles);
+                if (!Objects.equals(faceImagePath, user.getFaceImagePath())) {
+                    update.set("faceImagePath", faceImagePath);
+                    changed = true;
+                }
+                String nicImagePath = migrate(user.getNicImagePath(), filePath, legacyFiles);
+                if (!Objects.equals(nicImagePath, user.getNicImagePath())) {
+                    update.set("nicImagePath", nicImagePath);
+                    changed = true;
+                }
+                String extractedNicImagePath = migrate(user.getExtractedNicImagePath(), filePath, legacyFiles);
+                if (!Objects.equals(extractedNicImagePath, user.getExtractedNicImagePath())) {
+                    update.set("extractedNicImagePath", extractedNicImagePath);
+                    changed = true;
+                }
+
+                if (changed) {
+                    mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(user.getId())), update, User.class);
+                    documentsUpdated.incrementAndGet();
+                    deleteLegacyFiles(legacyFiles);
+                }
+            });
+        }
+    }
+
+    /**
+     * Move one legacy reference into the blob store; returns the new reference, or the
+     * original one when it is empty, already a blob or its file is missing
+     */
+    private String migrate(String reference, Function<StoredBlob, String> toReference, List<Path> legacyFiles) {
+        if (reference == null || reference.isEmpty() || contentAddressedStore.isInBlobTree(reference)) {
+            return reference;
+        }
+        try {
+            Path legacyFile = fileStorageService.resolveUploadUrl(reference);
+
+            StoredBlob blob = migrated.get(legacyFile);
+            if (blob != null) {
+                // Same legacy file referenced by another record
+                contentAddressedStore.retain(blob);
+                return toReference.apply(blob);
+            }
+
+            if (!Files.isRegularFile(legacyFile)) {
+                missingFiles.incrementAndGet();
+                return reference;
+            }
+
+            long size = Files.size(legacyFile);
+            blob = contentAddressedStore.storeFile(legacyFile, extensionOf(legacyFile));
+            migrated.put(legacyFile, blob);
+            legacyFiles.add(legacyFile);
+
+            filesMigrated.incrementAndGet();
+            legacyBytes.addAndGet(size);
+            if (blob.isDeduplicated()) {
+                duplicateFiles.incrementAndGet();
+            } else {
+                blobBytesWritten.addAndGet(blob.getSize());
+            }
+            return toReference.apply(blob);
+
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not migrate upload {}: {}", reference, e.getMessage());
+            return reference;
+        }
+    }
+
+    private void deleteLegacyFiles(List<Path> legacyFiles) {
+        for (Path legacyFile : legacyFiles) {
+            try {
+                Files.deleteIfExists(legacyFile);
+            } catch (IOException e) {
+                logger.warn("⚠️ Could not delete migrated file {}: {}", legacyFile, e.getMessage());
+            }
+        }
+    }
+
+    private String extensionOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot != -1 ? name.substring(dot + 1) : "";
+    }
+}
@@ -7,13 +7,18 @@ import com.gemnet.dto.AdminRegistrationRequest;
 import com.gemnet.dto.AdminLoginRequest;
 import com.gemnet.dto.AdminAuthenticationResponse;
 import com.gemnet.dto.ApiResponse;
+import com.gemnet.model.FaceTemplate;
 import com.gemnet.model.User;
 import com.gemnet.repository.UserRepository;
 import com.gemnet.security.JwtTokenProvider;
 import com.gemnet.exception.UserAlreadyExistsException;
 import com.gemnet.exception.UserNotFoundException;
 import com.gemnet.exception.InvalidCredentialsException;
+import com.gemnet.exception.OcrEngineBusyException;
+import com.gemnet.util.StageScope;
+import com.gemnet.util.UploadedImage;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -49,6 +54,12 @@ public class UserService {
     @Autowired
     private FileStorageService fileStorageService;
     
+    @Autowired
+    private FaceTemplateService faceTemplateService;
+
+    @Autowired
+    private FaceDuplicateService faceDuplicateService;
+    
     @Autowired
     private NotificationService notificationService;
     
@@ -132,10 +143,19 @@ public class UserService {
     /**
      * Process face capture and verification
      */
-    public ApiResponse<Map<String, Object>> processFaceVerification(String userId, MultipartFile faceImage) {
+    public ApiResponse<Map<String, Object>> processFaceVerification(String userId, MultipartFile faceImageFile) {
+        return processFaceVerification(userId, faceImageFile, Runnable::run);
+    }
+    
+    /**
+     * Process face verification, extracting the template on stageExecutor while the image is stored
+     */
+    public ApiResponse<Map<String, Object>> processFaceVerification(String userId, MultipartFile faceImageFile, Executor stageExecutor) {
         Map<String, Object> result = new HashMap<>();
         
-        try {
+        // Read and decode once; validation, storage and feature extraction share the buffer
+        try (UploadedImage faceImage = UploadedImage.read(faceImageFile);
+             StageScope stages = new StageScope(stageExecutor)) {
             System.out.println("📷 Processing face verification for user: " + userId);
             
             Optional<User> userOpt = userRepository.findById(userId);
@@ -159,15 +179,24 @@ public class UserService {
                 return ApiResponse.error("No face detected in the uploaded image. Please upload a clear photo of your face.", result);
             }
             
+            // Template extraction doesn't depend on storage; run them side by side
+            CompletableFuture<byte[]> descriptorFuture = stages.fork(() -> faceRecognitionService.extractFaceDescriptor(faceImage));
+            
             // Store face image
             String faceImagePath = fileStorageService.storeFaceImage(faceImage, userId);
+            if (user.getFaceImagePath() != null) {
+                fileStorageService.releaseReference(user.getFaceImagePath());
+            }
             user.setFaceImagePath(faceImagePath);
             result.put("faceImagePath", faceImagePath);
             
-            // Extract face features
-            String faceFeatures = faceRecognitionService.extractFaceFeatures(faceImage);
-            user.setFaceFeatures(faceFeatures);
-            result.put("faceFeatures", faceFeatures != null ? "Extracted successfully" : "Failed to extract");
+            // Extract the face template; it is stored apart from the user document
+            byte[] faceDescriptor = StageScope.join(descriptorFuture);
+            user.setFaceTemplateId(faceTemplateService.saveTemplate(userId, FaceTemplateService.FACE, faceDescriptor, "FACE_CAPTURE"));
+            result.put("faceFeatures", faceDescriptor != null ? "Extracted successfully" : "Failed to extract");
+            
+            // 1:N check against every enrolled face; matches go to admin review
+            result.putAll(faceDuplicateService.checkAndEnrol(userId, faceDescriptor));
             
             user.setIsFaceVerified(true);
             User savedUser = userRepository.save(user);
@@ -190,10 +219,20 @@ public class UserService {
     /**
      * Process NIC verification
      */
-    public ApiResponse<Map<String, Object>> processNicVerification(String userId, MultipartFile nicImage) {
+    public ApiResponse<Map<String, Object>> processNicVerification(String userId, MultipartFile nicImageFile) {
+        return processNicVerification(userId, nicImageFile, Runnable::run);
+    }
+    
+    /**
+     * Process NIC verification, running photo extraction and the face template lookup on
+     * stageExecutor while the NIC number is read
+     */
+    public ApiResponse<Map<String, Object>> processNicVerification(String userId, MultipartFile nicImageFile, Executor stageExecutor) {
         Map<String, Object> result = new HashMap<>();
         
-        try {
+        // Read and decode once; quality check, storage, OCR and photo extraction share the buffer
+        try (UploadedImage nicImage = UploadedImage.read(nicImageFile);
+             StageScope stages = new StageScope(stageExecutor)) {
             System.out.println("🆔 Processing NIC verification for user: " + userId);
             
             Optional<User> userOpt = userRepository.findById(userId);
@@ -217,8 +256,15 @@ public class UserService {
                 result.put("warning", "Image quality might be low. Processing anyway...");
             }
             
+            // Photo extraction and the stored face template don't depend on OCR
+            CompletableFuture<NicVerificationService.ExtractedNicPhoto> nicPhotoFuture = stages.fork(() -> nicVerificationService.extractNicPhoto(nicImage, userId));
+            CompletableFuture<byte[]> faceTemplateFuture = stages.fork(() -> user.getFaceImagePath() != null ? getFaceTemplate(user) : null);
+            
             // Store NIC image
             String nicImagePath = fileStorageService.storeNicImage(nicImage, userId);
+            if (user.getNicImagePath() != null) {
+                fileStorageService.releaseReference(user.getNicImagePath());
+            }
             user.setNicImagePath(nicImagePath);
             result.put("nicImagePath", nicImagePath);
             
@@ -227,8 +273,13 @@ public class UserService {
             user.setExtractedNicNumber(extractedNicNumber);
             result.put("extractedNicNumber", extractedNicNumber);
             
-            // Extract photo from NIC
-            String extractedNicImagePath = nicVerificationService.extractNicPhoto(nicImage, userId);
+            // Extract photo from NIC and cache its face template for (re-)verification
+            NicVerificationService.ExtractedNicPhoto nicPhoto = StageScope.join(nicPhotoFuture);
+            String extractedNicImagePath = nicPhoto.getPath();
+            faceTemplateService.saveTemplate(userId, FaceTemplateService.NIC_PHOTO, nicPhoto.getFaceDescriptor(), "NIC_EXTRACTION");
+            if (user.getExtractedNicImagePath() != null) {
+                fileStorageService.releaseReference(user.getExtractedNicImagePath());
+            }
             user.setExtractedNicImagePath(extractedNicImagePath);
             result.put("extractedNicImagePath", extractedNicImagePath);
               // Verify NIC number matches (case-insensitive comparison)
@@ -260,13 +311,18 @@ public class UserService {
                 return ApiResponse.error("NIC number does not match the entered information", result);
             }
             
-            // Compare face images if both images are available
+            // The template score is recorded for calibration; the image comparison decides
+            byte[] faceTemplate = StageScope.join(faceTemplateFuture);
+            if (faceTemplate != null && nicPhoto.getFaceDescriptor() != null) {
+                result.put("faceSimilarity", Math.round(faceRecognitionService.similarity(faceTemplate, nicPhoto.getFaceDescriptor()) * 1000) / 1000.0);
+                result.put("templateMatch", faceRecognitionService.compareFaceTemplates(faceTemplate, nicPhoto.getFaceDescriptor()));
+            }
+            
             boolean faceMatches = false;
             if (user.getFaceImagePath() != null && extractedNicImagePath != null) {
                 faceMatches = faceRecognitionService.compareFaces(
-                    user.getFaceImagePath(), 
-                    extractedNicImagePath
-                );
+                    fileStorageService.getLocalFile(user.getFaceImagePath()).toString(),
+                    fileStorageService.getLocalFile(extractedNicImagePath).toString());
                 result.put("faceMatches", faceMatches);
                 
                 if (!faceMatches) {
@@ -298,6 +354,9 @@ public class UserService {
             System.out.println("✅ Complete verification successful for user: " + userId);
             return ApiResponse.success("User verification completed successfully!", result);
             
+        } catch (OcrEngineBusyException e) {
+            // Retryable; not a verification failure
+            throw e;
         } catch (Exception e) {
             System.err.println("❌ NIC verification failed for user " + userId + ": " + e.getMessage());
             result.put("error", e.getMessage());
@@ -306,6 +365,26 @@ public class UserService {
         }
     }
     
+    /**
+     * Stored face template of a user. Users enrolled before templates were kept get one
+     * computed from their stored face image, once.
+     */
+    private byte[] getFaceTemplate(User user) {
+        Optional<FaceTemplate> template = faceTemplateService.findFaceTemplate(user);
+        if (template.isPresent()) {
+            return template.get().getDescriptor();
+        }
+        try {
+            String imagePath = fileStorageService.getLocalFile(user.getFaceImagePath()).toString();
+            byte[] descriptor = faceRecognitionService.extractFaceDescriptor(imagePath);
+            user.setFaceTemplateId(faceTemplateService.saveTemplate(user.getId(), FaceTemplateService.FACE, descriptor, "FACE_CAPTURE"));
+            return descriptor;
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not build face template for user " + user.getId() + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
     /**
      * Get user verification status
      */
@@ -571,6 +650,34 @@ public class UserService {
         }
     }
 
+    /**
+     * Template score of a user's face against their NIC photo, from the stored templates only.
+     * Advisory: verification itself decides with the image comparison.
+     */
+    public ApiResponse<Map<String, Object>> compareStoredFaces(String userId) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("userId", userId);
+        
+        Optional<User> userOpt = userRepository.findById(userId);
+        if (!userOpt.isPresent()) {
+            return ApiResponse.error("User not found", result);
+        }
+        
+        Optional<FaceTemplate> faceTemplate = faceTemplateService.findFaceTemplate(userOpt.get());
+        Optional<FaceTemplate> nicTemplate = faceTemplateService.findNicPhotoTemplate(userId);
+        result.put("hasFaceTemplate", faceTemplate.isPresent());
+        result.put("hasNicPhotoTemplate", nicTemplate.isPresent());
+        if (!faceTemplate.isPresent() || !nicTemplate.isPresent()) {
+            return ApiResponse.error("Face or NIC photo template missing; the user has to complete verification first", result);
+        }
+        
+        byte[] face = faceTemplate.get().getDescriptor();
+        byte[] nicPhoto = nicTemplate.get().getDescriptor();
+        result.put("faceSimilarity", Math.round(faceRecognitionService.similarity(face, nicPhoto) * 1000) / 1000.0);
+        result.put("templateMatch", faceRecognitionService.compareFaceTemplates(face, nicPhoto));
+        return ApiResponse.success("Face templates compared", result);
+    }
+
     /**
      * Update user active status
      */
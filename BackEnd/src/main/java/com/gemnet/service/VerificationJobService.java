@@ -0,0 +1,316 @@
+package com.gemnet.service;
+
+import com.gemnet.dto.ApiResponse;
+import com.gemnet.model.VerificationJob;
+import com.gemnet.repository.VerificationJobRepository;
+import com.gemnet.util.UploadedImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs face and NIC verification off the servlet threads. Uploads are buffered in the
+ * request, a job is persisted and queued on a bounded CPU pool, and the caller polls the
+ * job for the outcome. When the queue is full the upload is refused rather than holding
+ * a Tomcat thread. Jobs of one user run in submission order, so a NIC check always sees
+ * the face template captured just before it.
+ */
+@Service
+public class VerificationJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerificationJobService.class);
+
+    public static final String FACE = "FACE";
+    public static final String NIC = "NIC";
+
+    // Outcome fields kept on a job. The job endpoint is open to anyone holding the job id, so
+    // NIC numbers, e-mail, image paths and duplicate candidates stay out of the stored result.
+    private static final Set<String> OUTCOME_FIELDS = Set.of(
+        "faceDetected", "faceVerified", "nextStep", "verificationStatus",
+        "imageQualityValid", "warning", "nicNumberMatches", "faceMatches", "faceSimilarity",
+        "faceComparisonSkipped", "reason", "verificationComplete", "isVerified", "isFaceVerified",
+        "isNicVerified", "error");
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private VerificationJobRepository verificationJobRepository;
+
+    @Value("${gemnet.verification.threads:0}")
+    private int threads;
+
+    @Value("${gemnet.verification.queue-capacity:50}")
+    private int queueCapacity;
+
+    // Whole jobs; submit() caps admission so a registration burst is refused instead of buffering uploads
+    private ThreadPoolExecutor jobExecutor;
+    // Independent stages within a job (OCR vs. photo extraction); jobs wait on them, never the reverse
+    private ThreadPoolExecutor stageExecutor;
+
+    // Last job of each user with work in flight
+    private final Map<String, CompletableFuture<Void>> pendingByUser = new ConcurrentHashMap<>();
+    // Queued, running and chained jobs; chained jobs don't occupy the executor queue yet
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalQueueMillis = new AtomicLong();
+    private final AtomicLong totalRunMillis = new AtomicLong();
+    private final LocalDateTime bootTime = LocalDateTime.now();
+
+    @PostConstruct
+    public void init() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // Admission is capped by inFlight in submit(); a bounded queue here could refuse a job
+        // still counted there, since a worker decrements before it takes the next task
+        jobExecutor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "verification-job");
+                thread.setDaemon(true);
+                return thread;
+            });
+        stageExecutor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "verification-stage");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        stageExecutor.shutdownNow();
+    }
+
+    /**
+     * Jobs left unfinished by a restart cannot resume (their uploads were only in memory)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        try {
+            List<VerificationJob> interrupted = verificationJobRepository.findByStatusIn(List.of("QUEUED", "RUNNING"));
+            interrupted.removeIf(job -> job.getCreatedAt() != null && !job.getCreatedAt().isBefore(bootTime));
+            for (VerificationJob job : interrupted) {
+                job.setStatus("FAILED");
+                job.setSuccess(false);
+                job.setMessage("Verification was interrupted by a server restart. Please upload the image again.");
+                job.setCompletedAt(LocalDateTime.now());
+                verificationJobRepository.save(job);
+            }
+            if (!interrupted.isEmpty()) {
+                logger.info("⚠️ Marked {} interrupted verification jobs as failed", interrupted.size());
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not clean up verification jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Queue face capture for a user
+     *
+     * @throws RejectedExecutionException when the verification queue is full
+     */
+    public VerificationJob submitFace(String userId, MultipartFile faceImage) throws IOException {
+        return submit(userId, FACE, faceImage, image -> userService.processFaceVerification(userId, image, stageExecutor));
+    }
+
+    /**
+     * Queue NIC verification for a user; runs after any face capture still pending for them
+     *
+     * @throws RejectedExecutionException when the verification queue is full
+     */
+    public VerificationJob submitNic(String userId, MultipartFile nicImage) throws IOException {
+        return submit(userId, NIC, nicImage, image -> userService.processNicVerification(userId, image, stageExecutor));
+    }
+
+    public Optional<VerificationJob> getJob(String jobId) {
+        return verificationJobRepository.findById(jobId);
+    }
+
+    /**
+     * Client view of a job: status while pending, the verification outcome once finished
+     */
+    public Map<String, Object> toView(VerificationJob job) {
+        Map<String, Object> view = new HashMap<>();
+        view.put("jobId", job.getId());
+        view.put("type", job.getType());
+        view.put("status", job.getStatus());
+        view.put("createdAt", job.getCreatedAt());
+        view.put("startedAt", job.getStartedAt());
+        view.put("completedAt", job.getCompletedAt());
+        if (job.isFinished()) {
+            view.put("success", job.getSuccess());
+            view.put("message", job.getMessage());
+            view.put("result", job.getResult());
+        }
+        return view;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long finished = succeeded.get() + failed.get();
+        stats.put("threads", jobExecutor.getMaximumPoolSize());
+        stats.put("activeJobs", jobExecutor.getActiveCount());
+        stats.put("queuedJobs", jobExecutor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("activeStages", stageExecutor.getActiveCount());
+        stats.put("inFlightJobs", inFlight.get());
+        stats.put("usersWithPendingJobs", pendingByUser.size());
+        stats.put("submitted", submitted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("succeeded", succeeded.get());
+        stats.put("failed", failed.get());
+        stats.put("avgQueueMillis", finished > 0 ? totalQueueMillis.get() / finished : 0);
+        stats.put("avgRunMillis", finished > 0 ? totalRunMillis.get() / finished : 0);
+        return stats;
+    }
+
+    private VerificationJob submit(String userId, String type, MultipartFile file,
+                                   Function<UploadedImage, ApiResponse<Map<String, Object>>> work) throws IOException {
+        if (inFlight.incrementAndGet() > jobExecutor.getMaximumPoolSize() + queueCapacity) {
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            logger.warn("⚠️ Verification queue full, refused {} job for user {}", type, userId);
+            throw new RejectedExecutionException("Verification queue is full");
+        }
+
+        VerificationJob job;
+        UploadedImage image;
+        try {
+            // Buffer the upload now; the multipart temp file is gone once the request returns
+            image = UploadedImage.read(file);
+            job = verificationJobRepository.save(new VerificationJob(userId, type));
+        } catch (IOException | RuntimeException e) {
+            inFlight.decrementAndGet();
+            throw e;
+        }
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Runnable task = () -> run(job, image, work, done);
+        synchronized (pendingByUser) {
+            CompletableFuture<Void> previous = pendingByUser.put(userId, done);
+            if (previous == null) {
+                dispatch(job, image, task, done);
+            } else {
+                previous.whenComplete((ignored, error) -> dispatch(job, image, task, done));
+            }
+        }
+
+        submitted.incrementAndGet();
+        logger.info("🧾 Queued {} verification job {} for user {}", type, job.getId(), userId);
+        return job;
+    }
+
+    /**
+     * Hand a job to the pool; if the pool refuses it (shutting down) the job fails instead of
+     * staying QUEUED and holding up the user's later jobs
+     */
+    private void dispatch(VerificationJob job, UploadedImage image, Runnable task, CompletableFuture<Void> done) {
+        try {
+            jobExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.warn("⚠️ Verification job {} was refused by the pool: {}", job.getId(), e.getMessage());
+            try {
+                image.close();
+                job.setStatus("FAILED");
+                job.setSuccess(false);
+                job.setMessage("Verification could not be started. Please upload the image again.");
+                job.setCompletedAt(LocalDateTime.now());
+                verificationJobRepository.save(job);
+            } catch (Exception recordError) {
+                logger.error("❌ Verification job {} could not be recorded: {}", job.getId(), recordError.getMessage());
+            } finally {
+                failed.incrementAndGet();
+                inFlight.decrementAndGet();
+                pendingByUser.remove(job.getUserId(), done);
+                done.complete(null);
+            }
+        }
+    }
+
+    private void run(VerificationJob job, UploadedImage image,
+                     Function<UploadedImage, ApiResponse<Map<String, Object>>> work, CompletableFuture<Void> done) {
+        long startMillis = System.currentTimeMillis();
+        try (UploadedImage upload = image) {
+            job.setStatus("RUNNING");
+            job.setStartedAt(LocalDateTime.now());
+            verificationJobRepository.save(job);
+
+            ApiResponse<Map<String, Object>> response;
+            try {
+                response = work.apply(upload);
+            } catch (Exception e) {
+                response = ApiResponse.error("Verification failed: " + e.getMessage());
+            }
+
+            job.setStatus(response.isSuccess() ? "SUCCEEDED" : "FAILED");
+            job.setSuccess(response.isSuccess());
+            job.setMessage(response.getMessage());
+            job.setResult(outcomeOf(response.getData()));
+            job.setCompletedAt(LocalDateTime.now());
+            verificationJobRepository.save(job);
+
+            (response.isSuccess() ? succeeded : failed).incrementAndGet();
+            logger.info("{} {} verification job {} for user {} finished in {} ms", response.isSuccess() ? "✅" : "❌",
+                job.getType(), job.getId(), job.getUserId(), System.currentTimeMillis() - startMillis);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.error("❌ Verification job {} could not be recorded: {}", job.getId(), e.getMessage(), e);
+        } finally {
+            totalQueueMillis.addAndGet(Math.max(0, startMillis - toMillis(job.getCreatedAt())));
+            totalRunMillis.addAndGet(System.currentTimeMillis() - startMillis);
+            inFlight.decrementAndGet();
+            pendingByUser.remove(job.getUserId(), done);
+            done.complete(null);
+        }
+    }
+
+    private static Map<String, Object> outcomeOf(Map<String, Object> data) {
+        if (data == null) {
+            return null;
+        }
+        Map<String, Object> outcome = new LinkedHashMap<>();
+        data.forEach((key, value) -> {
+            if (OUTCOME_FIELDS.contains(key)) {
+                outcome.put(key, value);
+            }
+        });
+        return outcome;
+    }
+
+    private long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
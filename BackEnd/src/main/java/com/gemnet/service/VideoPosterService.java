@@ -0,0 +1,429 @@
+package com.gemnet.service;
+
+import com.gemnet.model.GemImage;
+import com.gemnet.model.GemListing;
+import com.gemnet.model.ImageVariant;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Reads duration and format of gem listing videos with OpenCV and extracts a poster frame
+ * at several widths, so the marketplace can show a poster without loading the video.
+ * The sharpest reasonably bright frame of a few samples across the clip is used. Posters are
+ * written next to the video as &lt;name&gt;_poster_w&lt;width&gt;.jpg and recorded on the video's
+ * GemImage (variants, videoThumbnailUrl). Decoding runs on a small low-priority pool.
+ */
+@Service
+public class VideoPosterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoPosterService.class);
+
+    // Relative positions in the clip sampled for the poster frame
+    private static final double[] SAMPLE_POSITIONS = {0.1, 0.25, 0.5, 0.75};
+
+    // Frames darker than this (mean gray level) are only used if nothing better exists
+    private static final double MIN_BRIGHTNESS = 40.0;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ListingMediaStatusService listingMediaStatusService;
+
+    @Value("${gemnet.videos.poster-widths:160,480,1200}")
+    private List<Integer> posterWidths;
+
+    @Value("${gemnet.images.thumbnail-width:480}")
+    private int thumbnailWidth;
+
+    @Value("${gemnet.videos.poster-jpeg-quality:85}")
+    private int jpegQuality;
+
+    @Value("${gemnet.videos.poster-threads:1}")
+    private int posterThreads;
+
+    @Value("${gemnet.videos.poster-queue-capacity:200}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor posterExecutor;
+    private ExecutorService backfillExecutor;
+    private volatile boolean openCvAvailable;
+
+    private volatile boolean backfillRunning;
+    private volatile LocalDateTime backfillStartedAt;
+    private volatile LocalDateTime backfillCompletedAt;
+    private final AtomicLong backfillListings = new AtomicLong();
+    private final AtomicLong videosProcessed = new AtomicLong();
+    private final AtomicLong videosFailed = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        try {
+            nu.pattern.OpenCV.loadLocally();
+            openCvAvailable = true;
+        } catch (Throwable e) {
+            logger.warn("⚠️ OpenCV not available, video posters disabled: {}", e.getMessage());
+        }
+
+        posterWidths = new ArrayList<>(posterWidths);
+        posterWidths.sort(Collections.reverseOrder());
+
+        // Decoding is CPU heavy: few threads, below request-thread priority, bounded queue
+        int threads = Math.max(1, posterThreads);
+        posterExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            runnable -> {
+                Thread thread = new Thread(runnable, "video-posters");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            },
+            (runnable, executor) -> {
+                logger.warn("⚠️ Video poster queue full; task left for backfill");
+                // The listing would otherwise wait for this job forever
+                if (runnable instanceof ListingTask) {
+                    listingMediaStatusService.jobDropped(((ListingTask) runnable).listingId);
+                }
+            });
+        backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "video-posters-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        posterExecutor.shutdownNow();
+        backfillExecutor.shutdownNow();
+    }
+
+    /**
+     * Queue poster extraction for one video of a saved gem listing
+     */
+    public void scheduleVideo(String listingId, String imageId) {
+        posterExecutor.execute(new ListingTask(listingId,
+            () -> listingMediaStatusService.jobFinished(listingId, processVideo(listingId, imageId))));
+    }
+
+    /**
+     * Start a backfill over listing videos that have no poster yet
+     */
+    public synchronized boolean startBackfill() {
+        if (backfillRunning) {
+            return false;
+        }
+        backfillRunning = true;
+        backfillStartedAt = LocalDateTime.now();
+        backfillCompletedAt = null;
+        backfillListings.set(0);
+        backfillExecutor.submit(this::runBackfill);
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("openCvAvailable", openCvAvailable);
+        status.put("backfillRunning", backfillRunning);
+        status.put("backfillStartedAt", backfillStartedAt);
+        status.put("backfillCompletedAt", backfillCompletedAt);
+        status.put("backfillListings", backfillListings.get());
+        status.put("videosProcessed", videosProcessed.get());
+        status.put("videosFailed", videosFailed.get());
+        status.put("queuedTasks", posterExecutor.getQueue().size());
+        status.put("posterWidths", posterWidths);
+        return status;
+    }
+
+    private void runBackfill() {
+        try {
+            logger.info("🎬 Video poster backfill started");
+            Query query = Query.query(Criteria.where("images").elemMatch(
+                Criteria.where("mediaType").is("VIDEO").and("videoUrl").ne(null).and("videoThumbnailUrl").is(null)));
+            query.fields().include("id", "images.imageId", "images.mediaType", "images.videoThumbnailUrl");
+            try (Stream<GemListing> listings = mongoTemplate.stream(query, GemListing.class)) {
+                listings.forEach(listing -> {
+                    for (GemImage image : listing.getImages()) {
+                        if (image.isVideo() && image.getVideoThumbnailUrl() == null) {
+                            listingMediaStatusService.jobFinished(listing.getId(),
+                                processVideo(listing.getId(), image.getImageId()));
+                        }
+                    }
+                    backfillListings.incrementAndGet();
+                });
+            }
+            logger.info("✅ Video poster backfill completed: {} listings", backfillListings.get());
+        } catch (Exception e) {
+            logger.error("❌ Video poster backfill failed", e);
+        } finally {
+            backfillCompletedAt = LocalDateTime.now();
+            backfillRunning = false;
+        }
+    }
+
+    /**
+     * Extract metadata and posters for one video and record them with a positional update
+     */
+    private boolean processVideo(String listingId, String imageId) {
+        if (!openCvAvailable) {
+            videosFailed.incrementAndGet();
+            return false;
+        }
+        try {
+            GemListing listing = mongoTemplate.findById(listingId, GemListing.class);
+            GemImage video = listing == null || listing.getImages() == null ? null : listing.getImages().stream()
+                .filter(image -> imageId.equals(image.getImageId()) && image.getVideoUrl() != null)
+                .findFirst()
+                .orElse(null);
+            if (video == null) {
+                return false;
+            }
+
+            VideoMetadata metadata = extract(video.getVideoUrl());
+            if (metadata == null) {
+                videosFailed.incrementAndGet();
+                return false;
+            }
+
+            Update update = new Update()
+                .set("images.$.videoDurationSeconds", metadata.durationSeconds)
+                .set("images.$.width", metadata.width)
+                .set("images.$.height", metadata.height)
+                .set("images.$.variants", metadata.posters);
+            if (video.getVideoFormat() == null) {
+                update.set("images.$.videoFormat", MediaIngestionService.getVideoFormat(video.getVideoUrl()));
+            }
+            String posterUrl = posterFor(metadata.posters);
+            if (posterUrl != null) {
+                update.set("images.$.videoThumbnailUrl", posterUrl);
+            }
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(listingId).and("images.imageId").is(imageId)),
+                update, GemListing.class);
+
+            videosProcessed.incrementAndGet();
+            logger.info("🎬 Poster extracted for video {} of listing {} ({} s, {}x{})",
+                       imageId, listingId, metadata.durationSeconds, metadata.width, metadata.height);
+            return true;
+
+        } catch (Exception e) {
+            logger.error("❌ Failed to process video {} of listing {}: {}", imageId, listingId, e.getMessage());
+            videosFailed.incrementAndGet();
+            return false;
+        }
+    }
+
+    private VideoMetadata extract(String videoUrl) throws Exception {
+        Path videoFile = fileStorageService.getLocalFile(videoUrl);
+        if (!Files.isRegularFile(videoFile)) {
+            logger.warn("⚠️ Video file not found: {}", videoUrl);
+            return null;
+        }
+
+        VideoCapture capture = new VideoCapture(videoFile.toString());
+        Mat poster = null;
+        try {
+            if (!capture.isOpened()) {
+                logger.warn("⚠️ OpenCV cannot decode video {}", videoUrl);
+                return null;
+            }
+
+            VideoMetadata metadata = new VideoMetadata();
+            double fps = capture.get(Videoio.CAP_PROP_FPS);
+            double frameCount = capture.get(Videoio.CAP_PROP_FRAME_COUNT);
+            metadata.width = (int) capture.get(Videoio.CAP_PROP_FRAME_WIDTH);
+            metadata.height = (int) capture.get(Videoio.CAP_PROP_FRAME_HEIGHT);
+            if (fps > 0 && frameCount > 0) {
+                metadata.durationSeconds = Math.round(frameCount / fps);
+            }
+
+            poster = selectPosterFrame(capture, frameCount);
+            if (poster == null) {
+                logger.warn("⚠️ No decodable frame in video {}", videoUrl);
+                return null;
+            }
+            if (metadata.width <= 0 || metadata.height <= 0) {
+                metadata.width = poster.cols();
+                metadata.height = poster.rows();
+            }
+            metadata.posters = writePosters(poster, videoFile, videoUrl);
+            return metadata;
+
+        } finally {
+            if (poster != null) {
+                poster.release();
+            }
+            capture.release();
+        }
+    }
+
+    /**
+     * Sample a few frames across the clip and keep the sharpest one that is not too dark
+     */
+    private Mat selectPosterFrame(VideoCapture capture, double frameCount) {
+        Mat best = null;
+        double bestScore = -1;
+        boolean bestIsBright = false;
+        Mat frame = new Mat();
+        Mat gray = new Mat();
+        Mat laplacian = new Mat();
+        MatOfDouble mean = new MatOfDouble();
+        MatOfDouble stddev = new MatOfDouble();
+        try {
+            int samples = frameCount > 0 ? SAMPLE_POSITIONS.length : 1;
+            for (int i = 0; i < samples; i++) {
+                if (frameCount > 0) {
+                    capture.set(Videoio.CAP_PROP_POS_FRAMES, Math.floor(frameCount * SAMPLE_POSITIONS[i]));
+                }
+                if (!capture.read(frame) || frame.empty()) {
+                    continue;
+                }
+
+                Imgproc.cvtColor(frame, gray, Imgproc.COLOR_BGR2GRAY);
+                double brightness = Core.mean(gray).val[0];
+                Imgproc.Laplacian(gray, laplacian, CvType.CV_64F);
+                Core.meanStdDev(laplacian, mean, stddev);
+                double sharpness = stddev.toArray()[0] * stddev.toArray()[0];
+                boolean bright = brightness >= MIN_BRIGHTNESS;
+
+                if (best == null || (bright && !bestIsBright) || (bright == bestIsBright && sharpness > bestScore)) {
+                    if (best == null) {
+                        best = new Mat();
+                    }
+                    frame.copyTo(best);
+                    bestScore = sharpness;
+                    bestIsBright = bright;
+                }
+            }
+            return best;
+        } finally {
+            frame.release();
+            gray.release();
+            laplacian.release();
+            mean.release();
+            stddev.release();
+        }
+    }
+
+    /**
+     * Write the poster at every configured width up to the frame width, smallest first
+     */
+    private List<ImageVariant> writePosters(Mat poster, Path videoFile, String videoUrl) throws Exception {
+        String fileName = videoFile.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String urlPrefix = videoUrl.substring(0, Math.max(videoUrl.lastIndexOf('/'), videoUrl.lastIndexOf('\\')) + 1);
+
+        List<ImageVariant> posters = new ArrayList<>();
+        MatOfInt params = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, jpegQuality);
+        Mat resized = new Mat();
+        boolean fullSizeWritten = false;
+        try {
+            for (int width : posterWidths) {
+                int targetWidth = Math.min(width, poster.cols());
+                if (targetWidth == poster.cols()) {
+                    // Every width at or above the frame width is the same full-size file
+                    if (fullSizeWritten) {
+                        continue;
+                    }
+                    fullSizeWritten = true;
+                }
+                int targetHeight = (int) Math.round(poster.rows() * (targetWidth / (double) poster.cols()));
+                Mat source = poster;
+                if (targetWidth < poster.cols()) {
+                    Imgproc.resize(poster, resized, new Size(targetWidth, targetHeight), 0, 0, Imgproc.INTER_AREA);
+                    source = resized;
+                }
+
+                String posterName = baseName + "_poster_w" + targetWidth + ".jpg";
+                Path target = videoFile.resolveSibling(posterName);
+                if (!Imgcodecs.imwrite(target.toString(), source, params)) {
+                    throw new IllegalStateException("Could not write poster " + target);
+                }
+                long size = Files.size(target);
+                fileStorageService.publish(target);
+                posters.add(new ImageVariant(targetWidth, targetHeight, urlPrefix + posterName, size));
+            }
+        } finally {
+            resized.release();
+            params.release();
+        }
+
+        Collections.reverse(posters);
+        return posters;
+    }
+
+    private String posterFor(List<ImageVariant> posters) {
+        ImageVariant best = null;
+        for (ImageVariant poster : posters) {
+            best = poster;
+            if (poster.getWidth() >= thumbnailWidth) {
+                break;
+            }
+        }
+        return best != null ? best.getUrl() : null;
+    }
+
+    private static class VideoMetadata {
+        private Long durationSeconds;
+        private int width;
+        private int height;
+        private List<ImageVariant> posters;
+    }
+
+    /**
+     * Poster job of a listing video; identifies the listing when the queue refuses the job
+     */
+    private static class ListingTask implements Runnable {
+        private final String listingId;
+        private final Runnable work;
+
+        ListingTask(String listingId, Runnable work) {
+            this.listingId = listingId;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            work.run();
+        }
+    }
+}
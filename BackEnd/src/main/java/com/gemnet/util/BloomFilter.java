@@ -0,0 +1,84 @@
+package com.gemnet.util;
+
+/**
+ * Fixed-size bloom filter for strings. Memory is set up front from the expected number of
+ * entries and the false-positive rate; mightContain never returns false for an added value.
+ */
+public class BloomFilter {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] bits;
+    private final long bitSize;
+    private final int hashCount;
+    private long count;
+
+    public BloomFilter(long expectedEntries, double falsePositiveRate) {
+        long entries = Math.max(1, expectedEntries);
+        double rate = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long optimalBits = (long) Math.ceil(-entries * Math.log(rate) / (Math.log(2) * Math.log(2)));
+        // Cap at 2^31 bits (256 MB) so indexes stay within an int-sized word array
+        long size = Math.min(1L << 31, Math.max(64, optimalBits));
+        this.bits = new long[(int) ((size + 63) / 64)];
+        this.bitSize = bits.length * 64L;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitSize / entries * Math.log(2)));
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = index(h1 + i * h2);
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+        count++;
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = index(h1 + i * h2);
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSizeInBytes() {
+        return bits.length * 8L;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    private long index(int combined) {
+        return (combined & 0xffffffffL) % bitSize;
+    }
+
+    /**
+     * FNV-1a over the characters followed by the MurmurHash3 finalizer
+     */
+    private static long hash(String value) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,85 @@
+package com.gemnet.util;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A file held in memory behind the MultipartFile interface: an upload that has to outlive its
+ * request, or an entry unpacked from an uploaded archive. Storage and OCR take it like any
+ * other upload.
+ */
+public class BufferedUpload implements MultipartFile {
+
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+    private final byte[] bytes;
+
+    public BufferedUpload(String name, String originalFilename, String contentType, byte[] bytes) {
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Read an upload into memory
+     */
+    public static BufferedUpload read(MultipartFile file) throws IOException {
+        return new BufferedUpload(file.getName(), file.getOriginalFilename(), file.getContentType(), file.getBytes());
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bytes.length == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return bytes.length;
+    }
+
+    /**
+     * The buffered bytes themselves (not a copy)
+     */
+    @Override
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.write(dest.toPath(), bytes);
+    }
+
+    @Override
+    public void transferTo(Path dest) throws IOException {
+        Files.write(dest, bytes);
+    }
+}
@@ -0,0 +1,341 @@
+package com.gemnet.util;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.RotatedRect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed field layout of a certificate card. The card is found in the photo, deskewed to a
+ * canonical ID-1 sized image (85.6 x 54 mm, the size of lab report cards) and each field is
+ * read from its own region, so OCR only sees one line of text at a time.
+ *
+ * Regions are fractions of the deskewed card, measured from sample certificates. Since the
+ * detected outline may include part of a sleeve, rows are located from the ink profile of
+ * the label column and the measured row positions are only the fallback.
+ */
+public final class CertificateLayout {
+
+    public static final int CARD_WIDTH = 1200;
+    public static final int CARD_HEIGHT = 757;
+
+    // Working size for card detection
+    private static final int DETECT_MAX_DIMENSION = 800;
+    // A card should fill a good part of the photo; smaller quads are labels or text blocks
+    private static final double MIN_CARD_AREA_RATIO = 0.2;
+
+    /**
+     * CSL (Colored Stone Laboratory) memo card: header with the lab name, then nine
+     * "Label : value" rows on the left and the stone photo and QR code on the right
+     */
+    public static final CertificateLayout CSL_CARD = new CertificateLayout("CSL_CARD",
+        new Region(0.05, 0.04, 0.50, 0.20), List.of("CSL", "COLORED", "STONE", "LABORATORY"),
+        new Region(0.05, 0.31, 0.22, 0.64), 0.272, 0.45,
+        List.of("Date", "CSL Memo No", "Color", "Shape", "Weight", "Measurements", "Variety", "Species", "Treatment"),
+        0.374, 0.0647);
+
+    private final String name;
+    private final Region header;
+    private final List<String> headerKeywords;
+    private final Region labelColumn;
+    private final double valueX;
+    private final double valueWidth;
+    private final List<String> labels;
+    private final double firstRowCentre;
+    private final double rowPitch;
+
+    private CertificateLayout(String name, Region header, List<String> headerKeywords,
+                              Region labelColumn, double valueX, double valueWidth,
+                              List<String> labels, double firstRowCentre, double rowPitch) {
+        this.name = name;
+        this.header = header;
+        this.headerKeywords = headerKeywords;
+        this.labelColumn = labelColumn;
+        this.valueX = valueX;
+        this.valueWidth = valueWidth;
+        this.labels = labels;
+        this.firstRowCentre = firstRowCentre;
+        this.rowPitch = rowPitch;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Region getHeader() {
+        return header;
+    }
+
+    /**
+     * Field labels in the order they are printed
+     */
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Value rectangle of each field (label as printed on the card) in the deskewed card.
+     * Rows come from the label column's ink profile when it shows one line per field.
+     */
+    public Map<String, Rect> locateFields(Mat card) {
+        int cols = card.cols();
+        int rows = card.rows();
+        int left = (int) Math.round(valueX * cols);
+        int width = (int) Math.min(cols - left, Math.round(valueWidth * cols));
+
+        List<int[]> lines = findTextLines(card, labelColumn.toRect(cols, rows));
+        Map<String, Rect> fields = new LinkedHashMap<>();
+        for (int i = 0; i < labels.size(); i++) {
+            int top;
+            int bottom;
+            if (lines.size() == labels.size()) {
+                int[] line = lines.get(i);
+                int pad = Math.max(4, (line[1] - line[0]) / 3);
+                top = Math.max(0, line[0] - pad);
+                bottom = Math.min(rows, line[1] + pad);
+            } else {
+                double centre = firstRowCentre + i * rowPitch;
+                top = (int) Math.max(0, Math.round((centre - rowPitch / 2) * rows));
+                bottom = (int) Math.min(rows, Math.round((centre + rowPitch / 2) * rows));
+            }
+            fields.put(labels.get(i), new Rect(left, top, width, bottom - top));
+        }
+        return fields;
+    }
+
+    /**
+     * Whether OCR text of the header region identifies this layout
+     */
+    public boolean matchesHeader(String headerText) {
+        if (headerText == null) {
+            return false;
+        }
+        String upper = headerText.toUpperCase();
+        int hits = 0;
+        for (String keyword : headerKeywords) {
+            if (upper.contains(keyword)) {
+                hits++;
+            }
+        }
+        return hits >= 2;
+    }
+
+    /**
+     * Find the largest card-shaped quadrilateral in a BGR or grayscale photo and warp it to
+     * CARD_WIDTH x CARD_HEIGHT grayscale. Returns null if no card is found.
+     */
+    public static Mat extractCard(Mat image, MatScope scope) {
+        try (MatScope work = new MatScope()) {
+            Mat gray = image;
+            if (image.channels() > 1) {
+                gray = work.newMat();
+                Imgproc.cvtColor(image, gray, Imgproc.COLOR_BGR2GRAY);
+            }
+
+            double scale = Math.min(1.0, (double) DETECT_MAX_DIMENSION / Math.max(gray.cols(), gray.rows()));
+            Mat small = gray;
+            if (scale < 1.0) {
+                small = work.newMat();
+                Imgproc.resize(gray, small, new Size(), scale, scale, Imgproc.INTER_AREA);
+            }
+
+            Point[] corners = findCardCorners(small, work);
+            if (corners == null) {
+                return null;
+            }
+            for (Point corner : corners) {
+                corner.x /= scale;
+                corner.y /= scale;
+            }
+
+            MatOfPoint2f source = work.track(new MatOfPoint2f(orderCorners(corners)));
+            MatOfPoint2f target = work.track(new MatOfPoint2f(
+                new Point(0, 0), new Point(CARD_WIDTH - 1, 0),
+                new Point(CARD_WIDTH - 1, CARD_HEIGHT - 1), new Point(0, CARD_HEIGHT - 1)));
+            Mat transform = work.track(Imgproc.getPerspectiveTransform(source, target));
+
+            Mat card = scope.newMat();
+            Imgproc.warpPerspective(gray, card, transform, new Size(CARD_WIDTH, CARD_HEIGHT), Imgproc.INTER_CUBIC);
+            return card;
+        }
+    }
+
+    /**
+     * Binarised crop of part of the deskewed card, ready for single-line OCR
+     */
+    public static Mat crop(Mat card, Rect rect, MatScope scope) {
+        Mat roi = scope.track(card.submat(rect));
+
+        // Tesseract reads best at ~30px cap height; card rows are ~25px at canonical size
+        Mat enlarged = scope.newMat();
+        Imgproc.resize(roi, enlarged, new Size(), 1.5, 1.5, Imgproc.INTER_CUBIC);
+
+        Mat binary = scope.newMat();
+        Imgproc.threshold(enlarged, binary, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+
+        // White border so glyphs don't touch the edge
+        Mat padded = scope.newMat();
+        Core.copyMakeBorder(binary, padded, 10, 10, 10, 10, Core.BORDER_CONSTANT, new Scalar(255));
+        return padded;
+    }
+
+    /**
+     * [top, bottom) of each text line in a column, from rows that contain ink
+     */
+    private static List<int[]> findTextLines(Mat card, Rect column) {
+        List<int[]> lines = new ArrayList<>();
+        try (MatScope work = new MatScope()) {
+            Mat binary = work.newMat();
+            Imgproc.threshold(work.track(card.submat(column)), binary, 0, 255, Imgproc.THRESH_BINARY_INV | Imgproc.THRESH_OTSU);
+            Mat profile = work.newMat();
+            Core.reduce(binary, profile, 1, Core.REDUCE_SUM, CvType.CV_32S);
+
+            int[] sums = new int[column.height];
+            profile.get(0, 0, sums);
+            long minInk = 255L * Math.max(2, column.width / 50);
+
+            int start = -1;
+            int gap = 0;
+            for (int y = 0; y <= sums.length; y++) {
+                boolean inked = y < sums.length && sums[y] >= minInk;
+                if (inked) {
+                    if (start < 0) {
+                        start = y;
+                    }
+                    gap = 0;
+                } else if (start >= 0 && (++gap > 3 || y == sums.length)) {
+                    int end = y - gap + 1;
+                    // Ignore specks and rules; text lines are at least ~1% of the card tall
+                    if (end - start >= card.rows() / 100) {
+                        lines.add(new int[] { column.y + start, column.y + end });
+                    }
+                    start = -1;
+                    gap = 0;
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static Point[] findCardCorners(Mat gray, MatScope work) {
+        Mat blurred = work.newMat();
+        Imgproc.GaussianBlur(gray, blurred, new Size(5, 5), 0);
+
+        // Card edges first; a white card on a darker background as the fallback
+        Mat edges = work.newMat();
+        Imgproc.Canny(blurred, edges, 50, 150);
+        Mat kernel = work.track(Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3)));
+        Imgproc.dilate(edges, edges, kernel);
+        Point[] corners = findQuad(edges, work);
+        if (corners != null) {
+            return corners;
+        }
+
+        Mat bright = work.newMat();
+        Imgproc.threshold(blurred, bright, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+        Mat closeKernel = work.track(Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(15, 15)));
+        Imgproc.morphologyEx(bright, bright, Imgproc.MORPH_CLOSE, closeKernel);
+        return findQuad(bright, work);
+    }
+
+    private static Point[] findQuad(Mat binary, MatScope work) {
+        List<MatOfPoint> contours = new ArrayList<>();
+        Imgproc.findContours(binary, contours, work.newMat(), Imgproc.RETR_LIST, Imgproc.CHAIN_APPROX_SIMPLE);
+        contours.forEach(work::track);
+        contours.sort((a, b) -> Double.compare(Imgproc.contourArea(b), Imgproc.contourArea(a)));
+
+        double imageArea = binary.cols() * binary.rows();
+        for (MatOfPoint contour : contours) {
+            double area = Imgproc.contourArea(contour);
+            if (area < imageArea * MIN_CARD_AREA_RATIO) {
+                break;
+            }
+            if (area > imageArea * 0.98) {
+                // The image border itself
+                continue;
+            }
+            MatOfPoint2f curve = work.track(new MatOfPoint2f(contour.toArray()));
+            MatOfPoint2f approx = work.track(new MatOfPoint2f());
+            Imgproc.approxPolyDP(curve, approx, 0.02 * Imgproc.arcLength(curve, true), true);
+            if (approx.total() == 4 && Imgproc.isContourConvex(work.track(new MatOfPoint(approx.toArray())))
+                    && isCardShaped(approx.toArray())) {
+                return approx.toArray();
+            }
+
+            // Rounded corners or a finger over the edge: use the rotated bounding box if it fits well
+            RotatedRect box = Imgproc.minAreaRect(curve);
+            Point[] points = new Point[4];
+            box.points(points);
+            if (area > box.size.area() * 0.85 && isCardShaped(points)) {
+                return points;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isCardShaped(Point[] quad) {
+        Point[] ordered = orderCorners(quad);
+        double width = Math.hypot(ordered[1].x - ordered[0].x, ordered[1].y - ordered[0].y);
+        double height = Math.hypot(ordered[3].x - ordered[0].x, ordered[3].y - ordered[0].y);
+        return Math.abs(width / height - (double) CARD_WIDTH / CARD_HEIGHT) < 0.3;
+    }
+
+    /**
+     * Top-left, top-right, bottom-right, bottom-left, with the long side horizontal
+     */
+    private static Point[] orderCorners(Point[] corners) {
+        Point[] sorted = corners.clone();
+        // Top-left has the smallest x+y, bottom-right the largest; top-right the smallest y-x
+        Arrays.sort(sorted, (a, b) -> Double.compare(a.x + a.y, b.x + b.y));
+        Point topLeft = sorted[0];
+        Point bottomRight = sorted[3];
+        Point topRight = sorted[1].y - sorted[1].x < sorted[2].y - sorted[2].x ? sorted[1] : sorted[2];
+        Point bottomLeft = topRight == sorted[1] ? sorted[2] : sorted[1];
+
+        double width = Math.hypot(topRight.x - topLeft.x, topRight.y - topLeft.y);
+        double height = Math.hypot(bottomLeft.x - topLeft.x, bottomLeft.y - topLeft.y);
+        if (height > width) {
+            // Card photographed in portrait; rotate so the text runs left to right
+            return new Point[] { bottomLeft, topLeft, topRight, bottomRight };
+        }
+        return new Point[] { topLeft, topRight, bottomRight, bottomLeft };
+    }
+
+    /**
+     * Rectangle as fractions of the card's width and height
+     */
+    public static class Region {
+        private final double x;
+        private final double y;
+        private final double width;
+        private final double height;
+
+        public Region(double x, double y, double width, double height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public Rect toRect(int cols, int rows) {
+            int left = (int) Math.max(0, Math.round(x * cols));
+            int top = (int) Math.max(0, Math.round(y * rows));
+            int right = (int) Math.min(cols, Math.round((x + width) * cols));
+            int bottom = (int) Math.min(rows, Math.round((y + height) * rows));
+            return new Rect(left, top, right - left, bottom - top);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.gemnet.util;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfRect;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.objdetect.CascadeClassifier;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Haar cascade face detection that is safe to call from any thread. CascadeClassifier keeps
+ * per-call scratch state, so each thread gets its own instance loaded from the same file.
+ * Large photos are detected on a copy scaled down to maxDimension, with minimum and maximum
+ * face sizes derived from that copy, and the rectangles are mapped back to the original.
+ */
+public class FaceDetector {
+
+    // Smallest window the frontal face cascades are trained on
+    private static final int CASCADE_WINDOW = 20;
+
+    private final String classifierPath;
+    private final int maxDimension;
+    private final double minFaceRatio;
+    private final double scaleFactor;
+    private final int minNeighbors;
+
+    private final ThreadLocal<CascadeClassifier> classifiers;
+    private final AtomicInteger instances = new AtomicInteger();
+    private final AtomicLong detections = new AtomicLong();
+    private final AtomicLong downscaled = new AtomicLong();
+    private final AtomicLong totalDetectNanos = new AtomicLong();
+
+    /**
+     * @param maxDimension longest side of the working image; 0 detects at full resolution
+     * @param minFaceRatio smallest face to look for, as a fraction of the working image's shorter side
+     */
+    public FaceDetector(String classifierPath, int maxDimension, double minFaceRatio, double scaleFactor, int minNeighbors) {
+        this.classifierPath = classifierPath;
+        this.maxDimension = maxDimension;
+        this.minFaceRatio = minFaceRatio;
+        this.scaleFactor = scaleFactor;
+        this.minNeighbors = minNeighbors;
+        this.classifiers = ThreadLocal.withInitial(this::loadClassifier);
+    }
+
+    /**
+     * Load the cascade on the calling thread, so a missing or broken file is found at startup
+     */
+    public boolean isUsable() {
+        return !classifiers.get().empty();
+    }
+
+    /**
+     * Faces in an 8-bit grayscale image, in that image's coordinates
+     */
+    public Rect[] detect(Mat grayImage) {
+        long start = System.nanoTime();
+        try (MatScope scope = new MatScope()) {
+            Mat working = grayImage;
+            double scale = 1.0;
+            int longest = Math.max(grayImage.cols(), grayImage.rows());
+            if (maxDimension > 0 && longest > maxDimension) {
+                scale = (double) maxDimension / longest;
+                working = scope.newMat();
+                Imgproc.resize(grayImage, working, new Size(), scale, scale, Imgproc.INTER_AREA);
+                downscaled.incrementAndGet();
+            }
+
+            int shorter = Math.min(working.cols(), working.rows());
+            int minFace = Math.max(CASCADE_WINDOW, (int) (shorter * minFaceRatio));
+            if (minFace > shorter) {
+                return new Rect[0];
+            }
+
+            MatOfRect faces = scope.track(new MatOfRect());
+            classifiers.get().detectMultiScale(working, faces, scaleFactor, minNeighbors, 0,
+                new Size(minFace, minFace), new Size(shorter, shorter));
+
+            Rect[] found = faces.toArray();
+            if (scale < 1.0) {
+                for (int i = 0; i < found.length; i++) {
+                    found[i] = toOriginal(found[i], scale, grayImage.cols(), grayImage.rows());
+                }
+            }
+            return found;
+        } finally {
+            detections.incrementAndGet();
+            totalDetectNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Largest face in the image, or null if none was found
+     */
+    public Rect detectLargest(Mat grayImage) {
+        Rect largest = null;
+        for (Rect face : detect(grayImage)) {
+            if (largest == null || face.area() > largest.area()) {
+                largest = face;
+            }
+        }
+        return largest;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = detections.get();
+        stats.put("classifierPath", classifierPath);
+        stats.put("classifierInstances", instances.get());
+        stats.put("maxDimension", maxDimension);
+        stats.put("minFaceRatio", minFaceRatio);
+        stats.put("detections", count);
+        stats.put("downscaled", downscaled.get());
+        stats.put("avgDetectMillis", count > 0 ? Math.round(totalDetectNanos.get() / (double) count / 1_000) / 1000.0 : 0);
+        return stats;
+    }
+
+    private CascadeClassifier loadClassifier() {
+        CascadeClassifier classifier = new CascadeClassifier();
+        if (classifier.load(classifierPath)) {
+            instances.incrementAndGet();
+        }
+        return classifier;
+    }
+
+    private Rect toOriginal(Rect rect, double scale, int width, int height) {
+        int x = (int) Math.floor(rect.x / scale);
+        int y = (int) Math.floor(rect.y / scale);
+        int right = Math.min(width, (int) Math.ceil((rect.x + rect.width) / scale));
+        int bottom = Math.min(height, (int) Math.ceil((rect.y + rect.height) / scale));
+        return new Rect(x, y, right - x, bottom - y);
+    }
+}
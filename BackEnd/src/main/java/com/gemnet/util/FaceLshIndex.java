@@ -0,0 +1,242 @@
+package com.gemnet.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Approximate nearest-neighbour index over face templates (LbpFaceDescriptor) using random
+ * hyperplane LSH. Templates are centred on the population mean before hashing, since LBP
+ * histograms all point into the same orthant and uncentred hyperplanes would put nearly
+ * everyone in one bucket. Queries also probe the buckets reached by flipping the least
+ * certain bits (multi-probe), and bucket hits are re-ranked with the exact template similarity.
+ *
+ * Writes are synchronized; queries run concurrently with them.
+ */
+public class FaceLshIndex {
+
+    private final int tables;
+    private final int bits;
+    private final int probes;
+    private final float[] mean;
+    private final float[][][] planes; // [table][bit][dimension]
+    private final List<Map<Integer, Set<String>>> buckets = new ArrayList<>();
+    private final Map<String, byte[]> templates = new ConcurrentHashMap<>();
+    private final Map<String, int[]> keys = new ConcurrentHashMap<>();
+
+    public FaceLshIndex(int tables, int bits, int probes, float[] mean, long seed) {
+        this.tables = tables;
+        this.bits = Math.min(30, bits);
+        this.probes = Math.max(0, Math.min(probes, this.bits));
+        this.mean = mean;
+        this.planes = new float[tables][this.bits][LbpFaceDescriptor.LENGTH];
+
+        Random random = new Random(seed);
+        for (int t = 0; t < tables; t++) {
+            for (int b = 0; b < this.bits; b++) {
+                for (int d = 0; d < LbpFaceDescriptor.LENGTH; d++) {
+                    planes[t][b][d] = (float) random.nextGaussian();
+                }
+            }
+            buckets.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Mean template used for centring; all zeros when there are no templates yet
+     */
+    public static float[] meanOf(Collection<byte[]> templates) {
+        float[] mean = new float[LbpFaceDescriptor.LENGTH];
+        int count = 0;
+        for (byte[] template : templates) {
+            if (template == null || template.length != LbpFaceDescriptor.LENGTH) {
+                continue;
+            }
+            for (int d = 0; d < mean.length; d++) {
+                mean[d] += template[d] & 0xff;
+            }
+            count++;
+        }
+        if (count > 0) {
+            for (int d = 0; d < mean.length; d++) {
+                mean[d] /= count;
+            }
+        }
+        return mean;
+    }
+
+    public synchronized void put(String id, byte[] template) {
+        if (template == null || template.length != LbpFaceDescriptor.LENGTH) {
+            return;
+        }
+        remove(id);
+        int[] hashes = hash(template, null);
+        for (int t = 0; t < tables; t++) {
+            buckets.get(t).computeIfAbsent(hashes[t], key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        keys.put(id, hashes);
+        templates.put(id, template);
+    }
+
+    public synchronized void remove(String id) {
+        int[] hashes = keys.remove(id);
+        templates.remove(id);
+        if (hashes == null) {
+            return;
+        }
+        for (int t = 0; t < tables; t++) {
+            Set<String> bucket = buckets.get(t).get(hashes[t]);
+            if (bucket != null) {
+                bucket.remove(id);
+                if (bucket.isEmpty()) {
+                    buckets.get(t).remove(hashes[t]);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    public Map<String, byte[]> getTemplates() {
+        return templates;
+    }
+
+    /**
+     * Templates at or above minSimilarity, best first. Stops re-ranking at the deadline
+     * (System.nanoTime) and marks the result truncated.
+     */
+    public QueryResult query(byte[] template, double minSimilarity, int limit, String excludeId, long deadlineNanos) {
+        QueryResult result = new QueryResult();
+        if (template == null || template.length != LbpFaceDescriptor.LENGTH) {
+            return result;
+        }
+
+        float[][] margins = new float[tables][bits];
+        int[] hashes = hash(template, margins);
+        Set<String> seen = new HashSet<>();
+        outer:
+        for (int t = 0; t < tables; t++) {
+            for (int key : probeKeys(hashes[t], margins[t])) {
+                Set<String> bucket = buckets.get(t).get(key);
+                if (bucket == null) {
+                    continue;
+                }
+                for (String id : bucket) {
+                    if (id.equals(excludeId) || !seen.add(id)) {
+                        continue;
+                    }
+                    // Check the budget every few comparisons; each one is ~1µs
+                    if ((seen.size() & 31) == 0 && System.nanoTime() > deadlineNanos) {
+                        result.truncated = true;
+                        break outer;
+                    }
+                    byte[] candidate = templates.get(id);
+                    double similarity = LbpFaceDescriptor.similarity(template, candidate);
+                    if (similarity >= minSimilarity) {
+                        result.matches.add(new Match(id, similarity));
+                    }
+                }
+            }
+        }
+
+        result.candidatesChecked = seen.size();
+        result.matches.sort((a, b) -> Double.compare(b.similarity, a.similarity));
+        if (result.matches.size() > limit) {
+            result.matches = new ArrayList<>(result.matches.subList(0, limit));
+        }
+        return result;
+    }
+
+    /**
+     * The bucket itself, then the buckets with one of the lowest-margin bits flipped
+     */
+    private int[] probeKeys(int key, float[] margins) {
+        int[] keys = new int[probes + 1];
+        keys[0] = key;
+        boolean[] used = new boolean[bits];
+        for (int p = 1; p <= probes; p++) {
+            int weakest = -1;
+            for (int b = 0; b < bits; b++) {
+                if (!used[b] && (weakest < 0 || margins[b] < margins[weakest])) {
+                    weakest = b;
+                }
+            }
+            used[weakest] = true;
+            keys[p] = key ^ (1 << weakest);
+        }
+        return keys;
+    }
+
+    /**
+     * Per-table bucket keys; fills margins with |distance| to each hyperplane when given
+     */
+    private int[] hash(byte[] template, float[][] margins) {
+        float[] centred = new float[LbpFaceDescriptor.LENGTH];
+        for (int d = 0; d < centred.length; d++) {
+            centred[d] = (template[d] & 0xff) - mean[d];
+        }
+
+        int[] hashes = new int[tables];
+        for (int t = 0; t < tables; t++) {
+            int key = 0;
+            for (int b = 0; b < bits; b++) {
+                float[] plane = planes[t][b];
+                float dot = 0;
+                for (int d = 0; d < centred.length; d++) {
+                    dot += plane[d] * centred[d];
+                }
+                if (dot >= 0) {
+                    key |= 1 << b;
+                }
+                if (margins != null) {
+                    margins[t][b] = Math.abs(dot);
+                }
+            }
+            hashes[t] = key;
+        }
+        return hashes;
+    }
+
+    public static class Match {
+        private final String id;
+        private final double similarity;
+
+        public Match(String id, double similarity) {
+            this.id = id;
+            this.similarity = similarity;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+
+    public static class QueryResult {
+        private List<Match> matches = new ArrayList<>();
+        private int candidatesChecked;
+        private boolean truncated;
+
+        public List<Match> getMatches() {
+            return matches;
+        }
+
+        public int getCandidatesChecked() {
+            return candidatesChecked;
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.gemnet.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Multi-index hash table over 64-bit hashes for Hamming-radius queries. Each hash is filed
+ * under its four 16-bit chunks in four tables. Two hashes within r bits of each other differ
+ * in at most r/4 bits in at least one chunk (pigeonhole), so a query only probes the buckets
+ * within r/4 bits of its own chunks and checks the few hashes found there, instead of
+ * scanning every hash. For r=6 that is 4 x 17 bucket lookups however large the index grows.
+ *
+ * Each distinct hash is an entry holding the references (e.g. "listingId/imageId") that share
+ * it. Not thread-safe; callers synchronise.
+ */
+public class HammingIndex {
+
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 64 / CHUNKS;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    @SuppressWarnings("unchecked")
+    private final Map<Integer, List<Entry>>[] tables = new Map[CHUNKS];
+    private int references;
+
+    public HammingIndex() {
+        for (int i = 0; i < CHUNKS; i++) {
+            tables[i] = new HashMap<>();
+        }
+    }
+
+    /**
+     * Index a reference under a hash
+     */
+    public void add(long hash, String reference) {
+        Entry entry = entries.get(hash);
+        if (entry == null) {
+            entry = new Entry(hash);
+            entries.put(hash, entry);
+            for (int i = 0; i < CHUNKS; i++) {
+                tables[i].computeIfAbsent(chunk(hash, i), key -> new ArrayList<>(1)).add(entry);
+            }
+        }
+        entry.references.add(reference);
+        references++;
+    }
+
+    /**
+     * Remove a reference from a hash; returns false if it was not indexed there
+     */
+    public boolean remove(long hash, String reference) {
+        Entry entry = entries.get(hash);
+        if (entry == null || !entry.references.remove(reference)) {
+            return false;
+        }
+        references--;
+        if (entry.references.isEmpty()) {
+            entries.remove(hash);
+            for (int i = 0; i < CHUNKS; i++) {
+                int key = chunk(hash, i);
+                List<Entry> bucket = tables[i].get(key);
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    tables[i].remove(key);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Every reference whose hash is within radius bits of the query
+     */
+    public SearchResult search(long hash, int radius) {
+        List<Match> matches = new ArrayList<>();
+        int chunkRadius = radius / CHUNKS;
+        int[] candidates = {0};
+
+        for (int i = 0; i < CHUNKS; i++) {
+            int table = i;
+            int queryChunk = chunk(hash, i);
+            forEachWithin(queryChunk, chunkRadius, key -> {
+                List<Entry> bucket = tables[table].get(key);
+                if (bucket == null) {
+                    return;
+                }
+                for (Entry entry : bucket) {
+                    // An entry close enough in an earlier chunk was already checked there
+                    if (foundInEarlierTable(hash, entry.hash, table, chunkRadius)) {
+                        continue;
+                    }
+                    candidates[0]++;
+                    int distance = PerceptualHash.distance(hash, entry.hash);
+                    if (distance <= radius) {
+                        for (String reference : entry.references) {
+                            matches.add(new Match(reference, entry.hash, distance));
+                        }
+                    }
+                }
+            });
+        }
+        return new SearchResult(matches, candidates[0]);
+    }
+
+    public int getHashCount() {
+        return entries.size();
+    }
+
+    public int getReferenceCount() {
+        return references;
+    }
+
+    private static boolean foundInEarlierTable(long query, long hash, int table, int chunkRadius) {
+        for (int i = 0; i < table; i++) {
+            if (Integer.bitCount(chunk(query, i) ^ chunk(hash, i)) <= chunkRadius) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visit every chunk value within radius bits of key
+     */
+    private static void forEachWithin(int key, int radius, IntConsumer visitor) {
+        visitor.accept(key);
+        flipFrom(key, 0, radius, visitor);
+    }
+
+    private static void flipFrom(int key, int firstBit, int remaining, IntConsumer visitor) {
+        if (remaining == 0) {
+            return;
+        }
+        for (int bit = firstBit; bit < CHUNK_BITS; bit++) {
+            int flipped = key ^ (1 << bit);
+            visitor.accept(flipped);
+            flipFrom(flipped, bit + 1, remaining - 1, visitor);
+        }
+    }
+
+    private static int chunk(long hash, int index) {
+        return (int) ((hash >>> (index * CHUNK_BITS)) & 0xFFFF);
+    }
+
+    private static class Entry {
+        private final long hash;
+        private final List<String> references = new ArrayList<>(1);
+
+        Entry(long hash) {
+            this.hash = hash;
+        }
+    }
+
+    public static class Match {
+        private final String reference;
+        private final long hash;
+        private final int distance;
+
+        Match(String reference, long hash, int distance) {
+            this.reference = reference;
+            this.hash = hash;
+            this.distance = distance;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    public static class SearchResult {
+        private final List<Match> matches;
+        private final int candidatesChecked;
+
+        SearchResult(List<Match> matches, int candidatesChecked) {
+            this.matches = matches;
+            this.candidatesChecked = candidatesChecked;
+        }
+
+        public List<Match> getMatches() {
+            return matches;
+        }
+
+        public int getCandidatesChecked() {
+            return candidatesChecked;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.gemnet.util;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Compact face template: uniform local binary pattern histograms over a 4x4 grid of a
+ * 100x100 equalised face crop. Each cell histogram has 59 bins (58 uniform patterns plus one
+ * for the rest) and stores 255 * sqrt(frequency) in one byte, so a template is 944 bytes and
+ * the dot product of two templates is their Bhattacharyya coefficient.
+ */
+public final class LbpFaceDescriptor {
+
+    public static final String ALGORITHM = "LBP-U2-4x4-SQRT8";
+    public static final int FACE_SIZE = 100;
+    public static final int GRID = 4;
+    public static final int BINS = 59;
+    public static final int LENGTH = GRID * GRID * BINS;
+
+    private static final int[] UNIFORM_BIN = buildUniformBins();
+
+    private LbpFaceDescriptor() {}
+
+    /**
+     * Template of an 8-bit grayscale face region (any size)
+     */
+    public static byte[] compute(Mat grayFace) {
+        try (MatScope scope = new MatScope()) {
+            Mat resized = scope.newMat();
+            Imgproc.resize(grayFace, resized, new Size(FACE_SIZE, FACE_SIZE));
+            Mat equalized = scope.newMat();
+            Imgproc.equalizeHist(resized, equalized);
+
+            byte[] pixels = new byte[FACE_SIZE * FACE_SIZE];
+            equalized.get(0, 0, pixels);
+            return compute(pixels, FACE_SIZE, FACE_SIZE);
+        }
+    }
+
+    /**
+     * Template of a row-major 8-bit grayscale image
+     */
+    public static byte[] compute(byte[] pixels, int width, int height) {
+        int cells = GRID * GRID;
+        int[] counts = new int[cells * BINS];
+        int[] cellTotals = new int[cells];
+
+        for (int y = 1; y < height - 1; y++) {
+            int cellRow = y * GRID / height;
+            for (int x = 1; x < width - 1; x++) {
+                int center = pixels[y * width + x] & 0xff;
+                int code = 0;
+                // Neighbours clockwise from the top-left
+                code |= ((pixels[(y - 1) * width + x - 1] & 0xff) >= center ? 1 : 0) << 7;
+                code |= ((pixels[(y - 1) * width + x] & 0xff) >= center ? 1 : 0) << 6;
+                code |= ((pixels[(y - 1) * width + x + 1] & 0xff) >= center ? 1 : 0) << 5;
+                code |= ((pixels[y * width + x + 1] & 0xff) >= center ? 1 : 0) << 4;
+                code |= ((pixels[(y + 1) * width + x + 1] & 0xff) >= center ? 1 : 0) << 3;
+                code |= ((pixels[(y + 1) * width + x] & 0xff) >= center ? 1 : 0) << 2;
+                code |= ((pixels[(y + 1) * width + x - 1] & 0xff) >= center ? 1 : 0) << 1;
+                code |= ((pixels[y * width + x - 1] & 0xff) >= center ? 1 : 0);
+
+                int cell = cellRow * GRID + x * GRID / width;
+                counts[cell * BINS + UNIFORM_BIN[code]]++;
+                cellTotals[cell]++;
+            }
+        }
+
+        byte[] descriptor = new byte[LENGTH];
+        for (int cell = 0; cell < cells; cell++) {
+            if (cellTotals[cell] == 0) {
+                continue;
+            }
+            for (int bin = 0; bin < BINS; bin++) {
+                double frequency = (double) counts[cell * BINS + bin] / cellTotals[cell];
+                descriptor[cell * BINS + bin] = (byte) Math.round(255 * Math.sqrt(frequency));
+            }
+        }
+        return descriptor;
+    }
+
+    /**
+     * Mean Bhattacharyya coefficient over the grid cells: 1 for identical templates, 0 for
+     * templates with no pattern in common
+     */
+    public static double similarity(byte[] a, byte[] b) {
+        if (a == null || b == null || a.length != LENGTH || b.length != LENGTH) {
+            return 0.0;
+        }
+        long dot = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            dot += (a[i] & 0xff) * (b[i] & 0xff);
+        }
+        return Math.min(1.0, dot / (255.0 * 255.0 * GRID * GRID));
+    }
+
+    /**
+     * Map each 8-bit pattern to its uniform bin (at most two 0/1 transitions) or the shared bin 58
+     */
+    private static int[] buildUniformBins() {
+        int[] bins = new int[256];
+        int next = 0;
+        for (int code = 0; code < 256; code++) {
+            int rotated = ((code << 1) | (code >>> 7)) & 0xff;
+            if (Integer.bitCount(code ^ rotated) <= 2) {
+                bins[code] = next++;
+            } else {
+                bins[code] = BINS - 1;
+            }
+        }
+        return bins;
+    }
+}
@@ -0,0 +1,142 @@
+package com.gemnet.util;
+
+import org.opencv.core.Mat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Frees the native memory of OpenCV Mats deterministically. Every Mat created through or
+ * registered with a scope is released when the scope closes, instead of whenever the GC gets
+ * round to finalizing the Java wrapper:
+ *
+ * <pre>
+ * try (MatScope scope = new MatScope()) {
+ *     Mat gray = scope.newMat();
+ *     Imgproc.cvtColor(image, gray, Imgproc.COLOR_BGR2GRAY);
+ *     ...
+ *     return scope.keep(result); // survives the scope, the caller releases it
+ * }
+ * </pre>
+ *
+ * Scopes are meant for one thread. Process-wide counters feed the native memory gauges.
+ */
+public class MatScope implements AutoCloseable {
+
+    private static final AtomicLong openScopes = new AtomicLong();
+    private static final AtomicLong liveMats = new AtomicLong();
+    private static final AtomicLong releasedMats = new AtomicLong();
+    private static final AtomicLong releasedBytes = new AtomicLong();
+    private static final AtomicLong peakScopeBytes = new AtomicLong();
+
+    private final List<Mat> mats = new ArrayList<>();
+    private boolean closed;
+
+    public MatScope() {
+        openScopes.incrementAndGet();
+    }
+
+    /**
+     * A new empty Mat owned by this scope
+     */
+    public Mat newMat() {
+        return track(new Mat());
+    }
+
+    /**
+     * Hand a Mat (or MatOfByte, MatOfRect, ...) to this scope for release
+     */
+    public <T extends Mat> T track(T mat) {
+        if (mat != null) {
+            mats.add(mat);
+            liveMats.incrementAndGet();
+        }
+        return mat;
+    }
+
+    /**
+     * Take a Mat back out of the scope so it outlives it; the caller becomes responsible for it
+     */
+    public <T extends Mat> T keep(T mat) {
+        if (mat != null && mats.remove(mat)) {
+            liveMats.decrementAndGet();
+        }
+        return mat;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        long bytes = 0;
+        // Release in reverse so views go before the Mats they point into
+        for (int i = mats.size() - 1; i >= 0; i--) {
+            Mat mat = mats.get(i);
+            if (!mat.isSubmatrix()) {
+                bytes += mat.total() * mat.elemSize();
+            }
+            mat.release();
+        }
+
+        releasedMats.addAndGet(mats.size());
+        liveMats.addAndGet(-mats.size());
+        releasedBytes.addAndGet(bytes);
+        peakScopeBytes.accumulateAndGet(bytes, Math::max);
+        openScopes.decrementAndGet();
+        mats.clear();
+    }
+
+    /**
+     * Native memory gauges: open scopes, Mats still held by them, totals released and the
+     * largest amount one scope held, plus the process resident set size where available
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("openScopes", openScopes.get());
+        stats.put("liveMats", liveMats.get());
+        stats.put("releasedMats", releasedMats.get());
+        stats.put("releasedBytes", releasedBytes.get());
+        stats.put("peakScopeBytes", peakScopeBytes.get());
+
+        Runtime runtime = Runtime.getRuntime();
+        stats.put("heapUsedBytes", runtime.totalMemory() - runtime.freeMemory());
+        long rss = residentSetBytes();
+        if (rss >= 0) {
+            stats.put("processRssBytes", rss);
+            // Roughly what lives outside the Java heap (native libraries, Mats, thread stacks)
+            stats.put("offHeapEstimateBytes", Math.max(0, rss - runtime.totalMemory()));
+        }
+        return stats;
+    }
+
+    /**
+     * VmRSS from /proc/self/status (Linux only), -1 elsewhere
+     */
+    private static long residentSetBytes() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    String[] parts = line.trim().split("\\s+");
+                    return Long.parseLong(parts[1]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,77 @@
+package com.gemnet.util;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * 64-bit perceptual hash (pHash) of an image: the signs of the 8x8 lowest frequencies of the
+ * DCT of a 32x32 grayscale thumbnail, relative to their median. Re-encoding, resizing and
+ * mild brightness or contrast changes move a hash by only a few bits, so copies of a photo
+ * are found by Hamming distance.
+ */
+public final class PerceptualHash {
+
+    private static final int SAMPLE_SIZE = 32;
+    private static final int HASH_SIZE = 8;
+
+    private PerceptualHash() {}
+
+    /**
+     * Hash of an 8-bit grayscale image
+     */
+    public static long of(Mat gray) {
+        try (MatScope scope = new MatScope()) {
+            Mat small = scope.newMat();
+            Imgproc.resize(gray, small, new Size(SAMPLE_SIZE, SAMPLE_SIZE), 0, 0, Imgproc.INTER_AREA);
+            Mat samples = scope.newMat();
+            small.convertTo(samples, CvType.CV_32F);
+            Mat frequencies = scope.newMat();
+            Core.dct(samples, frequencies);
+
+            float[] coefficients = new float[HASH_SIZE * HASH_SIZE];
+            float[] row = new float[HASH_SIZE];
+            for (int y = 0; y < HASH_SIZE; y++) {
+                frequencies.get(y, 0, row);
+                System.arraycopy(row, 0, coefficients, y * HASH_SIZE, HASH_SIZE);
+            }
+
+            // The DC term is overall brightness; leave it out of the median
+            float[] sorted = Arrays.copyOfRange(coefficients, 1, coefficients.length);
+            Arrays.sort(sorted);
+            float median = (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+
+            long hash = 0;
+            for (int i = 0; i < coefficients.length; i++) {
+                if (coefficients[i] > median) {
+                    hash |= 1L << i;
+                }
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * Hash of an image file, or null if it can't be decoded. Decoded at half size, which is
+     * plenty for a 32x32 sample and much cheaper for camera photos.
+     */
+    public static Long ofFile(Path file) {
+        try (MatScope scope = new MatScope()) {
+            Mat gray = scope.track(Imgcodecs.imread(file.toString(), Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2));
+            if (gray.empty()) {
+                return null;
+            }
+            return of(gray);
+        }
+    }
+
+    public static int distance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+}
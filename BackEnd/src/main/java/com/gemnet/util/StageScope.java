@@ -0,0 +1,67 @@
+package com.gemnet.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Independent stages of one verification run on an executor. Closing the scope waits for
+ * every forked stage, so declare it after the resources the stages read (e.g. an
+ * UploadedImage) in the same try-with-resources and they are never released under a stage.
+ */
+public class StageScope implements AutoCloseable {
+
+    private final Executor executor;
+    private final List<CompletableFuture<?>> stages = new ArrayList<>();
+
+    public StageScope(Executor executor) {
+        this.executor = executor;
+    }
+
+    public <T> CompletableFuture<T> fork(Callable<T> stage) {
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return stage.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+        stages.add(future);
+        return future;
+    }
+
+    /**
+     * Result of a stage, rethrowing the exception it failed with
+     */
+    public static <T> T join(CompletableFuture<T> stage) throws Exception {
+        try {
+            return stage.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Cancel every stage that has not started. Running stages finish on their own and close()
+     * no longer waits for them, so only cancel stages that read nothing the caller releases.
+     */
+    public void cancel() {
+        for (CompletableFuture<?> stage : stages) {
+            stage.cancel(false);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (CompletableFuture<?> stage : stages) {
+            try {
+                stage.join();
+            } catch (Exception ignored) {
+                // Failures surface through join(); here we only wait
+            }
+        }
+    }
+}
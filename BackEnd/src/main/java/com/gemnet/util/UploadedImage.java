@@ -0,0 +1,143 @@
+package com.gemnet.util;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An image upload read into memory once and decoded at most once. Validation, feature
+ * extraction, OCR and storage all work from the same bytes and the same decoded Mat instead
+ * of each calling getBytes()/imdecode on the multipart file again.
+ *
+ * The decoded Mats are shared: callers may read them or build new Mats from them, but must not
+ * write into them. close() frees the native memory; the bytes stay usable.
+ */
+public class UploadedImage implements MultipartFile, AutoCloseable {
+
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+    private final byte[] bytes;
+
+    private Mat color;
+    private Mat gray;
+
+    private UploadedImage(MultipartFile file, byte[] bytes) {
+        this.name = file.getName();
+        this.originalFilename = file.getOriginalFilename();
+        this.contentType = file.getContentType();
+        this.bytes = bytes;
+    }
+
+    /**
+     * Read an upload into memory (a no-op for an upload that already is one)
+     */
+    public static UploadedImage read(MultipartFile file) throws IOException {
+        if (file instanceof UploadedImage) {
+            return (UploadedImage) file;
+        }
+        return new UploadedImage(file, file.getBytes());
+    }
+
+    /**
+     * The image decoded as 8-bit BGR; empty if the bytes are not a readable image
+     */
+    public synchronized Mat getMat() {
+        if (color == null) {
+            MatOfByte encoded = new MatOfByte(bytes);
+            try {
+                color = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+            } finally {
+                encoded.release();
+            }
+        }
+        return color;
+    }
+
+    /**
+     * Grayscale version of {@link #getMat()}, converted once
+     */
+    public synchronized Mat getGray() {
+        if (gray == null) {
+            Mat image = getMat();
+            gray = new Mat();
+            if (!image.empty()) {
+                Imgproc.cvtColor(image, gray, Imgproc.COLOR_BGR2GRAY);
+            }
+        }
+        return gray;
+    }
+
+    public synchronized boolean isDecodable() {
+        return !getMat().empty();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bytes.length == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return bytes.length;
+    }
+
+    /**
+     * The buffered bytes themselves (not a copy)
+     */
+    @Override
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.write(dest.toPath(), bytes);
+    }
+
+    @Override
+    public void transferTo(Path dest) throws IOException {
+        Files.write(dest, bytes);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (gray != null) {
+            gray.release();
+            gray = null;
+        }
+        if (color != null) {
+            color.release();
+            color = null;
+        }
+    }
+}
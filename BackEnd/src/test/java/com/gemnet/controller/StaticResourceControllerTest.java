@@ -0,0 +1,241 @@
+package com.gemnet.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Conditional GET and Range handling of /uploads/** against files in a temp directory
+ */
+class StaticResourceControllerTest {
+
+    private static final String BODY = "0123456789abcdefghij"; // 20 bytes
+
+    @TempDir
+    Path uploads;
+
+    private StaticResourceController controller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        controller = new StaticResourceController();
+        ReflectionTestUtils.setField(controller, "uploadsLocation", uploads);
+        Files.createDirectories(uploads.resolve("gems"));
+        Files.write(uploads.resolve("gems/stone.txt"), BODY.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void servesTheWholeFileWithValidators() throws Exception {
+        MockHttpServletResponse response = get(request());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(BODY, response.getContentAsString());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertNotNull(response.getHeader(HttpHeaders.ETAG));
+        assertEquals(20, response.getContentLengthLong());
+    }
+
+    @Test
+    void contentHashNamesUseTheHashAsEtag() throws Exception {
+        String hash = "a".repeat(64);
+        Files.write(uploads.resolve(hash + ".jpg"), new byte[] {1, 2, 3});
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + hash + ".jpg");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals("\"" + hash + "\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals("public, max-age=31536000, immutable", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void boundedRange() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("2345", response.getContentAsString());
+        assertEquals(4, response.getContentLengthLong());
+    }
+
+    @Test
+    void openEndedRangeRunsToTheEnd() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=15-");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 15-19/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("fghij", response.getContentAsString());
+    }
+
+    @Test
+    void rangeEndIsClampedToTheFile() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=18-100");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 18-19/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("ij", response.getContentAsString());
+    }
+
+    @Test
+    void suffixRangeReturnsTheLastBytes() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 17-19/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("hij", response.getContentAsString());
+    }
+
+    @Test
+    void suffixLongerThanTheFileReturnsAllOfIt() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=-500");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 0-19/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(BODY, response.getContentAsString());
+    }
+
+    @Test
+    void multipleOrMalformedRangesAreIgnored() throws Exception {
+        for (String range : new String[] {"bytes=0-1,4-5", "bytes=abc-def", "bytes=5", "items=0-5"}) {
+            MockHttpServletRequest request = request();
+            request.addHeader(HttpHeaders.RANGE, range);
+
+            MockHttpServletResponse response = get(request);
+
+            assertEquals(200, response.getStatus(), range);
+            assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+            assertEquals(BODY, response.getContentAsString(), range);
+        }
+    }
+
+    @Test
+    void unsatisfiableRangesReturn416() throws Exception {
+        for (String range : new String[] {"bytes=20-", "bytes=30-40", "bytes=8-3", "bytes=-0"}) {
+            MockHttpServletRequest request = request();
+            request.addHeader(HttpHeaders.RANGE, range);
+
+            MockHttpServletResponse response = get(request);
+
+            assertEquals(416, response.getStatus(), range);
+            assertEquals("bytes */20", response.getHeader(HttpHeaders.CONTENT_RANGE), range);
+        }
+    }
+
+    @Test
+    void matchingIfNoneMatchReturns304() throws Exception {
+        String etag = get(request()).getHeader(HttpHeaders.ETAG);
+
+        for (String header : new String[] {etag, "W/" + etag, "\"other\", " + etag, "*"}) {
+            MockHttpServletRequest request = request();
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, header);
+
+            MockHttpServletResponse response = get(request);
+
+            assertEquals(304, response.getStatus(), header);
+            assertEquals(0, response.getContentAsByteArray().length, header);
+        }
+    }
+
+    @Test
+    void staleIfNoneMatchServesTheFile() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"0-0\"");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(BODY, response.getContentAsString());
+    }
+
+    @Test
+    void ifNoneMatchTakesPrecedenceOverIfModifiedSince() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"0-0\"");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, System.currentTimeMillis() + 60_000);
+
+        assertEquals(200, get(request).getStatus());
+    }
+
+    @Test
+    void ifRangeWithCurrentEtagKeepsTheRange() throws Exception {
+        String etag = get(request()).getHeader(HttpHeaders.ETAG);
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, etag);
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("01", response.getContentAsString());
+    }
+
+    @Test
+    void ifRangeMismatchServesTheWholeFile() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(BODY.getBytes(StandardCharsets.US_ASCII), response.getContentAsByteArray());
+    }
+
+    @Test
+    void pathsOutsideTheUploadsDirectoryAreForbidden() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/../secret.txt");
+
+        assertEquals(403, get(request).getStatus());
+    }
+
+    @Test
+    void dotDirectoriesAreNotServed() throws Exception {
+        Path quarantined = uploads.resolve(".quarantine/20250101-000000/face-images/user_face.jpg");
+        Files.createDirectories(quarantined.getParent());
+        Files.write(quarantined, new byte[] {1, 2, 3});
+        MockHttpServletRequest request = new MockHttpServletRequest("GET",
+            "/uploads/.quarantine/20250101-000000/face-images/user_face.jpg");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(404, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/uploads/gems/stone.txt");
+    }
+
+    private MockHttpServletResponse get(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.getFile(request, response);
+        return response;
+    }
+}
@@ -0,0 +1,73 @@
+package com.gemnet.service;
+
+import com.gemnet.config.GemAttributeSynonymConfig;
+import com.gemnet.enums.GemClarity;
+import com.gemnet.enums.GemColor;
+import com.gemnet.enums.GemCut;
+import com.gemnet.enums.GemSpecies;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class GemAttributeCanonicalizerTest {
+
+    private GemAttributeCanonicalizer canonicalizer;
+
+    @BeforeEach
+    void setUp() {
+        GemAttributeSynonymConfig config = new GemAttributeSynonymConfig();
+        config.getSpecies().put("geuda", "SAPPHIRE");
+        canonicalizer = new GemAttributeCanonicalizer();
+        ReflectionTestUtils.setField(canonicalizer, "synonymConfig", config);
+        ReflectionTestUtils.setField(canonicalizer, "cacheSize", 100);
+        canonicalizer.init();
+    }
+
+    @Test
+    void speciesNameBeatsColourWord() {
+        assertEquals(GemSpecies.SPINEL, canonicalizer.resolveSpecies("Purple Spinel"));
+        assertEquals(GemSpecies.TOPAZ, canonicalizer.resolveSpecies("White Topaz"));
+        assertEquals(GemSpecies.ZIRCON, canonicalizer.resolveSpecies("Yellow Zircon"));
+        assertEquals(GemSpecies.EMERALD, canonicalizer.resolveSpecies("Green Beryl"));
+        assertEquals(GemSpecies.EMERALD, canonicalizer.resolveSpecies("Yellow Beryl"));
+        assertEquals(GemSpecies.TOURMALINE, canonicalizer.resolveSpecies("Pink Tourmaline"));
+        assertEquals(GemSpecies.SPINEL, canonicalizer.resolveSpecies("Red Spinel"));
+    }
+
+    @Test
+    void colourVarietiesOfSapphire() {
+        assertEquals(GemSpecies.YELLOW_SAPPHIRE, canonicalizer.resolveSpecies("Yellow Sapphire"));
+        assertEquals(GemSpecies.YELLOW_SAPPHIRE, canonicalizer.resolveSpecies("yellow"));
+        assertEquals(GemSpecies.PURPLE_SAPPHIRE, canonicalizer.resolveSpecies("Natural Purple Sapphire"));
+        assertEquals(GemSpecies.SAPPHIRE, canonicalizer.resolveSpecies("Blue Sapphire"));
+        assertEquals(GemSpecies.RUBY, canonicalizer.resolveSpecies("Red"));
+        assertEquals(GemSpecies.PADPARADSCHA, canonicalizer.resolveSpecies("Padparadscha"));
+        assertEquals(GemSpecies.SAPPHIRE, GemSpecies.YELLOW_SAPPHIRE.getFamily());
+    }
+
+    @Test
+    void configuredSynonymsAndUnknowns() {
+        assertEquals(GemSpecies.SAPPHIRE, canonicalizer.resolveSpecies("Geuda"));
+        assertEquals(GemSpecies.UNKNOWN, canonicalizer.resolveSpecies("Obsidian"));
+        assertEquals(GemSpecies.UNKNOWN, canonicalizer.resolveSpecies(null));
+        assertEquals(GemSpecies.UNKNOWN, canonicalizer.resolveSpecies("  "));
+    }
+
+    @Test
+    void gradesAndCuts() {
+        assertEquals(GemColor.BLUE, canonicalizer.resolveColor("Royal-Blue"));
+        assertEquals(GemColor.OTHER, canonicalizer.resolveColor("Brown"));
+        assertEquals(GemClarity.VVS1, canonicalizer.resolveClarity("VVS 1"));
+        assertEquals(GemCut.VERY_GOOD, canonicalizer.resolveCut("Very-Good"));
+    }
+
+    @Test
+    void colourTermsAreNormalizedAndShared() {
+        String first = canonicalizer.colorTerm("Royal  Blue");
+        assertEquals("royal blue", first);
+        assertSame(first, canonicalizer.colorTerm("royal-blue"));
+    }
+}
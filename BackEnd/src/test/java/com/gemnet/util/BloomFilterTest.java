@@ -0,0 +1,47 @@
+package com.gemnet.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void addedValuesAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("upload-" + i + ".jpg");
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("upload-" + i + ".jpg"), "missing upload-" + i);
+        }
+        assertEquals(10_000, filter.getCount());
+    }
+
+    @Test
+    void falsePositiveRateStaysNearConfiguredRate() {
+        BloomFilter filter = new BloomFilter(20_000, 0.01);
+        for (int i = 0; i < 20_000; i++) {
+            filter.add("kept-" + i);
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("orphan-" + i)) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "false positive rate " + rate);
+    }
+
+    @Test
+    void lowerRateTakesMoreMemoryAndHashes() {
+        BloomFilter loose = new BloomFilter(10_000, 0.05);
+        BloomFilter strict = new BloomFilter(10_000, 0.0001);
+        assertTrue(strict.getSizeInBytes() > loose.getSizeInBytes());
+        assertTrue(strict.getHashCount() > loose.getHashCount());
+        assertTrue(loose.getHashCount() >= 1);
+    }
+}
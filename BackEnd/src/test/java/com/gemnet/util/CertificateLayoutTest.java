@@ -0,0 +1,116 @@
+package com.gemnet.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Row detection (findTextLines) through locateFields on synthetic cards: dark bars stand in
+ * for the printed labels in the label column.
+ */
+class CertificateLayoutTest {
+
+    private static final int FIRST_LINE = 260;
+    private static final int LINE_PITCH = 50;
+    private static final int LINE_HEIGHT = 14;
+
+    private Mat card;
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @BeforeEach
+    void setUp() {
+        card = new Mat(CertificateLayout.CARD_HEIGHT, CertificateLayout.CARD_WIDTH, CvType.CV_8UC1, new Scalar(255));
+    }
+
+    @AfterEach
+    void tearDown() {
+        card.release();
+    }
+
+    @Test
+    void fieldsFollowDetectedLabelRows() {
+        for (int i = 0; i < 9; i++) {
+            drawLabel(FIRST_LINE + i * LINE_PITCH, LINE_HEIGHT);
+        }
+
+        List<Rect> fields = new ArrayList<>(CertificateLayout.CSL_CARD.locateFields(card).values());
+
+        assertEquals(9, fields.size());
+        for (int i = 0; i < 9; i++) {
+            int lineTop = FIRST_LINE + i * LINE_PITCH;
+            // Padded by a third of the line height, at least 4 px
+            assertEquals(lineTop - 4, fields.get(i).y, "top of row " + i);
+            assertEquals(LINE_HEIGHT + 8, fields.get(i).height, "height of row " + i);
+        }
+    }
+
+    @Test
+    void thinRulesAndSpecksAreNotLines() {
+        for (int i = 0; i < 9; i++) {
+            drawLabel(FIRST_LINE + i * LINE_PITCH, LINE_HEIGHT);
+        }
+        // A 2 px separator rule below the last label
+        Imgproc.rectangle(card, new Point(70, 700), new Point(300, 701), new Scalar(0), -1);
+
+        Map<String, Rect> fields = CertificateLayout.CSL_CARD.locateFields(card);
+
+        assertEquals(FIRST_LINE - 4, fields.get("Date").y);
+        assertEquals(FIRST_LINE + 8 * LINE_PITCH - 4, fields.get("Treatment").y);
+    }
+
+    @Test
+    void shortGapsInsideALineDoNotSplitIt() {
+        for (int i = 0; i < 9; i++) {
+            int top = FIRST_LINE + i * LINE_PITCH;
+            // Two halves with a 2 px gap, like the space between ascenders and descenders
+            drawLabel(top, 6);
+            drawLabel(top + 8, 6);
+        }
+
+        Rect date = CertificateLayout.CSL_CARD.locateFields(card).get("Date");
+
+        assertEquals(FIRST_LINE - 4, date.y);
+        assertEquals(LINE_HEIGHT + 8, date.height);
+    }
+
+    @Test
+    void fallsBackToMeasuredRowsWhenLineCountDiffers() {
+        for (int i = 0; i < 8; i++) {
+            drawLabel(FIRST_LINE + i * LINE_PITCH, LINE_HEIGHT);
+        }
+
+        Rect date = CertificateLayout.CSL_CARD.locateFields(card).get("Date");
+
+        // First row centred at 37.4% of the card, one 6.47% pitch tall
+        assertEquals(Math.round((0.374 - 0.0647 / 2) * CertificateLayout.CARD_HEIGHT), date.y);
+        assertEquals(Math.round((0.374 + 0.0647 / 2) * CertificateLayout.CARD_HEIGHT) - date.y, date.height);
+    }
+
+    @Test
+    void blankCardUsesMeasuredRows() {
+        Map<String, Rect> fields = CertificateLayout.CSL_CARD.locateFields(card);
+
+        assertEquals(Math.round((0.374 - 0.0647 / 2) * CertificateLayout.CARD_HEIGHT), fields.get("Date").y);
+    }
+
+    private void drawLabel(int top, int height) {
+        Imgproc.rectangle(card, new Point(70, top), new Point(220, top + height - 1), new Scalar(0), -1);
+    }
+}
@@ -0,0 +1,156 @@
+package com.gemnet.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FaceLshIndexTest {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final Map<String, byte[]> templates = new HashMap<>();
+    private FaceLshIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            templates.put("user" + i, template(random));
+        }
+        index = new FaceLshIndex(8, 10, 2, FaceLshIndex.meanOf(templates.values()), 42);
+        templates.forEach(index::put);
+    }
+
+    @Test
+    void storedTemplateIsFoundFirst() {
+        byte[] query = templates.get("user17");
+
+        FaceLshIndex.QueryResult result = index.query(query, 0.0, 5, null, NO_DEADLINE);
+
+        assertFalse(result.getMatches().isEmpty());
+        assertEquals("user17", result.getMatches().get(0).getId());
+        assertEquals(1.0, result.getMatches().get(0).getSimilarity(), 0.02);
+        assertFalse(result.isTruncated());
+        assertTrue(result.getCandidatesChecked() >= 1);
+    }
+
+    @Test
+    void matchesAreSortedFilteredAndLimited() {
+        byte[] query = templates.get("user3");
+        double minSimilarity = 0.5;
+
+        List<FaceLshIndex.Match> matches = index.query(query, minSimilarity, 4, null, NO_DEADLINE).getMatches();
+
+        assertTrue(matches.size() <= 4);
+        for (int i = 0; i < matches.size(); i++) {
+            assertTrue(matches.get(i).getSimilarity() >= minSimilarity);
+            assertEquals(LbpFaceDescriptor.similarity(query, templates.get(matches.get(i).getId())),
+                         matches.get(i).getSimilarity(), 1e-9);
+            if (i > 0) {
+                assertTrue(matches.get(i - 1).getSimilarity() >= matches.get(i).getSimilarity());
+            }
+        }
+    }
+
+    @Test
+    void excludedIdIsNotReturned() {
+        byte[] query = templates.get("user5");
+
+        for (FaceLshIndex.Match match : index.query(query, 0.0, 200, "user5", NO_DEADLINE).getMatches()) {
+            assertFalse("user5".equals(match.getId()));
+        }
+    }
+
+    @Test
+    void nearCopyOfAStoredTemplateIsFound() {
+        Random random = new Random(3);
+        byte[] query = templates.get("user42").clone();
+        for (int i = 0; i < 40; i++) {
+            int d = random.nextInt(query.length);
+            query[d] = (byte) Math.min(255, (query[d] & 0xff) + 3);
+        }
+
+        List<String> ids = new ArrayList<>();
+        for (FaceLshIndex.Match match : index.query(query, 0.99, 5, null, NO_DEADLINE).getMatches()) {
+            ids.add(match.getId());
+        }
+
+        assertTrue(ids.contains("user42"), "found " + ids);
+    }
+
+    @Test
+    void removeAndReplaceUpdateTheBuckets() {
+        index.remove("user9");
+
+        assertEquals(199, index.size());
+        assertFalse(index.getTemplates().containsKey("user9"));
+        for (FaceLshIndex.Match match : index.query(templates.get("user9"), 0.0, 200, null, NO_DEADLINE).getMatches()) {
+            assertFalse("user9".equals(match.getId()));
+        }
+
+        // Putting an id again replaces its old template
+        index.put("user10", templates.get("user9"));
+        assertEquals(199, index.size());
+        assertEquals("user10", index.query(templates.get("user9"), 0.0, 1, null, NO_DEADLINE).getMatches().get(0).getId());
+    }
+
+    @Test
+    void invalidTemplatesAreIgnored() {
+        index.put("broken", new byte[10]);
+        index.put("missing", null);
+
+        assertEquals(200, index.size());
+        assertTrue(index.query(new byte[10], 0.0, 5, null, NO_DEADLINE).getMatches().isEmpty());
+    }
+
+    @Test
+    void expiredDeadlineTruncatesTheQuery() {
+        // One bit per table puts about half of the templates in every bucket
+        FaceLshIndex coarse = new FaceLshIndex(4, 1, 0, FaceLshIndex.meanOf(templates.values()), 42);
+        templates.forEach(coarse::put);
+
+        FaceLshIndex.QueryResult result = coarse.query(templates.get("user1"), 0.0, 200, null, System.nanoTime() - 1);
+
+        assertTrue(result.isTruncated());
+        assertTrue(result.getCandidatesChecked() < templates.size());
+    }
+
+    @Test
+    void meanSkipsInvalidTemplates() {
+        byte[] ones = new byte[LbpFaceDescriptor.LENGTH];
+        byte[] threes = new byte[LbpFaceDescriptor.LENGTH];
+        Arrays.fill(ones, (byte) 1);
+        Arrays.fill(threes, (byte) 3);
+
+        float[] mean = FaceLshIndex.meanOf(Arrays.asList(ones, threes, new byte[5], null));
+
+        assertEquals(LbpFaceDescriptor.LENGTH, mean.length);
+        assertEquals(2.0f, mean[0], 1e-6);
+        assertEquals(2.0f, mean[LbpFaceDescriptor.LENGTH - 1], 1e-6);
+    }
+
+    private static byte[] template(Random random) {
+        byte[] pixels = new byte[LbpFaceDescriptor.FACE_SIZE * LbpFaceDescriptor.FACE_SIZE];
+        // Smooth blobs give more varied histograms than plain noise
+        int cx = random.nextInt(100);
+        int cy = random.nextInt(100);
+        int scale = 5 + random.nextInt(30);
+        for (int y = 0; y < LbpFaceDescriptor.FACE_SIZE; y++) {
+            for (int x = 0; x < LbpFaceDescriptor.FACE_SIZE; x++) {
+                double wave = Math.sin((x - cx) / (double) scale) * Math.cos((y - cy) / (double) scale);
+                pixels[y * LbpFaceDescriptor.FACE_SIZE + x] = (byte) (120 + 100 * wave + random.nextInt(20));
+            }
+        }
+        return LbpFaceDescriptor.compute(pixels, LbpFaceDescriptor.FACE_SIZE, LbpFaceDescriptor.FACE_SIZE);
+    }
+}
@@ -0,0 +1,88 @@
+package com.gemnet.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HammingIndexTest {
+
+    @Test
+    void searchMatchesBruteForce() {
+        Random random = new Random(7);
+        HammingIndex index = new HammingIndex();
+        List<Long> hashes = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            // Every fourth hash is a near copy of an earlier one, so there are matches to find
+            long hash = i % 4 == 3 ? flipBits(hashes.get(random.nextInt(hashes.size())), random.nextInt(10), random)
+                                   : random.nextLong();
+            hashes.add(hash);
+            index.add(hash, "listing" + i + "/image");
+        }
+
+        for (int radius : new int[] {0, 3, 6, 8}) {
+            for (int q = 0; q < 200; q++) {
+                long query = flipBits(hashes.get(random.nextInt(hashes.size())), random.nextInt(4), random);
+                Set<String> expected = new HashSet<>();
+                for (int i = 0; i < hashes.size(); i++) {
+                    if (PerceptualHash.distance(query, hashes.get(i)) <= radius) {
+                        expected.add("listing" + i + "/image");
+                    }
+                }
+                Set<String> found = new HashSet<>();
+                for (HammingIndex.Match match : index.search(query, radius).getMatches()) {
+                    assertTrue(match.getDistance() <= radius);
+                    assertEquals(PerceptualHash.distance(query, match.getHash()), match.getDistance());
+                    assertTrue(found.add(match.getReference()), "reported twice: " + match.getReference());
+                }
+                assertEquals(expected, found, "radius " + radius);
+            }
+        }
+    }
+
+    @Test
+    void referencesSharingAHashAreAllReturned() {
+        HammingIndex index = new HammingIndex();
+        index.add(0xABCDL, "a/1");
+        index.add(0xABCDL, "b/1");
+
+        assertEquals(1, index.getHashCount());
+        assertEquals(2, index.getReferenceCount());
+        assertEquals(2, index.search(0xABCDL, 0).getMatches().size());
+    }
+
+    @Test
+    void removeDropsOnlyThatReference() {
+        HammingIndex index = new HammingIndex();
+        index.add(42L, "a/1");
+        index.add(42L, "b/1");
+
+        assertTrue(index.remove(42L, "a/1"));
+        assertFalse(index.remove(42L, "a/1"));
+        assertFalse(index.remove(43L, "b/1"));
+        assertEquals(1, index.getReferenceCount());
+
+        assertTrue(index.remove(42L, "b/1"));
+        assertEquals(0, index.getHashCount());
+        assertTrue(index.search(42L, 6).getMatches().isEmpty());
+    }
+
+    private static long flipBits(long hash, int count, Random random) {
+        long flipped = hash;
+        Set<Integer> bits = new HashSet<>();
+        while (bits.size() < count) {
+            bits.add(random.nextInt(64));
+        }
+        for (int bit : bits) {
+            flipped ^= 1L << bit;
+        }
+        return flipped;
+    }
+}
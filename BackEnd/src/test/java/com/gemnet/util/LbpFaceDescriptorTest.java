@@ -0,0 +1,109 @@
+package com.gemnet.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LbpFaceDescriptorTest {
+
+    private static final int SIZE = LbpFaceDescriptor.FACE_SIZE;
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void templateHasOneHistogramPerCell() {
+        byte[] template = LbpFaceDescriptor.compute(texture(1, 0), SIZE, SIZE);
+
+        assertEquals(LbpFaceDescriptor.GRID * LbpFaceDescriptor.GRID * LbpFaceDescriptor.BINS, template.length);
+        assertEquals(LbpFaceDescriptor.LENGTH, template.length);
+    }
+
+    @Test
+    void identicalTemplatesAreFullySimilar() {
+        byte[] template = LbpFaceDescriptor.compute(texture(1, 0), SIZE, SIZE);
+
+        assertEquals(1.0, LbpFaceDescriptor.similarity(template, template.clone()), 0.02);
+    }
+
+    @Test
+    void uniformBrightnessChangeKeepsTheTemplate() {
+        // LBP codes only compare neighbours, so a constant offset changes nothing
+        assertArrayEquals(LbpFaceDescriptor.compute(texture(1, 0), SIZE, SIZE),
+                          LbpFaceDescriptor.compute(texture(1, 40), SIZE, SIZE));
+    }
+
+    @Test
+    void differentTexturesAreLessSimilar() {
+        byte[] noise = LbpFaceDescriptor.compute(texture(1, 0), SIZE, SIZE);
+        byte[] stripes = LbpFaceDescriptor.compute(stripes(), SIZE, SIZE);
+
+        double same = LbpFaceDescriptor.similarity(noise, LbpFaceDescriptor.compute(texture(2, 0), SIZE, SIZE));
+        double different = LbpFaceDescriptor.similarity(noise, stripes);
+
+        assertTrue(different < same, different + " vs " + same);
+        assertTrue(different < 0.9, "similarity " + different);
+    }
+
+    @Test
+    void invalidTemplatesHaveNoSimilarity() {
+        byte[] template = LbpFaceDescriptor.compute(texture(1, 0), SIZE, SIZE);
+
+        assertEquals(0.0, LbpFaceDescriptor.similarity(template, null));
+        assertEquals(0.0, LbpFaceDescriptor.similarity(null, template));
+        assertEquals(0.0, LbpFaceDescriptor.similarity(template, new byte[LbpFaceDescriptor.LENGTH - 1]));
+    }
+
+    @Test
+    void matInputIsResizedToTheFaceSize() {
+        byte[] pixels = texture(3, 0);
+        Mat face = new Mat(SIZE, SIZE, CvType.CV_8UC1);
+        Mat larger = new Mat();
+        try {
+            face.put(0, 0, pixels);
+            Imgproc.resize(face, larger, new Size(240, 240));
+
+            byte[] fromMat = LbpFaceDescriptor.compute(face);
+            byte[] fromLarger = LbpFaceDescriptor.compute(larger);
+
+            assertEquals(LbpFaceDescriptor.LENGTH, fromLarger.length);
+            assertTrue(LbpFaceDescriptor.similarity(fromMat, fromLarger) > 0.8);
+        } finally {
+            face.release();
+            larger.release();
+        }
+    }
+
+    /**
+     * Random noise in [0, 200) plus a constant offset
+     */
+    private static byte[] texture(long seed, int offset) {
+        Random random = new Random(seed);
+        byte[] pixels = new byte[SIZE * SIZE];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) (random.nextInt(200) + offset);
+        }
+        return pixels;
+    }
+
+    private static byte[] stripes() {
+        byte[] pixels = new byte[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                pixels[y * SIZE + x] = (byte) ((x / 4) % 2 == 0 ? 40 : 200);
+            }
+        }
+        return pixels;
+    }
+}
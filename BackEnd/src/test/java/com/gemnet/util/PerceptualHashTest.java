@@ -0,0 +1,131 @@
+package com.gemnet.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerceptualHashTest {
+
+    // Radius the duplicate image check uses
+    private static final int NEAR_DUPLICATE = 6;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void identicalImagesHashTheSame() {
+        try (MatScope scope = new MatScope()) {
+            Mat image = drawScene(scope, 400, 300, false);
+            Mat copy = scope.track(image.clone());
+
+            assertEquals(PerceptualHash.of(image), PerceptualHash.of(copy));
+        }
+    }
+
+    @Test
+    void resizedBrightenedAndRecompressedCopiesStayClose() {
+        try (MatScope scope = new MatScope()) {
+            Mat image = drawScene(scope, 800, 600, false);
+            long hash = PerceptualHash.of(image);
+
+            Mat resized = scope.newMat();
+            Imgproc.resize(image, resized, new Size(317, 238), 0, 0, Imgproc.INTER_AREA);
+            assertTrue(PerceptualHash.distance(hash, PerceptualHash.of(resized)) <= NEAR_DUPLICATE);
+
+            Mat brighter = scope.newMat();
+            image.convertTo(brighter, -1, 1.0, 25);
+            assertTrue(PerceptualHash.distance(hash, PerceptualHash.of(brighter)) <= NEAR_DUPLICATE);
+
+            MatOfByte jpeg = scope.track(new MatOfByte());
+            Imgcodecs.imencode(".jpg", image, jpeg, new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, 40));
+            Mat recompressed = scope.track(Imgcodecs.imdecode(jpeg, Imgcodecs.IMREAD_GRAYSCALE));
+            assertTrue(PerceptualHash.distance(hash, PerceptualHash.of(recompressed)) <= NEAR_DUPLICATE);
+        }
+    }
+
+    @Test
+    void differentImagesAreFarApart() {
+        try (MatScope scope = new MatScope()) {
+            long hash = PerceptualHash.of(drawScene(scope, 400, 300, false));
+            long other = PerceptualHash.of(drawScene(scope, 400, 300, true));
+
+            assertTrue(PerceptualHash.distance(hash, other) > NEAR_DUPLICATE * 2,
+                "distance " + PerceptualHash.distance(hash, other));
+        }
+    }
+
+    @Test
+    void ofFileMatchesInMemoryHash() throws Exception {
+        try (MatScope scope = new MatScope()) {
+            Mat image = drawScene(scope, 800, 600, false);
+            Path file = tempDir.resolve("scene.png");
+            Imgcodecs.imwrite(file.toString(), image);
+
+            Long fromFile = PerceptualHash.ofFile(file);
+
+            assertNotNull(fromFile);
+            assertTrue(PerceptualHash.distance(PerceptualHash.of(image), fromFile) <= NEAR_DUPLICATE);
+        }
+    }
+
+    @Test
+    void ofFileReturnsNullForUndecodableFiles() throws Exception {
+        Path file = tempDir.resolve("broken.jpg");
+        Files.write(file, new byte[] {1, 2, 3, 4});
+
+        assertNull(PerceptualHash.ofFile(file));
+        assertNull(PerceptualHash.ofFile(tempDir.resolve("missing.jpg")));
+    }
+
+    @Test
+    void distanceCountsDifferingBits() {
+        assertEquals(0, PerceptualHash.distance(0x1234L, 0x1234L));
+        assertEquals(64, PerceptualHash.distance(0L, -1L));
+        assertEquals(2, PerceptualHash.distance(0b1010L, 0b0000L));
+    }
+
+    /**
+     * A gradient with a few shapes; the alternative puts them elsewhere on a reversed gradient
+     */
+    private static Mat drawScene(MatScope scope, int width, int height, boolean alternative) {
+        Mat image = scope.track(new Mat(height, width, CvType.CV_8UC1));
+        byte[] row = new byte[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int value = alternative ? 255 - x * 200 / width : 30 + y * 200 / height;
+                row[x] = (byte) value;
+            }
+            image.put(y, 0, row);
+        }
+        if (alternative) {
+            Imgproc.rectangle(image, new Point(width * 0.6, height * 0.1), new Point(width * 0.9, height * 0.5), new Scalar(10), -1);
+            Imgproc.circle(image, new Point(width * 0.25, height * 0.75), height / 6, new Scalar(245), -1);
+        } else {
+            Imgproc.circle(image, new Point(width * 0.3, height * 0.4), height / 5, new Scalar(240), -1);
+            Imgproc.rectangle(image, new Point(width * 0.55, height * 0.55), new Point(width * 0.85, height * 0.85), new Scalar(20), -1);
+        }
+        return image;
+    }
+}
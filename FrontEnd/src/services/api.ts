@@ -100,6 +100,34 @@ apiFileUpload.interceptors.response.use(
   }
 );
 
+// Face and NIC verification run as background jobs on the server; poll until the job finishes
+const VERIFICATION_POLL_INTERVAL_MS = 1000;
+const VERIFICATION_TIMEOUT_MS = 180000;
+
+const waitForVerificationJob = async (submitted: ApiResponse<any>): Promise<ApiResponse<any>> => {
+  const jobId = submitted.data?.jobId;
+  if (!submitted.success || !jobId) {
+    return submitted;
+  }
+
+  const deadline = Date.now() + VERIFICATION_TIMEOUT_MS;
+  while (Date.now() < deadline) {
+    await new Promise((resolve) => setTimeout(resolve, VERIFICATION_POLL_INTERVAL_MS));
+    const response: AxiosResponse<ApiResponse<any>> = await api.get(`/api/auth/verification-jobs/${jobId}`);
+    const job = response.data.data;
+    if (job?.status === 'SUCCEEDED' || job?.status === 'FAILED') {
+      // Same shape the synchronous endpoints used to return
+      return { success: !!job.success, message: job.message, data: job.result };
+    }
+  }
+
+  return {
+    success: false,
+    message: 'Verification is taking longer than expected. Please try again.',
+    data: { jobId },
+  };
+};
+
 // Auth API
 export const authAPI = {
   // Health check
@@ -127,7 +155,7 @@ export const authAPI = {
     const formData = new FormData();
     formData.append('faceImage', faceImage);
 
-    const response: AxiosResponse<ApiResponse<string>> = await api.post(
+    const response: AxiosResponse<ApiResponse<any>> = await api.post(
       `/api/auth/verify-face/${userId}`,
       formData,
       {
@@ -136,7 +164,7 @@ export const authAPI = {
         },
       }
     );
-    return response.data;
+    return waitForVerificationJob(response.data);
   },
 
   // NIC verification with enhanced error handling
@@ -154,15 +182,16 @@ export const authAPI = {
           },
         }
       );
+      const outcome = await waitForVerificationJob(response.data);
 
       // Transform the response to match our enhanced NIC verification result type
       const transformedResponse: ApiResponse<NicVerificationResult> = {
-        success: response.data.success,
-        message: response.data.message,
+        success: outcome.success,
+        message: outcome.message,
         data: {
-          success: response.data.success,
-          message: response.data.message,
-          ...response.data.data // Spread all the detailed data from backend
+          success: outcome.success,
+          message: outcome.message,
+          ...outcome.data // Spread all the detailed data from backend
         }
       };
 